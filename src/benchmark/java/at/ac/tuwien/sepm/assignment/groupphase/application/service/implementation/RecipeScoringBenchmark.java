@@ -0,0 +1,96 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+
+/**
+ * Scoring all recipes of a meal: the boxed scoring into hash maps the recommendations used before against the
+ * {@link RecipeScoringKernel}, sequentially and in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeScoringBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int recipes;
+
+	private final DietPlan dietPlan = new DietPlan(1, "Build Muscle", 2500.0, 20.0, 25.0, 50.0, LocalDate.now(), null);
+	private final double kcalTarget = 2500.0 / 4 * 2;
+	private List<RecipeSummary> summaries;
+	private RecipeScoringKernel kernel;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		summaries = new ArrayList<>(recipes);
+		for (int i = 0; i < recipes; i++) {
+			summaries.add(new RecipeSummary(i, "Recipe " + i, 30d, 1L << random.nextInt(3),
+					random.nextDouble() * 1500, random.nextDouble() * 100, random.nextDouble() * 60,
+					random.nextDouble() * 50));
+		}
+		kernel = new RecipeScoringKernel(summaries);
+	}
+
+	@Benchmark
+	public Map<RecipeSummary, Double> boxedMaps() {
+		Map<RecipeSummary, Double> scored = new HashMap<>();
+		long tagMask = RecipeTag.L.getMask();
+		for (RecipeSummary r : summaries) {
+			if ((r.getTagMask() & tagMask) != 0) {
+				scored.put(r, Math.abs((r.getCalories() / kcalTarget) - 1) * (10.0 / 4)
+						+ Math.abs((r.getCarbohydratePercent() / dietPlan.getCarbohydrate()) - 1) * (2.0 / 4)
+						+ Math.abs((r.getProteinPercent() / dietPlan.getProtein()) - 1) * (2.0 / 4)
+						+ Math.abs((r.getFatPercent() / dietPlan.getLipid()) - 1) * (2.0 / 4));
+			}
+		}
+		return scored;
+	}
+
+	@Benchmark
+	public double[] kernelSequential() {
+		return kernel.score(dietPlan, kcalTarget, kernel.candidates(RecipeTag.L.getMask()), Integer.MAX_VALUE);
+	}
+
+	@Benchmark
+	public double[] kernelParallel() {
+		return kernel.score(dietPlan, kcalTarget, kernel.candidates(RecipeTag.L.getMask()), 1);
+	}
+
+	@Benchmark
+	public double[] kernelIncludingBuild() {
+		RecipeScoringKernel built = new RecipeScoringKernel(summaries);
+		return built.score(dietPlan, kcalTarget, built.candidates(RecipeTag.L.getMask()), Integer.MAX_VALUE);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(RecipeScoringBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,45 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Meals that would be recommended for a day if a diet plan was active, nothing of it is stored
+ */
+public class DietPlanPreview {
+
+	private final DietPlan dietPlan;
+	private final Map<RecipeTag, RecipeSummary> meals;
+
+	public DietPlanPreview(DietPlan dietPlan, Map<RecipeTag, RecipeSummary> meals) {
+		this.dietPlan = dietPlan;
+		this.meals = Collections.unmodifiableMap(new EnumMap<>(meals));
+	}
+
+	public DietPlan getDietPlan() {
+		return dietPlan;
+	}
+
+	public Map<RecipeTag, RecipeSummary> getMeals() {
+		return meals;
+	}
+
+	/**
+	 * @return calories of all meals of the day
+	 */
+	public double getCalories() {
+		double calories = 0;
+		for (RecipeSummary meal : meals.values()) {
+			if (meal.getCalories() != null) {
+				calories += meal.getCalories();
+			}
+		}
+		return calories;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: {dietPlan: %s, meals: %s}", this.getClass().getSimpleName(), dietPlan.getName(), meals);
+	}
+}
@@ -0,0 +1,101 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Search Parameter for the recipes closest to target nutrition values. The distance of a recipe is the weighted sum
+ * of its relative deviations from the targets, {@code weight * |value / target - 1|} per target, so it is 0 for a
+ * recipe that hits every target. Nutrients without target do not count, recipes whose nutrition is unknown are never
+ * found.
+ */
+public class NutritionSearchParam {
+
+	private RecipeTag tag = null; // null or the meal the recipes must be tagged for
+	// targets and weights of the nutrients the distance is computed of
+	private Map<RecipeNutrient, Double> targets = new EnumMap<>(RecipeNutrient.class);
+	private Map<RecipeNutrient, Double> weights = new EnumMap<>(RecipeNutrient.class);
+	private Double maxDistance = null; // null or the greatest distance of a recipe in the result
+	private int limit = 10; // greatest number of recipes in the result
+
+	public NutritionSearchParam() {
+	}
+
+	/**
+	 * Creates the parameter of a search for the recipes whose calories are closest to the given ones.
+	 *
+	 * @param tag meal the recipes must be tagged for, null for all recipes
+	 * @param calories calories the recipes should have
+	 * @param limit greatest number of recipes in the result
+	 */
+	public NutritionSearchParam(RecipeTag tag, double calories, int limit) {
+		this.tag = tag;
+		this.limit = limit;
+		setTarget(RecipeNutrient.CALORIES, calories, 1.0);
+	}
+
+	public RecipeTag getTag() {
+		return tag;
+	}
+
+	public void setTag(RecipeTag tag) {
+		this.tag = tag;
+	}
+
+	/**
+	 * @param nutrient nutrition value
+	 * @return the target of the value, null if it does not count
+	 */
+	public Double getTarget(RecipeNutrient nutrient) {
+		return targets.get(nutrient);
+	}
+
+	/**
+	 * @param nutrient nutrition value
+	 * @return the weight of the deviation from the target of the value, null if it does not count
+	 */
+	public Double getWeight(RecipeNutrient nutrient) {
+		return weights.get(nutrient);
+	}
+
+	/**
+	 * @param nutrient nutrition value, e.g. {@link RecipeNutrient#CALORIES}
+	 * @param target value the recipes should have, null to remove the target
+	 * @param weight weight of the relative deviation from the target
+	 */
+	public void setTarget(RecipeNutrient nutrient, Double target, double weight) {
+		if (target == null) {
+			targets.remove(nutrient);
+			weights.remove(nutrient);
+		} else {
+			targets.put(nutrient, target);
+			weights.put(nutrient, weight);
+		}
+	}
+
+	public Double getMaxDistance() {
+		return maxDistance;
+	}
+
+	public void setMaxDistance(Double maxDistance) {
+		this.maxDistance = maxDistance;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @param limit greatest number of recipes in the result, {@link Integer#MAX_VALUE} for all within the
+	 *            {@link #getMaxDistance() greatest distance}
+	 */
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: {tag: %s, targets: %s, weights: %s, maxDistance: %s, limit: %s}",
+				this.getClass().getSimpleName(), tag, targets, weights, maxDistance, limit);
+	}
+}
@@ -0,0 +1,69 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
+
+/**
+ * A recipe with the number of times it was suggested, as shown by the statistics. Contains only the recipe's name and
+ * nutrition totals, load the {@link Recipe} for more.
+ */
+public class PopularRecipe {
+
+	private final int recipeId;
+	private final String name;
+	private final int count;
+	private final double calories;
+	private final double carbohydrates;
+	private final double proteins;
+	private final double fats;
+
+	/**
+	 * @param recipeId id of the recipe
+	 * @param name name of the recipe
+	 * @param count number of suggestions of the recipe
+	 * @param calories
+	 * @param carbohydrates
+	 * @param proteins
+	 * @param fats
+	 */
+	public PopularRecipe(int recipeId, String name, int count, double calories, double carbohydrates,
+			double proteins, double fats) {
+		this.recipeId = recipeId;
+		this.name = name;
+		this.count = count;
+		this.calories = calories;
+		this.carbohydrates = carbohydrates;
+		this.proteins = proteins;
+		this.fats = fats;
+	}
+
+	public int getRecipeId() {
+		return recipeId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public double getCalories() {
+		return calories;
+	}
+
+	public double getCarbohydrates() {
+		return carbohydrates;
+	}
+
+	public double getProteins() {
+		return proteins;
+	}
+
+	public double getFats() {
+		return fats;
+	}
+
+	@Override
+	public String toString() {
+		return "PopularRecipe{" + "recipeId=" + recipeId + ", name='" + name + '\'' + ", count=" + count + '}';
+	}
+}
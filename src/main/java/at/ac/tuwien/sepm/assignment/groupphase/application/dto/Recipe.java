@@ -12,6 +12,8 @@ public class Recipe {
 	private Double duration;
 	private String description;
 	private EnumSet<RecipeTag> tags;
+	private long customTagMask; // bits of the custom tags, see Tag
+	private List<String> customTagNames = null; // custom tags to store the recipe with, null keeps customTagMask
 	private Boolean deleted;
 	private List<RecipeIngredient> recipeIngredients = null;
 	private List<RecipeImage> recipeImages = null;
@@ -78,6 +80,34 @@ public class Recipe {
 		this.deleted = deleted;
 	}
 
+	/**
+	 * Copies a recipe, changing the copy or its ingredients does not change the original. The images are shared,
+	 * only the list holding them is copied.
+	 *
+	 * @param recipe {@link Recipe} to copy
+	 */
+	public Recipe(Recipe recipe) {
+		this.id = recipe.id;
+		this.name = recipe.name;
+		this.duration = recipe.duration;
+		this.description = recipe.description;
+		this.tags = recipe.tags == null ? null : EnumSet.copyOf(recipe.tags);
+		this.customTagMask = recipe.customTagMask;
+		this.customTagNames = recipe.customTagNames == null ? null : new ArrayList<>(recipe.customTagNames);
+		this.deleted = recipe.deleted;
+		if (recipe.recipeIngredients != null) {
+			this.recipeIngredients = new ArrayList<>(recipe.recipeIngredients.size());
+			for (RecipeIngredient recipeIngredient : recipe.recipeIngredients) {
+				this.recipeIngredients.add(new RecipeIngredient(recipeIngredient));
+			}
+		}
+		this.recipeImages = recipe.recipeImages == null ? null : new ArrayList<>(recipe.recipeImages);
+		this.calories = recipe.calories;
+		this.carbohydrates = recipe.carbohydrates;
+		this.proteins = recipe.proteins;
+		this.fats = recipe.fats;
+	}
+
 	public Integer getId() {
 		return id;
 	}
@@ -118,6 +148,45 @@ public class Recipe {
 		this.tags = tags;
 	}
 
+	public long getCustomTagMask() {
+		return customTagMask;
+	}
+
+	public void setCustomTagMask(long customTagMask) {
+		this.customTagMask = customTagMask & ~RecipeTag.MEAL_MASK;
+	}
+
+	public List<String> getCustomTagNames() {
+		return customTagNames;
+	}
+
+	/**
+	 * Sets the custom tags by name. When the recipe is stored, the tags that do not exist yet are created in the same
+	 * transaction and the custom tag mask is replaced by the bits of the named tags.
+	 *
+	 * @param customTagNames names of custom tags, see {@link Tag#normalizeName(String)}
+	 */
+	public void setCustomTagNames(List<String> customTagNames) {
+		this.customTagNames = customTagNames;
+	}
+
+	/**
+	 * @return bits of the meal tags and the custom tags of the recipe
+	 */
+	public long getTagMask() {
+		return RecipeTag.toMask(tags) | customTagMask;
+	}
+
+	/**
+	 * Sets the meal tags and the custom tags of the recipe.
+	 *
+	 * @param tagMask bits of all tags
+	 */
+	public void setTagMask(long tagMask) {
+		this.tags = RecipeTag.fromMask(tagMask);
+		setCustomTagMask(tagMask);
+	}
+
 	public Boolean getDeleted() {
 		return deleted;
 	}
@@ -1,23 +1,105 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 
+import javax.imageio.ImageIO;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.ImageUtil;
+
+/**
+ * Image of a recipe. Images read from the storage are only handles, their bytes are fetched and decoded when
+ * {@link #getImage()} is called, so loading a recipe does not decode any picture. Views that show the image in a
+ * fixed size should use {@link #getThumbnail(ThumbnailSize)}, which only reads the small stored thumbnail.
+ */
 public class RecipeImage {
+
+	/**
+	 * Provides the encoded bytes of an image, e.g. by reading them from the storage.
+	 */
+	@FunctionalInterface
+	public interface Source {
+		InputStream open() throws IOException;
+	}
+
+	/**
+	 * Provides the encoded bytes of a stored thumbnail, or <code>null</code> if none is stored for the size.
+	 */
+	@FunctionalInterface
+	public interface ThumbnailSource {
+		InputStream open(ThumbnailSize size) throws IOException;
+	}
+
 	private Integer id;
 	private BufferedImage image;
 	private String imageType;
-	
+	private Source source;
+	private ThumbnailSource thumbnailSource;
+
+	/**
+	 * Creates a handle of a stored image whose bytes are provided by the given source on demand.
+	 *
+	 * @param id
+	 * @param imageType
+	 * @param source
+	 */
+	public RecipeImage(Integer id, String imageType, Source source) {
+		this.id = id;
+		this.setImageType(imageType);
+		this.source = source;
+	}
+
+	/**
+	 * Creates a handle of a stored image whose bytes and thumbnails are provided by the given sources on demand.
+	 *
+	 * @param id
+	 * @param imageType
+	 * @param source
+	 * @param thumbnailSource
+	 */
+	public RecipeImage(Integer id, String imageType, Source source, ThumbnailSource thumbnailSource) {
+		this(id, imageType, source);
+		this.thumbnailSource = thumbnailSource;
+	}
+
+	/**
+	 * Creates a new image from its encoded bytes, e.g. the content of an image file. The bytes are stored as they are
+	 * and only decoded when the image is shown.
+	 *
+	 * @param data
+	 * @param imageType
+	 */
+	public RecipeImage(byte[] data, String imageType) {
+		this(null, imageType, () -> new ByteArrayInputStream(data));
+	}
+
+	/**
+	 * Creates a new image from its encoded bytes and the image they were already decoded to. The bytes are stored as
+	 * they are, the decoded image is used to create the thumbnails.
+	 *
+	 * @param data
+	 * @param image
+	 * @param imageType
+	 */
+	public RecipeImage(byte[] data, BufferedImage image, String imageType) {
+		this(data, imageType);
+		this.image = image;
+	}
+
 	public RecipeImage(Integer id, BufferedImage image, String imageType) {
 		this.id = id;
 		this.setImage(image);
 		this.setImageType(imageType);
 	}
-	
+
 	public RecipeImage(BufferedImage image, String imageType) {
 		this.setImage(image);
 		this.setImageType(imageType);
 	}
-	
+
 	public Integer getId() {
 		return id;
 	}
@@ -26,12 +108,66 @@ public class RecipeImage {
 		this.id = id;
 	}
 
-	public BufferedImage getImage() {
-		return image;
+	/**
+	 * Returns the decoded image. Images of the storage are decoded on every call and not kept by this handle.
+	 *
+	 * @return the decoded image or <code>null</code> if the bytes are no image of a known format
+	 * @throws IOException if the image cannot be read
+	 */
+	public BufferedImage getImage() throws IOException {
+		if (image != null) {
+			return image;
+		}
+
+		try (InputStream in = openStream()) {
+			return ImageIO.read(in);
+		}
 	}
 
 	public void setImage(BufferedImage image) {
 		this.image = image;
+		this.source = null;
+		this.thumbnailSource = null;
+	}
+
+	/**
+	 * Returns the image scaled to the given size. Stored thumbnails are read without touching the full size image,
+	 * images without a stored thumbnail are decoded and scaled.
+	 *
+	 * @param size {@link ThumbnailSize}
+	 * @return the decoded thumbnail
+	 * @throws IOException if the image cannot be read or decoded
+	 */
+	public BufferedImage getThumbnail(ThumbnailSize size) throws IOException {
+		if (thumbnailSource != null) {
+			try (InputStream in = thumbnailSource.open(size)) {
+				if (in != null) {
+					return ImageIO.read(in);
+				}
+			}
+		}
+
+		BufferedImage image = getImage();
+		if (image == null) {
+			throw new IOException("The image cannot be decoded");
+		}
+		return ImageUtil.createThumbnail(image, size, imageType);
+	}
+
+	/**
+	 * Opens a stream of the encoded image bytes without decoding the image.
+	 *
+	 * @return stream of the encoded image, must be closed by the caller
+	 * @throws IOException if the image cannot be read
+	 */
+	public InputStream openStream() throws IOException {
+		if (source != null) {
+			return source.open();
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, imageType, out);
+		return new ByteArrayInputStream(out.toByteArray());
 	}
 
 	public String getImageType() {
@@ -41,4 +177,4 @@ public class RecipeImage {
 	public void setImageType(String imageType) {
 		this.imageType = imageType;
 	}
-}
\ No newline at end of file
+}
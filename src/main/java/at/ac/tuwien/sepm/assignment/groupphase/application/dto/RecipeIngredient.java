@@ -77,6 +77,23 @@ public class RecipeIngredient {
 		this.userSpecific = userSpecific;
 	}
 
+	/**
+	 * Copy constructor
+	 * @param recipeIngredient
+	 */
+	public RecipeIngredient(RecipeIngredient recipeIngredient) {
+		this.id = recipeIngredient.id;
+		this.amount = recipeIngredient.amount;
+		this.energyKcal = recipeIngredient.energyKcal;
+		this.lipid = recipeIngredient.lipid;
+		this.protein = recipeIngredient.protein;
+		this.carbohydrate = recipeIngredient.carbohydrate;
+		this.unitName = recipeIngredient.unitName;
+		this.unitGramNormalised = recipeIngredient.unitGramNormalised;
+		this.userSpecific = recipeIngredient.userSpecific;
+		this.ingredientName = recipeIngredient.ingredientName;
+	}
+
 	public Double getAmount() {
 		return amount;
 	}
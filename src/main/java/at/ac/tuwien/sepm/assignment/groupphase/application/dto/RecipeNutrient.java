@@ -0,0 +1,45 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
+
+/**
+ * Nutrition values of a whole recipe that searches can be bounded by.
+ */
+public enum RecipeNutrient {
+	/**
+	 * Calories of the whole recipe
+	 */
+	CALORIES,
+	/**
+	 * Share of the carbohydrates in the macro nutrients, in percent
+	 */
+	CARBOHYDRATE_PERCENT,
+	/**
+	 * Share of the proteins in the macro nutrients, in percent
+	 */
+	PROTEIN_PERCENT,
+	/**
+	 * Share of the fats in the macro nutrients, in percent
+	 */
+	FAT_PERCENT;
+
+	/**
+	 * Computes the value like the database does for the stored columns, so both agree on the bounds.
+	 *
+	 * @param summary summary of a recipe
+	 * @return the value of the summary, null if it is unknown or the recipe has no macro nutrients
+	 */
+	public Double getValue(RecipeSummary summary) {
+		if (this == CALORIES) {
+			return summary.getCalories();
+		}
+		if (summary.getCarbohydrates() == null || summary.getProteins() == null || summary.getFats() == null) {
+			return null;
+		}
+		double total = summary.getCarbohydrates() + summary.getProteins() + summary.getFats();
+		if (!(total > 0)) {
+			return null;
+		}
+		double part = this == CARBOHYDRATE_PERCENT ? summary.getCarbohydrates()
+				: this == PROTEIN_PERCENT ? summary.getProteins() : summary.getFats();
+		return part * 100 / total;
+	}
+}
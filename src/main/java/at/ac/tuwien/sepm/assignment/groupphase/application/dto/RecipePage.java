@@ -0,0 +1,33 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
+
+import java.util.List;
+
+/**
+ * One page of a recipe listing
+ */
+public class RecipePage {
+
+	private final List<RecipeSummary> summaries;
+	private final String continuationToken;
+
+	/**
+	 * @param summaries summaries of the page in listing order
+	 * @param continuationToken token to request the next page with, null if this is the last page
+	 */
+	public RecipePage(List<RecipeSummary> summaries, String continuationToken) {
+		this.summaries = summaries;
+		this.continuationToken = continuationToken;
+	}
+
+	public List<RecipeSummary> getSummaries() {
+		return summaries;
+	}
+
+	public String getContinuationToken() {
+		return continuationToken;
+	}
+
+	public boolean hasNext() {
+		return continuationToken != null;
+	}
+}
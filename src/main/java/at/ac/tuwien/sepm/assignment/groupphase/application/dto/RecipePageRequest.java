@@ -0,0 +1,75 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
+
+/**
+ * Page of a recipe listing that is requested. The first page is requested without a continuation token, every
+ * following page with the token of the {@link RecipePage} before it.
+ */
+public class RecipePageRequest {
+
+	private RecipeSortKey sortKey = RecipeSortKey.NAME; // never null
+	private boolean descending = false;
+	private int pageSize = 50;
+	private String continuationToken = null; // null for the first page
+
+	public RecipePageRequest() {
+	}
+
+	/**
+	 * @param sortKey
+	 * @param descending
+	 * @param pageSize
+	 * @param continuationToken
+	 */
+	public RecipePageRequest(RecipeSortKey sortKey, boolean descending, int pageSize, String continuationToken) {
+		this.sortKey = sortKey;
+		this.descending = descending;
+		this.pageSize = pageSize;
+		this.continuationToken = continuationToken;
+	}
+
+	/**
+	 * @param page the page before the requested one
+	 * @return request of the page after the given one, in the same order and with the same size
+	 */
+	public RecipePageRequest next(RecipePage page) {
+		return new RecipePageRequest(sortKey, descending, pageSize, page.getContinuationToken());
+	}
+
+	public RecipeSortKey getSortKey() {
+		return sortKey;
+	}
+
+	public void setSortKey(RecipeSortKey sortKey) {
+		this.sortKey = sortKey;
+	}
+
+	public boolean isDescending() {
+		return descending;
+	}
+
+	public void setDescending(boolean descending) {
+		this.descending = descending;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	public String getContinuationToken() {
+		return continuationToken;
+	}
+
+	public void setContinuationToken(String continuationToken) {
+		this.continuationToken = continuationToken;
+	}
+
+	@Override
+	public String toString() {
+		return "RecipePageRequest{" + "sortKey=" + sortKey + ", descending=" + descending + ", pageSize=" + pageSize
+				+ ", continuationToken='" + continuationToken + '\'' + '}';
+	}
+}
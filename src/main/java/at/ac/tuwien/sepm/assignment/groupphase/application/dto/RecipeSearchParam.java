@@ -1,8 +1,10 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
 
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -13,10 +15,16 @@ public class RecipeSearchParam {
 
 	// recipe's in result must consist of at least this subset of ingredients
 	private Set<String> ingredients = new HashSet<>(); // never null
+	// recipe's in result must not contain any ingredient matching one of these
+	private Set<String> excludedIngredients = new HashSet<>(); // never null
 	private String recipeName = null; // trimmed string value or null
 	private EnumSet<RecipeTag> tags = null; // null or consists of at least one tag, recipe must match every tag
+	private long customTagMask = 0; // bits of custom tags, recipe must match every tag
 	private Double lowerDurationInkl = null; // null or double
 	private Double upperDurationInkl = null; // null or double
+	// bounds of the recipe's nutrition values, a missing nutrient is not bounded
+	private Map<RecipeNutrient, Double> lowerNutritionInkl = new EnumMap<>(RecipeNutrient.class);
+	private Map<RecipeNutrient, Double> upperNutritionInkl = new EnumMap<>(RecipeNutrient.class);
 
 	public String getRecipeName() {
 		return recipeName;
@@ -42,6 +50,46 @@ public class RecipeSearchParam {
 		this.upperDurationInkl = upperDurationInkl;
 	}
 
+	/**
+	 * @param nutrient bounded nutrition value
+	 * @return the inclusive lower bound of the value, null if there is none
+	 */
+	public Double getLowerNutritionInkl(RecipeNutrient nutrient) {
+		return lowerNutritionInkl.get(nutrient);
+	}
+
+	/**
+	 * @param nutrient bounded nutrition value, e.g. {@link RecipeNutrient#PROTEIN_PERCENT}
+	 * @param lowerInkl inclusive lower bound of the value, null to remove the bound
+	 */
+	public void setLowerNutritionInkl(RecipeNutrient nutrient, Double lowerInkl) {
+		setBound(lowerNutritionInkl, nutrient, lowerInkl);
+	}
+
+	/**
+	 * @param nutrient bounded nutrition value
+	 * @return the inclusive upper bound of the value, null if there is none
+	 */
+	public Double getUpperNutritionInkl(RecipeNutrient nutrient) {
+		return upperNutritionInkl.get(nutrient);
+	}
+
+	/**
+	 * @param nutrient bounded nutrition value, e.g. {@link RecipeNutrient#CALORIES}
+	 * @param upperInkl inclusive upper bound of the value, null to remove the bound
+	 */
+	public void setUpperNutritionInkl(RecipeNutrient nutrient, Double upperInkl) {
+		setBound(upperNutritionInkl, nutrient, upperInkl);
+	}
+
+	private static void setBound(Map<RecipeNutrient, Double> bounds, RecipeNutrient nutrient, Double bound) {
+		if (bound == null) {
+			bounds.remove(nutrient);
+		} else {
+			bounds.put(nutrient, bound);
+		}
+	}
+
 	public Set<String> getIngredients() {
 		return ingredients;
 	}
@@ -60,6 +108,24 @@ public class RecipeSearchParam {
 		return ingredients.remove(ingredientName.trim());
 	}
 
+	public Set<String> getExcludedIngredients() {
+		return excludedIngredients;
+	}
+
+	public void addExcludedIngredient(String ingredientName) {
+		if (ingredientName == null || ingredientName.trim().isEmpty()) {
+			return;
+		}
+		excludedIngredients.add(ingredientName.trim());
+	}
+
+	public boolean removeExcludedIngredient(String ingredientName) {
+		if (ingredientName == null || ingredientName.trim().isEmpty()) {
+			return false;
+		}
+		return excludedIngredients.remove(ingredientName.trim());
+	}
+
 	public EnumSet<RecipeTag> getTags() {
 		return tags;
 	}
@@ -68,6 +134,21 @@ public class RecipeSearchParam {
 		this.tags = (tags == null || tags.isEmpty()) ? null : tags;
 	}
 
+	public long getCustomTagMask() {
+		return customTagMask;
+	}
+
+	public void addCustomTag(Tag tag) {
+		customTagMask |= tag.getMask() & ~RecipeTag.MEAL_MASK;
+	}
+
+	/**
+	 * @return bits of all meal tags and custom tags a recipe must match, 0 if tags are not filtered
+	 */
+	public long getTagMask() {
+		return RecipeTag.toMask(tags) | customTagMask;
+	}
+
 	public String getTagsAsString() {
 		return getTags() == null ? null : getTags().stream().map(RecipeTag::toString).collect(Collectors.joining());
 	}
@@ -80,9 +161,12 @@ public class RecipeSearchParam {
 	@Override
 	public String toString() {
 		return String.format(
-				"%s: {recipeName: %s, lowerDurationInkl: %s, upperDurationInkl: %s, "
-						+ "ingredient-size: %s, tags-size: %s}",
-				this.getClass().getSimpleName(), recipeName, lowerDurationInkl, upperDurationInkl,
-				this.ingredients.size(), tags == null ? "null" : tags.size());
+				"%s: {recipeName: %s, lowerDurationInkl: %s, upperDurationInkl: %s, lowerNutritionInkl: %s, "
+						+ "upperNutritionInkl: %s, ingredient-size: %s, excluded-ingredient-size: %s, tags-size: %s, "
+						+ "custom-tag-mask: %s}",
+				this.getClass().getSimpleName(), recipeName, lowerDurationInkl, upperDurationInkl, lowerNutritionInkl,
+				upperNutritionInkl,
+				this.ingredients.size(), this.excludedIngredients.size(), tags == null ? "null" : tags.size(),
+				Long.toBinaryString(customTagMask));
 	}
 }
@@ -0,0 +1,48 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Orders in which recipe summaries can be paged. Recipes with the same sort value are ordered by their id, so that
+ * every recipe has a unique position in the listing.
+ */
+public enum RecipeSortKey {
+	/**
+	 * Name of the recipe, trimmed and case-insensitive like LOWER(TRIM(NAME)) in the database
+	 */
+	NAME(Comparator.comparing(RecipeSortKey::getNameKey)),
+	/**
+	 * Preparation time in minutes
+	 */
+	DURATION(Comparator.comparing(RecipeSummary::getDuration)),
+	/**
+	 * Calories of the whole recipe
+	 */
+	CALORIES(Comparator.comparing(RecipeSummary::getCalories));
+
+	private final Comparator<RecipeSummary> comparator;
+
+	RecipeSortKey(Comparator<RecipeSummary> comparator) {
+		this.comparator = comparator.thenComparing(RecipeSummary::getId);
+	}
+
+	/**
+	 * @return order of the summaries by the sort value and then by id, ascending
+	 */
+	public Comparator<RecipeSummary> getComparator() {
+		return comparator;
+	}
+
+	/**
+	 * @param summary summary of a recipe
+	 * @return the value of the summary that is sorted by, a lower case name or a number
+	 */
+	public Object getValue(RecipeSummary summary) {
+		return this == NAME ? getNameKey(summary) : this == DURATION ? summary.getDuration() : summary.getCalories();
+	}
+
+	private static String getNameKey(RecipeSummary summary) {
+		return summary.getName().trim().toLowerCase(Locale.ROOT);
+	}
+}
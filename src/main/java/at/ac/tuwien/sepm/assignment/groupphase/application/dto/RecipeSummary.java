@@ -0,0 +1,135 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
+
+import java.util.EnumSet;
+import java.util.Objects;
+
+/**
+ * Read model of a recipe for list views and scoring. Contains only the recipe's key data and its nutrition totals,
+ * but neither description, ingredients nor images. Load the full {@link Recipe} for that.
+ */
+public class RecipeSummary {
+	private Integer id;
+	private String name;
+	private Double duration;
+	private EnumSet<RecipeTag> tags;
+	private long tagMask;
+	private Double calories;
+	private Double carbohydrates;
+	private Double proteins;
+	private Double fats;
+
+	/**
+	 * @param id
+	 * @param name
+	 * @param duration
+	 * @param tagMask bits of the meal tags and custom tags
+	 * @param calories
+	 * @param carbohydrates
+	 * @param proteins
+	 * @param fats
+	 */
+	public RecipeSummary(Integer id, String name, Double duration, long tagMask, Double calories,
+			Double carbohydrates, Double proteins, Double fats) {
+		this.id = id;
+		this.name = name.trim();
+		this.duration = duration;
+		this.tags = RecipeTag.fromMask(tagMask);
+		this.tagMask = tagMask;
+		this.calories = calories;
+		this.carbohydrates = carbohydrates;
+		this.proteins = proteins;
+		this.fats = fats;
+	}
+
+	/**
+	 * Creates the summary of a recipe whose nutrition values are already filled.
+	 *
+	 * @param recipe {@link Recipe}
+	 */
+	public RecipeSummary(Recipe recipe) {
+		this.id = recipe.getId();
+		this.name = recipe.getName();
+		this.duration = recipe.getDuration();
+		this.tags = EnumSet.copyOf(recipe.getTags());
+		this.tagMask = recipe.getTagMask();
+		this.calories = recipe.getCalories();
+		this.carbohydrates = recipe.getCarbohydrates();
+		this.proteins = recipe.getProteins();
+		this.fats = recipe.getFats();
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Double getDuration() {
+		return duration;
+	}
+
+	public EnumSet<RecipeTag> getTags() {
+		return tags;
+	}
+
+	/**
+	 * @return bits of the meal tags and custom tags of the recipe
+	 */
+	public long getTagMask() {
+		return tagMask;
+	}
+
+	public Double getCalories() {
+		return calories;
+	}
+
+	public Double getCarbohydrates() {
+		return carbohydrates;
+	}
+
+	public Double getProteins() {
+		return proteins;
+	}
+
+	public Double getFats() {
+		return fats;
+	}
+
+	public Double getCarbohydratePercent() {
+		return (getCarbohydrates() / getNutritionTotal()) * 100;
+	}
+
+	public Double getProteinPercent() {
+		return (getProteins() / getNutritionTotal()) * 100;
+	}
+
+	public Double getFatPercent() {
+		return (getFats() / getNutritionTotal()) * 100;
+	}
+
+	private Double getNutritionTotal() {
+		return getCarbohydrates() + getProteins() + getFats();
+	}
+
+	@Override
+	public String toString() {
+		return "RecipeSummary{" + "id=" + id + ", name='" + name + '\'' + ", duration=" + duration + ", tags=" + tags
+				+ ", calories=" + calories + '}';
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof RecipeSummary) {
+			return Objects.equals(((RecipeSummary) o).getId(), this.getId());
+		}
+
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(this.getId());
+	}
+}
@@ -1,5 +1,59 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
 
+import java.util.Collection;
+import java.util.EnumSet;
+
+/**
+ * Meal tags of a recipe. Each meal tag owns a fixed bit of the tag mask, the remaining bits belong to the custom
+ * {@link Tag}s of the tag dictionary.
+ */
 public enum RecipeTag {
-    B, D, L,
-}
\ No newline at end of file
+    B(0), D(1), L(2);
+
+    /**
+     * Bits of all meal tags, custom tags use the bits above.
+     */
+    public static final long MEAL_MASK = 0b111;
+
+    private final int bit;
+
+    RecipeTag(int bit) {
+        this.bit = bit;
+    }
+
+    public int getBit() {
+        return bit;
+    }
+
+    public long getMask() {
+        return 1L << bit;
+    }
+
+    /**
+     * @param tags meal tags, may be null
+     * @return tag mask with the bits of the given tags set
+     */
+    public static long toMask(Collection<RecipeTag> tags) {
+        long mask = 0;
+        if (tags != null) {
+            for (RecipeTag tag : tags) {
+                mask |= tag.getMask();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @param mask tag mask
+     * @return meal tags whose bits are set in the mask, custom tag bits are ignored
+     */
+    public static EnumSet<RecipeTag> fromMask(long mask) {
+        EnumSet<RecipeTag> tags = EnumSet.noneOf(RecipeTag.class);
+        for (RecipeTag tag : values()) {
+            if ((mask & tag.getMask()) != 0) {
+                tags.add(tag);
+            }
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,41 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
+
+/**
+ * Restrictions of the recipe statistics, by default all suggestions are counted
+ */
+public class StatisticParam {
+
+	private StatisticPeriod period = StatisticPeriod.ALL_TIME; // never null
+	private RecipeTag tag = null; // null or the meal whose suggestions are counted
+	private Integer dietPlanId = null; // null or the diet plan whose suggestions are counted
+
+	public StatisticPeriod getPeriod() {
+		return period;
+	}
+
+	public void setPeriod(StatisticPeriod period) {
+		this.period = period;
+	}
+
+	public RecipeTag getTag() {
+		return tag;
+	}
+
+	public void setTag(RecipeTag tag) {
+		this.tag = tag;
+	}
+
+	public Integer getDietPlanId() {
+		return dietPlanId;
+	}
+
+	public void setDietPlanId(Integer dietPlanId) {
+		this.dietPlanId = dietPlanId;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: {period: %s, tag: %s, dietPlanId: %s}", this.getClass().getSimpleName(), period, tag,
+				dietPlanId);
+	}
+}
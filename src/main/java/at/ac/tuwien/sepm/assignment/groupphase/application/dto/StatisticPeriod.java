@@ -0,0 +1,29 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
+
+/**
+ * Periods the statistics can be restricted to, each ending today.
+ */
+public enum StatisticPeriod {
+	ALL_TIME(0, "All time"), LAST_7_DAYS(7, "Last 7 days"), LAST_30_DAYS(30, "Last 30 days"),
+	LAST_90_DAYS(90, "Last 90 days");
+
+	private final int days;
+	private final String label;
+
+	StatisticPeriod(int days, String label) {
+		this.days = days;
+		this.label = label;
+	}
+
+	/**
+	 * @return number of days including today, 0 for all time
+	 */
+	public int getDays() {
+		return days;
+	}
+
+	@Override
+	public String toString() {
+		return label;
+	}
+}
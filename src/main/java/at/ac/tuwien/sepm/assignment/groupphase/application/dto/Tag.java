@@ -0,0 +1,94 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Entry of the tag dictionary. Every tag owns one bit of a recipe's tag mask, so that filtering by any number of tags
+ * is a single bitwise comparison. The meal tags of {@link RecipeTag} are part of the dictionary, custom tags like
+ * "vegan" are added by the user.
+ */
+public class Tag {
+	/**
+	 * Highest bit of the mask that can be assigned to a tag, the sign bit is not used.
+	 */
+	public static final int MAX_BIT = 62;
+	/**
+	 * Maximum length of the name of a custom tag
+	 */
+	public static final int MAX_NAME_LENGTH = 30;
+
+	private Integer bit;
+	private String name;
+	private Boolean meal;
+
+	/**
+	 * @param bit
+	 * @param name
+	 * @param meal
+	 */
+	public Tag(Integer bit, String name, Boolean meal) {
+		this.bit = bit;
+		this.name = name;
+		this.meal = meal;
+	}
+
+	/**
+	 * Creates a custom tag whose bit is assigned on creation.
+	 *
+	 * @param name
+	 */
+	public Tag(String name) {
+		this(null, name, false);
+	}
+
+	/**
+	 * @param name name of a custom tag as entered by the user, may be null
+	 * @return the name the tag is stored with, trimmed and lower case; empty if there is no name
+	 */
+	public static String normalizeName(String name) {
+		return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+	}
+
+	public Integer getBit() {
+		return bit;
+	}
+
+	public void setBit(Integer bit) {
+		this.bit = bit;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Boolean getMeal() {
+		return meal;
+	}
+
+	public long getMask() {
+		return 1L << bit;
+	}
+
+	@Override
+	public String toString() {
+		return "Tag{" + "bit=" + bit + ", name='" + name + '\'' + ", meal=" + meal + '}';
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof Tag) {
+			return Objects.equals(((Tag) o).getBit(), this.getBit()) && Objects.equals(((Tag) o).getName(), name);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(bit, name);
+	}
+}
@@ -0,0 +1,37 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.dto;
+
+/**
+ * Sizes in which thumbnails of recipe images are stored. Each size matches an image view of the user interface.
+ */
+public enum ThumbnailSize {
+	/**
+	 * Picture pagination of the recipe details, the image is scaled to fit into the bounds.
+	 */
+	DETAIL(565, 200, false),
+	/**
+	 * Recipe cards of the plan tab, the image is scaled to cover the bounds and cropped to them.
+	 */
+	CARD(292, 164, true);
+
+	private final int width;
+	private final int height;
+	private final boolean cropped;
+
+	ThumbnailSize(int width, int height, boolean cropped) {
+		this.width = width;
+		this.height = height;
+		this.cropped = cropped;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public boolean isCropped() {
+		return cropped;
+	}
+}
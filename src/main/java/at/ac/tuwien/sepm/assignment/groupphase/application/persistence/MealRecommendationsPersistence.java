@@ -4,6 +4,10 @@ import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
 public interface MealRecommendationsPersistence {
 
     /**
@@ -15,6 +19,16 @@ public interface MealRecommendationsPersistence {
      */
     public void createRecommendationFor(Recipe recipe, DietPlan dietPlan, RecipeTag recipeTag) throws PersistenceException;
 
+    /**
+     * Creates the recommendations of several consecutive days for a given {@link DietPlan} at once, either all or none
+     * of them are stored. They replace earlier recommendations of these days.
+     * @param days recommended {@link Recipe} per {@link RecipeTag} of every day, starting with the first day
+     * @param firstDay date of the first day
+     * @param dietPlan {@link DietPlan} for which to save the recipes
+     * @throws PersistenceException
+     */
+    public void createRecommendationsFor(List<Map<RecipeTag, Recipe>> days, LocalDate firstDay, DietPlan dietPlan) throws PersistenceException;
+
 
     /**
      * Reads the most recent recommendation for today for a given {@link DietPlan} and {@link RecipeTag}
@@ -1,11 +1,16 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.persistence;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.IngredientSearchParam;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePage;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePageRequest;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
 
 public interface RecipePersistence {
 	/**
@@ -16,7 +21,7 @@ public interface RecipePersistence {
 	void create(Recipe r) throws PersistenceException;
 
 	/**
-	 * Search for an ingredient and returns a list of matching recipe ingredients.
+	 * Search for an ingredient and returns a list of matching recipe ingredients, best matches first.
 	 * Note: field 'amount' of {@link RecipeIngredient} cannot be initalised and is therefore <code>null</code>
 	 * @param searchParam {@link IngredientSearchParam}
 	 * @return {@link List} of {@link RecipeIngredient}
@@ -33,6 +38,16 @@ public interface RecipePersistence {
 	 */
 	Recipe get(int id) throws PersistenceException;
 
+	/**
+	 * Fetches all recipe entries with the given ids from the storage. Ingredients and images of all recipes are
+	 * loaded together instead of once per recipe.
+	 *
+	 * @param ids ids of storage entries
+	 * @return the matching recipes in the order of the given ids, ids without a storage entry are skipped
+	 * @throws PersistenceException if any persistence errors occur
+	 */
+	List<Recipe> get(Collection<Integer> ids) throws PersistenceException;
+
 	/**
 	 * Deletes a recipe entry from the storage based on the given id.
 	 *
@@ -65,4 +80,77 @@ public interface RecipePersistence {
 	 * @throws PersistenceException if any persistence errors occur
 	 */
 	List<Recipe> searchRecipes(RecipeSearchParam searchParam) throws PersistenceException;
-}
\ No newline at end of file
+
+	/**
+	 * Fetches the summaries of all recipes from the storage. In contrast to {@link #getRecipes()} neither
+	 * descriptions, ingredients nor images are loaded.
+	 *
+	 * @return A list of all recipe summaries
+	 * @throws PersistenceException if any persistence errors occur
+	 */
+	List<RecipeSummary> getRecipeSummaries() throws PersistenceException;
+
+	/**
+	 * Fetches the summaries of the recipes with the given ids, including deleted ones.
+	 *
+	 * @param ids ids of storage entries
+	 * @return the matching summaries in the order of the given ids, ids without a storage entry are skipped
+	 * @throws PersistenceException if any persistence errors occur
+	 */
+	List<RecipeSummary> getRecipeSummaries(Collection<Integer> ids) throws PersistenceException;
+
+	/**
+	 * Fetches the names of the ingredients of all recipes which are not deleted.
+	 *
+	 * @return ingredient names by recipe id, recipes without ingredients are missing
+	 * @throws PersistenceException if any persistence errors occur
+	 */
+	Map<Integer, List<String>> getRecipeIngredientNames() throws PersistenceException;
+
+	/**
+	 * Fetches the names of the ingredients of the recipes with the given ids, including deleted ones.
+	 *
+	 * @param ids ids of storage entries
+	 * @return ingredient names by recipe id, recipes without ingredients are missing
+	 * @throws PersistenceException if any persistence errors occur
+	 */
+	Map<Integer, List<String>> getRecipeIngredientNames(Collection<Integer> ids) throws PersistenceException;
+
+	/**
+	 * Searches for recipes that match the criteria and returns their summaries.
+	 *
+	 * @param searchParam {@link RecipeSearchParam}
+	 * @return {@link List} of {@link RecipeSummary}
+	 * @throws PersistenceException if any persistence errors occur
+	 */
+	List<RecipeSummary> searchRecipeSummaries(RecipeSearchParam searchParam) throws PersistenceException;
+
+	/**
+	 * Searches for recipes that match the criteria and returns one page of their summaries. Pages are read by their
+	 * position after the previous page, so every page costs the same no matter how far the listing is scrolled.
+	 *
+	 * @param searchParam {@link RecipeSearchParam}
+	 * @param pageRequest order, size and position of the page
+	 * @return the page of {@link RecipeSummary}
+	 * @throws PersistenceException if the continuation token is invalid or any persistence errors occur
+	 */
+	RecipePage searchRecipeSummaries(RecipeSearchParam searchParam, RecipePageRequest pageRequest)
+			throws PersistenceException;
+
+	/**
+	 * Creates the missing thumbnails of all stored images, e.g. of images stored before thumbnails were introduced.
+	 *
+	 * @return number of images whose thumbnails were created
+	 * @throws PersistenceException if any persistence errors occur
+	 */
+	int backfillThumbnails() throws PersistenceException;
+
+	/**
+	 * Adds all ingredients that are not part of the ingredient search index yet to the index. Ingredients created
+	 * through this persistence are indexed on creation.
+	 *
+	 * @return number of indexed ingredients
+	 * @throws PersistenceException if any persistence errors occur
+	 */
+	int backfillIngredientIndex() throws PersistenceException;
+}
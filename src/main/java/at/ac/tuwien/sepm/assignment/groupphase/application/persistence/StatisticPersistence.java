@@ -1,14 +1,24 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.persistence;
 
-import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.PopularRecipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.StatisticParam;
 
-import java.util.Map;
+import java.util.List;
 
 public interface StatisticPersistence {
 
     /**
-     * Fetches the most popular recipes with their according quantity
-     * @return A list of the most popular recipes and their according quantity
+     * Fetches the most popular recipes with their according quantity. Only the latest suggestion for a date and meal
+     * is counted, earlier ones were swapped.
+     * @param statisticParam period, meal and diet plan of the counted suggestions
+     * @return the most popular recipes, most often suggested first
      */
-    Map<Recipe, Integer> getMostPopularRecipes() throws PersistenceException;
+    List<PopularRecipe> getMostPopularRecipes(StatisticParam statisticParam) throws PersistenceException;
+
+    /**
+     * Recomputes the suggestion per date and meal and the popularity counters from the history of all suggestions,
+     * e.g. after suggestions were imported into the history.
+     * @return number of dates and meals with a suggestion
+     */
+    int rebuildStatistics() throws PersistenceException;
 }
@@ -0,0 +1,38 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.persistence;
+
+import java.util.Collection;
+import java.util.List;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Tag;
+
+/**
+ * Persistence of the tag dictionary
+ */
+public interface TagPersistence {
+
+	/**
+	 * Fetches all tags, meal tags included.
+	 *
+	 * @return all tags ordered by their bit
+	 * @throws PersistenceException if any persistence errors occur
+	 */
+	List<Tag> readAll() throws PersistenceException;
+
+	/**
+	 * Creates a custom tag and assigns the lowest free bit of the tag mask to it.
+	 *
+	 * @param tag tag without bit, the bit is set on success
+	 * @throws PersistenceException if any persistence errors occur or all bits are assigned
+	 */
+	void create(Tag tag) throws PersistenceException;
+
+	/**
+	 * Resolves names of custom tags, tags which do not exist yet are created. Within a transaction of the caller, the
+	 * created tags are rolled back with it.
+	 *
+	 * @param names names of custom tags, normalized by {@link Tag#normalizeName(String)}; empty names are ignored
+	 * @return the tags in the order of the names, without duplicates
+	 * @throws PersistenceException if any persistence errors occur or all bits are assigned
+	 */
+	List<Tag> getOrCreateCustomTags(Collection<String> names) throws PersistenceException;
+}
@@ -0,0 +1,357 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.IngredientSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePage;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePageRequest;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.RecipePersistence;
+
+/**
+ * Read-through cache in front of a {@link RecipePersistence}. Recipes and recipe summaries read by id, all recipes and
+ * the results of recipe searches are kept by recipe id, so reading the same recipes again costs a map lookup. The
+ * least recently used entries are evicted when the cache is full.
+ * <p>
+ * The cache holds its own copies of the recipes and hands out copies, so callers may change the recipes they get.
+ * Creating, updating or deleting a recipe through the cache removes it, a read that started before such a change
+ * does not put its outdated result into the cache.
+ */
+@Primary
+@Repository
+public class CachingRecipePersistence implements RecipePersistence {
+	private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+	private static final int DEFAULT_MAX_SIZE = 512;
+
+	private final RecipePersistence recipePersistence;
+	private final Snapshots<Recipe> recipes;
+	private final Snapshots<RecipeSummary> summaries;
+
+	// ids of all recipes which are not deleted, in the order of the storage, null if unknown
+	private List<Integer> recipeIds;
+	// number of changes so far, a read only caches its result if no change happened while it read
+	private long changes;
+
+	/**
+	 * @param recipePersistence persistence the recipes are read from
+	 */
+	@Autowired
+	public CachingRecipePersistence(DBRecipePersistence recipePersistence) {
+		this(recipePersistence, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param recipePersistence persistence the recipes are read from
+	 * @param maxSize maximum number of cached recipes and, separately, of cached summaries
+	 */
+	public CachingRecipePersistence(RecipePersistence recipePersistence, int maxSize) {
+		this.recipePersistence = recipePersistence;
+		this.recipes = new Snapshots<>(maxSize, Recipe::new);
+		// summaries have no setters, they are shared
+		this.summaries = new Snapshots<>(maxSize, UnaryOperator.identity());
+	}
+
+	@Override
+	public void create(Recipe r) throws PersistenceException {
+		try {
+			recipePersistence.create(r);
+		} finally {
+			invalidate(r.getId());
+		}
+	}
+
+	@Override
+	public void update(Recipe recipe) throws PersistenceException {
+		try {
+			recipePersistence.update(recipe);
+		} finally {
+			invalidate(recipe.getId());
+		}
+	}
+
+	@Override
+	public void delete(int id) throws PersistenceException {
+		try {
+			recipePersistence.delete(id);
+		} finally {
+			invalidate(id);
+		}
+	}
+
+	@Override
+	public Recipe get(int id) throws PersistenceException {
+		Recipe cached;
+		long readFrom;
+		synchronized (this) {
+			cached = recipes.get(id);
+			readFrom = changes;
+		}
+		if (cached != null) {
+			return cached;
+		}
+
+		Recipe recipe = recipePersistence.get(id);
+		putRecipes(List.of(recipe), readFrom);
+		return recipe;
+	}
+
+	@Override
+	public List<Recipe> get(Collection<Integer> ids) throws PersistenceException {
+		Map<Integer, Recipe> found = new HashMap<>();
+		List<Integer> missing = new ArrayList<>();
+		long readFrom;
+		synchronized (this) {
+			readFrom = changes;
+			for (Integer id : new LinkedHashSet<>(ids)) {
+				Recipe cached = recipes.get(id);
+				if (cached != null) {
+					found.put(id, cached);
+				} else {
+					missing.add(id);
+				}
+			}
+		}
+
+		if (!missing.isEmpty()) {
+			List<Recipe> read = recipePersistence.get(missing);
+			putRecipes(read, readFrom);
+			for (Recipe recipe : read) {
+				found.put(recipe.getId(), recipe);
+			}
+		}
+		return inOrder(ids, found);
+	}
+
+	@Override
+	public List<Recipe> getRecipes() throws PersistenceException {
+		List<Integer> ids;
+		long readFrom;
+		synchronized (this) {
+			ids = recipeIds;
+			readFrom = changes;
+		}
+		if (ids != null) {
+			return get(ids);
+		}
+
+		List<Recipe> read = recipePersistence.getRecipes();
+		putRecipes(read, readFrom);
+		synchronized (this) {
+			if (changes == readFrom) {
+				recipeIds = new ArrayList<>(read.size());
+				read.forEach(recipe -> recipeIds.add(recipe.getId()));
+			}
+		}
+		return read;
+	}
+
+	@Override
+	public List<Recipe> searchRecipes(RecipeSearchParam searchParam) throws PersistenceException {
+		long readFrom;
+		synchronized (this) {
+			readFrom = changes;
+		}
+		List<Recipe> found = recipePersistence.searchRecipes(searchParam);
+		putRecipes(found, readFrom);
+		return found;
+	}
+
+	@Override
+	public List<RecipeSummary> getRecipeSummaries(Collection<Integer> ids) throws PersistenceException {
+		Map<Integer, RecipeSummary> found = new HashMap<>();
+		List<Integer> missing = new ArrayList<>();
+		long readFrom;
+		synchronized (this) {
+			readFrom = changes;
+			for (Integer id : new LinkedHashSet<>(ids)) {
+				RecipeSummary cached = summaries.get(id);
+				if (cached != null) {
+					found.put(id, cached);
+				} else {
+					missing.add(id);
+				}
+			}
+		}
+
+		if (!missing.isEmpty()) {
+			List<RecipeSummary> read = recipePersistence.getRecipeSummaries(missing);
+			synchronized (this) {
+				if (changes == readFrom) {
+					read.forEach(summary -> summaries.put(summary.getId(), summary));
+				}
+			}
+			for (RecipeSummary summary : read) {
+				found.put(summary.getId(), summary);
+			}
+		}
+		return inOrder(ids, found);
+	}
+
+	@Override
+	public List<RecipeIngredient> searchIngredient(IngredientSearchParam searchParam) throws PersistenceException {
+		return recipePersistence.searchIngredient(searchParam);
+	}
+
+	@Override
+	public List<RecipeSummary> getRecipeSummaries() throws PersistenceException {
+		return recipePersistence.getRecipeSummaries();
+	}
+
+	@Override
+	public Map<Integer, List<String>> getRecipeIngredientNames() throws PersistenceException {
+		return recipePersistence.getRecipeIngredientNames();
+	}
+
+	@Override
+	public Map<Integer, List<String>> getRecipeIngredientNames(Collection<Integer> ids) throws PersistenceException {
+		return recipePersistence.getRecipeIngredientNames(ids);
+	}
+
+	@Override
+	public List<RecipeSummary> searchRecipeSummaries(RecipeSearchParam searchParam) throws PersistenceException {
+		return recipePersistence.searchRecipeSummaries(searchParam);
+	}
+
+	@Override
+	public RecipePage searchRecipeSummaries(RecipeSearchParam searchParam, RecipePageRequest pageRequest)
+			throws PersistenceException {
+		return recipePersistence.searchRecipeSummaries(searchParam, pageRequest);
+	}
+
+	@Override
+	public int backfillThumbnails() throws PersistenceException {
+		return recipePersistence.backfillThumbnails();
+	}
+
+	@Override
+	public int backfillIngredientIndex() throws PersistenceException {
+		return recipePersistence.backfillIngredientIndex();
+	}
+
+	/**
+	 * @return number of recipes and summaries served from the cache
+	 */
+	public synchronized long getHits() {
+		return recipes.hits + summaries.hits;
+	}
+
+	/**
+	 * @return number of recipes and summaries that had to be read from the storage
+	 */
+	public synchronized long getMisses() {
+		return recipes.misses + summaries.misses;
+	}
+
+	/**
+	 * @return number of recipes and summaries removed because the cache was full
+	 */
+	public synchronized long getEvictions() {
+		return recipes.evictions + summaries.evictions;
+	}
+
+	/**
+	 * @return share of recipes and summaries served from the cache, 0 if nothing was read yet
+	 */
+	public synchronized double getHitRate() {
+		long total = getHits() + getMisses();
+		return total == 0 ? 0 : (double) getHits() / total;
+	}
+
+	private synchronized void putRecipes(List<Recipe> read, long readFrom) {
+		if (changes != readFrom) {
+			LOG.debug("Recipes changed while {} recipes were read, they are not cached", read.size());
+			return;
+		}
+		for (Recipe recipe : read) {
+			recipes.put(recipe.getId(), recipe);
+		}
+	}
+
+	private synchronized void invalidate(Integer id) {
+		changes++;
+		recipeIds = null;
+		if (id != null) {
+			recipes.remove(id);
+			summaries.remove(id);
+		}
+	}
+
+	private static <T> List<T> inOrder(Collection<Integer> ids, Map<Integer, T> found) {
+		List<T> ordered = new ArrayList<>(found.size());
+		for (Integer id : new LinkedHashSet<>(ids)) {
+			T value = found.get(id);
+			if (value != null) {
+				ordered.add(value);
+			}
+		}
+		return ordered;
+	}
+
+	/**
+	 * Least recently used copies of values by recipe id. Not thread-safe, guarded by the enclosing cache.
+	 */
+	private static final class Snapshots<T> {
+		private final Map<Integer, T> values;
+		private final UnaryOperator<T> copy;
+
+		private long hits;
+		private long misses;
+		private long evictions;
+
+		Snapshots(int maxSize, UnaryOperator<T> copy) {
+			this.copy = copy;
+			this.values = new LinkedHashMap<>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Integer, T> eldest) {
+					if (size() > maxSize) {
+						evictions++;
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		/**
+		 * @return a copy of the cached value, null if there is none
+		 */
+		T get(int id) {
+			T value = values.get(id);
+			if (value == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+			return copy.apply(value);
+		}
+
+		void put(int id, T value) {
+			values.put(id, copy.apply(value));
+		}
+
+		void remove(int id) {
+			values.remove(id);
+		}
+	}
+}
@@ -16,6 +16,7 @@ import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.DietPlanP
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.CloseUtil;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.JDBCConnectionManager;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.TransactionScope;
 
 @Repository
 public class DBDietPlanPersistence implements DietPlanPersistence {
@@ -114,23 +115,19 @@ public class DBDietPlanPersistence implements DietPlanPersistence {
 	    PreparedStatement deactivateDietPlan = null;
 	    PreparedStatement activateDietPlan = null;
 
-	    JDBCConnectionManager.startTransaction();
-
-	    try {
-	        deactivateDietPlan = JDBCConnectionManager.getConnection().prepareStatement(SQL_DEACTIVATE_DIET_PLAN);
+	    try (TransactionScope transaction = JDBCConnectionManager.beginTransaction()) {
+	        deactivateDietPlan = transaction.getConnection().prepareStatement(SQL_DEACTIVATE_DIET_PLAN);
 	        deactivateDietPlan.executeUpdate();
 
-	        activateDietPlan = JDBCConnectionManager.getConnection().prepareStatement(SQL_ACTIVATE_DIET_PLAN);
+	        activateDietPlan = transaction.getConnection().prepareStatement(SQL_ACTIVATE_DIET_PLAN);
 	        activateDietPlan.setInt(1, dietPlan.getId());
 	        activateDietPlan.executeUpdate();
 
-	        JDBCConnectionManager.commitTransaction();
+	        transaction.commit();
 	        LOG.debug("Successfully switched to new diet plan. {}", dietPlan);
         } catch (SQLException e) {
-	        JDBCConnectionManager.rollbackTransaction();
             throw new PersistenceException("There was an error while switching the current diet plan. " + e.getMessage(), e);
         } finally {
-	        JDBCConnectionManager.finalizeTransaction();
 	        CloseUtil.closeStatement(deactivateDietPlan);
             CloseUtil.closeStatement(activateDietPlan);
         }
@@ -153,11 +150,10 @@ public class DBDietPlanPersistence implements DietPlanPersistence {
 
 	@Override
 	public void update(DietPlan dietPlan) throws PersistenceException {
-		JDBCConnectionManager.startTransaction();
 		PreparedStatement ps = null;
 
-		try {
-			ps = JDBCConnectionManager.getConnection().prepareStatement(SQL_UPDATE_CUSTOM_DIET_PLAN);
+		try (TransactionScope transaction = JDBCConnectionManager.beginTransaction()) {
+			ps = transaction.getConnection().prepareStatement(SQL_UPDATE_CUSTOM_DIET_PLAN);
 
 			ps.setString(1, dietPlan.getName());
 			ps.setDouble(2, dietPlan.getEnergy_kcal());
@@ -170,12 +166,10 @@ public class DBDietPlanPersistence implements DietPlanPersistence {
 				throw new PersistenceException("No diet plan found");
 			}
 
-			JDBCConnectionManager.commitTransaction();
+			transaction.commit();
 		} catch (SQLException e) {
-			JDBCConnectionManager.rollbackTransaction();
 			throw new PersistenceException(e.getMessage(), e);
 		} finally {
-			JDBCConnectionManager.finalizeTransaction();
 			CloseUtil.closeStatement(ps);
 		}
 	}
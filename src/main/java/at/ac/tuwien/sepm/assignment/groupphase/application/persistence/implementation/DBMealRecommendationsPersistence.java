@@ -9,14 +9,24 @@ import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.Persisten
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.RecipePersistence;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.CloseUtil;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.JDBCConnectionManager;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.TransactionScope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 
 import java.lang.invoke.MethodHandles;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Date;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @Repository
 public class DBMealRecommendationsPersistence implements MealRecommendationsPersistence {
@@ -26,6 +36,17 @@ public class DBMealRecommendationsPersistence implements MealRecommendationsPers
     private static final String SQL_CREATE_MEAL_RECOMMENDATION = "INSERT INTO diet_plan_suggestion (recipe, date, tag, diet_plan_id, created_timestamp) VALUES (?,CURDATE(),?,?,NOW())";
     private static final String SQL_READ_MEAL_RECOMMANDATION = "SELECT * FROM diet_plan_suggestion WHERE diet_plan_id=? AND tag=? AND date=CURDATE() AND created_timestamp = " +
         "(SELECT max(created_timestamp) FROM diet_plan_suggestion WHERE diet_plan_id=? AND tag=?)";
+    // today's slot of a meal and the counters of its recipe, see suggestion_slot and recipe_popularity
+    private static final String SQL_READ_SLOT_RECIPE = "SELECT recipe FROM suggestion_slot WHERE date=CURDATE() AND tag=?";
+    private static final String SQL_MERGE_SLOT = "MERGE INTO suggestion_slot (date, tag, recipe, diet_plan_id) KEY (date, tag) VALUES (CURDATE(),?,?,?)";
+    private static final String SQL_MERGE_POPULARITY = "MERGE INTO recipe_popularity (recipe) KEY (recipe) VALUES (?)";
+    private static final String SQL_COUNT_POPULARITY = "UPDATE recipe_popularity SET suggestions = suggestions + ?, suggestions_%1$s = suggestions_%1$s + ? WHERE recipe=?";
+    // several days at once, all rows of the history get the same timestamp
+    private static final String SQL_CREATE_DAY_RECOMMENDATION = "INSERT INTO diet_plan_suggestion (recipe, date, tag, diet_plan_id, created_timestamp) VALUES (?,?,?,?,?)";
+    private static final String SQL_READ_SLOT_RECIPES = "SELECT date, tag, recipe FROM suggestion_slot WHERE date BETWEEN ? AND ?";
+    private static final String SQL_MERGE_DAY_SLOT = "MERGE INTO suggestion_slot (date, tag, recipe, diet_plan_id) KEY (date, tag) VALUES (?,?,?,?)";
+    private static final String SQL_COUNT_ALL_POPULARITY = "UPDATE recipe_popularity SET suggestions = suggestions + ?, suggestions_b = suggestions_b + ?, "
+        + "suggestions_d = suggestions_d + ?, suggestions_l = suggestions_l + ? WHERE recipe=?";
 
     private RecipePersistence recipePersistence;
 
@@ -38,8 +59,12 @@ public class DBMealRecommendationsPersistence implements MealRecommendationsPers
         LOG.debug("Creating diet plan suggestion for {} with tag {}", recipe, recipeTag);
 
         PreparedStatement createRecommendationStmt = null;
-        try {
-            createRecommendationStmt = JDBCConnectionManager.getConnection().prepareStatement(SQL_CREATE_MEAL_RECOMMENDATION);
+        PreparedStatement readSlotStmt = null;
+        PreparedStatement mergeSlotStmt = null;
+        ResultSet slot = null;
+        try (TransactionScope transaction = JDBCConnectionManager.beginTransaction()) {
+            Connection connection = transaction.getConnection();
+            createRecommendationStmt = connection.prepareStatement(SQL_CREATE_MEAL_RECOMMENDATION);
 
             createRecommendationStmt.setInt(1, recipe.getId());
             createRecommendationStmt.setString(2, recipeTag.toString());
@@ -47,11 +72,134 @@ public class DBMealRecommendationsPersistence implements MealRecommendationsPers
 
             createRecommendationStmt.executeUpdate();
 
+            // the new suggestion replaces today's suggestion for the meal, also in the counters
+            readSlotStmt = connection.prepareStatement(SQL_READ_SLOT_RECIPE);
+            readSlotStmt.setString(1, recipeTag.toString());
+            slot = readSlotStmt.executeQuery();
+            if (slot.next()) {
+                count(connection, slot.getInt("recipe"), recipeTag, -1);
+            }
+
+            mergeSlotStmt = connection.prepareStatement(SQL_MERGE_SLOT);
+            mergeSlotStmt.setString(1, recipeTag.toString());
+            mergeSlotStmt.setInt(2, recipe.getId());
+            mergeSlotStmt.setInt(3, dietPlan.getId());
+            mergeSlotStmt.executeUpdate();
+            count(connection, recipe.getId(), recipeTag, 1);
+
+            transaction.commit();
             LOG.debug("Successfully created diet plan suggestion");
         } catch (SQLException e) {
             throw new PersistenceException("There was an error while creating a diet plan suggestion in the database. " + e.getMessage(), e);
         } finally {
             CloseUtil.closeStatement(createRecommendationStmt);
+            CloseUtil.closeStatement(readSlotStmt);
+            CloseUtil.closeStatement(mergeSlotStmt);
+            CloseUtil.closeResultSet(slot);
+        }
+    }
+
+    @Override
+    public void createRecommendationsFor(List<Map<RecipeTag, Recipe>> days, LocalDate firstDay, DietPlan dietPlan) throws PersistenceException {
+        LOG.debug("Creating diet plan suggestions for {} days from {}", days.size(), firstDay);
+
+        PreparedStatement createRecommendationStmt = null;
+        PreparedStatement readSlotsStmt = null;
+        PreparedStatement mergeSlotStmt = null;
+        PreparedStatement mergePopularityStmt = null;
+        PreparedStatement countStmt = null;
+        ResultSet slots = null;
+        try (TransactionScope transaction = JDBCConnectionManager.beginTransaction()) {
+            Connection connection = transaction.getConnection();
+            Timestamp created = Timestamp.valueOf(LocalDateTime.now());
+            // difference of the counters per recipe: in total, for breakfast, dinner and lunch
+            Map<Integer, int[]> counts = new HashMap<>();
+
+            // the replaced suggestions of these days no longer count
+            readSlotsStmt = connection.prepareStatement(SQL_READ_SLOT_RECIPES);
+            readSlotsStmt.setDate(1, Date.valueOf(firstDay));
+            readSlotsStmt.setDate(2, Date.valueOf(firstDay.plusDays(days.size() - 1)));
+            slots = readSlotsStmt.executeQuery();
+            while (slots.next()) {
+                int day = (int) (slots.getDate("date").toLocalDate().toEpochDay() - firstDay.toEpochDay());
+                RecipeTag tag = RecipeTag.valueOf(slots.getString("tag"));
+                if (days.get(day).containsKey(tag)) {
+                    count(counts, slots.getInt("recipe"), tag, -1);
+                }
+            }
+
+            createRecommendationStmt = connection.prepareStatement(SQL_CREATE_DAY_RECOMMENDATION);
+            mergeSlotStmt = connection.prepareStatement(SQL_MERGE_DAY_SLOT);
+            for (int day = 0; day < days.size(); day++) {
+                Date date = Date.valueOf(firstDay.plusDays(day));
+                for (Map.Entry<RecipeTag, Recipe> meal : days.get(day).entrySet()) {
+                    createRecommendationStmt.setInt(1, meal.getValue().getId());
+                    createRecommendationStmt.setDate(2, date);
+                    createRecommendationStmt.setString(3, meal.getKey().toString());
+                    createRecommendationStmt.setInt(4, dietPlan.getId());
+                    createRecommendationStmt.setTimestamp(5, created);
+                    createRecommendationStmt.addBatch();
+
+                    mergeSlotStmt.setDate(1, date);
+                    mergeSlotStmt.setString(2, meal.getKey().toString());
+                    mergeSlotStmt.setInt(3, meal.getValue().getId());
+                    mergeSlotStmt.setInt(4, dietPlan.getId());
+                    mergeSlotStmt.addBatch();
+
+                    count(counts, meal.getValue().getId(), meal.getKey(), 1);
+                }
+            }
+            createRecommendationStmt.executeBatch();
+            mergeSlotStmt.executeBatch();
+
+            mergePopularityStmt = connection.prepareStatement(SQL_MERGE_POPULARITY);
+            countStmt = connection.prepareStatement(SQL_COUNT_ALL_POPULARITY);
+            for (Map.Entry<Integer, int[]> count : counts.entrySet()) {
+                mergePopularityStmt.setInt(1, count.getKey());
+                mergePopularityStmt.addBatch();
+                for (int i = 0; i < 4; i++) {
+                    countStmt.setInt(i + 1, count.getValue()[i]);
+                }
+                countStmt.setInt(5, count.getKey());
+                countStmt.addBatch();
+            }
+            mergePopularityStmt.executeBatch();
+            countStmt.executeBatch();
+
+            transaction.commit();
+            LOG.debug("Successfully created diet plan suggestions");
+        } catch (SQLException e) {
+            throw new PersistenceException("There was an error while creating diet plan suggestions in the database. " + e.getMessage(), e);
+        } finally {
+            CloseUtil.closeStatement(createRecommendationStmt);
+            CloseUtil.closeStatement(readSlotsStmt);
+            CloseUtil.closeStatement(mergeSlotStmt);
+            CloseUtil.closeStatement(mergePopularityStmt);
+            CloseUtil.closeStatement(countStmt);
+            CloseUtil.closeResultSet(slots);
+        }
+    }
+
+    private static void count(Map<Integer, int[]> counts, int recipeId, RecipeTag recipeTag, int difference) {
+        int[] count = counts.computeIfAbsent(recipeId, id -> new int[4]);
+        count[0] += difference;
+        count[recipeTag == RecipeTag.B ? 1 : recipeTag == RecipeTag.D ? 2 : 3] += difference;
+    }
+
+    /**
+     * Adds to the number of slots of a recipe, in total and for the meal.
+     */
+    private void count(Connection connection, int recipeId, RecipeTag recipeTag, int difference) throws SQLException {
+        try (PreparedStatement mergePopularityStmt = connection.prepareStatement(SQL_MERGE_POPULARITY);
+            PreparedStatement countStmt = connection.prepareStatement(
+                String.format(SQL_COUNT_POPULARITY, recipeTag.toString().toLowerCase(Locale.ROOT)))) {
+            mergePopularityStmt.setInt(1, recipeId);
+            mergePopularityStmt.executeUpdate();
+
+            countStmt.setInt(1, difference);
+            countStmt.setInt(2, difference);
+            countStmt.setInt(3, recipeId);
+            countStmt.executeUpdate();
         }
     }
 
@@ -4,11 +4,11 @@ package at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implemen
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
 import java.lang.invoke.MethodHandles;
-import java.sql.Blob;
-import java.sql.Clob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -16,8 +16,13 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import javax.imageio.ImageIO;
@@ -30,60 +35,114 @@ import at.ac.tuwien.sepm.assignment.groupphase.application.dto.IngredientSearchP
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeImage;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePage;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePageRequest;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSearchParam;
-import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSortKey;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Tag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.ThumbnailSize;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.RecipePersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.TagPersistence;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.CloseUtil;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.ImageUtil;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.IngredientCatalog;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.JDBCConnectionManager;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.RecipeKeyset;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.TransactionScope;
 
 @Repository
 public class DBRecipePersistence implements RecipePersistence {
 	private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-	private static final String CREATE_RECIPE = "INSERT INTO RECIPE (name, duration, description, tags, deleted) VALUES (?, ?, ?, ?, ?)";
+	private static final String CREATE_RECIPE = "INSERT INTO RECIPE (name, duration, description, tags, deleted, tag_mask) VALUES (?, ?, ?, ?, ?, ?)";
 	private static final String CREATE_USER_INGREDIENT = "INSERT INTO INGREDIENT (NAME, ENERG_KCAL, LIPID, PROTEIN, CARBOHYDRT, UNIT_NAME, "
 			+ "UNIT_GRAM_NORMALISED, USER_SPECIFIC) VALUES (?,?,?,?,?,?,?, true);";
-	private static final String SEARCH_INGREDIENT = "SELECT * FROM ingredient WHERE name ILIKE ? ORDER BY LENGTH(name), name ASC;";
+
+	// ingredient search index, see IngredientTokenizer
+	private static final String INSERT_INGREDIENT_TOKEN = "INSERT INTO INGREDIENT_TOKEN (SUFFIX, INGREDIENT_ID, SCORE) VALUES (?, ?, ?);";
+	private static final String SELECT_UNINDEXED_INGREDIENTS = "SELECT ID, NAME FROM INGREDIENT i WHERE NOT EXISTS (SELECT 1 FROM INGREDIENT_TOKEN t WHERE t.INGREDIENT_ID = i.ID);";
+	// every search word is bound as range [word, word + MAX_VALUE) of the indexed suffixes, the matches of all words
+	// are aggregated once: the best score per ingredient and word, then the sum per ingredient that matches every word
+	private static final String SEARCH_INGREDIENT = "SELECT i.ID FROM INGREDIENT i JOIN (SELECT m.INGREDIENT_ID, SUM(m.SCORE) AS RANK "
+			+ "FROM (SELECT w.INGREDIENT_ID, w.WORD, MAX(w.SCORE) AS SCORE FROM (%s) w GROUP BY w.INGREDIENT_ID, w.WORD) m "
+			+ "GROUP BY m.INGREDIENT_ID HAVING COUNT(*) = ?) r ON r.INGREDIENT_ID = i.ID ORDER BY r.RANK DESC, LENGTH(i.NAME), i.NAME;";
+	private static final String SEARCH_INGREDIENT_WORD = "SELECT INGREDIENT_ID, %d AS WORD, SCORE FROM INGREDIENT_TOKEN WHERE SUFFIX >= ? AND SUFFIX < ?";
+	private static final int INGREDIENT_INDEX_BATCH_SIZE = 500;
 
 	private static final String SELECT_RECIPES = "SELECT * FROM RECIPE WHERE DELETED = FALSE;";
 
 	private static final String SELECT_RECIPE_WHERE = "SELECT * FROM RECIPE WHERE ID = ?;";
-	private static final String UPDATE_RECIPE_WHERE = "UPDATE RECIPE SET NAME = ?, DURATION = ?, DESCRIPTION = ?, TAGS = ? WHERE ID = ?;";
+	private static final String SELECT_RECIPES_WHERE_IDS = "SELECT * FROM RECIPE WHERE ID IN (SELECT X FROM TABLE(X INT = ?));";
+	private static final String UPDATE_RECIPE_WHERE = "UPDATE RECIPE SET NAME = ?, DURATION = ?, DESCRIPTION = ?, TAGS = ?, TAG_MASK = ? WHERE ID = ?;";
 
 	private static final String DELETE_RECIPE = "UPDATE RECIPE SET DELETED = TRUE WHERE id = ?;";
 
-	private static final String SELECT_R_I_WHERE = "SELECT * FROM RECIPE_INGREDIENT r_i JOIN INGREDIENT i ON r_i.INGREDIENT_ID = i.ID JOIN RECIPE r ON r_i.RECIPE_ID = r.ID WHERE r.ID = ?;";
-	private static final String DELETE_R_I_WHERE = "DELETE FROM RECIPE_INGREDIENT WHERE RECIPE_ID = ?;";
+	// one row per bit of the tag mask, the recipe search filters tags through them
+	private static final String DELETE_REMOVED_RECIPE_TAGS = "DELETE FROM RECIPE_TAG WHERE RECIPE_ID = ? AND TAG_BIT NOT IN (SELECT X FROM TABLE(X INT = ?));";
+	private static final String MERGE_RECIPE_TAG = "MERGE INTO RECIPE_TAG (TAG_BIT, RECIPE_ID) KEY (TAG_BIT, RECIPE_ID) VALUES (?, ?);";
+
+	// child rows of several recipes at once, the recipe ids are bound as a single array parameter
+	private static final String SELECT_R_I_WHERE_RECIPE_IDS = "SELECT RECIPE_ID, INGREDIENT_ID, AMOUNT FROM RECIPE_INGREDIENT WHERE RECIPE_ID IN (SELECT X FROM TABLE(X INT = ?));";
+	private static final String SELECT_R_I_NAMES = "SELECT r_i.RECIPE_ID, i.NAME FROM RECIPE_INGREDIENT r_i JOIN INGREDIENT i ON r_i.INGREDIENT_ID = i.ID JOIN RECIPE r ON r.ID = r_i.RECIPE_ID WHERE r.DELETED = FALSE;";
+	private static final String SELECT_R_I_NAMES_WHERE_RECIPE_IDS = "SELECT r_i.RECIPE_ID, i.NAME FROM RECIPE_INGREDIENT r_i JOIN INGREDIENT i ON r_i.INGREDIENT_ID = i.ID WHERE r_i.RECIPE_ID IN (SELECT X FROM TABLE(X INT = ?));";
+	private static final String SELECT_R_I_AMOUNTS_WHERE = "SELECT INGREDIENT_ID, AMOUNT FROM RECIPE_INGREDIENT WHERE RECIPE_ID = ?;";
+	private static final String DELETE_REMOVED_R_I = "DELETE FROM RECIPE_INGREDIENT WHERE RECIPE_ID = ? AND INGREDIENT_ID NOT IN (SELECT X FROM TABLE(X INT = ?));";
+	private static final String MERGE_RECIPE_INGREDIENT = "MERGE INTO RECIPE_INGREDIENT (INGREDIENT_ID, RECIPE_ID, AMOUNT) KEY (INGREDIENT_ID, RECIPE_ID) VALUES (?, ?, ?);";
 	// private static final String INSERT_R_I_WHERE = "INSERT INTO RECIPE_INGREDIENT
 	// (INGREDIENT_ID, RECIPE_ID, AMOUNT) VALUES (?, ?, ?);";
 
-	private static final String SELECT_RECIPE_IMAGES = "SELECT * FROM RECIPE_IMAGE WHERE RECIPE_id = ?";
+	// images are loaded as handles, the image data itself is read on demand
+	private static final String SELECT_RECIPE_IMAGES_WHERE_RECIPE_IDS = "SELECT ID, RECIPE_ID, IMAGE_TYPE FROM RECIPE_IMAGE WHERE RECIPE_ID IN (SELECT X FROM TABLE(X INT = ?));";
+	private static final String SELECT_RECIPE_IMAGE_DATA = "SELECT IMAGE FROM RECIPE_IMAGE WHERE ID = ?;";
+	private static final String SELECT_THUMBNAIL_DATA = "SELECT IMAGE FROM RECIPE_IMAGE_THUMBNAIL WHERE IMAGE_ID = ? AND SIZE = ?;";
+	private static final String MERGE_THUMBNAIL = "MERGE INTO RECIPE_IMAGE_THUMBNAIL (IMAGE_ID, SIZE, IMAGE) KEY (IMAGE_ID, SIZE) VALUES (?, ?, ?);";
+	private static final String SELECT_IMAGES_WITHOUT_THUMBNAILS = "SELECT ri.ID, ri.IMAGE_TYPE FROM RECIPE_IMAGE ri WHERE (SELECT COUNT(*) FROM RECIPE_IMAGE_THUMBNAIL t WHERE t.IMAGE_ID = ri.ID AND t.SIZE IN (SELECT X FROM TABLE(X VARCHAR = ?))) < ?;";
 
 	private static final String CREATE_RECIPE_INGREDIENT = "INSERT INTO recipe_ingredient (ingredient_id, recipe_id, amount) VALUES (?,?,?);";
 	private static final String CREATE_RECIPE_IMAGE = "INSERT INTO Recipe_Image (recipe_id, image, image_type) VALUES (?, ?, ?);";
-	private static final String DELETE_RECIPE_IMAGES = "DELETE FROM Recipe_Image WHERE recipe_id = ?;";
+	private static final String DELETE_REMOVED_RECIPE_IMAGES = "DELETE FROM Recipe_Image WHERE recipe_id = ? AND id NOT IN (SELECT X FROM TABLE(X INT = ?));";
 	
-	private static final String IS_RECIPE_CURRENTLY_SUGGESTED = "SELECT 1 FROM diet_plan_suggestion x WHERE recipe = ? AND date = TRUNC(NOW()) AND NOT EXISTS (SELECT 1 FROM diet_plan_suggestion WHERE tag = x.tag AND date = x.date AND created_timestamp > x.created_timestamp)";
-
-	private static final String SEARCH_RECIPES = "select r.* from recipe r " + //
-			"WHERE (? IS NULL OR EXISTS (select 1 from recipe_ingredient ri inner join ingredient i on i.id = ri.ingredient_id WHERE i.name ILIKE '%' || ? || '%' AND r.id = ri.recipe_id)) "
-			+ "AND (? IS NULL OR EXISTS (select 1 from recipe_ingredient ri inner join ingredient i on i.id = ri.ingredient_id WHERE i.name ILIKE '%' || ? || '%' AND r.id = ri.recipe_id)) "
-			+ "AND (? IS NULL OR EXISTS (select 1 from recipe_ingredient ri inner join ingredient i on i.id = ri.ingredient_id WHERE i.name ILIKE '%' || ? || '%' AND r.id = ri.recipe_id)) "
-			+ "AND (? IS NULL OR EXISTS (select 1 from recipe_ingredient ri inner join ingredient i on i.id = ri.ingredient_id WHERE i.name ILIKE '%' || ? || '%' AND r.id = ri.recipe_id)) "
-			+ "AND (? IS NULL OR EXISTS (select 1 from recipe_ingredient ri inner join ingredient i on i.id = ri.ingredient_id WHERE i.name ILIKE '%' || ? || '%' AND r.id = ri.recipe_id)) "
-			+ "AND (? IS NULL OR EXISTS (select 1 from recipe_ingredient ri inner join ingredient i on i.id = ri.ingredient_id WHERE i.name ILIKE '%' || ? || '%' AND r.id = ri.recipe_id)) "
-			+ "AND (? IS NULL OR EXISTS (select 1 from recipe_ingredient ri inner join ingredient i on i.id = ri.ingredient_id WHERE i.name ILIKE '%' || ? || '%' AND r.id = ri.recipe_id)) "
-			+ "AND (? IS NULL OR EXISTS (select 1 from recipe_ingredient ri inner join ingredient i on i.id = ri.ingredient_id WHERE i.name ILIKE '%' || ? || '%' AND r.id = ri.recipe_id)) "
-			+ "AND (? IS NULL OR EXISTS (select 1 from recipe_ingredient ri inner join ingredient i on i.id = ri.ingredient_id WHERE i.name ILIKE '%' || ? || '%' AND r.id = ri.recipe_id)) "
-			+ "AND (? IS NULL OR EXISTS (select 1 from recipe_ingredient ri inner join ingredient i on i.id = ri.ingredient_id WHERE i.name ILIKE '%' || ? || '%' AND r.id = ri.recipe_id)) "
-			+ "AND (? IS NULL OR r.name ILIKE '%' || ? || '%') " + // recipe name
-			"AND (? IS NULL OR r.tags ILIKE '%' || ? || '%') " + // recipe tags
-			"AND (? IS NULL OR r.tags ILIKE '%' || ? || '%') " + // recipe tags
-			"AND (? IS NULL OR r.tags ILIKE '%' || ? || '%') " + // recipe tags
-			"AND (? IS NULL OR r.duration >= ?) " + // recipe duration lower incl bound
-			"AND (? IS NULL OR r.duration <= ?) " + // recipe duration upper incl bound
-			"AND deleted = FALSE"; 
+	private static final String IS_RECIPE_CURRENTLY_SUGGESTED = "SELECT 1 FROM suggestion_slot WHERE recipe = ? AND date = CURDATE()";
+
+	private static final String SEARCH_RECIPES = "SELECT r.* FROM RECIPE r";
+
+	// nutrition totals of a recipe, summed up over its ingredients: amount * grams per unit, values per 100 g; the
+	// macro percentages are computed columns of the totals
+	private static final String UPDATE_RECIPE_NUTRITION = "UPDATE RECIPE r SET (CALORIES, CARBOHYDRATES, PROTEINS, FATS) = ("
+			+ "SELECT COALESCE(SUM(r_i.AMOUNT * ing.UNIT_GRAM_NORMALISED * ing.ENERG_KCAL / 100), 0), "
+			+ "COALESCE(SUM(r_i.AMOUNT * ing.UNIT_GRAM_NORMALISED * ing.CARBOHYDRT / 100), 0), "
+			+ "COALESCE(SUM(r_i.AMOUNT * ing.UNIT_GRAM_NORMALISED * ing.PROTEIN / 100), 0), "
+			+ "COALESCE(SUM(r_i.AMOUNT * ing.UNIT_GRAM_NORMALISED * ing.LIPID / 100), 0) "
+			+ "FROM RECIPE_INGREDIENT r_i JOIN INGREDIENT ing ON ing.ID = r_i.INGREDIENT_ID WHERE r_i.RECIPE_ID = r.ID) "
+			+ "WHERE r.ID = ?;";
+	private static final String SELECT_RECIPE_NUTRITION_WHERE = "SELECT CALORIES, CARBOHYDRATES, PROTEINS, FATS FROM RECIPE WHERE ID = ?;";
+
+	// summaries carry only key data and the stored nutrition totals
+	private static final String SELECT_RECIPE_SUMMARIES_FROM = "SELECT r.ID, r.NAME, r.DURATION, r.TAG_MASK, "
+			+ "r.CALORIES, r.CARBOHYDRATES, r.PROTEINS, r.FATS FROM RECIPE r";
+	private static final String SELECT_RECIPE_SUMMARIES = SELECT_RECIPE_SUMMARIES_FROM + " WHERE r.DELETED = FALSE;";
+	private static final String SELECT_RECIPE_SUMMARIES_WHERE_IDS = SELECT_RECIPE_SUMMARIES_FROM
+			+ " WHERE r.ID IN (SELECT X FROM TABLE(X INT = ?));";
+	// a page is the recipes after the keyset (the last recipe of the previous page) in the order of the sort value and
+	// the id
+	private static final String PAGE_RECIPE_KEYSET_ASC = "(%1$s > ? OR (%1$s = ? AND r.ID > ?))";
+	private static final String PAGE_RECIPE_KEYSET_DESC = "(%1$s < ? OR (%1$s = ? AND r.ID < ?))";
+	private static final String PAGE_RECIPE_ORDER_ASC = " ORDER BY %1$s, r.ID";
+	private static final String PAGE_RECIPE_ORDER_DESC = " ORDER BY %1$s DESC, r.ID DESC";
+	private static final String PAGE_RECIPE_SUMMARIES_LIMIT = " LIMIT ?";
+
+	private final TagPersistence tagPersistence;
+
+	/**
+	 * @param tagPersistence persistence of the tag dictionary; custom tags named on a recipe are created through it,
+	 *            within the transaction that stores the recipe
+	 */
+	public DBRecipePersistence(TagPersistence tagPersistence) {
+		this.tagPersistence = tagPersistence;
+	}
+
 	@Override
 	public void create(Recipe recipe) throws PersistenceException {
 		LOG.debug("Creating a new Recipe {}", recipe);
@@ -91,20 +150,17 @@ public class DBRecipePersistence implements RecipePersistence {
 		PreparedStatement createRecipe = null;
 		ResultSet generatedKeys = null;
 
-		try {
-			Connection connection = JDBCConnectionManager.getConnection();
-			JDBCConnectionManager.startTransaction();
-
-			createRecipe = connection.prepareStatement(CREATE_RECIPE, Statement.RETURN_GENERATED_KEYS);
-			createRecipe.setString(1, recipe.getName());
+		try (TransactionScope transaction = JDBCConnectionManager.beginTransaction()) {
+			setCustomTags(recipe);
+			createRecipe = transaction.getConnection().prepareStatement(CREATE_RECIPE, Statement.RETURN_GENERATED_KEYS);
+			createRecipe.setString(1, recipe.getName().trim());
 			createRecipe.setDouble(2, recipe.getDuration());
 
-			Clob clob = connection.createClob();
-			clob.setString(1, recipe.getDescription());
-			createRecipe.setClob(3, clob);
+			setDescription(createRecipe, 3, recipe.getDescription());
 
 			createRecipe.setString(4, recipe.getTagsAsString());
 			createRecipe.setBoolean(5, false); // is deleted = false
+			createRecipe.setLong(6, recipe.getTagMask());
 			createRecipe.execute();
 
 			generatedKeys = createRecipe.getGeneratedKeys();
@@ -113,113 +169,316 @@ public class DBRecipePersistence implements RecipePersistence {
 			recipe.setId(generatedKeys.getInt(1));
 			LOG.debug("Created Recipe will have recipeId={}", recipe.getId());
 
-			List<RecipeIngredient> userSpecificRecipeIngredients = recipe.getRecipeIngredients().stream()
-					.filter(ri -> ri.getId() == null).collect(Collectors.toList());
-			List<RecipeIngredient> commonRecipeIngredients = recipe.getRecipeIngredients().stream()
-					.filter(ri -> ri.getId() != null).collect(Collectors.toList());
+			setTagRows(recipe);
 
-			for (RecipeIngredient ri : userSpecificRecipeIngredients) {
-				Integer userIngredientId = createUserSpecificIngredientTuple(ri);
-				createRecipeIngredientTuple(ri, userIngredientId, recipe.getId());
-			}
+			createUserSpecificIngredients(recipe.getRecipeIngredients().stream().filter(ri -> ri.getId() == null)
+					.collect(Collectors.toList()));
+			writeRecipeIngredients(CREATE_RECIPE_INGREDIENT, recipe.getId(), getAmounts(recipe.getRecipeIngredients()));
+			updateNutrition(recipe);
+			createRecipeImages(recipe.getRecipeImages(), recipe.getId());
 
-			for (RecipeIngredient ri : commonRecipeIngredients) {
-				createRecipeIngredientTuple(ri, ri.getId(), recipe.getId());
-			}
-
-			for (RecipeImage ri : recipe.getRecipeImages()) {
-				createRecipeImage(ri, recipe.getId());
-			}
-
-			JDBCConnectionManager.commitTransaction();
+			transaction.commit();
 		} catch (SQLException | IOException e) {
-			JDBCConnectionManager.rollbackTransaction();
 			throw new PersistenceException(
 					"There was an error while creating a recipe in the database. " + e.getMessage(), e);
 		} finally {
-			JDBCConnectionManager.finalizeTransaction();
 			CloseUtil.closeResultSet(generatedKeys);
 			CloseUtil.closeStatement(createRecipe);
 		}
 	}
 
-	private void createRecipeImage(RecipeImage ri, Integer recipeId) throws SQLException, IOException {
-		LOG.debug("Creating new Recipe_Image for recipeId={}.", recipeId);
+	/**
+	 * Replaces the custom tag mask of the recipe by the bits of its custom tag names, if it has names. Has to be called
+	 * within the transaction storing the recipe, so that created tags are rolled back if the recipe is not stored.
+	 */
+	private void setCustomTags(Recipe recipe) throws PersistenceException {
+		if (recipe.getCustomTagNames() == null) {
+			return;
+		}
+		long customTagMask = 0;
+		for (Tag tag : tagPersistence.getOrCreateCustomTags(recipe.getCustomTagNames())) {
+			customTagMask |= tag.getMask();
+		}
+		recipe.setCustomTagMask(customTagMask);
+	}
 
-		PreparedStatement createRecipeImage = JDBCConnectionManager.getConnection()
-				.prepareStatement(CREATE_RECIPE_IMAGE, Statement.RETURN_GENERATED_KEYS);
+	/**
+	 * Writes a row of RECIPE_TAG for every bit of the tag mask of the recipe and deletes the rows of the bits it no
+	 * longer has.
+	 */
+	private void setTagRows(Recipe recipe) throws SQLException, PersistenceException {
+		List<Integer> bits = new ArrayList<>();
+		for (long tagMask = recipe.getTagMask(); tagMask != 0; tagMask &= tagMask - 1) {
+			bits.add(Long.numberOfTrailingZeros(tagMask));
+		}
 
-		createRecipeImage.setInt(1, recipeId);
-		
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		ImageIO.write(ri.getImage(), ri.getImageType(), baos);
-		Blob blob = new javax.sql.rowset.serial.SerialBlob(baos.toByteArray());
-		        
-		createRecipeImage.setBlob(2, blob);
-		createRecipeImage.setString(3, ri.getImageType());
-		createRecipeImage.execute();
-		
-		ResultSet generatedKeys = createRecipeImage.getGeneratedKeys();
-		generatedKeys.next();
-		
-		ri.setId(generatedKeys.getInt(1));
-				
-		LOG.debug("Created image for recipe {} with ID {}", recipeId, ri.getId());
+		PreparedStatement ps = null;
+		try {
+			ps = JDBCConnectionManager.getConnection().prepareStatement(DELETE_REMOVED_RECIPE_TAGS);
+			ps.setInt(1, recipe.getId());
+			ps.setObject(2, bits.toArray());
+			ps.executeUpdate();
+
+			CloseUtil.closeStatement(ps);
+			ps = JDBCConnectionManager.getConnection().prepareStatement(MERGE_RECIPE_TAG);
+			for (int bit : bits) {
+				ps.setInt(1, bit);
+				ps.setInt(2, recipe.getId());
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		} finally {
+			CloseUtil.closeStatement(ps);
+		}
 	}
 
-	private void createRecipeIngredientTuple(RecipeIngredient ri, Integer ingredientId, Integer recipeId)
-			throws SQLException {
-		LOG.debug("Creating new Recipe_Ingredient tuple for ingredientId={} and recipeId={} with amount={}.",
-				ingredientId, recipeId, ri.getAmount());
+	/**
+	 * Streams the description into its CLOB column without creating an intermediate CLOB.
+	 */
+	private void setDescription(PreparedStatement ps, int index, String description) throws SQLException {
+		if (description == null) {
+			ps.setNull(index, Types.CLOB);
+		} else {
+			ps.setCharacterStream(index, new StringReader(description), description.length());
+		}
+	}
+
+	/**
+	 * Inserts the given images with a single batch and stores their thumbnails. The generated ids are set on the
+	 * images.
+	 */
+	private void createRecipeImages(List<RecipeImage> images, Integer recipeId) throws SQLException, IOException {
+		if (images.isEmpty()) {
+			return;
+		}
+
+		LOG.debug("Creating {} new Recipe_Image rows for recipeId={}.", images.size(), recipeId);
+
+		List<InputStream> streams = new ArrayList<>();
+		try (PreparedStatement ps = JDBCConnectionManager.getConnection().prepareStatement(CREATE_RECIPE_IMAGE,
+				Statement.RETURN_GENERATED_KEYS)) {
+			for (RecipeImage ri : images) {
+				InputStream in = ri.openStream();
+				streams.add(in);
+
+				ps.setInt(1, recipeId);
+				// the encoded bytes are stored as they are, e.g. the bytes of the file chosen by the user
+				ps.setBinaryStream(2, in);
+				ps.setString(3, ri.getImageType());
+				ps.addBatch();
+			}
+			ps.executeBatch();
+
+			try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+				for (RecipeImage ri : images) {
+					generatedKeys.next();
+					ri.setId(generatedKeys.getInt(1));
+				}
+			}
+		} finally {
+			for (InputStream in : streams) {
+				in.close();
+			}
+		}
 
-		PreparedStatement createRecipeIngredient = JDBCConnectionManager.getConnection()
-				.prepareStatement(CREATE_RECIPE_INGREDIENT);
+		try (PreparedStatement ps = JDBCConnectionManager.getConnection().prepareStatement(MERGE_THUMBNAIL)) {
+			for (RecipeImage ri : images) {
+				addThumbnails(ps, ri.getId(), ri.getImage(), ri.getImageType());
+			}
+			ps.executeBatch();
+		}
+	}
 
-		createRecipeIngredient.setInt(1, ingredientId);
-		createRecipeIngredient.setInt(2, recipeId);
-		createRecipeIngredient.setDouble(3, ri.getAmount());
+	/**
+	 * Adds the thumbnails of an image in all {@link ThumbnailSize}s to the batch of a {@link #MERGE_THUMBNAIL}
+	 * statement, existing thumbnails are replaced. Images which cannot be decoded get no thumbnails, they are scaled
+	 * when shown.
+	 *
+	 * @return true if the thumbnails were added
+	 */
+	private boolean addThumbnails(PreparedStatement ps, int imageId, BufferedImage image, String imageType)
+			throws SQLException, IOException {
+		if (image == null) {
+			LOG.warn("Image {} cannot be decoded, no thumbnails are created", imageId);
+			return false;
+		}
+		for (ThumbnailSize size : ThumbnailSize.values()) {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			ImageIO.write(ImageUtil.createThumbnail(image, size, imageType), imageType, baos);
+
+			ps.setInt(1, imageId);
+			ps.setString(2, size.name());
+			ps.setBytes(3, baos.toByteArray());
+			ps.addBatch();
+		}
+		return true;
+	}
+
+	@Override
+	public int backfillThumbnails() throws PersistenceException {
+		PreparedStatement ps = null;
+		PreparedStatement mergeThumbnail = null;
+		ResultSet rs = null;
+
+		try {
+			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_IMAGES_WITHOUT_THUMBNAILS);
+			ps.setObject(1, Arrays.stream(ThumbnailSize.values()).map(ThumbnailSize::name).toArray());
+			ps.setInt(2, ThumbnailSize.values().length);
+			rs = ps.executeQuery();
+
+			Map<Integer, String> imageTypes = new LinkedHashMap<>();
+			while (rs.next()) {
+				imageTypes.put(rs.getInt("ID"), rs.getString("IMAGE_TYPE"));
+			}
+
+			LOG.debug("Creating thumbnails for {} images", imageTypes.size());
+
+			// one image after another, so that only a single full size image is decoded at a time
+			mergeThumbnail = JDBCConnectionManager.getConnection().prepareStatement(MERGE_THUMBNAIL);
+			int count = 0;
+			for (Map.Entry<Integer, String> e : imageTypes.entrySet()) {
+				BufferedImage image;
+				try (InputStream in = readImageData(e.getKey())) {
+					image = ImageIO.read(in);
+				} catch (IOException ex) {
+					// a broken image must not keep the thumbnails of the other images from being created
+					LOG.warn("Image {} cannot be read '{}'", e.getKey(), ex.getMessage());
+					continue;
+				}
+				if (addThumbnails(mergeThumbnail, e.getKey(), image, e.getValue())) {
+					mergeThumbnail.executeBatch();
+					count++;
+				}
+			}
 
-		createRecipeIngredient.execute();
+			return count;
+		} catch (SQLException | IOException e) {
+			throw new PersistenceException(e.getMessage(), e);
+		} finally {
+			CloseUtil.closeStatement(mergeThumbnail);
+			CloseUtil.closeStatement(ps);
+			CloseUtil.closeResultSet(rs);
+		}
+	}
+
+	/**
+	 * Inserts the given ingredients as user specific ingredients with a single batch and sets the generated ids on
+	 * them.
+	 */
+	private void createUserSpecificIngredients(List<RecipeIngredient> ingredients) throws SQLException {
+		if (ingredients.isEmpty()) {
+			return;
+		}
+
+		LOG.debug("Creating {} new user specific Ingredient tuples.", ingredients.size());
+
+		try (PreparedStatement ps = JDBCConnectionManager.getConnection().prepareStatement(CREATE_USER_INGREDIENT,
+				Statement.RETURN_GENERATED_KEYS)) {
+			for (RecipeIngredient ri : ingredients) {
+				ps.setString(1, ri.getIngredientName().trim());
+				ps.setDouble(2, ri.getEnergyKcal());
+				ps.setDouble(3, ri.getLipid());
+				ps.setDouble(4, ri.getProtein());
+				ps.setDouble(5, ri.getCarbohydrate());
+				ps.setString(6, ri.getUnitName());
+				ps.setDouble(7, ri.getUnitGramNormalised());
+				ps.addBatch();
+			}
+			ps.executeBatch();
+
+			try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+				for (RecipeIngredient ri : ingredients) {
+					generatedKeys.next();
+					ri.setId(generatedKeys.getInt(1));
+				}
+			}
+		}
+		for (RecipeIngredient ri : ingredients) {
+			ri.setUserSpecific(true);
+			IngredientCatalog.getInstance().put(ri);
+		}
+
+		try (PreparedStatement ps = JDBCConnectionManager.getConnection().prepareStatement(INSERT_INGREDIENT_TOKEN)) {
+			for (RecipeIngredient ri : ingredients) {
+				addIngredientTokens(ps, ri.getId(), ri.getIngredientName().trim());
+			}
+			ps.executeBatch();
+		}
 	}
 
-	private Integer createUserSpecificIngredientTuple(RecipeIngredient ri) throws SQLException {
-		LOG.debug("Creating new user specific Ingredient tuple for ingredientName='{}'.", ri.getIngredientName());
-		PreparedStatement createUserIngredient = JDBCConnectionManager.getConnection()
-				.prepareStatement(CREATE_USER_INGREDIENT, Statement.RETURN_GENERATED_KEYS);
+	/**
+	 * Writes the amounts of the given ingredients of a recipe with a single batch of {@link #CREATE_RECIPE_INGREDIENT}
+	 * or {@link #MERGE_RECIPE_INGREDIENT}.
+	 */
+	private void writeRecipeIngredients(String sql, Integer recipeId, Map<Integer, Double> amounts)
+			throws SQLException {
+		if (amounts.isEmpty()) {
+			return;
+		}
+
+		LOG.debug("Writing {} Recipe_Ingredient tuples for recipeId={}.", amounts.size(), recipeId);
 
-		createUserIngredient.setString(1, ri.getIngredientName().trim());
-		createUserIngredient.setDouble(2, ri.getEnergyKcal());
-		createUserIngredient.setDouble(3, ri.getLipid());
-		createUserIngredient.setDouble(4, ri.getProtein());
-		createUserIngredient.setDouble(5, ri.getCarbohydrate());
-		createUserIngredient.setString(6, ri.getUnitName());
-		createUserIngredient.setDouble(7, ri.getUnitGramNormalised());
+		try (PreparedStatement ps = JDBCConnectionManager.getConnection().prepareStatement(sql)) {
+			for (Map.Entry<Integer, Double> e : amounts.entrySet()) {
+				ps.setInt(1, e.getKey());
+				ps.setInt(2, recipeId);
+				ps.setDouble(3, e.getValue());
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+	}
 
-		createUserIngredient.execute();
-		ResultSet generatedKeys = createUserIngredient.getGeneratedKeys();
-		generatedKeys.next();
-		int userSpecIngredientId = generatedKeys.getInt(1);
-		LOG.debug("Created Ingredient will have ingredientId={}", userSpecIngredientId);
-		return userSpecIngredientId;
+	/**
+	 * Maps the ingredient ids of the given recipe ingredients to their amounts. Ingredients without an id have to be
+	 * created first.
+	 */
+	private Map<Integer, Double> getAmounts(List<RecipeIngredient> ingredients) {
+		Map<Integer, Double> amounts = new LinkedHashMap<>();
+		for (RecipeIngredient ri : ingredients) {
+			amounts.put(ri.getId(), ri.getAmount());
+		}
+		return amounts;
 	}
 
 	@Override
 	public List<RecipeIngredient> searchIngredient(IngredientSearchParam searchIngredient) throws PersistenceException {
 		LOG.debug("Searching for Ingredient with name '{}'", searchIngredient.getIngredientName());
 
+		List<String> words = IngredientTokenizer.words(searchIngredient.getIngredientName());
+		if (words.isEmpty()) {
+			return new ArrayList<>();
+		}
+
 		PreparedStatement searchIngredientStmnt = null;
 		ResultSet resultSet = null;
 
 		try {
-			searchIngredientStmnt = JDBCConnectionManager.getConnection()
-					.prepareStatement(SEARCH_INGREDIENT.replace("?",
-							"'%" + searchIngredient.getIngredientName().trim().replaceAll("\\s", "%' AND name ILIKE '%")
-									+ "%'"));
-			resultSet = searchIngredientStmnt.executeQuery();
-			List<RecipeIngredient> searchResult = new ArrayList<>();
+			List<String> wordQueries = new ArrayList<>();
+			for (int word = 0; word < words.size(); word++) {
+				wordQueries.add(String.format(SEARCH_INGREDIENT_WORD, word));
+			}
+			String sql = String.format(SEARCH_INGREDIENT, String.join(" UNION ALL ", wordQueries));
 
+			searchIngredientStmnt = JDBCConnectionManager.getConnection().prepareStatement(sql);
+			int index = 1;
+			for (String word : words) {
+				searchIngredientStmnt.setString(index++, word);
+				searchIngredientStmnt.setString(index++, word + Character.MAX_VALUE);
+			}
+			searchIngredientStmnt.setInt(index, words.size());
+
+			resultSet = searchIngredientStmnt.executeQuery();
+			List<Integer> ids = new ArrayList<>();
 			while (resultSet.next()) {
-				searchResult.add(transformToRecipeIngredient(resultSet));
+				ids.add(resultSet.getInt(1));
+			}
+
+			IngredientCatalog catalog = IngredientCatalog.getInstance();
+			catalog.load(ids);
+			List<RecipeIngredient> searchResult = new ArrayList<>(ids.size());
+			for (int id : ids) {
+				searchResult.add(catalog.get(id, null));
 			}
 			return searchResult;
 		} catch (SQLException e) {
@@ -230,19 +489,48 @@ public class DBRecipePersistence implements RecipePersistence {
 		}
 	}
 
-	private RecipeIngredient transformToRecipeIngredient(ResultSet resultSet) throws SQLException {
-		Integer id = resultSet.getInt("ID");
-		String ingredientName = resultSet.getString("NAME");
-		Double energyKcal = resultSet.getDouble("ENERG_KCAL");
-		Double lipid = resultSet.getDouble("LIPID");
-		Double protein = resultSet.getDouble("PROTEIN");
-		Double carbohydrate = resultSet.getDouble("CARBOHYDRT");
-		String unitName = resultSet.getString("UNIT_NAME");
-		Double unitGramNormalised = resultSet.getDouble("UNIT_GRAM_NORMALISED");
-		Boolean userSpecific = resultSet.getBoolean("USER_SPECIFIC");
+	@Override
+	public int backfillIngredientIndex() throws PersistenceException {
+		PreparedStatement ps = null;
+		PreparedStatement insertToken = null;
+		ResultSet rs = null;
+
+		try (TransactionScope transaction = JDBCConnectionManager.beginTransaction()) {
+			ps = transaction.getConnection().prepareStatement(SELECT_UNINDEXED_INGREDIENTS);
+			rs = ps.executeQuery();
 
-		return new RecipeIngredient(id, null, energyKcal, lipid, protein, carbohydrate, unitName, unitGramNormalised,
-				userSpecific, ingredientName);
+			insertToken = transaction.getConnection().prepareStatement(INSERT_INGREDIENT_TOKEN);
+			int count = 0;
+			while (rs.next()) {
+				addIngredientTokens(insertToken, rs.getInt("ID"), rs.getString("NAME"));
+				if (++count % INGREDIENT_INDEX_BATCH_SIZE == 0) {
+					insertToken.executeBatch();
+				}
+			}
+			insertToken.executeBatch();
+
+			transaction.commit();
+			LOG.debug("Indexed {} ingredients for the ingredient search", count);
+			return count;
+		} catch (SQLException e) {
+			throw new PersistenceException("There was an error while indexing ingredients. " + e.getMessage(), e);
+		} finally {
+			CloseUtil.closeResultSet(rs);
+			CloseUtil.closeStatement(insertToken);
+			CloseUtil.closeStatement(ps);
+		}
+	}
+
+	/**
+	 * Adds the search index entries of an ingredient to the batch of an {@link #INSERT_INGREDIENT_TOKEN} statement.
+	 */
+	private void addIngredientTokens(PreparedStatement ps, int ingredientId, String name) throws SQLException {
+		for (Map.Entry<String, Integer> suffix : IngredientTokenizer.suffixes(name).entrySet()) {
+			ps.setString(1, suffix.getKey());
+			ps.setInt(2, ingredientId);
+			ps.setInt(3, suffix.getValue());
+			ps.addBatch();
+		}
 	}
 
 	@Override
@@ -255,16 +543,14 @@ public class DBRecipePersistence implements RecipePersistence {
 			ps.setInt(1, id);
 
 			rs = ps.executeQuery();
+			List<Recipe> recipes = readRecipes(rs);
 
-			if (rs.next()) {
-				Recipe r = new Recipe(rs.getInt("ID"), rs.getString("NAME"), rs.getDouble("DURATION"),
-						rs.getString("DESCRIPTION"), rs.getString("TAGS"), rs.getBoolean("DELETED"));
-				r.setRecipeIngredients(getIngredients(id));
-				r.setRecipeImages(getImages(id));
-				return r;
+			if (recipes.isEmpty()) {
+				throw new PersistenceException("No recipe found for given id");
 			}
 
-			throw new PersistenceException("No recipe found for given id");
+			loadChildren(recipes);
+			return recipes.get(0);
 		} catch (SQLException e) {
 			throw new PersistenceException(e.getMessage(), e);
 		} finally {
@@ -273,53 +559,203 @@ public class DBRecipePersistence implements RecipePersistence {
 		}
 	}
 
-	private List<RecipeImage> getImages(int id) throws PersistenceException {
+	@Override
+	public List<Recipe> get(Collection<Integer> ids) throws PersistenceException {
+		LOG.debug("Fetching {} recipes by id", ids.size());
+
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+
 		PreparedStatement ps = null;
 		ResultSet rs = null;
-		InputStream in = null;
 
 		try {
-			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_RECIPE_IMAGES);
-			ps.setInt(1, id);
+			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_RECIPES_WHERE_IDS);
+			ps.setObject(1, ids.toArray());
+
+			rs = ps.executeQuery();
+			Map<Integer, Recipe> recipesById = new HashMap<>();
+			for (Recipe r : readRecipes(rs)) {
+				recipesById.put(r.getId(), r);
+			}
+			loadChildren(recipesById.values());
+
+			// keep the order in which the ids were requested
+			Map<Integer, Recipe> ordered = new LinkedHashMap<>();
+			for (Integer id : ids) {
+				Recipe r = recipesById.get(id);
+				if (r != null) {
+					ordered.put(id, r);
+				}
+			}
+			return new ArrayList<>(ordered.values());
+		} catch (SQLException e) {
+			throw new PersistenceException(e.getMessage(), e);
+		} finally {
+			CloseUtil.closeStatement(ps);
+			CloseUtil.closeResultSet(rs);
+		}
+	}
+
+	/**
+	 * Reads all recipe rows of the given result set, without ingredients and images.
+	 */
+	private List<Recipe> readRecipes(ResultSet rs) throws SQLException {
+		List<Recipe> recipes = new ArrayList<>();
+		while (rs.next()) {
+			Recipe recipe = new Recipe(rs.getInt("ID"), rs.getString("NAME"), rs.getDouble("DURATION"),
+					rs.getString("DESCRIPTION"), rs.getString("TAGS"), rs.getBoolean("DELETED"));
+			// the tag mask holds the custom tags as well, the tags column only the meal tags
+			recipe.setTagMask(rs.getLong("TAG_MASK"));
+			setNutrition(recipe, rs);
+			recipes.add(recipe);
+		}
+		return recipes;
+	}
+
+	/**
+	 * Fills ingredients and images of all given recipes with one query per child table, regardless of how many
+	 * recipes are passed.
+	 */
+	private void loadChildren(Collection<Recipe> recipes) throws PersistenceException {
+		if (recipes.isEmpty()) {
+			return;
+		}
+
+		Object[] ids = recipes.stream().map(Recipe::getId).toArray();
+		Map<Integer, List<RecipeIngredient>> ingredients = getIngredients(ids);
+		Map<Integer, List<RecipeImage>> images = getImages(ids);
+
+		for (Recipe r : recipes) {
+			r.setRecipeIngredients(ingredients.getOrDefault(r.getId(), new ArrayList<>()));
+			r.setRecipeImages(images.getOrDefault(r.getId(), new ArrayList<>()));
+		}
+	}
+
+	private Map<Integer, List<RecipeImage>> getImages(Object[] recipeIds) throws PersistenceException {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+
+		try {
+			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_RECIPE_IMAGES_WHERE_RECIPE_IDS);
+			ps.setObject(1, recipeIds);
 			rs = ps.executeQuery();
 
-			List<RecipeImage> recipeImages = new ArrayList<>();
+			Map<Integer, List<RecipeImage>> recipeImages = new HashMap<>();
 
 			while (rs.next()) {
-				Blob blob = rs.getBlob("image");
-				in = blob.getBinaryStream();  
-	        	BufferedImage image = ImageIO.read(in);
-	        	 
-				recipeImages.add(new RecipeImage(rs.getInt("id"), image, rs.getString("image_type")));
+				final int imageId = rs.getInt("id");
+				recipeImages.computeIfAbsent(rs.getInt("recipe_id"), k -> new ArrayList<>())
+						.add(new RecipeImage(imageId, rs.getString("image_type"), () -> readImageData(imageId),
+								size -> readThumbnailData(imageId, size)));
 			}
 
 			return recipeImages;
-		} catch (SQLException | IOException e) {
+		} catch (SQLException e) {
 			throw new PersistenceException(e.getMessage(), e);
 		} finally {
-			CloseUtil.closeInputStream(in);
 			CloseUtil.closeStatement(ps);
 			CloseUtil.closeResultSet(rs);
 		}
 	}
 
-	private List<RecipeIngredient> getIngredients(int id) throws PersistenceException {
+	/**
+	 * Reads the encoded bytes of a stored image. Used as {@link RecipeImage.Source} of the loaded image handles.
+	 */
+	private InputStream readImageData(int imageId) throws IOException {
+		LOG.debug("Reading data of image with ID {}", imageId);
+
+		InputStream in = openBinaryStream(SELECT_RECIPE_IMAGE_DATA, imageId);
+		if (in == null) {
+			throw new IOException("No image found for given id");
+		}
+		return in;
+	}
+
+	/**
+	 * Reads the encoded bytes of a stored thumbnail. Used as {@link RecipeImage.ThumbnailSource} of the loaded image
+	 * handles.
+	 *
+	 * @return stream of the thumbnail or <code>null</code> if it has not been created yet
+	 */
+	private InputStream readThumbnailData(int imageId, ThumbnailSize size) throws IOException {
+		return openBinaryStream(SELECT_THUMBNAIL_DATA, imageId, size.name());
+	}
+
+	/**
+	 * Opens the binary column of the first row the query returns as stream, without copying the bytes. Statement and
+	 * result set stay open until the returned stream is closed.
+	 *
+	 * @return stream of the column or <code>null</code> if the query returns no row
+	 */
+	private InputStream openBinaryStream(String sql, Object... params) throws IOException {
 		PreparedStatement ps = null;
 		ResultSet rs = null;
 
 		try {
-			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_R_I_WHERE);
-			ps.setInt(1, id);
+			ps = JDBCConnectionManager.getConnection().prepareStatement(sql);
+			for (int i = 0; i < params.length; i++) {
+				ps.setObject(i + 1, params[i]);
+			}
 			rs = ps.executeQuery();
 
-			List<RecipeIngredient> ingredients = new ArrayList<>();
-			while (rs.next()) {
-				ingredients.add(new RecipeIngredient(rs.getInt("INGREDIENT_ID"), rs.getDouble("AMOUNT"),
-						rs.getDouble("ENERG_KCAL"), rs.getDouble("LIPID"), rs.getDouble("PROTEIN"),
-						rs.getDouble("CARBOHYDRT"), rs.getString("UNIT_NAME"), rs.getDouble("UNIT_GRAM_NORMALISED"),
-						rs.getBoolean("USER_SPECIFIC"), rs.getString("NAME")));
+			if (!rs.next()) {
+				closeQuietly(ps, rs);
+				return null;
 			}
 
+			final PreparedStatement statement = ps;
+			final ResultSet resultSet = rs;
+			return new FilterInputStream(rs.getBinaryStream(1)) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						closeQuietly(statement, resultSet);
+					}
+				}
+			};
+		} catch (SQLException e) {
+			closeQuietly(ps, rs);
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	private void closeQuietly(PreparedStatement ps, ResultSet rs) {
+		try {
+			CloseUtil.closeResultSet(rs);
+			CloseUtil.closeStatement(ps);
+		} catch (PersistenceException e) {
+			LOG.error("Failed to close statement '{}'", e.getMessage(), e);
+		}
+	}
+
+	private Map<Integer, List<RecipeIngredient>> getIngredients(Object[] recipeIds) throws PersistenceException {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+
+		try {
+			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_R_I_WHERE_RECIPE_IDS);
+			ps.setObject(1, recipeIds);
+			rs = ps.executeQuery();
+
+			// only ids and amounts are read, the ingredients themselves come from the catalog
+			IngredientCatalog catalog = IngredientCatalog.getInstance();
+			catalog.load(Collections.emptyList());
+			Map<Integer, List<RecipeIngredient>> ingredients = new HashMap<>();
+			while (rs.next()) {
+				int ingredientId = rs.getInt("INGREDIENT_ID");
+				if (!catalog.contains(ingredientId)) {
+					// created after the catalog was loaded, but not through this persistence
+					catalog.load(Collections.singletonList(ingredientId));
+				}
+				RecipeIngredient ingredient = catalog.get(ingredientId, rs.getDouble("AMOUNT"));
+				if (ingredient != null) {
+					ingredients.computeIfAbsent(rs.getInt("RECIPE_ID"), k -> new ArrayList<>()).add(ingredient);
+				}
+			}
 			return ingredients;
 		} catch (SQLException e) {
 			throw new PersistenceException(e.getMessage(), e);
@@ -331,60 +767,100 @@ public class DBRecipePersistence implements RecipePersistence {
 
 	@Override
 	public void update(Recipe recipe) throws PersistenceException {
-		JDBCConnectionManager.startTransaction();
-
 		PreparedStatement ps = null;
-		try {
-			ps = JDBCConnectionManager.getConnection().prepareStatement(UPDATE_RECIPE_WHERE);
-			ps.setString(1, recipe.getName());
+		try (TransactionScope transaction = JDBCConnectionManager.beginTransaction()) {
+			setCustomTags(recipe);
+			ps = transaction.getConnection().prepareStatement(UPDATE_RECIPE_WHERE);
+			ps.setString(1, recipe.getName().trim());
 			ps.setDouble(2, recipe.getDuration());
 
-			Clob description = JDBCConnectionManager.getConnection().createClob();
-			description.setString(1, recipe.getDescription());
-			ps.setClob(3, description);
+			setDescription(ps, 3, recipe.getDescription());
 
 			ps.setString(4, recipe.getTagsAsString());
-			ps.setInt(5, recipe.getId());
+			ps.setLong(5, recipe.getTagMask());
+			ps.setInt(6, recipe.getId());
 			ps.executeUpdate();
 
+			setTagRows(recipe);
 			setIngredients(recipe);
+			updateNutrition(recipe);
 			setImages(recipe);
 
-			JDBCConnectionManager.commitTransaction();
+			transaction.commit();
 		} catch (SQLException e) {
-			JDBCConnectionManager.rollbackTransaction();
 			throw new PersistenceException(e.getMessage(), e);
 		} finally {
-			JDBCConnectionManager.finalizeTransaction();
 			CloseUtil.closeStatement(ps);
 		}
 	}
 
-	private void setIngredients(Recipe recipe) throws PersistenceException {
+	/**
+	 * Sums up the nutrition totals of the stored ingredients of the recipe and stores them with the recipe. The totals
+	 * are also set on the recipe.
+	 */
+	private void updateNutrition(Recipe recipe) throws SQLException, PersistenceException {
 		PreparedStatement ps = null;
+		ResultSet rs = null;
 		try {
-			ps = JDBCConnectionManager.getConnection().prepareStatement(DELETE_R_I_WHERE);
+			ps = JDBCConnectionManager.getConnection().prepareStatement(UPDATE_RECIPE_NUTRITION);
 			ps.setInt(1, recipe.getId());
 			ps.executeUpdate();
 
-			List<RecipeIngredient> newUserSpecificRecipeIngredients = recipe.getRecipeIngredients().stream()
-					.filter(ri -> ri.getId() == null).collect(Collectors.toList());
-			List<RecipeIngredient> commonRecipeIngredients = recipe.getRecipeIngredients().stream()
-					.filter(ri -> ri.getId() != null).collect(Collectors.toList());
+			CloseUtil.closeStatement(ps);
+			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_RECIPE_NUTRITION_WHERE);
+			ps.setInt(1, recipe.getId());
+			rs = ps.executeQuery();
+			if (rs.next()) {
+				setNutrition(recipe, rs);
+			}
+		} finally {
+			CloseUtil.closeResultSet(rs);
+			CloseUtil.closeStatement(ps);
+		}
+	}
+
+	private void setNutrition(Recipe recipe, ResultSet rs) throws SQLException {
+		recipe.setCalories(rs.getDouble("CALORIES"));
+		recipe.setCarbohydrates(rs.getDouble("CARBOHYDRATES"));
+		recipe.setProteins(rs.getDouble("PROTEINS"));
+		recipe.setFats(rs.getDouble("FATS"));
+	}
 
-			for (RecipeIngredient ri : newUserSpecificRecipeIngredients) {
-				Integer userIngredientId = createUserSpecificIngredientTuple(ri);
-				createRecipeIngredientTuple(ri, userIngredientId, recipe.getId());
+	/**
+	 * Writes only the differences between the ingredients of the recipe and the stored ones.
+	 */
+	private void setIngredients(Recipe recipe) throws PersistenceException {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_R_I_AMOUNTS_WHERE);
+			ps.setInt(1, recipe.getId());
+			rs = ps.executeQuery();
+
+			Map<Integer, Double> stored = new HashMap<>();
+			while (rs.next()) {
+				stored.put(rs.getInt("INGREDIENT_ID"), rs.getDouble("AMOUNT"));
 			}
 
-			for (RecipeIngredient ri : commonRecipeIngredients)
-				createRecipeIngredientTuple(ri, ri.getId(), recipe.getId());
+			createUserSpecificIngredients(recipe.getRecipeIngredients().stream().filter(ri -> ri.getId() == null)
+					.collect(Collectors.toList()));
+			Map<Integer, Double> amounts = getAmounts(recipe.getRecipeIngredients());
+
+			CloseUtil.closeStatement(ps);
+			ps = JDBCConnectionManager.getConnection().prepareStatement(DELETE_REMOVED_R_I);
+			ps.setInt(1, recipe.getId());
+			ps.setObject(2, amounts.keySet().toArray());
+			ps.executeUpdate();
 
+			// new ingredients and changed amounts
+			Map<Integer, Double> changed = new LinkedHashMap<>(amounts);
+			changed.entrySet().removeIf(e -> e.getValue().equals(stored.get(e.getKey())));
+			writeRecipeIngredients(MERGE_RECIPE_INGREDIENT, recipe.getId(), changed);
 		} catch (SQLException e) {
-			JDBCConnectionManager.rollbackTransaction();
 			throw new PersistenceException(e.getMessage(), e);
 		} finally {
 			CloseUtil.closeStatement(ps);
+			CloseUtil.closeResultSet(rs);
 		}
 	}
 
@@ -392,20 +868,20 @@ public class DBRecipePersistence implements RecipePersistence {
 		PreparedStatement ps = null;
 		
 		try {
-			ps = JDBCConnectionManager.getConnection().prepareStatement(DELETE_RECIPE_IMAGES);
+			// images which are still part of the recipe are kept as they are, only new ones (without id) are written
+			ps = JDBCConnectionManager.getConnection().prepareStatement(DELETE_REMOVED_RECIPE_IMAGES);
 			ps.setInt(1, recipe.getId());
+			ps.setObject(2, recipe.getRecipeImages().stream().map(RecipeImage::getId).filter(id -> id != null).toArray());
 			ps.executeUpdate();
 
-			for (RecipeImage ri : recipe.getRecipeImages()) {
-				createRecipeImage(ri, recipe.getId());
-			}	
+			createRecipeImages(recipe.getRecipeImages().stream().filter(ri -> ri.getId() == null)
+					.collect(Collectors.toList()), recipe.getId());
 		} catch (SQLException | IOException e) {
-			JDBCConnectionManager.rollbackTransaction();
 			throw new PersistenceException(e.getMessage(), e);
 		} finally {
 			CloseUtil.closeStatement(ps);
 		}
-	}	
+	}
 
 	@Override
 	public List<Recipe> getRecipes() throws PersistenceException {
@@ -416,14 +892,8 @@ public class DBRecipePersistence implements RecipePersistence {
 			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_RECIPES);
 			rs = ps.executeQuery();
 
-			List<Recipe> recipes = new ArrayList<>();
-			while (rs.next()) {
-				Recipe r = new Recipe(rs.getInt("ID"), rs.getString("NAME"), rs.getDouble("DURATION"),
-						rs.getString("DESCRIPTION"), rs.getString("TAGS"), rs.getBoolean("DELETED"));
-				r.setRecipeIngredients(getIngredients(r.getId()));
-				r.setRecipeImages(getImages(r.getId()));
-				recipes.add(r);
-			}
+			List<Recipe> recipes = readRecipes(rs);
+			loadChildren(recipes);
 
 			return recipes;
 		} catch (SQLException e) {
@@ -442,9 +912,8 @@ public class DBRecipePersistence implements RecipePersistence {
 		PreparedStatement isRecipeCurrentlySuggested = null;
 		ResultSet rs = null;
 
-		try {
-			Connection connection = JDBCConnectionManager.getConnection();
-			JDBCConnectionManager.startTransaction();
+		try (TransactionScope transaction = JDBCConnectionManager.beginTransaction()) {
+			Connection connection = transaction.getConnection();
 
 			isRecipeCurrentlySuggested = connection.prepareStatement(IS_RECIPE_CURRENTLY_SUGGESTED);
 			isRecipeCurrentlySuggested.setInt(1, id);
@@ -463,13 +932,11 @@ public class DBRecipePersistence implements RecipePersistence {
 				throw new PersistenceException("No recipe found for given id");
 			}
 
-			JDBCConnectionManager.commitTransaction();
+			transaction.commit();
 		} catch (SQLException e) {
-			JDBCConnectionManager.rollbackTransaction();
 			throw new PersistenceException(
 					"There was an error while deleting the recipe in the database. " + e.getMessage(), e);
 		} finally {
-			JDBCConnectionManager.finalizeTransaction();
 			CloseUtil.closeResultSet(rs);
 			CloseUtil.closeStatement(isRecipeCurrentlySuggested);
 			CloseUtil.closeStatement(createRecipe);
@@ -484,81 +951,179 @@ public class DBRecipePersistence implements RecipePersistence {
 		ResultSet rs = null;
 
 		try {
-			ps = JDBCConnectionManager.getConnection().prepareStatement(SEARCH_RECIPES);
-
-			// set all 10 ingredients if available or null if not
-			Iterator<String> ingredientIterator = searchParam.getIngredients().iterator();
-
-			final int maxIngredientIdx = 20;
-			for (int i = 1; i < maxIngredientIdx; i = i + 2) {
-				// sets 2 same parameters for condition:
-				// (? IS NULL OR i.name ILIKE '%' || ? || '%')
-				if (ingredientIterator.hasNext() == false) {
-					ps.setNull(i, Types.VARCHAR);
-					ps.setNull(i + 1, Types.VARCHAR);
-				} else {
-					final String nextIngredient = ingredientIterator.next();
-					ps.setString(i, nextIngredient);
-					ps.setString(i + 1, nextIngredient);
-				}
-			}
-			// assert: last parameter index
-			int paramIdx = maxIngredientIdx;
-
-			// recipe name
-			if (searchParam.getRecipeName() != null) {
-				ps.setString(++paramIdx, searchParam.getRecipeName());
-				ps.setString(++paramIdx, searchParam.getRecipeName());
-			} else {
-				ps.setNull(++paramIdx, Types.VARCHAR);
-				ps.setNull(++paramIdx, Types.VARCHAR);
-			}
+			RecipeSearchQuery query = new RecipeSearchQuery(searchParam);
+			ps = JDBCConnectionManager.getConnection().prepareStatement(SEARCH_RECIPES + query.getWhere());
 
-			// tags
-			Iterator<RecipeTag> tagIterator = null;
-			if (searchParam.getTags() != null) {
-				tagIterator = searchParam.getTags().iterator();
+			query.setParameters(ps);
+			rs = ps.executeQuery();
+
+			List<Recipe> recipes = readRecipes(rs);
+			loadChildren(recipes);
+
+			return recipes;
+		} catch (SQLException e) {
+			throw new PersistenceException(e.getMessage(), e);
+		} finally {
+			CloseUtil.closeStatement(ps);
+			CloseUtil.closeResultSet(rs);
+		}
+	}
+
+	@Override
+	public List<RecipeSummary> getRecipeSummaries() throws PersistenceException {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+
+		try {
+			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_RECIPE_SUMMARIES);
+			rs = ps.executeQuery();
+
+			return readRecipeSummaries(rs);
+		} catch (SQLException e) {
+			throw new PersistenceException(e.getMessage(), e);
+		} finally {
+			CloseUtil.closeStatement(ps);
+			CloseUtil.closeResultSet(rs);
+		}
+	}
+
+	@Override
+	public List<RecipeSummary> getRecipeSummaries(Collection<Integer> ids) throws PersistenceException {
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+
+		try {
+			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_RECIPE_SUMMARIES_WHERE_IDS);
+			ps.setObject(1, ids.toArray());
+			rs = ps.executeQuery();
+
+			Map<Integer, RecipeSummary> summariesById = new HashMap<>();
+			for (RecipeSummary summary : readRecipeSummaries(rs)) {
+				summariesById.put(summary.getId(), summary);
 			}
-			for (int i = 0; i < 3; i++) {
-				if (tagIterator != null && tagIterator.hasNext() == true) {
-					final RecipeTag nextTag = tagIterator.next();
-					ps.setString(++paramIdx, nextTag.toString());
-					ps.setString(++paramIdx, nextTag.toString());
-				} else {
-					ps.setNull(++paramIdx, Types.VARCHAR);
-					ps.setNull(++paramIdx, Types.VARCHAR);
+
+			// keep the order in which the ids were requested
+			Map<Integer, RecipeSummary> ordered = new LinkedHashMap<>();
+			for (Integer id : ids) {
+				RecipeSummary summary = summariesById.get(id);
+				if (summary != null) {
+					ordered.put(id, summary);
 				}
 			}
-			
-			
-			// duration
-			if (searchParam.getLowerDurationInkl() != null) {
-				ps.setDouble(++paramIdx, searchParam.getLowerDurationInkl());
-				ps.setDouble(++paramIdx, searchParam.getLowerDurationInkl());
-			} else {
-				ps.setNull(++paramIdx, Types.DOUBLE);
-				ps.setNull(++paramIdx, Types.DOUBLE);
-			}
-			if (searchParam.getUpperDurationInkl() != null) {
-				ps.setDouble(++paramIdx, searchParam.getUpperDurationInkl());
-				ps.setDouble(++paramIdx, searchParam.getUpperDurationInkl());
-			} else {
-				ps.setNull(++paramIdx, Types.DOUBLE);
-				ps.setNull(++paramIdx, Types.DOUBLE);
-			}
+			return new ArrayList<>(ordered.values());
+		} catch (SQLException e) {
+			throw new PersistenceException(e.getMessage(), e);
+		} finally {
+			CloseUtil.closeStatement(ps);
+			CloseUtil.closeResultSet(rs);
+		}
+	}
+
+	@Override
+	public Map<Integer, List<String>> getRecipeIngredientNames() throws PersistenceException {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
 
+		try {
+			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_R_I_NAMES);
 			rs = ps.executeQuery();
 
-			List<Recipe> recipes = new ArrayList<>();
-			while (rs.next()) {
-				Recipe r = new Recipe(rs.getInt("ID"), rs.getString("NAME"), rs.getDouble("DURATION"),
-						rs.getString("DESCRIPTION"), rs.getString("TAGS"), rs.getBoolean("DELETED"));
-				r.setRecipeIngredients(getIngredients(r.getId()));
-				r.setRecipeImages(getImages(r.getId()));
-				recipes.add(r);
+			return readRecipeIngredientNames(rs);
+		} catch (SQLException e) {
+			throw new PersistenceException(e.getMessage(), e);
+		} finally {
+			CloseUtil.closeStatement(ps);
+			CloseUtil.closeResultSet(rs);
+		}
+	}
+
+	@Override
+	public Map<Integer, List<String>> getRecipeIngredientNames(Collection<Integer> ids) throws PersistenceException {
+		if (ids.isEmpty()) {
+			return new HashMap<>();
+		}
+
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+
+		try {
+			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_R_I_NAMES_WHERE_RECIPE_IDS);
+			ps.setObject(1, ids.toArray());
+			rs = ps.executeQuery();
+
+			return readRecipeIngredientNames(rs);
+		} catch (SQLException e) {
+			throw new PersistenceException(e.getMessage(), e);
+		} finally {
+			CloseUtil.closeStatement(ps);
+			CloseUtil.closeResultSet(rs);
+		}
+	}
+
+	private Map<Integer, List<String>> readRecipeIngredientNames(ResultSet rs) throws SQLException {
+		Map<Integer, List<String>> names = new HashMap<>();
+		while (rs.next()) {
+			names.computeIfAbsent(rs.getInt("RECIPE_ID"), id -> new ArrayList<>()).add(rs.getString("NAME"));
+		}
+		return names;
+	}
+
+	@Override
+	public List<RecipeSummary> searchRecipeSummaries(RecipeSearchParam searchParam) throws PersistenceException {
+		LOG.debug("Searching Recipe summaries with search criteria");
+
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+
+		try {
+			RecipeSearchQuery query = new RecipeSearchQuery(searchParam);
+			ps = JDBCConnectionManager.getConnection().prepareStatement(
+					SELECT_RECIPE_SUMMARIES_FROM + query.getWhere());
+			query.setParameters(ps);
+			rs = ps.executeQuery();
+
+			return readRecipeSummaries(rs);
+		} catch (SQLException e) {
+			throw new PersistenceException(e.getMessage(), e);
+		} finally {
+			CloseUtil.closeStatement(ps);
+			CloseUtil.closeResultSet(rs);
+		}
+	}
+
+	@Override
+	public RecipePage searchRecipeSummaries(RecipeSearchParam searchParam, RecipePageRequest pageRequest)
+			throws PersistenceException {
+		LOG.debug("Searching a page of Recipe summaries {}", pageRequest);
+
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+
+		try {
+			RecipeKeyset after = RecipeKeyset.of(pageRequest);
+			RecipeSearchQuery query = new RecipeSearchQuery(searchParam);
+			boolean descending = pageRequest.isDescending();
+			String sortValue = getSortValueExpression(pageRequest.getSortKey());
+			String keyset = String.format(descending ? PAGE_RECIPE_KEYSET_DESC : PAGE_RECIPE_KEYSET_ASC, sortValue);
+			String order = String.format(descending ? PAGE_RECIPE_ORDER_DESC : PAGE_RECIPE_ORDER_ASC, sortValue);
+
+			if (after != null) {
+				query.and(keyset, after.getValue(), after.getValue(), after.getId());
 			}
+			String sql = SELECT_RECIPE_SUMMARIES_FROM + query.getWhere() + order + PAGE_RECIPE_SUMMARIES_LIMIT;
 
-			return recipes;
+			ps = JDBCConnectionManager.getConnection().prepareStatement(sql);
+			// one more than requested tells whether there is a next page
+			ps.setInt(query.setParameters(ps), pageRequest.getPageSize() + 1);
+			rs = ps.executeQuery();
+
+			return RecipeKeyset.page(readRecipeSummaries(rs), pageRequest);
+		} catch (IllegalArgumentException e) {
+			throw new PersistenceException(e.getMessage(), e);
 		} catch (SQLException e) {
 			throw new PersistenceException(e.getMessage(), e);
 		} finally {
@@ -566,4 +1131,25 @@ public class DBRecipePersistence implements RecipePersistence {
 			CloseUtil.closeResultSet(rs);
 		}
 	}
-}
\ No newline at end of file
+
+	private static String getSortValueExpression(RecipeSortKey sortKey) {
+		switch (sortKey) {
+		case NAME:
+			return "LOWER(TRIM(r.NAME))";
+		case DURATION:
+			return "r.DURATION";
+		default:
+			return "r.CALORIES";
+		}
+	}
+
+	private List<RecipeSummary> readRecipeSummaries(ResultSet rs) throws SQLException {
+		List<RecipeSummary> summaries = new ArrayList<>();
+		while (rs.next()) {
+			summaries.add(new RecipeSummary(rs.getInt("ID"), rs.getString("NAME"), rs.getDouble("DURATION"),
+					rs.getLong("TAG_MASK"), rs.getDouble("CALORIES"), rs.getDouble("CARBOHYDRATES"),
+					rs.getDouble("PROTEINS"), rs.getDouble("FATS")));
+		}
+		return summaries;
+	}
+}
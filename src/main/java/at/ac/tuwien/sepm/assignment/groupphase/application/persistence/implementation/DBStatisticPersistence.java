@@ -1,48 +1,95 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation;
 
-import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.PopularRecipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.StatisticParam;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
-import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.RecipePersistence;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.StatisticPersistence;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.CloseUtil;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.JDBCConnectionManager;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.TransactionScope;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 
 import java.lang.invoke.MethodHandles;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
+/**
+ * Statistics over the suggestions per date and meal (SUGGESTION_SLOT) and the per recipe counters of these
+ * (RECIPE_POPULARITY), which are maintained with every suggestion. All time statistics read the counters, statistics of
+ * a period or a diet plan count the slots, at most three per day.
+ */
 @Repository
 public class DBStatisticPersistence implements StatisticPersistence {
     private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-    private static final String SELECT_STATISTICS = "select recipe, count(recipe) as rc from DIET_PLAN_SUGGESTION where CREATED_TIMESTAMP in " +
-        "(select max(CREATED_TIMESTAMP) from DIET_PLAN_SUGGESTION group by date, tag) group by recipe order by rc desc limit 10;";
+    private static final int MOST_POPULAR_LIMIT = 10;
 
-    private RecipePersistence recipePersistence;
+    private static final String SELECT_MOST_POPULAR = "SELECT r.ID, r.NAME, r.CALORIES, r.CARBOHYDRATES, r.PROTEINS, r.FATS, p.%1$s AS RC "
+        + "FROM RECIPE_POPULARITY p JOIN RECIPE r ON r.ID = p.RECIPE WHERE p.%1$s > 0 ORDER BY p.%1$s DESC, p.RECIPE LIMIT ?;";
+    private static final String SELECT_MOST_POPULAR_SLOTS = "SELECT r.ID, r.NAME, r.CALORIES, r.CARBOHYDRATES, r.PROTEINS, r.FATS, c.RC "
+        + "FROM (SELECT s.RECIPE, COUNT(*) AS RC FROM SUGGESTION_SLOT s WHERE %s GROUP BY s.RECIPE ORDER BY RC DESC, s.RECIPE LIMIT ?) c "
+        + "JOIN RECIPE r ON r.ID = c.RECIPE ORDER BY c.RC DESC, r.ID;";
+    private static final String SLOT_FROM_DATE = "s.DATE > DATEADD('DAY', -?, CURDATE())";
+    private static final String SLOT_TAG = "s.TAG = ?";
+    private static final String SLOT_DIET_PLAN = "s.DIET_PLAN_ID = ?";
 
-    public DBStatisticPersistence(RecipePersistence recipePersistence) {
-        this.recipePersistence = recipePersistence;
-    }
+    private static final String DELETE_POPULARITY = "DELETE FROM RECIPE_POPULARITY;";
+    private static final String DELETE_SLOTS = "DELETE FROM SUGGESTION_SLOT;";
+    private static final String INSERT_SLOTS = "INSERT INTO SUGGESTION_SLOT (DATE, TAG, RECIPE, DIET_PLAN_ID) "
+        + "SELECT s.DATE, s.TAG, s.RECIPE, s.DIET_PLAN_ID FROM DIET_PLAN_SUGGESTION s WHERE NOT EXISTS (SELECT 1 FROM DIET_PLAN_SUGGESTION l "
+        + "WHERE l.DATE = s.DATE AND l.TAG = s.TAG AND (l.CREATED_TIMESTAMP > s.CREATED_TIMESTAMP OR (l.CREATED_TIMESTAMP = s.CREATED_TIMESTAMP AND l.ID > s.ID)));";
+    private static final String INSERT_POPULARITY = "INSERT INTO RECIPE_POPULARITY (RECIPE, SUGGESTIONS, SUGGESTIONS_B, SUGGESTIONS_D, SUGGESTIONS_L) "
+        + "SELECT RECIPE, COUNT(*), SUM(CASEWHEN(TAG = 'B', 1, 0)), SUM(CASEWHEN(TAG = 'D', 1, 0)), SUM(CASEWHEN(TAG = 'L', 1, 0)) "
+        + "FROM SUGGESTION_SLOT GROUP BY RECIPE;";
 
     @Override
-    public Map<Recipe, Integer> getMostPopularRecipes() throws PersistenceException {
-        LOG.debug("Fetching most popular recipes");
+    public List<PopularRecipe> getMostPopularRecipes(StatisticParam statisticParam) throws PersistenceException {
+        LOG.debug("Fetching most popular recipes for {}", statisticParam);
         PreparedStatement ps = null;
         ResultSet rs = null;
 
         try {
-            ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_STATISTICS);
+            List<String> conditions = new ArrayList<>();
+            List<Object> parameters = new ArrayList<>();
+            if (statisticParam.getPeriod().getDays() > 0) {
+                conditions.add(SLOT_FROM_DATE);
+                parameters.add(statisticParam.getPeriod().getDays());
+            }
+            if (statisticParam.getDietPlanId() != null) {
+                conditions.add(SLOT_DIET_PLAN);
+                parameters.add(statisticParam.getDietPlanId());
+            }
+
+            String sql;
+            if (conditions.isEmpty()) {
+                // all time, the counters have a column per meal
+                sql = String.format(SELECT_MOST_POPULAR, statisticParam.getTag() == null ? "SUGGESTIONS"
+                    : "SUGGESTIONS_" + statisticParam.getTag().toString().toUpperCase(Locale.ROOT));
+            } else {
+                if (statisticParam.getTag() != null) {
+                    conditions.add(SLOT_TAG);
+                    parameters.add(statisticParam.getTag().toString());
+                }
+                sql = String.format(SELECT_MOST_POPULAR_SLOTS, String.join(" AND ", conditions));
+            }
+
+            ps = JDBCConnectionManager.getConnection().prepareStatement(sql);
+            for (int i = 0; i < parameters.size(); i++)
+                ps.setObject(i + 1, parameters.get(i));
+            ps.setInt(parameters.size() + 1, MOST_POPULAR_LIMIT);
             rs = ps.executeQuery();
 
-            Map<Recipe, Integer> mostPopular = new LinkedHashMap<>();
+            List<PopularRecipe> mostPopular = new ArrayList<>();
             while (rs.next())
-                mostPopular.put(recipePersistence.get(rs.getInt("recipe")), rs.getInt("rc"));
+                mostPopular.add(new PopularRecipe(rs.getInt("ID"), rs.getString("NAME"), rs.getInt("RC"),
+                    rs.getDouble("CALORIES"), rs.getDouble("CARBOHYDRATES"), rs.getDouble("PROTEINS"), rs.getDouble("FATS")));
 
             return mostPopular;
         } catch (SQLException e) {
@@ -52,4 +99,32 @@ public class DBStatisticPersistence implements StatisticPersistence {
             CloseUtil.closeResultSet(rs);
         }
     }
+
+    @Override
+    public int rebuildStatistics() throws PersistenceException {
+        LOG.debug("Rebuilding statistics from the suggestion history");
+        try (TransactionScope transaction = JDBCConnectionManager.beginTransaction()) {
+            Connection connection = transaction.getConnection();
+            executeUpdate(connection, DELETE_POPULARITY);
+            executeUpdate(connection, DELETE_SLOTS);
+            int slots = executeUpdate(connection, INSERT_SLOTS);
+            executeUpdate(connection, INSERT_POPULARITY);
+
+            transaction.commit();
+            LOG.debug("Rebuilt statistics of {} dates and meals", slots);
+            return slots;
+        } catch (SQLException e) {
+            throw new PersistenceException("There was an error while rebuilding the statistics." + e.getMessage(), e);
+        }
+    }
+
+    private static int executeUpdate(Connection connection, String sql) throws SQLException, PersistenceException {
+        PreparedStatement ps = null;
+        try {
+            ps = connection.prepareStatement(sql);
+            return ps.executeUpdate();
+        } finally {
+            CloseUtil.closeStatement(ps);
+        }
+    }
 }
@@ -0,0 +1,135 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation;
+
+import java.lang.invoke.MethodHandles;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Tag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.TagPersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.CloseUtil;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.JDBCConnectionManager;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.TransactionScope;
+
+@Repository
+public class DBTagPersistence implements TagPersistence {
+	private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+	private static final String SELECT_TAGS = "SELECT BIT, NAME, MEAL FROM TAG ORDER BY BIT;";
+	private static final String SELECT_FREE_BIT = "SELECT MIN(X) FROM SYSTEM_RANGE(?, ?) WHERE X NOT IN (SELECT BIT FROM TAG);";
+	private static final String INSERT_TAG = "INSERT INTO TAG (BIT, NAME, MEAL) VALUES (?, ?, FALSE);";
+
+	// custom tags use the bits above the meal tags
+	private static final int FIRST_CUSTOM_BIT = Long.numberOfTrailingZeros(~RecipeTag.MEAL_MASK);
+
+	@Override
+	public List<Tag> readAll() throws PersistenceException {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+
+		try {
+			ps = JDBCConnectionManager.getConnection().prepareStatement(SELECT_TAGS);
+			rs = ps.executeQuery();
+
+			List<Tag> tags = new ArrayList<>();
+			while (rs.next()) {
+				tags.add(new Tag(rs.getInt("BIT"), rs.getString("NAME"), rs.getBoolean("MEAL")));
+			}
+			return tags;
+		} catch (SQLException e) {
+			throw new PersistenceException(e.getMessage(), e);
+		} finally {
+			CloseUtil.closeStatement(ps);
+			CloseUtil.closeResultSet(rs);
+		}
+	}
+
+	@Override
+	public void create(Tag tag) throws PersistenceException {
+		LOG.debug("Creating tag {}", tag);
+
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+
+		try (TransactionScope transaction = JDBCConnectionManager.beginTransaction()) {
+			ps = transaction.getConnection().prepareStatement(SELECT_FREE_BIT);
+			ps.setInt(1, FIRST_CUSTOM_BIT);
+			ps.setInt(2, Tag.MAX_BIT);
+			rs = ps.executeQuery();
+			rs.next();
+			int bit = rs.getInt(1);
+			if (rs.wasNull()) {
+				throw new PersistenceException("All " + (Tag.MAX_BIT - FIRST_CUSTOM_BIT + 1)
+						+ " custom tags are in use, no more tags can be created.");
+			}
+			CloseUtil.closeResultSet(rs);
+			CloseUtil.closeStatement(ps);
+
+			ps = transaction.getConnection().prepareStatement(INSERT_TAG);
+			ps.setInt(1, bit);
+			ps.setString(2, tag.getName());
+			ps.executeUpdate();
+
+			transaction.commit();
+			tag.setBit(bit);
+		} catch (SQLException e) {
+			throw new PersistenceException(
+					"There was an error while creating a tag in the database. " + e.getMessage(), e);
+		} finally {
+			CloseUtil.closeResultSet(rs);
+			CloseUtil.closeStatement(ps);
+		}
+	}
+
+	@Override
+	public List<Tag> getOrCreateCustomTags(Collection<String> names) throws PersistenceException {
+		Set<String> normalized = new LinkedHashSet<>();
+		for (String name : names) {
+			String tagName = Tag.normalizeName(name);
+			if (!tagName.isEmpty()) {
+				normalized.add(tagName);
+			}
+		}
+		if (normalized.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		try (TransactionScope transaction = JDBCConnectionManager.beginTransaction()) {
+			Map<String, Tag> existing = new HashMap<>();
+			for (Tag tag : readAll()) {
+				if (!tag.getMeal()) {
+					existing.put(tag.getName(), tag);
+				}
+			}
+
+			List<Tag> tags = new ArrayList<>();
+			for (String tagName : normalized) {
+				Tag tag = existing.get(tagName);
+				if (tag == null) {
+					tag = new Tag(tagName);
+					create(tag);
+				}
+				tags.add(tag);
+			}
+
+			transaction.commit();
+			return tags;
+		} catch (SQLException e) {
+			throw new PersistenceException("There was an error while creating tags in the database. " + e.getMessage(),
+					e);
+		}
+	}
+}
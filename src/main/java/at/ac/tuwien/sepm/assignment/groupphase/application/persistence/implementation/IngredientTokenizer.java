@@ -0,0 +1,53 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Splits ingredient names into the entries of the ingredient search index. Every suffix of every word of a name is
+ * indexed, so that a word of a search matches an ingredient if it is the prefix of one of its suffixes, i.e. if it
+ * occurs anywhere within a word of the name. Each suffix carries a precomputed score of how good such a match is.
+ */
+class IngredientTokenizer {
+	static final int SCORE_NAME_START = 3;
+	static final int SCORE_WORD_START = 2;
+	static final int SCORE_WITHIN_WORD = 1;
+
+	private IngredientTokenizer() {
+	}
+
+	/**
+	 * @param text name or search text
+	 * @return the lower case words of the text, punctuation and whitespace separate words
+	 */
+	static List<String> words(String text) {
+		List<String> words = new ArrayList<>();
+		for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+			if (!word.isEmpty()) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * @param name name of an ingredient
+	 * @return all suffixes of the words of the name, mapped to their best score
+	 */
+	static Map<String, Integer> suffixes(String name) {
+		Map<String, Integer> suffixes = new HashMap<>();
+		List<String> words = words(name);
+
+		for (int position = 0; position < words.size(); position++) {
+			String word = words.get(position);
+			for (int offset = 0; offset < word.length(); offset++) {
+				int score = offset > 0 ? SCORE_WITHIN_WORD : position == 0 ? SCORE_NAME_START : SCORE_WORD_START;
+				suffixes.merge(word.substring(offset), score, Math::max);
+			}
+		}
+		return suffixes;
+	}
+}
@@ -0,0 +1,113 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeNutrient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSearchParam;
+
+/**
+ * WHERE clause of a recipe search together with its parameters. Only the criteria that are set in the
+ * {@link RecipeSearchParam} are part of the clause, so the statement stays as small as the search.
+ * <p>
+ * Required ingredients are matched in one pass: every ingredient of a recipe is joined with the search words it
+ * contains, a recipe qualifies if all words were matched by at least one of its ingredients.
+ * <p>
+ * Nutrition bounds compare the totals and macro nutrient shares stored with each recipe, so recipes outside of the
+ * bounds are never joined with their ingredients.
+ */
+class RecipeSearchQuery {
+
+	private static final String NOT_DELETED = "r.DELETED = FALSE";
+	private static final String NAME = "r.NAME ILIKE '%' || ? || '%'";
+	private static final String TAG = "r.ID IN (SELECT RECIPE_ID FROM RECIPE_TAG WHERE TAG_BIT = ?)";
+	private static final String DURATION_FROM = "r.DURATION >= ?";
+	private static final String DURATION_TO = "r.DURATION <= ?";
+	private static final String NUTRITION_FROM = "r.%s >= ?";
+	private static final String NUTRITION_TO = "r.%s <= ?";
+	private static final String INGREDIENTS_MATCHING_WORDS = "FROM RECIPE_INGREDIENT s_ri "
+			+ "JOIN INGREDIENT s_i ON s_i.ID = s_ri.INGREDIENT_ID "
+			+ "JOIN TABLE(WORD VARCHAR = ?) s_w ON s_i.NAME ILIKE '%' || s_w.WORD || '%' ";
+	private static final String WITH_INGREDIENTS = "r.ID IN (SELECT s_ri.RECIPE_ID " + INGREDIENTS_MATCHING_WORDS
+			+ "GROUP BY s_ri.RECIPE_ID HAVING COUNT(DISTINCT s_w.WORD) = ?)";
+	private static final String WITHOUT_INGREDIENTS = "NOT EXISTS (SELECT 1 " + INGREDIENTS_MATCHING_WORDS
+			+ "WHERE s_ri.RECIPE_ID = r.ID)";
+
+	private final StringBuilder where = new StringBuilder();
+	private final List<Object> parameters = new ArrayList<>();
+
+	/**
+	 * @param searchParam criteria of the search
+	 */
+	RecipeSearchQuery(RecipeSearchParam searchParam) {
+		and(NOT_DELETED);
+
+		if (searchParam.getRecipeName() != null) {
+			and(NAME, searchParam.getRecipeName());
+		}
+		// one seek on the primary key of RECIPE_TAG per meal or custom tag
+		for (long tagMask = searchParam.getTagMask(); tagMask != 0; tagMask &= tagMask - 1) {
+			and(TAG, Long.numberOfTrailingZeros(tagMask));
+		}
+		if (searchParam.getLowerDurationInkl() != null) {
+			and(DURATION_FROM, searchParam.getLowerDurationInkl());
+		}
+		if (searchParam.getUpperDurationInkl() != null) {
+			and(DURATION_TO, searchParam.getUpperDurationInkl());
+		}
+		for (RecipeNutrient nutrient : RecipeNutrient.values()) {
+			// the nutrients are named like the stored columns
+			if (searchParam.getLowerNutritionInkl(nutrient) != null) {
+				and(String.format(NUTRITION_FROM, nutrient.name()), searchParam.getLowerNutritionInkl(nutrient));
+			}
+			if (searchParam.getUpperNutritionInkl(nutrient) != null) {
+				and(String.format(NUTRITION_TO, nutrient.name()), searchParam.getUpperNutritionInkl(nutrient));
+			}
+		}
+		if (!searchParam.getIngredients().isEmpty()) {
+			and(WITH_INGREDIENTS, searchParam.getIngredients().toArray(), searchParam.getIngredients().size());
+		}
+		if (!searchParam.getExcludedIngredients().isEmpty()) {
+			and(WITHOUT_INGREDIENTS, searchParam.getExcludedIngredients().toArray());
+		}
+	}
+
+	/**
+	 * @return the WHERE clause, starting with the keyword and a leading space
+	 */
+	String getWhere() {
+		return " WHERE " + where;
+	}
+
+	/**
+	 * Binds the parameters of the clause, starting with the first placeholder of the statement.
+	 *
+	 * @param ps statement containing the clause returned by {@link #getWhere()}
+	 * @return index of the first placeholder after the clause
+	 * @throws SQLException if a parameter cannot be bound
+	 */
+	int setParameters(PreparedStatement ps) throws SQLException {
+		for (int i = 0; i < parameters.size(); i++) {
+			ps.setObject(i + 1, parameters.get(i));
+		}
+		return parameters.size() + 1;
+	}
+
+	/**
+	 * Adds a condition to the clause.
+	 *
+	 * @param condition condition on the recipe r
+	 * @param conditionParameters values of the placeholders of the condition
+	 */
+	void and(String condition, Object... conditionParameters) {
+		if (where.length() > 0) {
+			where.append(" AND ");
+		}
+		where.append(condition);
+		for (Object parameter : conditionParameters) {
+			parameters.add(parameter);
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.service;
 
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlanPreview;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.NoEntryFoundException;
@@ -19,13 +20,36 @@ public interface MealRecommendationsService {
     public Map<RecipeTag, Recipe> getRecommendedMeals(boolean force) throws ServiceInvokationException, NoEntryFoundException, NoOptimalSolutionException;
 
     /**
-     * Calculates a meal recommendation for a specific meal
+     * Calculates a meal recommendation for a specific meal. The candidates of a meal are ranked once per day and plan,
+     * every call moves on to the next candidate which was not recommended for the meal today, until recipes or the
+     * plan change.
      * @param meal {@link RecipeTag} Meal for which to calculate
      * @param current Currently used {@link Recipe} to omit when selecting a recommendation
      * @return Recommended {@link Recipe}
      * @throws ServiceInvokationException
      * @throws NoEntryFoundException
-     * @throws NoOptimalSolutionException
+     * @throws NoOptimalSolutionException if all recipes of the meal were already recommended today
      */
     public Recipe getRecommendedMeal(RecipeTag meal, Recipe current) throws ServiceInvokationException, NoOptimalSolutionException;
+
+    /**
+     * Calculates the meals of a day for every diet plan as if it was active, the plans are calculated in parallel.
+     * Neither the active plan nor the recommendations of the day are changed.
+     * @return A preview for each diet plan, in the order of the plans
+     * @throws ServiceInvokationException
+     * @throws NoOptimalSolutionException if there are no recipes for a meal
+     */
+    public List<DietPlanPreview> previewDietPlans() throws ServiceInvokationException, NoOptimalSolutionException;
+
+    /**
+     * Calculates the meals of the next seven days, starting today, for the current active plan. The meals are chosen
+     * together so that every day fits the plan and recipes are seldom repeated, and replace the recommendations of
+     * these days.
+     * @param timeBudgetMillis Time to spend on the search, the best week found so far is returned when it is over
+     * @return The recommended meals of each day, starting with today
+     * @throws ServiceInvokationException
+     * @throws NoEntryFoundException if there is no active plan
+     * @throws NoOptimalSolutionException if there are no recipes for a meal
+     */
+    public List<Map<RecipeTag, Recipe>> getRecommendedWeek(long timeBudgetMillis) throws ServiceInvokationException, NoEntryFoundException, NoOptimalSolutionException;
 }
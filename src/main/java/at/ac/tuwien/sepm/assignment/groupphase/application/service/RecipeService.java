@@ -1,11 +1,16 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.service;
 
+import java.util.Collection;
 import java.util.List;
 
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.IngredientSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.NutritionSearchParam;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePage;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePageRequest;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
 
 /**
  * Service Interface for Recipes
@@ -26,7 +31,8 @@ public interface RecipeService {
 	public void delete(int id) throws ServiceInvokationException;
 
 	/**
-	 * Search for an ingredient in the persistence layer.
+	 * Search for an ingredient in the persistence layer. Every word of the search has to occur in the ingredient's
+	 * name, the results are ordered by how well they match.
 	 * @param searchParam {@link IngredientSearchParam}
 	 * @return {@link List} of {@link RecipeIngredient}
 	 * @throws ServiceInvokationException if the supplied data is invalid
@@ -42,6 +48,15 @@ public interface RecipeService {
      */
     Recipe get(int id) throws ServiceInvokationException;
 
+    /**
+     * Fetches the recipe entries with the given ids from the persistence layer in one call.
+     *
+     * @param ids ids of storage entries
+     * @return the matching recipes in the order of the given ids, ids without a storage entry are skipped
+     * @throws ServiceInvokationException if any errors occur in the persistence layer
+     */
+    List<Recipe> get(Collection<Integer> ids) throws ServiceInvokationException;
+
     /**
      * Updates a recipe entry in the persistence layer.
      *
@@ -65,4 +80,75 @@ public interface RecipeService {
      * @throws ServiceInvokationException if invalid data was supplied or an error in the persistence layer occured
      */
     public List<Recipe> searchRecipes(RecipeSearchParam searchParam) throws ServiceInvokationException;
+
+    /**
+     * Fetches the summaries of all recipes. Use {@link #get(int)} to load a complete recipe.
+     *
+     * @return A list of all recipe summaries
+     * @throws ServiceInvokationException if any persistence errors occur
+     */
+    List<RecipeSummary> getRecipeSummaries() throws ServiceInvokationException;
+
+    /**
+     * Search for Recipes that match the search criteria of the user and returns their summaries.
+     * @param searchParam {@link RecipeSearchParam}
+     * @return {@link List} of {@link RecipeSummary}
+     * @throws ServiceInvokationException if invalid data was supplied or an error in the persistence layer occured
+     */
+    List<RecipeSummary> searchRecipeSummaries(RecipeSearchParam searchParam) throws ServiceInvokationException;
+
+    /**
+     * Search for Recipes that match the search criteria of the user and returns one page of their summaries. The
+     * first page is requested without continuation token, the following ones with the token of the previous page.
+     * @param searchParam {@link RecipeSearchParam}
+     * @param pageRequest {@link RecipePageRequest}
+     * @return {@link RecipePage} of {@link RecipeSummary}
+     * @throws ServiceInvokationException if invalid data was supplied or an error in the persistence layer occured
+     */
+    RecipePage searchRecipeSummaries(RecipeSearchParam searchParam, RecipePageRequest pageRequest)
+            throws ServiceInvokationException;
+
+    /**
+     * Search for the recipes whose nutrition is closest to the targets of the search, e.g. the recipes closest to
+     * 600 kcal, and returns their summaries. Recipes whose nutrition is unknown are not found.
+     * @param searchParam {@link NutritionSearchParam}
+     * @return {@link List} of {@link RecipeSummary}, the closest first
+     * @throws ServiceInvokationException if invalid data was supplied or an error in the persistence layer occured
+     */
+    List<RecipeSummary> searchRecipesByNutrition(NutritionSearchParam searchParam) throws ServiceInvokationException;
+
+    /**
+     * Returns the version of the recipes, which changes whenever a recipe is created, updated or deleted. Results
+     * calculated from the recipes are outdated once the version changed.
+     *
+     * @return the current version
+     */
+    long getRecipeVersion();
+
+    /**
+     * Creates the missing thumbnails of all stored recipe images.
+     *
+     * @return number of images whose thumbnails were created
+     * @throws ServiceInvokationException if any persistence errors occur
+     */
+    int backfillThumbnails() throws ServiceInvokationException;
+
+    /**
+     * Adds all ingredients missing in the ingredient search index to the index.
+     *
+     * @return number of indexed ingredients
+     * @throws ServiceInvokationException if any persistence errors occur
+     */
+    int backfillIngredientIndex() throws ServiceInvokationException;
+
+    /**
+     * (Re)builds the in-memory indexes which answer {@link #searchRecipes(RecipeSearchParam)},
+     * {@link #searchRecipeSummaries(RecipeSearchParam)} and {@link #searchRecipesByNutrition(NutritionSearchParam)}.
+     * An index is built on the first search if this is not called before, and kept up to date by create, update and
+     * delete.
+     *
+     * @return number of indexed recipes
+     * @throws ServiceInvokationException if any persistence errors occur
+     */
+    int buildSearchIndex() throws ServiceInvokationException;
 }
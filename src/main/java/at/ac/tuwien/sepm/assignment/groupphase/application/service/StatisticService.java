@@ -1,14 +1,22 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.service;
 
-import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.PopularRecipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.StatisticParam;
 
-import java.util.Map;
+import java.util.List;
 
 public interface StatisticService {
     /**
      * Fetches the most popular recipes with their according quantity
-     * @return A list of the most popular recipes and their according quantity
+     * @param statisticParam period, meal and diet plan of the counted suggestions
+     * @return the most popular recipes, most often suggested first
      */
-     Map<Recipe, Integer> getMostPopularRecipes() throws ServiceInvokationException;
+     List<PopularRecipe> getMostPopularRecipes(StatisticParam statisticParam) throws ServiceInvokationException;
+
+    /**
+     * Recomputes the statistics from the history of all suggestions
+     * @return number of dates and meals with a suggestion
+     */
+     int rebuildStatistics() throws ServiceInvokationException;
 
 }
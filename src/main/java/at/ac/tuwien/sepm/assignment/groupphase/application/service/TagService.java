@@ -0,0 +1,34 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service;
+
+import java.util.List;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Tag;
+
+/**
+ * Service for the tag dictionary
+ */
+public interface TagService {
+
+	/**
+	 * The tags are read once and kept, tags created later are read when they are asked for. Custom tags are created
+	 * together with the recipes naming them.
+	 *
+	 * @return all tags, meal tags included, ordered by their bit
+	 * @throws ServiceInvokationException if any persistence errors occur
+	 */
+	List<Tag> getTags() throws ServiceInvokationException;
+
+	/**
+	 * @param name name of a custom tag, trimmed and compared case-insensitively
+	 * @return the custom tag with the name or null if there is none
+	 * @throws ServiceInvokationException if any persistence errors occur
+	 */
+	Tag getCustomTag(String name) throws ServiceInvokationException;
+
+	/**
+	 * @param tagMask bits of tags
+	 * @return the custom tags whose bits are set in the mask
+	 * @throws ServiceInvokationException if any persistence errors occur
+	 */
+	List<Tag> getCustomTags(long tagMask) throws ServiceInvokationException;
+}
@@ -0,0 +1,407 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.NutritionSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeNutrient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+
+/**
+ * In-memory index answering which recipes are closest to target nutrition values, see {@link NutritionSearchParam},
+ * without measuring the distance of every recipe. Every recipe whose nutrition is known is a point of its
+ * {@link RecipeNutrient nutrition values} in a k-d tree of all recipes and in one k-d tree per meal it is tagged for.
+ * <p>
+ * A k-d tree splits its recipes at the median of one nutrition value, and each half at the median of the next value,
+ * and so on. A search descends to the part of the target first and skips every part whose distance to the target is
+ * already greater than that of the recipes found, so it compares about as many recipes as it returns plus the depth
+ * of the tree. Added recipes are compared one by one and removed ones only marked, until there are so many of them
+ * that the tree is built again.
+ * <p>
+ * Searches only read the trees, so any number of threads search at the same time, while changes wait for them.
+ */
+class NutritionIndex {
+
+	private static final RecipeNutrient[] NUTRIENTS = RecipeNutrient.values();
+	// added and removed recipes a tree takes before it is built again, at least and per recipe in the tree
+	private static final int MIN_CHANGES = 64;
+	private static final int CHANGES_DIVISOR = 8;
+
+	// ascending by distance, recipes of the same distance by id
+	private static final Comparator<Match> ORDER = Comparator.<Match> comparingDouble(match -> match.distance)
+			.thenComparing(match -> match.entry.summary.getId());
+
+	private final Map<Integer, Entry> entries = new HashMap<>();
+	private final KdTree all = new KdTree();
+	private final Map<RecipeTag, KdTree> meals = new EnumMap<>(RecipeTag.class);
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	NutritionIndex() {
+		for (RecipeTag tag : RecipeTag.values()) {
+			meals.put(tag, new KdTree());
+		}
+	}
+
+	/**
+	 * Adds a recipe to the index or replaces the indexed one with the same id. Recipes whose nutrition is unknown are
+	 * only removed.
+	 *
+	 * @param summary summary of the recipe
+	 */
+	void put(RecipeSummary summary) {
+		lock.writeLock().lock();
+		try {
+			remove(summary.getId());
+			Entry entry = Entry.of(summary);
+			if (entry == null) {
+				return;
+			}
+			entries.put(summary.getId(), entry);
+			all.add(entry);
+			for (RecipeTag tag : summary.getTags()) {
+				meals.get(tag).add(entry);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Replaces the content of the index with the given recipes.
+	 *
+	 * @param summaries summaries of the recipes
+	 */
+	void putAll(Collection<RecipeSummary> summaries) {
+		lock.writeLock().lock();
+		try {
+			Map<Integer, Entry> indexed = new LinkedHashMap<>();
+			for (RecipeSummary summary : summaries) {
+				Entry entry = Entry.of(summary);
+				if (entry == null) {
+					indexed.remove(summary.getId());
+				} else {
+					indexed.put(summary.getId(), entry);
+				}
+			}
+
+			entries.clear();
+			entries.putAll(indexed);
+			all.build(new ArrayList<>(indexed.values()));
+			for (Map.Entry<RecipeTag, KdTree> meal : meals.entrySet()) {
+				List<Entry> tagged = new ArrayList<>();
+				for (Entry entry : indexed.values()) {
+					if (entry.summary.getTags().contains(meal.getKey())) {
+						tagged.add(entry);
+					}
+				}
+				meal.getValue().build(tagged);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a recipe from the index, recipes which are not indexed are ignored.
+	 *
+	 * @param id id of the recipe
+	 */
+	void remove(int id) {
+		lock.writeLock().lock();
+		try {
+			Entry entry = entries.remove(id);
+			if (entry == null) {
+				return;
+			}
+			entry.removed = true;
+			all.remove(entry);
+			for (RecipeTag tag : entry.summary.getTags()) {
+				meals.get(tag).remove(entry);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes all recipes from the index.
+	 */
+	void clear() {
+		putAll(new ArrayList<>());
+	}
+
+	int size() {
+		lock.readLock().lock();
+		try {
+			return entries.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @param searchParam targets of the search, the targets greater than 0 and the weights not negative
+	 * @return summaries of the closest recipes, ascending by distance and recipes of the same distance by id
+	 */
+	List<RecipeSummary> search(NutritionSearchParam searchParam) {
+		lock.readLock().lock();
+		try {
+			Query query = new Query(searchParam);
+			(searchParam.getTag() == null ? all : meals.get(searchParam.getTag())).search(query);
+			return query.result();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * An indexed recipe and its nutrition values in the order of {@link RecipeNutrient}. The entry of a recipe is
+	 * shared by all trees it is in.
+	 */
+	private static final class Entry {
+		final RecipeSummary summary;
+		final double[] point;
+		boolean removed;
+
+		private Entry(RecipeSummary summary, double[] point) {
+			this.summary = summary;
+			this.point = point;
+		}
+
+		/**
+		 * @return the entry of the recipe, null if any of its nutrition values is unknown
+		 */
+		static Entry of(RecipeSummary summary) {
+			double[] point = new double[NUTRIENTS.length];
+			for (int dim = 0; dim < NUTRIENTS.length; dim++) {
+				Double value = NUTRIENTS[dim].getValue(summary);
+				if (value == null || !Double.isFinite(value)) {
+					return null;
+				}
+				point[dim] = value;
+			}
+			return new Entry(summary, point);
+		}
+	}
+
+	private static final class Match {
+		final Entry entry;
+		final double distance;
+
+		Match(Entry entry, double distance) {
+			this.entry = entry;
+			this.distance = distance;
+		}
+	}
+
+	/**
+	 * One search, collecting the closest recipes found so far.
+	 */
+	private static final class Query {
+		final double[] targets = new double[NUTRIENTS.length];
+		final double[] weights = new double[NUTRIENTS.length];
+		// weight per unit of the value, the distance of a recipe is at least this times its offset from the target
+		final double[] coefficients = new double[NUTRIENTS.length];
+		final int[] dims;
+		final double maxDistance;
+		final int limit;
+		// the worst match first, so it is the one replaced by a better match
+		final PriorityQueue<Match> matches = new PriorityQueue<>(ORDER.reversed());
+
+		Query(NutritionSearchParam searchParam) {
+			int[] dims = new int[NUTRIENTS.length];
+			int count = 0;
+			for (int dim = 0; dim < NUTRIENTS.length; dim++) {
+				Double target = searchParam.getTarget(NUTRIENTS[dim]);
+				if (target != null) {
+					targets[dim] = target;
+					weights[dim] = searchParam.getWeight(NUTRIENTS[dim]);
+					coefficients[dim] = weights[dim] / target;
+					dims[count++] = dim;
+				}
+			}
+			this.dims = Arrays.copyOf(dims, count);
+			this.maxDistance = searchParam.getMaxDistance() == null ? Double.POSITIVE_INFINITY
+					: searchParam.getMaxDistance();
+			this.limit = searchParam.getLimit();
+		}
+
+		/**
+		 * @return the distance up to which a recipe can still be a match
+		 */
+		double bound() {
+			return matches.size() < limit ? maxDistance : matches.peek().distance;
+		}
+
+		void offer(Entry entry) {
+			if (entry.removed) {
+				return;
+			}
+			double distance = 0;
+			for (int dim : dims) {
+				distance += Math.abs(entry.point[dim] / targets[dim] - 1) * weights[dim];
+			}
+			if (!(distance <= maxDistance)) {
+				return;
+			}
+			Match match = new Match(entry, distance);
+			if (matches.size() < limit) {
+				matches.add(match);
+			} else if (ORDER.compare(match, matches.peek()) < 0) {
+				matches.poll();
+				matches.add(match);
+			}
+		}
+
+		List<RecipeSummary> result() {
+			List<Match> sorted = new ArrayList<>(matches);
+			sorted.sort(ORDER);
+			List<RecipeSummary> result = new ArrayList<>(sorted.size());
+			for (Match match : sorted) {
+				result.add(match.entry.summary);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * A k-d tree stored in an array: the root of a range is its middle, the left half of the range is its left
+	 * subtree and the right half its right subtree. The recipes of a tree at depth d are split by the nutrition value
+	 * d modulo the number of values.
+	 */
+	private static final class KdTree {
+		private Entry[] nodes = new Entry[0];
+		// recipes of the array which were removed since it was built
+		private int removed;
+		// recipes added since the array was built
+		private final List<Entry> added = new ArrayList<>();
+
+		void build(List<Entry> entries) {
+			nodes = entries.toArray(new Entry[0]);
+			removed = 0;
+			added.clear();
+			build(0, nodes.length, 0);
+		}
+
+		void add(Entry entry) {
+			added.add(entry);
+			rebuildIfChanged();
+		}
+
+		void remove(Entry entry) {
+			if (!added.remove(entry)) {
+				removed++;
+			}
+			rebuildIfChanged();
+		}
+
+		void search(Query query) {
+			for (Entry entry : added) {
+				query.offer(entry);
+			}
+			search(query, 0, nodes.length, 0, new double[NUTRIENTS.length], 0);
+		}
+
+		private void rebuildIfChanged() {
+			if (added.size() + removed <= Math.max(MIN_CHANGES, nodes.length / CHANGES_DIVISOR)) {
+				return;
+			}
+			List<Entry> entries = new ArrayList<>(nodes.length - removed + added.size());
+			for (Entry entry : nodes) {
+				if (!entry.removed) {
+					entries.add(entry);
+				}
+			}
+			entries.addAll(added);
+			build(entries);
+		}
+
+		private void build(int from, int to, int depth) {
+			if (to - from <= 1) {
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			select(from, to - 1, middle, depth % NUTRIENTS.length);
+			build(from, middle, depth + 1);
+			build(middle + 1, to, depth + 1);
+		}
+
+		/**
+		 * Moves the recipe with the k-th smallest value to k, those with smaller or equal values before it and those
+		 * with greater or equal values after it.
+		 */
+		private void select(int left, int right, int k, int dim) {
+			while (left < right) {
+				double pivot = nodes[(left + right) >>> 1].point[dim];
+				int i = left;
+				int j = right;
+				while (i <= j) {
+					while (nodes[i].point[dim] < pivot) {
+						i++;
+					}
+					while (nodes[j].point[dim] > pivot) {
+						j--;
+					}
+					if (i <= j) {
+						Entry swapped = nodes[i];
+						nodes[i++] = nodes[j];
+						nodes[j--] = swapped;
+					}
+				}
+				if (k <= j) {
+					right = j;
+				} else if (k >= i) {
+					left = i;
+				} else {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * @param offsets offsets of the range from the target per nutrition value, 0 where the target is within
+		 * @param lowerBound least distance a recipe of the range can have, the weighted sum of the offsets
+		 */
+		private void search(Query query, int from, int to, int depth, double[] offsets, double lowerBound) {
+			if (from >= to) {
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			int dim = depth % NUTRIENTS.length;
+			query.offer(nodes[middle]);
+
+			double offset = query.targets[dim] - nodes[middle].point[dim];
+			boolean left = offset < 0;
+			if (left) {
+				search(query, from, middle, depth + 1, offsets, lowerBound);
+			} else {
+				search(query, middle + 1, to, depth + 1, offsets, lowerBound);
+			}
+
+			// the other half is at least as far from the target as the split value
+			double previous = offsets[dim];
+			double farOffset = Math.max(previous, Math.abs(offset));
+			double farBound = lowerBound + query.coefficients[dim] * (farOffset - previous);
+			if (farBound <= query.bound()) {
+				offsets[dim] = farOffset;
+				if (left) {
+					search(query, middle + 1, to, depth + 1, offsets, farBound);
+				} else {
+					search(query, from, middle, depth + 1, offsets, farBound);
+				}
+				offsets[dim] = previous;
+			}
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.NutritionSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeNutrient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+
+/**
+ * Scores recipes against a diet plan. The nutrition of the recipes is packed into one primitive array per value,
+ * indexed by the position of the recipe in the list it was built from, so scoring a meal reads the arrays from start
+ * to end instead of boxed values of single recipes. Above a given number of candidates the scores are computed in
+ * parallel on the common fork/join pool.
+ * <p>
+ * The score is the weighted deviation of a recipe from the share of the plan for a meal, the closer to 0 the better.
+ * Recipes without macro nutrients get the score NaN.
+ */
+final class RecipeScoringKernel {
+
+	// weights of the deviations, less means less important
+	private static final double WEIGHT_KCAL = 10.0 / 4;
+	private static final double WEIGHT_CARBOHYDRATES = 2.0 / 4;
+	private static final double WEIGHT_PROTEINS = 2.0 / 4;
+	private static final double WEIGHT_FATS = 2.0 / 4;
+
+	// smallest number of candidates a parallel task scores on its own
+	private static final int MIN_CHUNK = 4096;
+
+	private final List<RecipeSummary> recipes;
+	private final long[] tagMasks;
+	private final double[] calories;
+	private final double[] carbohydrates;
+	private final double[] proteins;
+	private final double[] fats;
+	private final double[] carbohydratePercents;
+	private final double[] proteinPercents;
+	private final double[] fatPercents;
+
+	/**
+	 * @param recipes recipes to score, their nutrition must not change while the kernel is used
+	 */
+	RecipeScoringKernel(List<RecipeSummary> recipes) {
+		this.recipes = recipes;
+		int size = recipes.size();
+		tagMasks = new long[size];
+		calories = new double[size];
+		carbohydrates = new double[size];
+		proteins = new double[size];
+		fats = new double[size];
+		carbohydratePercents = new double[size];
+		proteinPercents = new double[size];
+		fatPercents = new double[size];
+
+		for (int i = 0; i < size; i++) {
+			RecipeSummary recipe = recipes.get(i);
+			tagMasks[i] = recipe.getTagMask();
+			calories[i] = value(recipe.getCalories());
+			carbohydrates[i] = value(recipe.getCarbohydrates());
+			proteins[i] = value(recipe.getProteins());
+			fats[i] = value(recipe.getFats());
+
+			double total = carbohydrates[i] + proteins[i] + fats[i];
+			carbohydratePercents[i] = carbohydrates[i] / total * 100;
+			proteinPercents[i] = proteins[i] / total * 100;
+			fatPercents[i] = fats[i] / total * 100;
+		}
+	}
+
+	int size() {
+		return tagMasks.length;
+	}
+
+	/**
+	 * @param index position of a recipe in the list the kernel was built from
+	 */
+	RecipeSummary get(int index) {
+		return recipes.get(index);
+	}
+
+	/**
+	 * @return calories of the recipe at the position, NaN if unknown
+	 */
+	double calories(int index) {
+		return calories[index];
+	}
+
+	/**
+	 * @return grams of carbohydrates of the recipe at the position, NaN if unknown
+	 */
+	double carbohydrates(int index) {
+		return carbohydrates[index];
+	}
+
+	/**
+	 * @return grams of proteins of the recipe at the position, NaN if unknown
+	 */
+	double proteins(int index) {
+		return proteins[index];
+	}
+
+	/**
+	 * @return grams of fats of the recipe at the position, NaN if unknown
+	 */
+	double fats(int index) {
+		return fats[index];
+	}
+
+	/**
+	 * @param tagMask mask of the meal tags
+	 * @return positions of the recipes with any of the tags, ascending
+	 */
+	int[] candidates(long tagMask) {
+		int[] candidates = new int[tagMasks.length];
+		int count = 0;
+		for (int i = 0; i < tagMasks.length; i++) {
+			if ((tagMasks[i] & tagMask) != 0) {
+				candidates[count++] = i;
+			}
+		}
+		return Arrays.copyOf(candidates, count);
+	}
+
+	/**
+	 * Scores the candidates for a meal.
+	 *
+	 * @param plan diet plan the recipes are scored against
+	 * @param kcalTarget calories of the meal according to the plan
+	 * @param candidates positions of the recipes to score
+	 * @param parallelThreshold number of candidates from which on they are scored in parallel
+	 * @return the score of each candidate, in the order of the candidates
+	 */
+	double[] score(DietPlan plan, double kcalTarget, int[] candidates, int parallelThreshold) {
+		Weights weights = new Weights(kcalTarget, plan.getCarbohydrate(), plan.getProtein(), plan.getLipid());
+		double[] scores = new double[candidates.length];
+		if (candidates.length >= parallelThreshold) {
+			ForkJoinPool.commonPool().invoke(new ScoreTask(weights, candidates, scores, 0, candidates.length));
+		} else {
+			score(weights, candidates, scores, 0, candidates.length);
+		}
+		return scores;
+	}
+
+	/**
+	 * Creates the search for the recipes of a meal by their score, the distance of the search is the score of a recipe
+	 * with known nutrition. Deviations of weight 0 are left out of the search.
+	 *
+	 * @param plan diet plan the recipes are scored against
+	 * @param kcalTarget calories of the meal according to the plan
+	 * @param tag the meal
+	 * @return the search, finding the 10 best recipes of the meal
+	 */
+	static NutritionSearchParam searchParam(DietPlan plan, double kcalTarget, RecipeTag tag) {
+		NutritionSearchParam searchParam = new NutritionSearchParam();
+		searchParam.setTag(tag);
+		addTarget(searchParam, RecipeNutrient.CALORIES, kcalTarget, WEIGHT_KCAL);
+		addTarget(searchParam, RecipeNutrient.CARBOHYDRATE_PERCENT, plan.getCarbohydrate(), WEIGHT_CARBOHYDRATES);
+		addTarget(searchParam, RecipeNutrient.PROTEIN_PERCENT, plan.getProtein(), WEIGHT_PROTEINS);
+		addTarget(searchParam, RecipeNutrient.FAT_PERCENT, plan.getLipid(), WEIGHT_FATS);
+		return searchParam;
+	}
+
+	private static void addTarget(NutritionSearchParam searchParam, RecipeNutrient nutrient, double target,
+			double weight) {
+		if (weight > 0) {
+			searchParam.setTarget(nutrient, target, weight);
+		}
+	}
+
+	private void score(Weights w, int[] candidates, double[] scores, int from, int to) {
+		for (int c = from; c < to; c++) {
+			int i = candidates[c];
+			scores[c] = Math.abs(calories[i] / w.kcal - 1) * WEIGHT_KCAL
+					+ Math.abs(carbohydratePercents[i] / w.carbohydratePercent - 1) * WEIGHT_CARBOHYDRATES
+					+ Math.abs(proteinPercents[i] / w.proteinPercent - 1) * WEIGHT_PROTEINS
+					+ Math.abs(fatPercents[i] / w.fatPercent - 1) * WEIGHT_FATS;
+		}
+	}
+
+	private static double value(Double value) {
+		return value == null ? Double.NaN : value;
+	}
+
+	/**
+	 * Targets of a diet plan for one meal, unboxed once per scoring.
+	 */
+	private static final class Weights {
+		final double kcal;
+		final double carbohydratePercent;
+		final double proteinPercent;
+		final double fatPercent;
+
+		Weights(double kcal, double carbohydratePercent, double proteinPercent, double fatPercent) {
+			this.kcal = kcal;
+			this.carbohydratePercent = carbohydratePercent;
+			this.proteinPercent = proteinPercent;
+			this.fatPercent = fatPercent;
+		}
+	}
+
+	/**
+	 * Scores a range of the candidates, halving it until it is small enough.
+	 */
+	private final class ScoreTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Weights weights;
+		private final int[] candidates;
+		private final double[] scores;
+		private final int from;
+		private final int to;
+
+		ScoreTask(Weights weights, int[] candidates, double[] scores, int from, int to) {
+			this.weights = weights;
+			this.candidates = candidates;
+			this.scores = scores;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= MIN_CHUNK) {
+				score(weights, candidates, scores, from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new ScoreTask(weights, candidates, scores, from, middle),
+					new ScoreTask(weights, candidates, scores, middle, to));
+		}
+	}
+}
@@ -0,0 +1,464 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePage;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePageRequest;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeNutrient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSortKey;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Tag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.RecipeKeyset;
+
+/**
+ * In-memory index answering recipe searches without the database. Every recipe occupies a slot, the criteria of a
+ * search are evaluated as bitsets over the slots:
+ * <ul>
+ * <li>one bitset per bit of the tag mask, i.e. per meal tag and custom tag</li>
+ * <li>the durations sorted ascending, a duration range is a contiguous part of that array, and likewise the
+ * nutrition values</li>
+ * <li>one posting list per ingredient name, and every suffix of every name in sorted order: a search word matches
+ * the names that have a suffix starting with it, i.e. the names containing it</li>
+ * </ul>
+ * Recipe names are compared with the recipes that remain after all other criteria. Like the database search, a search
+ * word has to occur as a whole within the name of a single ingredient, e.g. "olive oil" matches "Olive oil, extra
+ * virgin" but not a recipe with the ingredients "Olives" and "Oil".
+ * <p>
+ * For every {@link RecipeSortKey} the recipes are also kept in listing order, so a page is read by seeking to its
+ * keyset and walking the listing until the page is full.
+ */
+class RecipeSearchIndex {
+
+	private final List<RecipeSummary> summaries = new ArrayList<>();
+	private final List<String> names = new ArrayList<>();
+	private final List<String[]> ingredientNames = new ArrayList<>();
+	private final Map<Integer, Integer> slotsById = new HashMap<>();
+	private final List<Integer> freeSlots = new ArrayList<>();
+	private final BitSet used = new BitSet();
+
+	private final BitSet[] tags = new BitSet[Tag.MAX_BIT + 1];
+	private final Map<String, BitSet> postings = new HashMap<>();
+	// suffixes of the lower case ingredient names, mapped to the names ending with them
+	private final NavigableMap<String, Set<String>> suffixes = new TreeMap<>();
+	// slots in listing order per sort key, ascending
+	private final Map<RecipeSortKey, NavigableMap<Position, Integer>> listings = new EnumMap<>(RecipeSortKey.class);
+
+	private final SortedValues durations = new SortedValues();
+	private final Map<RecipeNutrient, SortedValues> nutrition = new EnumMap<>(RecipeNutrient.class);
+
+	RecipeSearchIndex() {
+		for (int bit = 0; bit < tags.length; bit++) {
+			tags[bit] = new BitSet();
+		}
+		for (RecipeSortKey sortKey : RecipeSortKey.values()) {
+			listings.put(sortKey, new TreeMap<>());
+		}
+		for (RecipeNutrient nutrient : RecipeNutrient.values()) {
+			nutrition.put(nutrient, new SortedValues());
+		}
+	}
+
+	/**
+	 * Adds a recipe to the index or replaces the indexed one with the same id.
+	 *
+	 * @param summary summary of the recipe
+	 * @param ingredientNames names of the recipe's ingredients
+	 */
+	synchronized void put(RecipeSummary summary, Collection<String> ingredientNames) {
+		int slot = add(summary, ingredientNames);
+		durations.add(summary.getDuration(), slot);
+		for (Map.Entry<RecipeNutrient, SortedValues> values : nutrition.entrySet()) {
+			values.getValue().add(values.getKey().getValue(summary), slot);
+		}
+	}
+
+	/**
+	 * Replaces the content of the index with the given recipes.
+	 *
+	 * @param summaries summaries of the recipes
+	 * @param ingredientNames names of the recipes' ingredients by recipe id
+	 */
+	synchronized void putAll(Collection<RecipeSummary> summaries, Map<Integer, List<String>> ingredientNames) {
+		clear();
+		for (RecipeSummary summary : summaries) {
+			add(summary, ingredientNames.getOrDefault(summary.getId(), Collections.emptyList()));
+		}
+
+		// sorting once instead of inserting each value at its place
+		Collection<Integer> slots = slotsById.values();
+		durations.fill(slots, slot -> this.summaries.get(slot).getDuration());
+		for (Map.Entry<RecipeNutrient, SortedValues> values : nutrition.entrySet()) {
+			values.getValue().fill(slots, slot -> values.getKey().getValue(this.summaries.get(slot)));
+		}
+	}
+
+	/**
+	 * Adds everything but the duration and the nutrition values of the recipe.
+	 *
+	 * @return slot of the recipe
+	 */
+	private int add(RecipeSummary summary, Collection<String> ingredientNames) {
+		remove(summary.getId());
+
+		int slot = freeSlots.isEmpty() ? summaries.size() : freeSlots.remove(freeSlots.size() - 1);
+		String[] lowerCaseNames = lowerCaseNames(ingredientNames);
+		if (slot == summaries.size()) {
+			summaries.add(summary);
+			names.add(lowerCase(summary.getName()));
+			this.ingredientNames.add(lowerCaseNames);
+		} else {
+			summaries.set(slot, summary);
+			names.set(slot, lowerCase(summary.getName()));
+			this.ingredientNames.set(slot, lowerCaseNames);
+		}
+		slotsById.put(summary.getId(), slot);
+		used.set(slot);
+		for (Map.Entry<RecipeSortKey, NavigableMap<Position, Integer>> listing : listings.entrySet()) {
+			listing.getValue().put(Position.of(listing.getKey(), summary), slot);
+		}
+
+		long tagMask = summary.getTagMask();
+		for (int bit = 0; bit < tags.length; bit++) {
+			if ((tagMask & (1L << bit)) != 0) {
+				tags[bit].set(slot);
+			}
+		}
+		for (String ingredientName : lowerCaseNames) {
+			postings.computeIfAbsent(ingredientName, this::addSuffixes).set(slot);
+		}
+		return slot;
+	}
+
+	/**
+	 * Removes a recipe from the index, recipes which are not indexed are ignored.
+	 *
+	 * @param id id of the recipe
+	 */
+	synchronized void remove(int id) {
+		Integer slot = slotsById.remove(id);
+		if (slot == null) {
+			return;
+		}
+
+		used.clear(slot);
+		for (BitSet tagSlots : tags) {
+			tagSlots.clear(slot);
+		}
+		for (String ingredientName : ingredientNames.get(slot)) {
+			BitSet nameSlots = postings.get(ingredientName);
+			nameSlots.clear(slot);
+			if (nameSlots.isEmpty()) {
+				postings.remove(ingredientName);
+				removeSuffixes(ingredientName);
+			}
+		}
+		durations.remove(summaries.get(slot).getDuration(), slot);
+		for (Map.Entry<RecipeNutrient, SortedValues> values : nutrition.entrySet()) {
+			values.getValue().remove(values.getKey().getValue(summaries.get(slot)), slot);
+		}
+		for (Map.Entry<RecipeSortKey, NavigableMap<Position, Integer>> listing : listings.entrySet()) {
+			listing.getValue().remove(Position.of(listing.getKey(), summaries.get(slot)));
+		}
+
+		summaries.set(slot, null);
+		names.set(slot, null);
+		ingredientNames.set(slot, null);
+		freeSlots.add(slot);
+	}
+
+	/**
+	 * Removes all recipes from the index.
+	 */
+	synchronized void clear() {
+		summaries.clear();
+		names.clear();
+		ingredientNames.clear();
+		slotsById.clear();
+		freeSlots.clear();
+		used.clear();
+		Arrays.stream(tags).forEach(BitSet::clear);
+		postings.clear();
+		suffixes.clear();
+		listings.values().forEach(Map::clear);
+		durations.clear();
+		nutrition.values().forEach(SortedValues::clear);
+	}
+
+	synchronized int size() {
+		return slotsById.size();
+	}
+
+	/**
+	 * @param searchParam criteria of the search
+	 * @return summaries of all indexed recipes matching the criteria, in no particular order
+	 */
+	synchronized List<RecipeSummary> search(RecipeSearchParam searchParam) {
+		BitSet result = matchingSlots(searchParam);
+		String name = searchParam.getRecipeName() == null ? null : lowerCase(searchParam.getRecipeName());
+		List<RecipeSummary> found = new ArrayList<>(result.cardinality());
+		for (int slot = result.nextSetBit(0); slot >= 0; slot = result.nextSetBit(slot + 1)) {
+			if (name == null || names.get(slot).contains(name)) {
+				found.add(summaries.get(slot));
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Reads a page of the listing of the matching recipes. The listing is walked from the keyset of the request on,
+	 * so a page costs about as much as the recipes it skips because they do not match.
+	 *
+	 * @param searchParam criteria of the search
+	 * @param pageRequest requested page
+	 * @return the page
+	 * @throws IllegalArgumentException if the token of the request is malformed or belongs to another order
+	 */
+	synchronized RecipePage page(RecipeSearchParam searchParam, RecipePageRequest pageRequest) {
+		RecipeKeyset after = RecipeKeyset.of(pageRequest);
+		BitSet result = matchingSlots(searchParam);
+		String name = searchParam.getRecipeName() == null ? null : lowerCase(searchParam.getRecipeName());
+
+		NavigableMap<Position, Integer> listing = listings.get(pageRequest.getSortKey());
+		if (pageRequest.isDescending()) {
+			listing = listing.descendingMap();
+		}
+		if (after != null) {
+			listing = listing.tailMap(new Position((Comparable<?>) after.getValue(), after.getId()), false);
+		}
+
+		// the page and one recipe more, which tells whether there is another page
+		List<RecipeSummary> found = new ArrayList<>(pageRequest.getPageSize() + 1);
+		for (int slot : listing.values()) {
+			if (found.size() > pageRequest.getPageSize()) {
+				break;
+			}
+			if (result.get(slot) && (name == null || names.get(slot).contains(name))) {
+				found.add(summaries.get(slot));
+			}
+		}
+		return RecipeKeyset.page(found, pageRequest);
+	}
+
+	/**
+	 * @return slots of the recipes matching all criteria but the recipe name
+	 */
+	private BitSet matchingSlots(RecipeSearchParam searchParam) {
+		BitSet result = (BitSet) used.clone();
+
+		long tagMask = searchParam.getTagMask();
+		for (int bit = 0; bit < tags.length; bit++) {
+			if ((tagMask & (1L << bit)) != 0) {
+				result.and(tags[bit]);
+			}
+		}
+		if (searchParam.getLowerDurationInkl() != null || searchParam.getUpperDurationInkl() != null) {
+			result.and(durations.range(searchParam.getLowerDurationInkl(), searchParam.getUpperDurationInkl()));
+		}
+		for (Map.Entry<RecipeNutrient, SortedValues> values : nutrition.entrySet()) {
+			Double lower = searchParam.getLowerNutritionInkl(values.getKey());
+			Double upper = searchParam.getUpperNutritionInkl(values.getKey());
+			if (lower != null || upper != null) {
+				result.and(values.getValue().range(lower, upper));
+			}
+		}
+		for (String ingredient : searchParam.getIngredients()) {
+			if (result.isEmpty()) {
+				return result;
+			}
+			result.and(matchingIngredients(ingredient));
+		}
+		for (String ingredient : searchParam.getExcludedIngredients()) {
+			result.andNot(matchingIngredients(ingredient));
+		}
+		return result;
+	}
+
+	/**
+	 * @return slots of the recipes with an ingredient whose name contains the search word
+	 */
+	private BitSet matchingIngredients(String searchWord) {
+		String word = lowerCase(searchWord);
+		BitSet matching = new BitSet();
+		Set<String> matchedNames = new HashSet<>();
+		for (Set<String> ingredientNames : suffixes.subMap(word, word + Character.MAX_VALUE).values()) {
+			for (String ingredientName : ingredientNames) {
+				if (matchedNames.add(ingredientName)) {
+					matching.or(postings.get(ingredientName));
+				}
+			}
+		}
+		return matching;
+	}
+
+	/**
+	 * @return the empty posting list of a new ingredient name, after its suffixes were added
+	 */
+	private BitSet addSuffixes(String ingredientName) {
+		for (int offset = 0; offset < ingredientName.length(); offset++) {
+			suffixes.computeIfAbsent(ingredientName.substring(offset), suffix -> new HashSet<>()).add(ingredientName);
+		}
+		return new BitSet();
+	}
+
+	private void removeSuffixes(String ingredientName) {
+		for (int offset = 0; offset < ingredientName.length(); offset++) {
+			String suffix = ingredientName.substring(offset);
+			Set<String> ingredientNames = suffixes.get(suffix);
+			ingredientNames.remove(ingredientName);
+			if (ingredientNames.isEmpty()) {
+				suffixes.remove(suffix);
+			}
+		}
+	}
+
+	private static String[] lowerCaseNames(Collection<String> ingredientNames) {
+		Set<String> lowerCaseNames = new LinkedHashSet<>();
+		for (String ingredientName : ingredientNames) {
+			if (ingredientName != null) {
+				lowerCaseNames.add(lowerCase(ingredientName).intern());
+			}
+		}
+		return lowerCaseNames.toArray(new String[0]);
+	}
+
+	private static String lowerCase(String text) {
+		return text.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Values of the recipes sorted ascending, a range of values is a contiguous part of the array. Recipes without a
+	 * value, like a recipe without macro nutrients has no protein share, are not part of any range.
+	 */
+	private static final class SortedValues {
+		// values ascending, slots[i] is the slot of values[i]
+		private double[] values = new double[16];
+		private int[] slots = new int[16];
+		private int count;
+
+		/**
+		 * Replaces the content with the values of the given slots.
+		 */
+		void fill(Collection<Integer> slots, Function<Integer, Double> value) {
+			Integer[] sorted = slots.stream().filter(slot -> isKnown(value.apply(slot))).toArray(Integer[]::new);
+			Arrays.sort(sorted, Comparator.comparingDouble(value::apply));
+			values = new double[Math.max(16, sorted.length)];
+			this.slots = new int[values.length];
+			for (int i = 0; i < sorted.length; i++) {
+				values[i] = value.apply(sorted[i]);
+				this.slots[i] = sorted[i];
+			}
+			count = sorted.length;
+		}
+
+		void add(Double value, int slot) {
+			if (!isKnown(value)) {
+				return;
+			}
+			if (count == values.length) {
+				values = Arrays.copyOf(values, count * 2);
+				slots = Arrays.copyOf(slots, count * 2);
+			}
+			int index = firstIndex(value, true);
+			System.arraycopy(values, index, values, index + 1, count - index);
+			System.arraycopy(slots, index, slots, index + 1, count - index);
+			values[index] = value;
+			slots[index] = slot;
+			count++;
+		}
+
+		void remove(Double value, int slot) {
+			if (!isKnown(value)) {
+				return;
+			}
+			int index = firstIndex(value, false);
+			while (slots[index] != slot) {
+				index++;
+			}
+			System.arraycopy(values, index + 1, values, index, count - index - 1);
+			System.arraycopy(slots, index + 1, slots, index, count - index - 1);
+			count--;
+		}
+
+		void clear() {
+			count = 0;
+		}
+
+		/**
+		 * @param lower inclusive lower bound, null if there is none
+		 * @param upper inclusive upper bound, null if there is none
+		 * @return slots of the values within the bounds
+		 */
+		BitSet range(Double lower, Double upper) {
+			int from = lower == null ? 0 : firstIndex(lower, false);
+			int to = upper == null ? count : firstIndex(upper, true);
+
+			BitSet range = new BitSet();
+			for (int i = from; i < to; i++) {
+				range.set(slots[i]);
+			}
+			return range;
+		}
+
+		/**
+		 * @return index of the first value greater than (or equal to, if not inclusive) the given one
+		 */
+		private int firstIndex(double value, boolean inclusive) {
+			int low = 0;
+			int high = count;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (values[middle] < value || (inclusive && values[middle] == value)) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		private static boolean isKnown(Double value) {
+			return value != null && !value.isNaN();
+		}
+	}
+
+	/**
+	 * Position of a recipe in a listing, its sort value and its id
+	 */
+	private static final class Position implements Comparable<Position> {
+		private final Comparable<Object> value;
+		private final int id;
+
+		@SuppressWarnings("unchecked")
+		Position(Comparable<?> value, int id) {
+			this.value = (Comparable<Object>) value;
+			this.id = id;
+		}
+
+		static Position of(RecipeSortKey sortKey, RecipeSummary summary) {
+			return new Position((Comparable<?>) sortKey.getValue(summary), summary.getId());
+		}
+
+		@Override
+		public int compareTo(Position other) {
+			int comparison = value.compareTo(other.value);
+			return comparison != 0 ? comparison : Integer.compare(id, other.id);
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
+
+import java.util.List;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.NutritionSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationException;
+
+/**
+ * State of one recommendation run, i.e. of one call of the recommendations service. Every run gets its own context,
+ * so concurrent runs do not influence each other. A context is used by a single thread.
+ */
+final class RecommendationContext {
+
+	private final DietPlan dietPlan;
+	private final Recipes recipes;
+	// bias of the acceptable scores, adjusted after every chosen meal of the run
+	private double bias;
+
+	/**
+	 * @param dietPlan diet plan the meals are recommended for
+	 * @param recipes recipes to choose from
+	 */
+	RecommendationContext(DietPlan dietPlan, Recipes recipes) {
+		this.dietPlan = dietPlan;
+		this.recipes = recipes;
+	}
+
+	DietPlan getDietPlan() {
+		return dietPlan;
+	}
+
+	Recipes getRecipes() {
+		return recipes;
+	}
+
+	double getBias() {
+		return bias;
+	}
+
+	void setBias(double bias) {
+		this.bias = bias;
+	}
+
+	/**
+	 * The recipes a run chooses from, found by their nutrition like
+	 * {@link at.ac.tuwien.sepm.assignment.groupphase.application.service.RecipeService#searchRecipesByNutrition}.
+	 */
+	interface Recipes {
+		List<RecipeSummary> search(NutritionSearchParam searchParam) throws ServiceInvokationException;
+	}
+}
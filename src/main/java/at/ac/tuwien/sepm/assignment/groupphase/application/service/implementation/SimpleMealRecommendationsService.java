@@ -1,7 +1,10 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
 
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlanPreview;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.NutritionSearchParam;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.DietPlanPersistence;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.MealRecommendationsPersistence;
@@ -11,13 +14,18 @@ import at.ac.tuwien.sepm.assignment.groupphase.application.service.MealRecommend
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.NoOptimalSolutionException;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.RecipeService;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationException;
-import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.NutritionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.lang.invoke.MethodHandles;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service
 public class SimpleMealRecommendationsService implements MealRecommendationsService {
@@ -28,19 +36,39 @@ public class SimpleMealRecommendationsService implements MealRecommendationsServ
     private static final double THRESHOLD = 0.6;
     //fraction to use to split up total diet plan calories
     private static final double LIMIT_FRACTION = 1.0/4.0;
-    //bias to be used for consecutive calculations
-    private static double BIAS = 0;
     //fraction factors for kcal score
     private static final double[] FRACTION_FACTORS = new double[]{1, 2, 1};
+    //number of weeks searched for in parallel
+    private static final int WEEK_PLANNER_CHAINS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    //number of recipes of a meal from which on they are scored in parallel
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 20000;
+    //number of candidates ranked for swapping a meal at first, doubled whenever all were shown
+    private static final int SWAP_CANDIDATES = 32;
 
     private final MealRecommendationsPersistence mealRecommendationsPersistence;
     private final RecipeService recipeService;
     private final DietPlanPersistence dietPlanPersistence;
+    private final int parallelThreshold;
+    //workers calculating the previews of the diet plans
+    private final ExecutorService previewWorkers;
+    //candidates of the swaps of today's meals, guarded by itself
+    private final Map<RecipeTag, SwapCursor> swapCursors = new EnumMap<>(RecipeTag.class);
 
+    @Autowired
     public SimpleMealRecommendationsService(MealRecommendationsPersistence mealRecommendationsPersistence, RecipeService recipeService, DietPlanPersistence dietPlanPersistence) {
+        this(mealRecommendationsPersistence, recipeService, dietPlanPersistence, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public SimpleMealRecommendationsService(MealRecommendationsPersistence mealRecommendationsPersistence, RecipeService recipeService, DietPlanPersistence dietPlanPersistence, int parallelThreshold) {
         this.mealRecommendationsPersistence = mealRecommendationsPersistence;
         this.recipeService = recipeService;
         this.dietPlanPersistence = dietPlanPersistence;
+        this.parallelThreshold = parallelThreshold;
+        this.previewWorkers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "diet-plan-preview");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     @Override
@@ -48,29 +76,31 @@ public class SimpleMealRecommendationsService implements MealRecommendationsServ
         LOG.debug("Requested recommended meals");
 
         Map<RecipeTag, Recipe> optimumMeals = new HashMap<>();
-        List<Recipe> allRecipes = null;
+        // the nutrition index of the recipe service finds the candidates, just the chosen recipes are loaded completely
+        RecommendationContext context = null;
 
         try {
             DietPlan currentDietPlan = dietPlanPersistence.readActive();
-            BIAS = 0;
 
             RecipeTag[] values = {RecipeTag.B, RecipeTag.L, RecipeTag.D};
             for (int i = 0; i < FRACTION_FACTORS.length; i++) {
                 RecipeTag tag = values[i];
                 if (force) {
-                    if (allRecipes == null)
-                        allRecipes = recipeService.getRecipes();
-                    Recipe r = calculateOptimumForTag(currentDietPlan, allRecipes, tag, FRACTION_FACTORS[i]);
+                    if (context == null)
+                        context = new RecommendationContext(currentDietPlan, recipeService::searchRecipesByNutrition);
+                    Recipe r = recipeService.get(calculateOptimumForTag(context, tag, FRACTION_FACTORS[i]).getId());
                     mealRecommendationsPersistence.createRecommendationFor(r, currentDietPlan, tag);
+                    resetSwapCursor(tag);
                     optimumMeals.put(tag, r);
                 } else {
                     try {
-                        optimumMeals.put(tag, NutritionUtil.fillNutritionValues(mealRecommendationsPersistence.readRecommendationFor(currentDietPlan, tag)));
+                        optimumMeals.put(tag, mealRecommendationsPersistence.readRecommendationFor(currentDietPlan, tag));
                     } catch (NoEntryFoundException e) {
-                        if (allRecipes == null)
-                            allRecipes = recipeService.getRecipes();
-                        Recipe r = calculateOptimumForTag(currentDietPlan, allRecipes, tag, FRACTION_FACTORS[i]);
+                        if (context == null)
+                            context = new RecommendationContext(currentDietPlan, recipeService::searchRecipesByNutrition);
+                        Recipe r = recipeService.get(calculateOptimumForTag(context, tag, FRACTION_FACTORS[i]).getId());
                         mealRecommendationsPersistence.createRecommendationFor(r, currentDietPlan, tag);
+                        resetSwapCursor(tag);
                         optimumMeals.put(tag, r);
                     }
                 }
@@ -87,13 +117,39 @@ public class SimpleMealRecommendationsService implements MealRecommendationsServ
         LOG.debug("Requested recommended meal for tag {}", meal);
 
         try {
-            BIAS = 0;
-            List<Recipe> allRecipes = recipeService.getRecipes();
-            allRecipes.remove(current);
             DietPlan currentDietPlan = dietPlanPersistence.readActive();
             List<RecipeTag> tags = new ArrayList<>(Arrays.asList(RecipeTag.B, RecipeTag.L, RecipeTag.D));
+            RecipeSummary next;
+            boolean noCandidates;
+            synchronized (swapCursors) {
+                SwapCursor cursor = swapCursors.get(meal);
+                if (cursor == null || !cursor.isValidFor(LocalDate.now(), currentDietPlan, recipeService.getRecipeVersion())) {
+                    cursor = new SwapCursor(LocalDate.now(), currentDietPlan, recipeService.getRecipeVersion());
+                    swapCursors.put(meal, cursor);
+                }
+                if (current != null)
+                    cursor.show(current.getId());
 
-            Recipe recipe = calculateOptimumForTag(currentDietPlan, allRecipes, meal, FRACTION_FACTORS[tags.indexOf(meal)]);
+                //the candidates are only ranked again once all ranked ones were shown
+                next = cursor.next();
+                while (next == null && !cursor.isComplete()) {
+                    NutritionSearchParam searchParam = RecipeScoringKernel.searchParam(currentDietPlan,
+                        currentDietPlan.getEnergy_kcal()*LIMIT_FRACTION*FRACTION_FACTORS[tags.indexOf(meal)], meal);
+                    searchParam.setLimit(Math.max(SWAP_CANDIDATES, cursor.size() * 2));
+                    cursor.extend(recipeService.searchRecipesByNutrition(searchParam), searchParam.getLimit());
+                    LOG.debug("Ranked {} candidates for swapping meal {}", cursor.size(), meal);
+                    next = cursor.next();
+                }
+                noCandidates = cursor.size() == 0;
+            }
+            if (next == null && noCandidates) {
+                throw new NoOptimalSolutionException("No recipes tagged for meal " + meal + " found in the cookbook. Cannot generate recommendations.");
+            }
+            if (next == null) {
+                throw new NoOptimalSolutionException("All recipes tagged for meal " + meal + " were already recommended today.");
+            }
+
+            Recipe recipe = recipeService.get(next.getId());
             mealRecommendationsPersistence.createRecommendationFor(recipe, currentDietPlan, meal);
             return recipe;
         } catch (PersistenceException e) {
@@ -103,75 +159,143 @@ public class SimpleMealRecommendationsService implements MealRecommendationsServ
         }
     }
 
-    private Recipe calculateOptimumForTag(DietPlan currentDietPlan, List<Recipe> allRecipes, RecipeTag tag, double fractionFactor) throws NoOptimalSolutionException {
-        LOG.debug("Calculating Optimum for tag: {}", tag);
+    @Override
+    public List<DietPlanPreview> previewDietPlans() throws ServiceInvokationException, NoOptimalSolutionException {
+        LOG.debug("Requested previews of all diet plans");
+
+        List<DietPlan> dietPlans;
+        NutritionIndex allRecipes = new NutritionIndex();
+        try {
+            dietPlans = dietPlanPersistence.readAll();
+            allRecipes.putAll(recipeService.getRecipeSummaries());
+        } catch (PersistenceException e) {
+            throw new ServiceInvokationException(e.getMessage(), e);
+        }
 
-        Map<Recipe, Double> scoredRecipes = new HashMap<>();
-        Map<Recipe, Double> potentialRecipes = new HashMap<>();
+        //the workers only search the summaries read above, they do not use the database
+        List<Future<DietPlanPreview>> previews = new ArrayList<>(dietPlans.size());
+        for (DietPlan dietPlan : dietPlans) {
+            previews.add(previewWorkers.submit(() -> previewDietPlan(new RecommendationContext(dietPlan, allRecipes::search))));
+        }
 
-        for (Recipe r : allRecipes) {
-            if (r.getTags().contains(tag)) {
-                double score = calculateScoreFor(currentDietPlan, r, fractionFactor);
-                scoredRecipes.put(r, score);
-                if (score <= THRESHOLD + BIAS) {
-                    potentialRecipes.put(r, score);
-                }
+        List<DietPlanPreview> result = new ArrayList<>(previews.size());
+        try {
+            for (Future<DietPlanPreview> preview : previews) {
+                result.add(preview.get());
             }
+        } catch (InterruptedException e) {
+            previews.forEach(preview -> preview.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new ServiceInvokationException("Calculating the previews of the diet plans was interrupted.", e);
+        } catch (ExecutionException e) {
+            previews.forEach(preview -> preview.cancel(true));
+            if (e.getCause() instanceof NoOptimalSolutionException)
+                throw (NoOptimalSolutionException) e.getCause();
+            throw new ServiceInvokationException(e.getCause().getMessage(), e.getCause());
         }
+        return result;
+    }
 
-        if (scoredRecipes.keySet().size() <= 0) {
-            throw new NoOptimalSolutionException("No recipes tagged for meal " + tag + " found in the cookbook. Cannot generate recommendations.");
-        }
+    @Override
+    public List<Map<RecipeTag, Recipe>> getRecommendedWeek(long timeBudgetMillis) throws ServiceInvokationException, NoEntryFoundException, NoOptimalSolutionException {
+        LOG.debug("Requested recommended meals of the week within {} ms", timeBudgetMillis);
 
-        //to prevent always returning the same recipes we randomly pick those that are good candidates
-        if (potentialRecipes.size() > 0) {
-            int index = (int) Math.round(Math.random() * (potentialRecipes.size() - 1));
-            Recipe response = potentialRecipes.keySet().toArray(new Recipe[potentialRecipes.keySet().size()])
-                [index];
-            //Calculate a bias based on how good or poor the current choice was.
-            //Bias is based on half the bias+threshold value for midpoint reference
-            //New bias is based on how good or bad the chosen recipe performed with the current bias
-            BIAS = ((THRESHOLD+BIAS)/2) - potentialRecipes.get(response);
-            LOG.debug("Selecting from {} potential recipes...", potentialRecipes.size());
-            LOG.debug("Selected recipe with score: {}", potentialRecipes.get(response));
-            return response;
-        } else {
-            //If there was no 'optimal' recipe, we return the next best one
-            double min = -1;
-            Recipe minRecipe = null;
-            for (Recipe r : scoredRecipes.keySet()) {
-                if (minRecipe == null) {
-                    minRecipe = r;
-                    min = scoredRecipes.get(r);
-                } else if (scoredRecipes.get(r) < min) {
-                    minRecipe = r;
-                    min = scoredRecipes.get(r);
+        try {
+            DietPlan currentDietPlan = dietPlanPersistence.readActive();
+            RecipeScoringKernel allRecipes = new RecipeScoringKernel(recipeService.getRecipeSummaries());
+            WeekPlanner weekPlanner = new WeekPlanner(allRecipes, currentDietPlan);
+            int[] week = weekPlanner.plan(timeBudgetMillis * 1000000, WEEK_PLANNER_CHAINS, System.nanoTime());
+            LOG.debug("Planned week with cost {}", weekPlanner.cost(week));
+
+            Set<Integer> ids = new LinkedHashSet<>();
+            for (int index : week) {
+                ids.add(allRecipes.get(index).getId());
+            }
+            Map<Integer, Recipe> recipes = new HashMap<>();
+            for (Recipe recipe : recipeService.get(ids)) {
+                recipes.put(recipe.getId(), recipe);
+            }
+
+            List<Map<RecipeTag, Recipe>> days = new ArrayList<>(WeekPlanner.DAYS);
+            for (int day = 0; day < WeekPlanner.DAYS; day++) {
+                Map<RecipeTag, Recipe> meals = new EnumMap<>(RecipeTag.class);
+                for (int m = 0; m < WeekPlanner.MEALS.length; m++) {
+                    int id = allRecipes.get(week[day * WeekPlanner.MEALS.length + m]).getId();
+                    Recipe recipe = recipes.get(id);
+                    if (recipe == null) {
+                        throw new NoEntryFoundException("The planned recipe " + id + " does not exist anymore.");
+                    }
+                    meals.put(WeekPlanner.MEALS[m], recipe);
                 }
+                days.add(meals);
             }
-            LOG.debug("Selecting best out of {} recipes...", scoredRecipes.size());
-            LOG.debug("Selected recipe with score: {}", min);
-            return minRecipe;
+
+            mealRecommendationsPersistence.createRecommendationsFor(days, LocalDate.now(), currentDietPlan);
+            return days;
+        } catch (PersistenceException e) {
+            throw new ServiceInvokationException(e.getMessage(), e);
         }
     }
 
-    private double calculateScoreFor(DietPlan p, Recipe r, double fractionFactor) {
-        LOG.trace("Calculating score for recipe: {}", r.toString());
+    private void resetSwapCursor(RecipeTag tag) {
+        synchronized (swapCursors) {
+            swapCursors.remove(tag);
+        }
+    }
 
-        //weights for final calculation between 0 and 1, less means less important
-        double weightKcal = 10 / 4;
-        double weightCarbohydrates = 2 / 4;
-        double weightProteins = 2 / 4;
-        double weightFats = 2 / 4;
+    private DietPlanPreview previewDietPlan(RecommendationContext context) throws NoOptimalSolutionException, ServiceInvokationException {
+        RecipeTag[] values = {RecipeTag.B, RecipeTag.L, RecipeTag.D};
+        Map<RecipeTag, RecipeSummary> meals = new EnumMap<>(RecipeTag.class);
+        for (int i = 0; i < FRACTION_FACTORS.length; i++) {
+            meals.put(values[i], calculateOptimumForTag(context, values[i], FRACTION_FACTORS[i]));
+        }
+        return new DietPlanPreview(context.getDietPlan(), meals);
+    }
+
+    private RecipeSummary calculateOptimumForTag(RecommendationContext context, RecipeTag tag, double fractionFactor) throws NoOptimalSolutionException, ServiceInvokationException {
+        LOG.debug("Calculating Optimum for tag: {}", tag);
+        DietPlan currentDietPlan = context.getDietPlan();
+        double kcalTarget = currentDietPlan.getEnergy_kcal()*LIMIT_FRACTION*fractionFactor;
+        double bias = context.getBias();
 
-        double scoreKcal = Math.abs((r.getCalories() / (p.getEnergy_kcal()*LIMIT_FRACTION*fractionFactor)) - 1);
-        double scoreCarbohydrates = Math.abs((r.getCarbohydratePercent() / p.getCarbohydrate()) - 1);
-        double scoreProteins = Math.abs((r.getProteinPercent() / p.getProtein()) - 1);
-        double scoreFats = Math.abs((r.getFatPercent() / p.getLipid()) - 1);
+        //the index only returns the recipes whose score is acceptable instead of all recipes of the meal
+        NutritionSearchParam searchParam = RecipeScoringKernel.searchParam(currentDietPlan, kcalTarget, tag);
+        searchParam.setMaxDistance(THRESHOLD + bias);
+        searchParam.setLimit(Integer.MAX_VALUE);
+        List<RecipeSummary> found = context.getRecipes().search(searchParam);
 
-        //the closer the score is to 0, the better a recipes is
-        double score = (scoreKcal * weightKcal) + (scoreCarbohydrates * weightCarbohydrates) + (scoreProteins * weightProteins) + (scoreFats * weightFats);
+        //scored again, so the threshold applies to exactly the same scores as for any other recipe
+        RecipeScoringKernel foundRecipes = new RecipeScoringKernel(found);
+        int[] candidates = foundRecipes.candidates(tag.getMask());
+        double[] scores = foundRecipes.score(currentDietPlan, kcalTarget, candidates, parallelThreshold);
+        int[] potentialRecipes = new int[candidates.length];
+        int potentialCount = 0;
+        for (int c = 0; c < candidates.length; c++) {
+            if (scores[c] <= THRESHOLD + bias) {
+                potentialRecipes[potentialCount++] = c;
+            }
+        }
 
-        LOG.trace("Calculated score was: {}", score);
-        return score;
+        //to prevent always returning the same recipes we randomly pick those that are good candidates
+        if (potentialCount > 0) {
+            int response = potentialRecipes[(int) Math.round(Math.random() * (potentialCount - 1))];
+            //Calculate a bias based on how good or poor the current choice was.
+            //Bias is based on half the bias+threshold value for midpoint reference
+            //New bias is based on how good or bad the chosen recipe performed with the current bias
+            context.setBias(((THRESHOLD+bias)/2) - scores[response]);
+            LOG.debug("Selecting from {} potential recipes...", potentialCount);
+            LOG.debug("Selected recipe with score: {}", scores[response]);
+            return foundRecipes.get(candidates[response]);
+        } else {
+            //If there was no 'optimal' recipe, we return the next best one, recipes with unknown nutrition are never chosen
+            searchParam.setMaxDistance(null);
+            searchParam.setLimit(1);
+            List<RecipeSummary> best = context.getRecipes().search(searchParam);
+            if (best.isEmpty()) {
+                throw new NoOptimalSolutionException("No recipes tagged for meal " + tag + " found in the cookbook. Cannot generate recommendations.");
+            }
+            LOG.debug("Selected best recipe {}", best.get(0).getId());
+            return best.get(0);
+        }
     }
 }
@@ -2,10 +2,14 @@ package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementati
 
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.Validator;
-import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.NutritionUtil;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.ValidationUtil;
 
 import org.slf4j.Logger;
@@ -13,9 +17,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.IngredientSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.NutritionSearchParam;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePage;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePageRequest;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.RecipePersistence;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.RecipeService;
@@ -30,6 +38,11 @@ public class SimpleRecipeService implements RecipeService {
 	private final RecipePersistence recipePersistence;
 	private final Validator<Recipe> recipeValidator;
 	private final Validator<IngredientSearchParam> ingredientSearchParamValidator;
+	private final RecipeSearchIndex searchIndex = new RecipeSearchIndex();
+	private volatile boolean searchIndexBuilt;
+	private final NutritionIndex nutritionIndex = new NutritionIndex();
+	private volatile boolean nutritionIndexBuilt;
+	private final AtomicLong recipeVersion = new AtomicLong();
 
 	public SimpleRecipeService(RecipePersistence recipePersistence, Validator<Recipe> recipeValidator, Validator<IngredientSearchParam> ingredientSearchParamValidator) {
 		this.recipePersistence = recipePersistence;
@@ -49,6 +62,9 @@ public class SimpleRecipeService implements RecipeService {
 		} catch (PersistenceException e) {
 			throw new ServiceInvokationException(e.getMessage(), e);
 		}
+		recipeVersion.incrementAndGet();
+		updateSearchIndex(recipe.getId());
+		updateNutritionIndex(recipe.getId());
 	}
 
 	@Override
@@ -73,7 +89,6 @@ public class SimpleRecipeService implements RecipeService {
 	public Recipe get(int id) throws ServiceInvokationException {
 		try {
 			Recipe r = recipePersistence.get(id);
-			r = NutritionUtil.fillNutritionValues(r);
 
 			ServiceInvokationContext context = new ServiceInvokationContext();
 			if (!recipeValidator.validateForReading(r, context))
@@ -85,6 +100,22 @@ public class SimpleRecipeService implements RecipeService {
 		}
 	}
 
+	@Override
+	public List<Recipe> get(Collection<Integer> ids) throws ServiceInvokationException {
+		try {
+			List<Recipe> recipes = recipePersistence.get(ids);
+
+			ServiceInvokationContext context = new ServiceInvokationContext();
+			for (Recipe r : recipes)
+				if (!recipeValidator.validateForReading(r, context))
+					throw new ServiceInvokationException(context);
+
+			return recipes;
+		} catch (PersistenceException e) {
+			throw new ServiceInvokationException(e);
+		}
+	}
+
 	@Override
 	public void update(Recipe r) throws ServiceInvokationException {
 		ServiceInvokationContext context = new ServiceInvokationContext();
@@ -95,13 +126,15 @@ public class SimpleRecipeService implements RecipeService {
 		} catch (PersistenceException e) {
 			throw new ServiceInvokationException(e);
 		}
+		recipeVersion.incrementAndGet();
+		updateSearchIndex(r.getId());
+		updateNutritionIndex(r.getId());
 	}
 
 	@Override
 	public List<Recipe> getRecipes() throws ServiceInvokationException {
 		try {
 			List<Recipe> recipes = recipePersistence.getRecipes();
-			recipes.forEach(NutritionUtil::fillNutritionValues);
 
 			ServiceInvokationContext context = new ServiceInvokationContext();
 			for (Recipe r : recipes)
@@ -122,9 +155,10 @@ public class SimpleRecipeService implements RecipeService {
 			throw new ServiceInvokationException(context);
 		}
 
+		ensureSearchIndex();
 		try {
-			List<Recipe> recipes = recipePersistence.searchRecipes(searchParam);
-			recipes.forEach(NutritionUtil::fillNutritionValues);
+			List<Recipe> recipes = recipePersistence.get(searchIndex.search(searchParam).stream()
+					.map(RecipeSummary::getId).collect(Collectors.toList()));
 
 			context = new ServiceInvokationContext();
 			for (Recipe r : recipes)
@@ -138,6 +172,81 @@ public class SimpleRecipeService implements RecipeService {
 
 	}
 
+	@Override
+	public List<RecipeSummary> getRecipeSummaries() throws ServiceInvokationException {
+		try {
+			return recipePersistence.getRecipeSummaries();
+		} catch (PersistenceException e) {
+			throw new ServiceInvokationException(e);
+		}
+	}
+
+	@Override
+	public List<RecipeSummary> searchRecipeSummaries(RecipeSearchParam searchParam) throws ServiceInvokationException {
+		ServiceInvokationContext context = new ServiceInvokationContext();
+		if (ValidationUtil.validateRecipeSearchParam(searchParam, context) == false) {
+			throw new ServiceInvokationException(context);
+		}
+
+		ensureSearchIndex();
+		return searchIndex.search(searchParam);
+	}
+
+	@Override
+	public RecipePage searchRecipeSummaries(RecipeSearchParam searchParam, RecipePageRequest pageRequest)
+			throws ServiceInvokationException {
+		ServiceInvokationContext context = new ServiceInvokationContext();
+		ValidationUtil.validateRecipeSearchParam(searchParam, context);
+		if (ValidationUtil.validateRecipePageRequest(pageRequest, context) == false) {
+			throw new ServiceInvokationException(context);
+		}
+
+		if (searchIndexBuilt) {
+			return searchIndex.page(searchParam, pageRequest);
+		}
+		// pages do not wait for the index to be built, the database reads them by their keyset
+		try {
+			return recipePersistence.searchRecipeSummaries(searchParam, pageRequest);
+		} catch (PersistenceException e) {
+			throw new ServiceInvokationException(e);
+		}
+	}
+
+	@Override
+	public List<RecipeSummary> searchRecipesByNutrition(NutritionSearchParam searchParam)
+			throws ServiceInvokationException {
+		ServiceInvokationContext context = new ServiceInvokationContext();
+		if (ValidationUtil.validateNutritionSearchParam(searchParam, context) == false) {
+			throw new ServiceInvokationException(context);
+		}
+
+		ensureNutritionIndex();
+		return nutritionIndex.search(searchParam);
+	}
+
+	@Override
+	public long getRecipeVersion() {
+		return recipeVersion.get();
+	}
+
+	@Override
+	public int backfillThumbnails() throws ServiceInvokationException {
+		try {
+			return recipePersistence.backfillThumbnails();
+		} catch (PersistenceException e) {
+			throw new ServiceInvokationException(e);
+		}
+	}
+
+	@Override
+	public int backfillIngredientIndex() throws ServiceInvokationException {
+		try {
+			return recipePersistence.backfillIngredientIndex();
+		} catch (PersistenceException e) {
+			throw new ServiceInvokationException(e);
+		}
+	}
+
 	@Override
 	public void delete(int id) throws ServiceInvokationException {
 		try {
@@ -145,6 +254,100 @@ public class SimpleRecipeService implements RecipeService {
 		} catch (PersistenceException e) {
 			throw new ServiceInvokationException(e);
 		}
+		recipeVersion.incrementAndGet();
+		searchIndex.remove(id);
+		nutritionIndex.remove(id);
+	}
+
+	@Override
+	public int buildSearchIndex() throws ServiceInvokationException {
+		// holding the index while reading keeps concurrent updates from being overwritten by older data
+		synchronized (searchIndex) {
+			try {
+				List<RecipeSummary> summaries = recipePersistence.getRecipeSummaries();
+				Map<Integer, List<String>> ingredientNames = recipePersistence.getRecipeIngredientNames();
+
+				searchIndex.putAll(summaries, ingredientNames);
+				searchIndexBuilt = true;
+				LOG.debug("Built recipe search index with {} recipes", searchIndex.size());
+				synchronized (nutritionIndex) {
+					nutritionIndex.putAll(summaries);
+					nutritionIndexBuilt = true;
+				}
+				return searchIndex.size();
+			} catch (PersistenceException e) {
+				throw new ServiceInvokationException(e);
+			}
+		}
+	}
+
+	private void ensureSearchIndex() throws ServiceInvokationException {
+		if (!searchIndexBuilt) {
+			synchronized (searchIndex) {
+				if (!searchIndexBuilt) {
+					buildSearchIndex();
+				}
+			}
+		}
+	}
+
+	private void ensureNutritionIndex() throws ServiceInvokationException {
+		if (!nutritionIndexBuilt) {
+			synchronized (nutritionIndex) {
+				if (!nutritionIndexBuilt) {
+					// the nutrition index only needs the summaries, not the ingredient names of the search index
+					try {
+						nutritionIndex.putAll(recipePersistence.getRecipeSummaries());
+						nutritionIndexBuilt = true;
+						LOG.debug("Built recipe nutrition index with {} recipes", nutritionIndex.size());
+					} catch (PersistenceException e) {
+						throw new ServiceInvokationException(e);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Indexes the stored state of a created or updated recipe. The change is already persisted at this point, so a
+	 * failure only discards the index, which is then rebuilt on the next search.
+	 */
+	private void updateSearchIndex(Integer id) {
+		synchronized (searchIndex) {
+			if (!searchIndexBuilt || id == null) {
+				return;
+			}
+			try {
+				List<Integer> ids = Collections.singletonList(id);
+				Map<Integer, List<String>> ingredientNames = recipePersistence.getRecipeIngredientNames(ids);
+				for (RecipeSummary summary : recipePersistence.getRecipeSummaries(ids)) {
+					searchIndex.put(summary, ingredientNames.getOrDefault(id, Collections.emptyList()));
+				}
+			} catch (PersistenceException e) {
+				LOG.error("Failed to update recipe search index '{}'", e.getMessage(), e);
+				searchIndexBuilt = false;
+			}
+		}
+	}
+
+	/**
+	 * Like {@link #updateSearchIndex(Integer)} for the nutrition index.
+	 */
+	private void updateNutritionIndex(Integer id) {
+		synchronized (nutritionIndex) {
+			if (!nutritionIndexBuilt || id == null) {
+				return;
+			}
+			try {
+				nutritionIndex.remove(id);
+				for (RecipeSummary summary : recipePersistence.getRecipeSummaries(Collections.singletonList(id))) {
+					nutritionIndex.put(summary);
+				}
+			} catch (PersistenceException e) {
+				LOG.error("Failed to update recipe nutrition index '{}'", e.getMessage(), e);
+				nutritionIndexBuilt = false;
+			}
+		}
 	}
 
 }
\ No newline at end of file
@@ -1,17 +1,19 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
 
-import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.PopularRecipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.StatisticParam;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.StatisticPersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationContext;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationException;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.StatisticService;
-import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.NutritionUtil;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.ValidationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.lang.invoke.MethodHandles;
-import java.util.Map;
+import java.util.List;
 
 @Service
 public class SimpleStatisticService implements StatisticService {
@@ -23,12 +25,25 @@ public class SimpleStatisticService implements StatisticService {
     }
 
     @Override
-    public Map<Recipe, Integer> getMostPopularRecipes() throws ServiceInvokationException {
-        LOG.debug("Requested most popular recipes.");
+    public List<PopularRecipe> getMostPopularRecipes(StatisticParam statisticParam) throws ServiceInvokationException {
+        LOG.debug("Requested most popular recipes for {}.", statisticParam);
+        ServiceInvokationContext context = new ServiceInvokationContext();
+        if (ValidationUtil.validateStatisticParam(statisticParam, context) == false) {
+            throw new ServiceInvokationException(context);
+        }
+
+        try {
+            return statisticPersistence.getMostPopularRecipes(statisticParam);
+        } catch (PersistenceException e) {
+            throw new ServiceInvokationException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int rebuildStatistics() throws ServiceInvokationException {
+        LOG.debug("Requested rebuilding the statistics.");
         try {
-            Map<Recipe, Integer> map = statisticPersistence.getMostPopularRecipes();
-            map.forEach((key, value) -> NutritionUtil.fillNutritionValues(key));
-            return map;
+            return statisticPersistence.rebuildStatistics();
         } catch (PersistenceException e) {
             throw new ServiceInvokationException(e.getMessage(), e);
         }
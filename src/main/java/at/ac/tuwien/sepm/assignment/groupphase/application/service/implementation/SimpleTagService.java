@@ -0,0 +1,77 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Tag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.TagPersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.TagService;
+
+@Service
+public class SimpleTagService implements TagService {
+
+	private final TagPersistence tagPersistence;
+	// tags are never deleted, so the dictionary only misses tags created after it was read
+	private volatile List<Tag> tags;
+
+	public SimpleTagService(TagPersistence tagPersistence) {
+		this.tagPersistence = tagPersistence;
+	}
+
+	@Override
+	public List<Tag> getTags() throws ServiceInvokationException {
+		List<Tag> cached = tags;
+		return cached == null ? readTags() : cached;
+	}
+
+	@Override
+	public Tag getCustomTag(String name) throws ServiceInvokationException {
+		String tagName = Tag.normalizeName(name);
+		Tag tag = findCustomTag(getTags(), tagName);
+		return tag == null ? findCustomTag(readTags(), tagName) : tag;
+	}
+
+	@Override
+	public List<Tag> getCustomTags(long tagMask) throws ServiceInvokationException {
+		List<Tag> cached = getTags();
+		long known = 0;
+		for (Tag tag : cached) {
+			known |= tag.getMask();
+		}
+		if ((tagMask & ~known) != 0) {
+			cached = readTags();
+		}
+
+		List<Tag> customTags = new ArrayList<>();
+		for (Tag tag : cached) {
+			if (!tag.getMeal() && (tagMask & tag.getMask()) != 0) {
+				customTags.add(tag);
+			}
+		}
+		return customTags;
+	}
+
+	private List<Tag> readTags() throws ServiceInvokationException {
+		try {
+			List<Tag> read = Collections.unmodifiableList(tagPersistence.readAll());
+			tags = read;
+			return read;
+		} catch (PersistenceException e) {
+			throw new ServiceInvokationException(e.getMessage(), e);
+		}
+	}
+
+	private static Tag findCustomTag(List<Tag> tags, String name) {
+		for (Tag tag : tags) {
+			if (!tag.getMeal() && tag.getName().equals(name)) {
+				return tag;
+			}
+		}
+		return null;
+	}
+}
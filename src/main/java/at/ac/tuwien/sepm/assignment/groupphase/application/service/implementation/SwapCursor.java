@@ -0,0 +1,103 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+
+/**
+ * The candidates of the swaps of one meal of a day, best first, and the recipes already shown for the meal. Every swap
+ * moves on to the next candidate that was not shown yet, so swapping never returns to a recipe, and a swap does not
+ * rank the recipes again as long as there are candidates left.
+ * <p>
+ * The ranking is only kept for the day, the diet plan and the state of the recipes it was made for. It is extended by
+ * a longer ranking once all of its candidates were shown, the longer ranking has to start with the same candidates.
+ */
+final class SwapCursor {
+
+	private final LocalDate day;
+	private final DietPlan dietPlan;
+	private final long recipeVersion;
+	private final List<RecipeSummary> ranked = new ArrayList<>();
+	private final Set<Integer> shown = new HashSet<>();
+	private int position;
+	// whether the ranking contains every candidate of the meal
+	private boolean complete;
+
+	/**
+	 * @param day day of the meal
+	 * @param dietPlan diet plan the candidates are ranked for
+	 * @param recipeVersion version of the recipes the candidates are ranked of
+	 */
+	SwapCursor(LocalDate day, DietPlan dietPlan, long recipeVersion) {
+		this.day = day;
+		this.dietPlan = dietPlan;
+		this.recipeVersion = recipeVersion;
+	}
+
+	/**
+	 * @return whether the ranking is still valid for the day, the diet plan and the version of the recipes
+	 */
+	boolean isValidFor(LocalDate day, DietPlan dietPlan, long recipeVersion) {
+		return this.day.equals(day) && this.recipeVersion == recipeVersion
+				&& Objects.equals(this.dietPlan.getId(), dietPlan.getId())
+				&& Objects.equals(this.dietPlan.getEnergy_kcal(), dietPlan.getEnergy_kcal())
+				&& Objects.equals(this.dietPlan.getCarbohydrate(), dietPlan.getCarbohydrate())
+				&& Objects.equals(this.dietPlan.getProtein(), dietPlan.getProtein())
+				&& Objects.equals(this.dietPlan.getLipid(), dietPlan.getLipid());
+	}
+
+	/**
+	 * Remembers a recipe as shown, it is skipped by {@link #next()}.
+	 *
+	 * @param id id of the recipe
+	 */
+	void show(Integer id) {
+		shown.add(id);
+	}
+
+	/**
+	 * Moves to the next candidate which was not shown yet and remembers it as shown.
+	 *
+	 * @return the candidate, null if all ranked candidates were shown
+	 */
+	RecipeSummary next() {
+		while (position < ranked.size()) {
+			RecipeSummary candidate = ranked.get(position++);
+			if (shown.add(candidate.getId())) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return number of ranked candidates
+	 */
+	int size() {
+		return ranked.size();
+	}
+
+	/**
+	 * @return whether there are no candidates besides the ranked ones
+	 */
+	boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Replaces the ranking by a longer one.
+	 *
+	 * @param ranking the best candidates of the meal, best first, starting with the ranked ones
+	 * @param limit number of candidates that were requested, a shorter ranking contains every candidate
+	 */
+	void extend(List<RecipeSummary> ranking, int limit) {
+		ranked.addAll(ranking.subList(Math.min(ranked.size(), ranking.size()), ranking.size()));
+		complete = ranking.size() < limit;
+	}
+}
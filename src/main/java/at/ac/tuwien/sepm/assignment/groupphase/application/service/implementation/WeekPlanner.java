@@ -0,0 +1,252 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.NoOptimalSolutionException;
+
+/**
+ * Chooses the breakfasts, lunches and dinners of a week together, so that the calories and the shares of the macro
+ * nutrients of every day match a diet plan and recipes are repeated as seldom as possible. A week is an array of
+ * {@value #MEALS_PER_WEEK} positions of recipes in a {@link RecipeScoringKernel}, day by day in the order of
+ * {@link #MEALS}.
+ * <p>
+ * The week is found by simulated annealing: starting with random meals, one meal after the other is replaced by a
+ * random recipe of its meal tag, a worse week is accepted with a probability that falls while the time budget runs
+ * out. A replacement only changes one day and the use count of two recipes, so its cost is known in constant time,
+ * independent of the number of recipes. Several chains anneal in parallel on the common fork/join pool and the best
+ * week any of them found is the result.
+ */
+final class WeekPlanner {
+
+	static final RecipeTag[] MEALS = { RecipeTag.B, RecipeTag.L, RecipeTag.D };
+	static final int DAYS = 7;
+	static final int MEALS_PER_WEEK = DAYS * 3;
+
+	// weights of the deviations of a day, the calories matter most
+	private static final double WEIGHT_KCAL = 2.5;
+	private static final double WEIGHT_MACRO = 0.5;
+	// cost of every additional use of a recipe within the week
+	private static final double REPEAT_PENALTY = 0.3;
+
+	private static final double START_TEMPERATURE = 0.5;
+	private static final double END_TEMPERATURE = 0.0005;
+	// replacements tried before the clock is read again, and at least, however small the budget
+	private static final int CHECK_INTERVAL = 256;
+	private static final int MIN_ITERATIONS = 20000;
+
+	private final RecipeScoringKernel recipes;
+	private final double kcal;
+	private final double carbohydratePercent;
+	private final double proteinPercent;
+	private final double fatPercent;
+	// positions of the recipes of each meal whose nutrition is known, in the order of MEALS
+	private final int[][] candidates = new int[MEALS.length][];
+
+	/**
+	 * @param recipes recipes to choose from
+	 * @param dietPlan diet plan the days have to match
+	 * @throws NoOptimalSolutionException if there is no recipe for a meal
+	 */
+	WeekPlanner(RecipeScoringKernel recipes, DietPlan dietPlan) throws NoOptimalSolutionException {
+		this.recipes = recipes;
+		this.kcal = dietPlan.getEnergy_kcal();
+		this.carbohydratePercent = dietPlan.getCarbohydrate();
+		this.proteinPercent = dietPlan.getProtein();
+		this.fatPercent = dietPlan.getLipid();
+
+		for (int m = 0; m < MEALS.length; m++) {
+			int[] tagged = recipes.candidates(MEALS[m].getMask());
+			int count = 0;
+			for (int i : tagged) {
+				if (Double.isFinite(recipes.calories(i) + recipes.carbohydrates(i) + recipes.proteins(i)
+						+ recipes.fats(i))) {
+					tagged[count++] = i;
+				}
+			}
+			if (count == 0) {
+				throw new NoOptimalSolutionException("No recipes tagged for meal " + MEALS[m]
+						+ " found in the cookbook. Cannot generate recommendations.");
+			}
+			candidates[m] = Arrays.copyOf(tagged, count);
+		}
+	}
+
+	/**
+	 * Plans a week within a time budget. The budget is a target, every chain tries at least
+	 * {@value #MIN_ITERATIONS} replacements however small it is.
+	 *
+	 * @param budgetNanos time to search for
+	 * @param chains number of chains annealing in parallel
+	 * @param seed seed of the random numbers of the first chain, the other chains use the following seeds
+	 * @return positions of the recipes of the best week found
+	 */
+	int[] plan(long budgetNanos, int chains, long seed) {
+		long deadline = System.nanoTime() + budgetNanos;
+		List<Callable<Chain>> tasks = new ArrayList<>(chains);
+		for (int c = 0; c < chains; c++) {
+			Random random = new Random(seed + c);
+			tasks.add(() -> new Chain(random).anneal(deadline, budgetNanos));
+		}
+
+		int[] best = null;
+		double bestCost = Double.POSITIVE_INFINITY;
+		try {
+			for (Future<Chain> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+				// the running costs of the chains add up rounding errors, the weeks are compared exactly
+				int[] week = future.get().bestWeek;
+				double cost = cost(week);
+				if (best == null || cost < bestCost) {
+					best = week;
+					bestCost = cost;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Planning the week was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+		}
+		return best;
+	}
+
+	/**
+	 * @param week positions of the recipes of a week
+	 * @return cost of the week, the deviations of all days and the penalties of repeated recipes
+	 */
+	double cost(int[] week) {
+		double cost = 0;
+		for (int day = 0; day < DAYS; day++) {
+			double k = 0, c = 0, p = 0, f = 0;
+			for (int m = 0; m < MEALS.length; m++) {
+				int i = week[day * MEALS.length + m];
+				k += recipes.calories(i);
+				c += recipes.carbohydrates(i);
+				p += recipes.proteins(i);
+				f += recipes.fats(i);
+			}
+			cost += dayCost(k, c, p, f);
+		}
+		int[] sorted = week.clone();
+		Arrays.sort(sorted);
+		for (int i = 1; i < sorted.length; i++) {
+			if (sorted[i] == sorted[i - 1]) {
+				cost += REPEAT_PENALTY;
+			}
+		}
+		return cost;
+	}
+
+	private double dayCost(double k, double c, double p, double f) {
+		double total = c + p + f;
+		return WEIGHT_KCAL * Math.abs(k / kcal - 1) + WEIGHT_MACRO * (deviation(c, total, carbohydratePercent)
+				+ deviation(p, total, proteinPercent) + deviation(f, total, fatPercent));
+	}
+
+	private static double deviation(double grams, double total, double targetPercent) {
+		if (total <= 0) {
+			return 1;
+		}
+		double percent = grams / total * 100;
+		return targetPercent > 0 ? Math.abs(percent / targetPercent - 1) : percent / 100;
+	}
+
+	/**
+	 * One annealing run, used by a single thread.
+	 */
+	private final class Chain {
+		private final Random random;
+		private final int[] week = new int[MEALS_PER_WEEK];
+		// nutrition sums of every day: calories, carbohydrates, proteins and fats
+		private final double[][] days = new double[DAYS][4];
+		private final double[] dayCosts = new double[DAYS];
+		// uses of every recipe in the week, by position
+		private final int[] uses;
+
+		private double cost;
+		private double bestCost;
+		private int[] bestWeek;
+
+		Chain(Random random) {
+			this.random = random;
+			this.uses = new int[recipes.size()];
+		}
+
+		Chain anneal(long deadline, long budgetNanos) {
+			for (int slot = 0; slot < MEALS_PER_WEEK; slot++) {
+				int[] meal = candidates[slot % MEALS.length];
+				week[slot] = meal[random.nextInt(meal.length)];
+				add(slot / MEALS.length, week[slot], 1);
+				cost += uses[week[slot]]++ > 0 ? REPEAT_PENALTY : 0;
+			}
+			for (int day = 0; day < DAYS; day++) {
+				dayCosts[day] = dayCost(days[day][0], days[day][1], days[day][2], days[day][3]);
+				cost += dayCosts[day];
+			}
+			bestCost = cost;
+			bestWeek = week.clone();
+
+			double temperature = START_TEMPERATURE;
+			double logCooling = Math.log(END_TEMPERATURE / START_TEMPERATURE);
+			for (long iteration = 0;; iteration++) {
+				if (iteration % CHECK_INTERVAL == 0) {
+					long left = deadline - System.nanoTime();
+					if (left <= 0 && iteration >= MIN_ITERATIONS) {
+						return this;
+					}
+					double elapsed = budgetNanos <= 0 ? 1 : Math.min(1, 1 - (double) left / budgetNanos);
+					temperature = START_TEMPERATURE * Math.exp(logCooling * Math.max(0, elapsed));
+				}
+				step(temperature);
+			}
+		}
+
+		private void step(double temperature) {
+			int slot = random.nextInt(MEALS_PER_WEEK);
+			int[] meal = candidates[slot % MEALS.length];
+			int replacement = meal[random.nextInt(meal.length)];
+			int current = week[slot];
+			if (replacement == current) {
+				return;
+			}
+
+			int day = slot / MEALS.length;
+			double[] sums = days[day];
+			double newDayCost = dayCost(sums[0] - recipes.calories(current) + recipes.calories(replacement),
+					sums[1] - recipes.carbohydrates(current) + recipes.carbohydrates(replacement),
+					sums[2] - recipes.proteins(current) + recipes.proteins(replacement),
+					sums[3] - recipes.fats(current) + recipes.fats(replacement));
+			double delta = newDayCost - dayCosts[day] - (uses[current] > 1 ? REPEAT_PENALTY : 0)
+					+ (uses[replacement] > 0 ? REPEAT_PENALTY : 0);
+
+			if (delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
+				add(day, current, -1);
+				add(day, replacement, 1);
+				uses[current]--;
+				uses[replacement]++;
+				week[slot] = replacement;
+				dayCosts[day] = newDayCost;
+				cost += delta;
+				if (cost < bestCost) {
+					bestCost = cost;
+					bestWeek = week.clone();
+				}
+			}
+		}
+
+		private void add(int day, int recipe, int sign) {
+			days[day][0] += sign * recipes.calories(recipe);
+			days[day][1] += sign * recipes.carbohydrates(recipe);
+			days[day][2] += sign * recipes.proteins(recipe);
+			days[day][3] += sign * recipes.fats(recipe);
+		}
+	}
+}
@@ -8,6 +8,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 
+import javafx.concurrent.Task;
+import javafx.scene.control.Tooltip;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import org.slf4j.Logger;
@@ -16,10 +18,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlanPreview;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.NoEntryFoundException;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.DietPlanService;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.MealRecommendationsService;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.NotificationService;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.ConnectionScope;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.JDBCConnectionManager;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.SpringFXMLLoader;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.UserInterfaceUtility;
 import javafx.fxml.FXML;
@@ -53,13 +61,16 @@ public class ChoosePlanController {
     private AnchorPane dietPlanPane3;
 
     private DietPlanService dietPlanService;
+    private MealRecommendationsService mealRecommendationsService;
     private NotificationService notificationService;
 
     private List<DietPlan> dietPlans;
     private DietPlan customDietPlan;
 
-    public ChoosePlanController(DietPlanService dietPlanService, NotificationService notificationService) {
+    public ChoosePlanController(DietPlanService dietPlanService, MealRecommendationsService mealRecommendationsService,
+                                NotificationService notificationService) {
         this.dietPlanService = dietPlanService;
+        this.mealRecommendationsService = mealRecommendationsService;
         this.notificationService = notificationService;
     }
 
@@ -112,6 +123,56 @@ public class ChoosePlanController {
         } catch (Exception e) {
             UserInterfaceUtility.handleFault(e);
         }
+
+        loadPreviews();
+    }
+
+    /**
+     * Calculates a sample day of every diet plan in the background and shows it as tooltip of the plan once done.
+     * The plans stay selectable meanwhile.
+     */
+    private void loadPreviews() {
+        Task<List<DietPlanPreview>> previewTask = new Task<>() {
+            @Override
+            @SuppressWarnings("try")
+            protected List<DietPlanPreview> call() throws Exception {
+                try (ConnectionScope scope = JDBCConnectionManager.openConnectionScope()) {
+                    return mealRecommendationsService.previewDietPlans();
+                }
+            }
+        };
+        previewTask.setOnSucceeded(event -> showPreviews(previewTask.getValue()));
+        // a missing preview does not keep anybody from choosing a plan
+        previewTask.setOnFailed(event -> LOG.warn("Could not calculate the previews of the diet plans",
+            previewTask.getException()));
+
+        Thread thread = new Thread(previewTask, "diet-plan-previews");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void showPreviews(List<DietPlanPreview> previews) {
+        List<AnchorPane> dietPlanPanes = Arrays.asList(dietPlanPane1, dietPlanPane2, dietPlanPane3);
+        for (int i = 0; i < dietPlans.size() && i < dietPlanPanes.size(); i++) {
+            DietPlan dp = dietPlans.get(i);
+            for (DietPlanPreview preview : previews) {
+                if (preview.getDietPlan().getId().equals(dp.getId())) {
+                    Tooltip.install(dietPlanPanes.get(i), new Tooltip(previewText(preview)));
+                }
+            }
+        }
+    }
+
+    private static String previewText(DietPlanPreview preview) {
+        StringBuilder text = new StringBuilder("A day with this plan could be:");
+        String[] mealNames = {"Breakfast", "Lunch", "Dinner"};
+        RecipeTag[] meals = {RecipeTag.B, RecipeTag.L, RecipeTag.D};
+        for (int i = 0; i < meals.length; i++) {
+            RecipeSummary meal = preview.getMeals().get(meals[i]);
+            text.append(System.lineSeparator()).append(mealNames[i]).append(": ").append(meal.getName());
+        }
+        text.append(System.lineSeparator()).append((int) Math.ceil(preview.getCalories())).append(" kcal in total");
+        return text.toString();
     }
 
     public void onDietPlanClicked(MouseEvent mouseEvent) {
@@ -5,9 +5,12 @@ import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeImage;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Tag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.ThumbnailSize;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.NotificationService;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.RecipeService;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.TagService;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.ImageUtil;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.JDBCConnectionManager;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.UserInterfaceUtility;
@@ -51,6 +54,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import javax.imageio.ImageIO;
 import javax.sql.rowset.serial.SerialException;
@@ -61,6 +65,8 @@ import static at.ac.tuwien.sepm.assignment.groupphase.application.util.implement
 public class RecipeController implements Initializable, ExternalController<Recipe> {
 	private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+	private static final String TAG_SEPARATOR = ",";
+
 	@FXML
 	Label headerLabel;
 
@@ -97,6 +103,9 @@ public class RecipeController implements Initializable, ExternalController<Recip
 	@FXML
 	CheckBox dinnerCheckBox;
 
+	@FXML
+	TextField customTagsTextField;
+
 	@FXML
 	AnchorPane searchIngredientAnchorPane;
 
@@ -148,13 +157,16 @@ public class RecipeController implements Initializable, ExternalController<Recip
 	private Button removePicturesButton;
 
 	private RecipeService recipeService;
+	private TagService tagService;
 	private NotificationService notificationService;
 	private Recipe r;
 	private boolean isInEditMode = false;
 	private List<RecipeIngredient> ingredients;
 
-	public RecipeController(RecipeService recipeService, NotificationService notificationService) {
+	public RecipeController(RecipeService recipeService, TagService tagService,
+			NotificationService notificationService) {
 		this.recipeService = recipeService;
+		this.tagService = tagService;
 		this.notificationService = notificationService;
 	}
 
@@ -174,7 +186,13 @@ public class RecipeController implements Initializable, ExternalController<Recip
 		ImageView imageView = new ImageView();
 
 		if (r.getRecipeImages().size() > pageIndex) {
-			BufferedImage bufferedImage = r.getRecipeImages().get(pageIndex).getImage();
+			BufferedImage bufferedImage;
+			try {
+				bufferedImage = r.getRecipeImages().get(pageIndex).getThumbnail(ThumbnailSize.DETAIL);
+			} catch (IOException e) {
+				UserInterfaceUtility.handleFault(e);
+				return new VBox();
+			}
 
 			Image image = SwingFXUtils.toFXImage(bufferedImage, null);
 			imageView.setImage(image);
@@ -218,12 +236,10 @@ public class RecipeController implements Initializable, ExternalController<Recip
 
 			try {
 				for (File p : pictures) {
-					this.r.getRecipeImages().add(new RecipeImage(ImageIO.read(p), ImageUtil.getImageType(p)));
+					this.r.getRecipeImages().add(ImageUtil.readImage(p));
 				}
 			} catch (ServiceInvokationException ex) {
 				UserInterfaceUtility.handleFaults(ex);
-			} catch (IOException ex) {
-				UserInterfaceUtility.handleFault(ex);
 			}
 
 			picturePagination.setPageCount(this.r.getRecipeImages().size() + 1);
@@ -294,6 +310,13 @@ public class RecipeController implements Initializable, ExternalController<Recip
 				lunchCheckBox.setSelected(true);
 			if (r.getTags().contains(RecipeTag.D))
 				dinnerCheckBox.setSelected(true);
+
+			try {
+				customTagsTextField.setText(tagService.getCustomTags(r.getCustomTagMask()).stream().map(Tag::getName)
+						.collect(Collectors.joining(TAG_SEPARATOR + " ")));
+			} catch (ServiceInvokationException e) {
+				UserInterfaceUtility.handleFaults(e);
+			}
 		} else {
 			isInEditMode = false;
 			r = new Recipe();
@@ -398,6 +421,8 @@ public class RecipeController implements Initializable, ExternalController<Recip
 		r.setTags(tags);
 
 		try {
+			r.setCustomTagNames(Arrays.asList(customTagsTextField.getText().split(TAG_SEPARATOR)));
+
 			if (isInEditMode) {
 				recipeService.update(r);
 			} else {
@@ -1,5 +1,6 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.ui;
 
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.List;
@@ -15,6 +16,7 @@ import org.springframework.stereotype.Controller;
 
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.ThumbnailSize;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.NoEntryFoundException;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.MealRecommendationsService;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.NoOptimalSolutionException;
@@ -134,6 +136,11 @@ public class TabPlansController implements Notifiable {
 		this.dinnerProteinsLabel.setText(null);
 		this.dinnerFatsLabel.setText(null);
 
+		// a changed plan or changed recipes give new candidates to swap to
+		this.breakfastSwapButton.setDisable(false);
+		this.lunchSwapButton.setDisable(false);
+		this.dinnerSwapButton.setDisable(false);
+
 		try {
 			for (Entry<RecipeTag, Recipe> entry : this.mealRecommendationsService.getRecommendedMeals(force).entrySet()) {
 				if (RecipeTag.B.equals(entry.getKey())) {
@@ -166,7 +173,14 @@ public class TabPlansController implements Notifiable {
 		fats.setText((int) Math.ceil(recipe.getFats()) + "g Fats");
 
 		if (recipe.getRecipeImages().size() > 0) {
-			Image image = SwingFXUtils.toFXImage(recipe.getRecipeImages().get(0).getImage(), null);
+			Image image;
+			try {
+				image = SwingFXUtils.toFXImage(recipe.getRecipeImages().get(0).getThumbnail(ThumbnailSize.CARD), null);
+			} catch (IOException e) {
+				imageView.setImage(null);
+				UserInterfaceUtility.handleFault(e);
+				return;
+			}
             imageView.setImage(image);
 			imageView.setPreserveRatio(true);
             double scaledHeight = imageView.getFitHeight() * image.getWidth() / imageView.getFitWidth();
@@ -224,7 +238,7 @@ public class TabPlansController implements Notifiable {
                 UserInterfaceUtility.handleFaults(e);
             } catch (NoOptimalSolutionException e) {
                 LOG.warn("No additional recipes found for lunch: {}", e.getMessage());
-                breakfastSwapButton.setDisable(true);
+                lunchSwapButton.setDisable(true);
             }
 
         } else if (source.equals(dinnerSwapButton)) {
@@ -236,7 +250,7 @@ public class TabPlansController implements Notifiable {
                 UserInterfaceUtility.handleFaults(e);
             } catch (NoOptimalSolutionException e) {
                 LOG.warn("No additional recipes found for dinner: {}", e.getMessage());
-                breakfastSwapButton.setDisable(true);
+                dinnerSwapButton.setDisable(true);
             }
         }
 
@@ -4,7 +4,6 @@ import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -16,14 +15,21 @@ import org.springframework.stereotype.Controller;
 
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.IngredientSearchWord;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePage;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePageRequest;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSortKey;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSearchParam;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Tag;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.Notifiable;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.NotificationService;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.RecipeService;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.TagService;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.SpringFXMLLoader;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.UserInterfaceUtility;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.collections.FXCollections;
@@ -57,7 +63,14 @@ import javax.swing.event.ChangeListener;
 public class TabRecipesController implements Notifiable {
 	private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+	private static final String EXCLUDE_INGREDIENT_PREFIX = "-";
+	private static final String CUSTOM_TAG_PREFIX = "#";
+	private static final int PAGE_SIZE = 100;
+	// the next page is loaded once a row this close to the end of the loaded recipes is shown
+	private static final int PAGE_PREFETCH_ROWS = 20;
+
 	private RecipeService recipeService;
+	private TagService tagService;
 	private NotificationService notificationService;
 
     @Autowired
@@ -70,25 +83,25 @@ public class TabRecipesController implements Notifiable {
 	Button searchRecipesButton;
 
 	@FXML
-	TableView<Recipe> recipeTableView;
+	TableView<RecipeSummary> recipeTableView;
 
 	@FXML
-	TableColumn<Recipe, String> nameTableColumn;
+	TableColumn<RecipeSummary, String> nameTableColumn;
 
 	@FXML
-	TableColumn<Recipe, Integer> caloriesTableColumn;
+	TableColumn<RecipeSummary, Integer> caloriesTableColumn;
 
 	@FXML
-	TableColumn<Recipe, Integer> carbohydratesTableColumn;
+	TableColumn<RecipeSummary, Integer> carbohydratesTableColumn;
 
 	@FXML
-	TableColumn<Recipe, Integer> proteinsTableColumn;
+	TableColumn<RecipeSummary, Integer> proteinsTableColumn;
 
 	@FXML
-	TableColumn<Recipe, Integer> fatsTableColumn;
+	TableColumn<RecipeSummary, Integer> fatsTableColumn;
 
 	@FXML
-	TableColumn<Recipe, Integer> preparationTimeTableColumn;
+	TableColumn<RecipeSummary, Integer> preparationTimeTableColumn;
 
 	@FXML
 	Slider lowerLimit;
@@ -135,12 +148,17 @@ public class TabRecipesController implements Notifiable {
 	AnchorPane anchorPane;
 
 	@FXML
-	private ObservableList<Recipe> recipeObservableList = FXCollections.observableArrayList();
+	private ObservableList<RecipeSummary> recipeObservableList = FXCollections.observableArrayList();
 
 	private RecipeSearchParam param = new RecipeSearchParam();
+	private RecipePageRequest pageRequest = new RecipePageRequest(RecipeSortKey.NAME, false, PAGE_SIZE, null);
+	private RecipePage lastPage;
+	private boolean nextPageRequested;
 
-	public TabRecipesController(RecipeService recipeService, NotificationService notificationService) {
+	public TabRecipesController(RecipeService recipeService, TagService tagService,
+			NotificationService notificationService) {
 		this.recipeService = recipeService;
+		this.tagService = tagService;
 		this.notificationService = notificationService;
 	}
 
@@ -161,7 +179,7 @@ public class TabRecipesController implements Notifiable {
             (x -> new SimpleIntegerProperty((int) Math.floor(x.getValue().getDuration())).asObject()));
 
 		recipeTableView.setRowFactory(tableView -> {
-			final TableRow<Recipe> row = new TableRow<>();
+			final TableRow<RecipeSummary> row = new TableRow<>();
 
 			final ContextMenu recipeContextMenu = new ContextMenu();
 			final MenuItem editMenuItem = new MenuItem("Show and edit");
@@ -180,9 +198,26 @@ public class TabRecipesController implements Notifiable {
                     onEditRecipeClicked(row.getItem());
             });
 
+			// rows are reused while scrolling, their index tells how far the user scrolled
+			row.indexProperty().addListener((observable, oldIndex, index) -> {
+				if (index.intValue() >= recipeObservableList.size() - PAGE_PREFETCH_ROWS) {
+					requestNextPage();
+				}
+			});
+
             return row;
 		});
 
+		// the recipes are sorted when they are read, only the columns the search can sort by are sortable
+		carbohydratesTableColumn.setSortable(false);
+		proteinsTableColumn.setSortable(false);
+		fatsTableColumn.setSortable(false);
+		recipeTableView.setSortPolicy(tableView -> {
+			onSortOrderChanged();
+			return true;
+		});
+		recipeTableView.setItems(recipeObservableList);
+
         notificationService.subscribeTo(RecipeController.class, this);
 
 		updateRecipeTableView();
@@ -218,6 +253,7 @@ public class TabRecipesController implements Notifiable {
 				LOG.info("Triggered Removal of ingredient tag '{}'", word.getIngredientTag());
 				ingredientTagSet.remove(word.getIngredientTag());
 		        ingredientWordsView.getItems().remove(word);
+		        onSearchCriteriaChanged();
 			}
         });
 
@@ -237,6 +273,33 @@ public class TabRecipesController implements Notifiable {
 		upperLimitLabel.setText("24 hours");
 
 		this.paneSearch.setVisible(false);
+
+		recipeTitle.textProperty().addListener((observable, oldValue, newValue) -> onSearchCriteriaChanged());
+		lowerLimit.valueProperty().addListener((observable, oldValue, newValue) -> {
+			// while dragging, only the final value is searched
+			if (!lowerLimit.isValueChanging()) {
+				onSearchCriteriaChanged();
+			}
+		});
+		lowerLimit.valueChangingProperty().addListener((observable, oldValue, changing) -> {
+			if (!changing) {
+				onSearchCriteriaChanged();
+			}
+		});
+		upperLimit.valueProperty().addListener((observable, oldValue, newValue) -> {
+			// while dragging, only the final value is searched
+			if (!upperLimit.isValueChanging()) {
+				onSearchCriteriaChanged();
+			}
+		});
+		upperLimit.valueChangingProperty().addListener((observable, oldValue, changing) -> {
+			if (!changing) {
+				onSearchCriteriaChanged();
+			}
+		});
+		for (ToggleButton tag : new ToggleButton[] { tag_b, tag_l, tag_d }) {
+			tag.selectedProperty().addListener((observable, oldValue, newValue) -> onSearchCriteriaChanged());
+		}
 		recipeTableView.setPlaceholder(new Label("No recipes were found matching your search criteria."));
 		ingredientWordsView.setPlaceholder(new Label(""));
 
@@ -244,7 +307,7 @@ public class TabRecipesController implements Notifiable {
 
 	}
 
-	private void onDeleteRecipeClicked(Recipe recipe) {
+	private void onDeleteRecipeClicked(RecipeSummary recipe) {
 		LOG.info("Delete recipe button clicked");
 
 		Alert alert = new Alert(AlertType.CONFIRMATION);
@@ -272,8 +335,21 @@ public class TabRecipesController implements Notifiable {
         updateRecipeTableView();
     }
 
-	private void onEditRecipeClicked(Recipe recipe) {
+	private void onEditRecipeClicked(RecipeSummary summary) {
 		LOG.info("Edit recipe button clicked");
+
+		// the table only holds summaries, the complete recipe is loaded for the detail window
+		Recipe recipe;
+		try {
+			recipe = recipeService.get(summary.getId());
+		} catch (ServiceInvokationException e) {
+			UserInterfaceUtility.handleFaults(e);
+			return;
+		} catch (Exception e) {
+			UserInterfaceUtility.handleFault(e);
+			return;
+		}
+
 		UserInterfaceUtility.loadExternalController("/fxml/RecipeDetails.fxml", "Edit Recipe", recipe, addRecipeButton.getScene().getWindow(), RecipeController.class, fxmlLoader);
 		updateRecipeTableView();
 	}
@@ -297,7 +373,16 @@ public class TabRecipesController implements Notifiable {
             togglePaneSearch();
         }
 
-		param = new RecipeSearchParam();
+		param = readSearchParam();
+		LOG.info("Prepared new search param:\r\n{}", param.toString());
+
+		updateRecipeTableView();
+
+
+	}
+
+	private RecipeSearchParam readSearchParam() {
+		RecipeSearchParam param = new RecipeSearchParam();
 		param.setLowerDurationInkl(getSliderValue(lowerLimit));
 		param.setUpperDurationInkl(getSliderValue(upperLimit));
 		param.setRecipeName(this.recipeTitle.getText());
@@ -312,13 +397,49 @@ public class TabRecipesController implements Notifiable {
 			tags.add(RecipeTag.D);
 		}
 		param.setTags(tags);
-		for (String ingredient : this.ingredientTagSet)
-			param.addIngredient(ingredient);
-		LOG.info("Prepared new search param:\r\n{}", param.toString());
-
-		updateRecipeTableView();
+		for (String ingredient : this.ingredientTagSet) {
+			// "-nuts" searches for recipes without nuts, "#vegan" for recipes tagged as vegan
+			if (ingredient.startsWith(CUSTOM_TAG_PREFIX)) {
+				Tag tag = findCustomTag(ingredient.substring(CUSTOM_TAG_PREFIX.length()));
+				if (tag != null) {
+					param.addCustomTag(tag);
+				}
+			} else if (ingredient.startsWith(EXCLUDE_INGREDIENT_PREFIX)) {
+				param.addExcludedIngredient(ingredient.substring(EXCLUDE_INGREDIENT_PREFIX.length()));
+			} else {
+				param.addIngredient(ingredient);
+			}
+		}
+		return param;
+	}
 
+	/**
+	 * @param name name of a custom tag, case-insensitive
+	 * @return the custom tag with the name or null if there is none
+	 */
+	private Tag findCustomTag(String name) {
+		try {
+			return tagService.getCustomTag(name);
+		} catch (ServiceInvokationException e) {
+			UserInterfaceUtility.handleFaults(e);
+		}
+		return null;
+	}
 
+	/**
+	 * Searches again with the current criteria, the search index answers fast enough to do so on every change.
+	 */
+	private void onSearchCriteriaChanged() {
+		if (!this.paneSearch.isVisible()) {
+			return;
+		}
+		RecipeSearchParam changed = readSearchParam();
+		if (changed.getLowerDurationInkl() > changed.getUpperDurationInkl()) {
+			// the user is still moving the limits, the search button reports the invalid range
+			return;
+		}
+		param = changed;
+		updateRecipeTableView();
 	}
 
 	private void togglePaneSearch() {
@@ -334,18 +455,18 @@ public class TabRecipesController implements Notifiable {
 		return slider.getValue() < 120 ? (int) slider.getValue() : (Math.floor(slider.getValue()) - 118) * 60;
 	}
 
-	private List<Recipe> searchRecipes(RecipeSearchParam param) {
-		List<Recipe> searchResult = new ArrayList<>();
-		LOG.info("Now searching for recipes matching param:\r\n{}", param.toString());
+	private RecipePage searchRecipes(RecipeSearchParam param, RecipePageRequest pageRequest) {
+		RecipePage page = new RecipePage(new ArrayList<>(), null);
+		LOG.info("Now searching for recipes matching param:\r\n{}\r\n{}", param.toString(), pageRequest);
 		try {
-			searchResult = recipeService.searchRecipes(param);
+			page = recipeService.searchRecipeSummaries(param, pageRequest);
 		} catch (ServiceInvokationException e) {
 			UserInterfaceUtility.handleFaults(e);
 		} catch (Exception e) {
 			UserInterfaceUtility.handleFault(e);
 		}
-		LOG.info("Found {} recipes matching the criteria", searchResult.size());
-		return searchResult;
+		LOG.info("Found {} recipes matching the criteria", page.getSummaries().size());
+		return page;
 	}
 
 
@@ -353,22 +474,66 @@ public class TabRecipesController implements Notifiable {
 		if (e.getCode() == KeyCode.ENTER) {
 			String inputTag = addIngredient.getText().trim();
 			LOG.info("Triggered add ingredient search word for '{}'.", inputTag);
-			if (ingredientTagSet.contains(inputTag) == false) {
+			if (inputTag.startsWith(CUSTOM_TAG_PREFIX)
+					&& findCustomTag(inputTag.substring(CUSTOM_TAG_PREFIX.length())) == null) {
+				Alert alert = new Alert(AlertType.WARNING, "There is no recipe tagged with " + inputTag + ".");
+				alert.setHeaderText("Unknown tag");
+				alert.showAndWait();
+			} else if (ingredientTagSet.contains(inputTag) == false) {
 				ingredientTagSet.add(inputTag);
 				ingredientWordsView.getItems().add(new IngredientSearchWord(inputTag));
+				onSearchCriteriaChanged();
 			}
 	        addIngredient.setText("");
 		}
 	}
 
+	/**
+	 * Replaces the recipes of the table view with the first page of the current search.
+	 */
 	private void updateRecipeTableView() {
-		recipeObservableList.clear();
-		// do not use getRecipes here anymore ... use search instead
-		List<Recipe> searchRecipes = searchRecipes(param);
+		pageRequest = new RecipePageRequest(pageRequest.getSortKey(), pageRequest.isDescending(), PAGE_SIZE, null);
+		lastPage = searchRecipes(param, pageRequest);
 		LOG.info("Refreshing the recipes table view with the found recipes.");
-		recipeObservableList.addAll(searchRecipes);
-		recipeTableView.setItems(recipeObservableList);
-		recipeTableView.sort();
+		recipeObservableList.setAll(lastPage.getSummaries());
+		recipeTableView.scrollTo(0);
+	}
+
+	/**
+	 * Appends the next page of the current search to the table view, once the current layout pass is done.
+	 */
+	private void requestNextPage() {
+		if (nextPageRequested || lastPage == null || !lastPage.hasNext()) {
+			return;
+		}
+		nextPageRequested = true;
+		Platform.runLater(() -> {
+			nextPageRequested = false;
+			if (lastPage.hasNext()) {
+				pageRequest = pageRequest.next(lastPage);
+				lastPage = searchRecipes(param, pageRequest);
+				recipeObservableList.addAll(lastPage.getSummaries());
+			}
+		});
+	}
+
+	/**
+	 * Reads the recipes again in the order of the first sorted column, unsorted columns list them by name.
+	 */
+	private void onSortOrderChanged() {
+		RecipeSortKey sortKey = RecipeSortKey.NAME;
+		boolean descending = false;
+		if (!recipeTableView.getSortOrder().isEmpty()) {
+			TableColumn<RecipeSummary, ?> column = recipeTableView.getSortOrder().get(0);
+			sortKey = column == caloriesTableColumn ? RecipeSortKey.CALORIES
+					: column == preparationTimeTableColumn ? RecipeSortKey.DURATION : RecipeSortKey.NAME;
+			descending = column.getSortType() == TableColumn.SortType.DESCENDING;
+		}
+
+		if (sortKey != pageRequest.getSortKey() || descending != pageRequest.isDescending()) {
+			pageRequest = new RecipePageRequest(sortKey, descending, PAGE_SIZE, null);
+			updateRecipeTableView();
+		}
 	}
 }
 
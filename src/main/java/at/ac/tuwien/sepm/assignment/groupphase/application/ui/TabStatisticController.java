@@ -1,23 +1,32 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.ui;
 
-import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.PopularRecipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.StatisticParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.StatisticPeriod;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.DietPlanService;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.Notifiable;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.NotificationService;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationException;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.StatisticService;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.UserInterfaceUtility;
+import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.chart.CategoryAxis;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.StackedBarChart;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Tooltip;
 import javafx.scene.text.Font;
+import javafx.util.StringConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Controller;
 
 import java.lang.invoke.MethodHandles;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 @Controller
 public class TabStatisticController implements Notifiable {
@@ -32,11 +41,25 @@ public class TabStatisticController implements Notifiable {
     @FXML
     private NumberAxis quantityAxis;
 
+    @FXML
+    private ChoiceBox<StatisticPeriod> periodChoiceBox;
+
+    @FXML
+    private ChoiceBox<RecipeTag> mealChoiceBox;
+
+    @FXML
+    private ChoiceBox<DietPlan> dietPlanChoiceBox;
+
     private StatisticService statisticService;
+    private DietPlanService dietPlanService;
     private NotificationService notificationService;
+    // keeps the selection listeners from querying the chart while the diet plans are replaced
+    private boolean updatingDietPlans;
 
-    public TabStatisticController(StatisticService statisticService, NotificationService notificationService) {
+    public TabStatisticController(StatisticService statisticService, DietPlanService dietPlanService,
+                                  NotificationService notificationService) {
         this.statisticService = statisticService;
+        this.dietPlanService = dietPlanService;
         this.notificationService = notificationService;
     }
 
@@ -49,31 +72,119 @@ public class TabStatisticController implements Notifiable {
         quantityAxis.setTickUnit(1);
         quantityAxis.setMinorTickVisible(false);
         recipesAxis.setTickLabelFont(Font.font(15));
+
+        periodChoiceBox.setItems(FXCollections.observableArrayList(StatisticPeriod.values()));
+        periodChoiceBox.getSelectionModel().select(StatisticPeriod.ALL_TIME);
+        // null stands for all meals and all diet plans
+        mealChoiceBox.setItems(FXCollections.observableArrayList(null, RecipeTag.B, RecipeTag.L, RecipeTag.D));
+        mealChoiceBox.setConverter(new StringConverter<RecipeTag>() {
+            @Override
+            public String toString(RecipeTag tag) {
+                return tag == null ? "All meals" : tag == RecipeTag.B ? "Breakfast" : tag == RecipeTag.L ? "Lunch" : "Dinner";
+            }
+
+            @Override
+            public RecipeTag fromString(String string) {
+                return mealChoiceBox.getSelectionModel().getSelectedItem();
+            }
+        });
+        mealChoiceBox.getSelectionModel().selectFirst();
+        dietPlanChoiceBox.setConverter(new StringConverter<DietPlan>() {
+            @Override
+            public String toString(DietPlan dietPlan) {
+                return dietPlan == null ? "All diet plans" : dietPlan.getName();
+            }
+
+            @Override
+            public DietPlan fromString(String string) {
+                return dietPlanChoiceBox.getSelectionModel().getSelectedItem();
+            }
+        });
+        updateDietPlans();
+
+        periodChoiceBox.getSelectionModel().selectedItemProperty().addListener((options, oldValue, newValue) -> updateBarChart());
+        mealChoiceBox.getSelectionModel().selectedItemProperty().addListener((options, oldValue, newValue) -> updateBarChart());
+        dietPlanChoiceBox.getSelectionModel().selectedItemProperty().addListener((options, oldValue, newValue) -> {
+            if (!updatingDietPlans)
+                updateBarChart();
+        });
         updateBarChart();
     }
 
     @Override
     public void onNotify(Class notifier) {
+        updateDietPlans();
         updateBarChart();
     }
 
+    /**
+     * Replaces the diet plans of the choice box if they changed. The chart is not updated meanwhile, the caller
+     * updates it once afterwards.
+     */
+    private void updateDietPlans() {
+        DietPlan selected = dietPlanChoiceBox.getSelectionModel().getSelectedItem();
+        try {
+            List<DietPlan> dietPlans = new ArrayList<>();
+            dietPlans.add(null);
+            dietPlans.addAll(dietPlanService.readAll());
+            if (sameDietPlans(dietPlans, dietPlanChoiceBox.getItems()))
+                return;
+
+            updatingDietPlans = true;
+            try {
+                dietPlanChoiceBox.setItems(FXCollections.observableArrayList(dietPlans));
+                dietPlanChoiceBox.getSelectionModel().selectFirst();
+                if (selected != null)
+                    dietPlans.stream().filter(d -> d != null && d.getId().equals(selected.getId())).findFirst()
+                        .ifPresent(d -> dietPlanChoiceBox.getSelectionModel().select(d));
+            } finally {
+                updatingDietPlans = false;
+            }
+        } catch (ServiceInvokationException e) {
+            UserInterfaceUtility.handleFaults(e);
+        }
+    }
+
+    private static boolean sameDietPlans(List<DietPlan> dietPlans, List<DietPlan> shown) {
+        if (shown == null || dietPlans.size() != shown.size())
+            return false;
+        for (int i = 0; i < dietPlans.size(); i++) {
+            DietPlan d = dietPlans.get(i), s = shown.get(i);
+            if (d == null || s == null) {
+                if (d != s)
+                    return false;
+            } else if (!d.getId().equals(s.getId()) || !d.getName().equals(s.getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private StatisticParam getStatisticParam() {
+        StatisticParam statisticParam = new StatisticParam();
+        if (periodChoiceBox.getValue() != null)
+            statisticParam.setPeriod(periodChoiceBox.getValue());
+        statisticParam.setTag(mealChoiceBox.getValue());
+        if (dietPlanChoiceBox.getValue() != null)
+            statisticParam.setDietPlanId(dietPlanChoiceBox.getValue().getId());
+        return statisticParam;
+    }
+
     private void updateBarChart() {
         LOG.debug("Updating line chart data.");
         barChart.getData().clear();
 
-        Map<Recipe, Integer> mostPopularRecipes;
+        List<PopularRecipe> mostPopularRecipes;
         try {
-            mostPopularRecipes = statisticService.getMostPopularRecipes();
+            mostPopularRecipes = statisticService.getMostPopularRecipes(getStatisticParam());
 
-            var iterator = mostPopularRecipes.entrySet().iterator();
-            if (iterator.hasNext())
-                quantityAxis.setUpperBound(iterator.next().getValue() + 1);
+            if (!mostPopularRecipes.isEmpty())
+                quantityAxis.setUpperBound(mostPopularRecipes.get(0).getCount() + 1);
             else
                 quantityAxis.setUpperBound(10);
 
-            for (Map.Entry<Recipe, Integer> entry : mostPopularRecipes.entrySet()) {
-                Recipe r = entry.getKey();
-                Integer quantity = entry.getValue();
+            for (PopularRecipe r : mostPopularRecipes) {
+                Integer quantity = r.getCount();
 
                 StackedBarChart.Series<String, Integer> series = new StackedBarChart.Series<>();
                 StackedBarChart.Data<String, Integer> data = new StackedBarChart.Data<>(wrapLabelText(r.getName()), quantity);
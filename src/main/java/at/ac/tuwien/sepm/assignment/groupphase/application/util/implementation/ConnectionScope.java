@@ -0,0 +1,28 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation;
+
+/**
+ * Database work of a thread other than the UI thread, opened by {@link JDBCConnectionManager#openConnectionScope()}
+ * and meant to be used with try-with-resources. Closing the scope hands the connection of the thread back to the
+ * pool, unless the thread already held a connection when the scope was opened.
+ */
+public class ConnectionScope implements AutoCloseable {
+
+	private final boolean outermost;
+	private boolean closed;
+
+	ConnectionScope(boolean outermost) {
+		this.outermost = outermost;
+	}
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		if (outermost) {
+			JDBCConnectionManager.closeConnection();
+		}
+	}
+}
@@ -1,12 +1,19 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation;
 
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.Arrays;
 
 import javax.activation.MimetypesFileTypeMap;
+import javax.imageio.ImageIO;
 
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeImage;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.ThumbnailSize;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationContext;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationException;
 
@@ -32,4 +39,61 @@ public class ImageUtil {
 			throw new ServiceInvokationException(ex);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Reads an image file chosen by the user. The file is decoded once, so that files which are no readable image are
+	 * rejected before they are stored.
+	 *
+	 * @param f the image file
+	 * @return the image with the bytes of the file and the decoded image
+	 * @throws ServiceInvokationException if the file is no JPEG or PNG image or cannot be read
+	 */
+	public static RecipeImage readImage(File f) throws ServiceInvokationException {
+		String imageType = getImageType(f);
+		try {
+			byte[] data = Files.readAllBytes(f.toPath());
+			BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+			if (image == null) {
+				ServiceInvokationContext context = new ServiceInvokationContext();
+				context.addError(String.format("The file '%s' cannot be read as an image.", f.getName()));
+				throw new ServiceInvokationException(context);
+			}
+			return new RecipeImage(data, image, imageType);
+		} catch (IOException ex) {
+			throw new ServiceInvokationException(ex);
+		}
+	}
+
+	/**
+	 * Scales an image down to the given thumbnail size. Images are never scaled up, smaller images keep their size.
+	 *
+	 * @param image the full size image
+	 * @param size {@link ThumbnailSize}
+	 * @param imageType type the thumbnail will be encoded with, e.g. png or jpeg
+	 * @return the thumbnail
+	 */
+	public static BufferedImage createThumbnail(BufferedImage image, ThumbnailSize size, String imageType) {
+		double widthRatio = (double) size.getWidth() / image.getWidth();
+		double heightRatio = (double) size.getHeight() / image.getHeight();
+		double scale = Math.min(1, size.isCropped() ? Math.max(widthRatio, heightRatio) : Math.min(widthRatio, heightRatio));
+
+		int scaledWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+		int scaledHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+		int width = size.isCropped() ? Math.min(size.getWidth(), scaledWidth) : scaledWidth;
+		int height = size.isCropped() ? Math.min(size.getHeight(), scaledHeight) : scaledHeight;
+
+		// jpeg cannot store an alpha channel
+		BufferedImage thumbnail = new BufferedImage(width, height,
+				"png".equals(imageType) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = thumbnail.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g.drawImage(image, (width - scaledWidth) / 2, (height - scaledHeight) / 2, scaledWidth, scaledHeight, null);
+		} finally {
+			g.dispose();
+		}
+
+		return thumbnail;
+	}
+}
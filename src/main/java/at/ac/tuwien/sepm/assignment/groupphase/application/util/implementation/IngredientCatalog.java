@@ -0,0 +1,184 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation;
+
+import java.lang.invoke.MethodHandles;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
+
+/**
+ * All ingredients in memory, one primitive array per column indexed by the ingredient id. Ingredients never change
+ * once they are stored, so the table is read once and only ingredients created later are added, either when they are
+ * created or when they are asked for. Names and units are interned, all recipes using an ingredient share them.
+ * <p>
+ * Nutrients are given per 100 g, the unit gram value is the weight of one unit of the ingredient.
+ */
+public final class IngredientCatalog {
+	private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+	private static final String SELECT_INGREDIENTS = "SELECT ID, NAME, ENERG_KCAL, LIPID, PROTEIN, CARBOHYDRT, "
+			+ "UNIT_NAME, UNIT_GRAM_NORMALISED, USER_SPECIFIC FROM INGREDIENT";
+	private static final String WHERE_IDS = " WHERE ID IN (SELECT X FROM TABLE(X INT = ?))";
+
+	private static final IngredientCatalog INSTANCE = new IngredientCatalog();
+
+	private double[] energyKcal = new double[0];
+	private double[] lipid = new double[0];
+	private double[] protein = new double[0];
+	private double[] carbohydrate = new double[0];
+	private double[] unitGramNormalised = new double[0];
+	private String[] names = new String[0];
+	private String[] unitNames = new String[0];
+	private final BitSet userSpecific = new BitSet();
+	private final BitSet known = new BitSet();
+	private boolean loaded;
+
+	private IngredientCatalog() {
+	}
+
+	public static IngredientCatalog getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Makes sure that the given ingredients are in the catalog. The whole table is read on the first call, later
+	 * calls only read the ingredients that are missing.
+	 *
+	 * @param ids ids of ingredients
+	 * @throws PersistenceException if the ingredients cannot be read
+	 */
+	public void load(Collection<Integer> ids) throws PersistenceException {
+		List<Integer> missing = new ArrayList<>();
+		synchronized (this) {
+			if (!loaded) {
+				read(SELECT_INGREDIENTS, null);
+				loaded = true;
+				LOG.debug("Loaded ingredient catalog with {} ingredients", known.cardinality());
+				return;
+			}
+			for (Integer id : ids) {
+				if (!known.get(id)) {
+					missing.add(id);
+				}
+			}
+		}
+		if (!missing.isEmpty()) {
+			read(SELECT_INGREDIENTS + WHERE_IDS, missing.toArray());
+		}
+	}
+
+	/**
+	 * Adds a stored ingredient, e.g. a user specific ingredient right after it was created.
+	 *
+	 * @param ingredient ingredient with its id and nutrients
+	 */
+	public synchronized void put(RecipeIngredient ingredient) {
+		put(ingredient.getId(), ingredient.getIngredientName(), value(ingredient.getEnergyKcal()),
+				value(ingredient.getLipid()), value(ingredient.getProtein()), value(ingredient.getCarbohydrate()),
+				ingredient.getUnitName(), value(ingredient.getUnitGramNormalised()),
+				Boolean.TRUE.equals(ingredient.getUserSpecific()));
+	}
+
+	public synchronized boolean contains(int id) {
+		return known.get(id);
+	}
+
+	/**
+	 * @param id id of an ingredient in the catalog
+	 * @param amount amount of the ingredient in a recipe, null for the ingredient alone
+	 * @return the ingredient of a recipe, null if it is not in the catalog
+	 */
+	public synchronized RecipeIngredient get(int id, Double amount) {
+		if (!known.get(id)) {
+			return null;
+		}
+		return new RecipeIngredient(id, amount, energyKcal[id], lipid[id], protein[id], carbohydrate[id],
+				unitNames[id], unitGramNormalised[id], userSpecific.get(id), names[id]);
+	}
+
+	/**
+	 * Adds the nutrients of an amount of an ingredient to running totals.
+	 *
+	 * @param id id of an ingredient in the catalog
+	 * @param amount number of units of the ingredient
+	 * @param totals calories, carbohydrates, proteins and fats, in this order
+	 * @return false if the ingredient is not in the catalog and nothing was added
+	 */
+	public synchronized boolean addNutrition(int id, double amount, double[] totals) {
+		if (!known.get(id)) {
+			return false;
+		}
+		double weight = amount * unitGramNormalised[id];
+		totals[0] += weight * energyKcal[id] / 100;
+		totals[1] += weight * carbohydrate[id] / 100;
+		totals[2] += weight * protein[id] / 100;
+		totals[3] += weight * lipid[id] / 100;
+		return true;
+	}
+
+	private void read(String sql, Object[] ids) throws PersistenceException {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+
+		try {
+			ps = JDBCConnectionManager.getConnection().prepareStatement(sql);
+			if (ids != null) {
+				ps.setObject(1, ids);
+			}
+			rs = ps.executeQuery();
+			synchronized (this) {
+				while (rs.next()) {
+					put(rs.getInt("ID"), rs.getString("NAME"), rs.getDouble("ENERG_KCAL"), rs.getDouble("LIPID"),
+							rs.getDouble("PROTEIN"), rs.getDouble("CARBOHYDRT"), rs.getString("UNIT_NAME"),
+							rs.getDouble("UNIT_GRAM_NORMALISED"), rs.getBoolean("USER_SPECIFIC"));
+				}
+			}
+		} catch (SQLException e) {
+			throw new PersistenceException(e.getMessage(), e);
+		} finally {
+			CloseUtil.closeStatement(ps);
+			CloseUtil.closeResultSet(rs);
+		}
+	}
+
+	private void put(int id, String name, double energyKcal, double lipid, double protein, double carbohydrate,
+			String unitName, double unitGramNormalised, boolean userSpecific) {
+		if (id >= names.length) {
+			grow(id + 1);
+		}
+		this.names[id] = name == null ? null : name.trim().intern();
+		this.energyKcal[id] = energyKcal;
+		this.lipid[id] = lipid;
+		this.protein[id] = protein;
+		this.carbohydrate[id] = carbohydrate;
+		this.unitNames[id] = unitName == null ? null : unitName.intern();
+		this.unitGramNormalised[id] = unitGramNormalised;
+		this.userSpecific.set(id, userSpecific);
+		this.known.set(id);
+	}
+
+	private void grow(int minLength) {
+		int length = Math.max(minLength, names.length + (names.length >> 1));
+		energyKcal = Arrays.copyOf(energyKcal, length);
+		lipid = Arrays.copyOf(lipid, length);
+		protein = Arrays.copyOf(protein, length);
+		carbohydrate = Arrays.copyOf(carbohydrate, length);
+		unitGramNormalised = Arrays.copyOf(unitGramNormalised, length);
+		names = Arrays.copyOf(names, length);
+		unitNames = Arrays.copyOf(unitNames, length);
+	}
+
+	private static double value(Double value) {
+		return value == null ? 0 : value;
+	}
+}
@@ -1,5 +1,6 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation;
 
+import org.h2.jdbcx.JdbcConnectionPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -7,15 +8,31 @@ import org.springframework.stereotype.Component;
 import java.io.File;
 import java.lang.invoke.MethodHandles;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-
+import java.sql.Statement;
+
+/**
+ * Hands out connections of a pool. Each thread works on its own connection, which is taken from the pool on the
+ * first call of {@link #getConnection()} and stays bound to the thread until it calls {@link #closeConnection()}.
+ * Transactions are opened with {@link #beginTransaction()} and only affect the connection of the calling thread.
+ * Statements prepared on the connections are cached, see {@link StatementCache}.
+ * <p>
+ * The pool holds at most {@value #MAX_CONNECTIONS} connections and callers wait for a free one once all are bound.
+ * Only the UI thread keeps its connection, every other thread, e.g. a background task or a worker of an executor,
+ * must hand its connection back when it is done. It does so by running its database work within
+ * <pre>
+ * try (ConnectionScope scope = JDBCConnectionManager.openConnectionScope()) {
+ *     ...
+ * }
+ * </pre>
+ */
 @Component
 public class JDBCConnectionManager {
 
 	private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-	private static Connection connection;
+	private static JdbcConnectionPool pool;
+	private static final ThreadLocal<BoundConnection> boundConnection = new ThreadLocal<>();
 
 	private static final String SYS_PROPERTY_TESTMODE = "at.ac.tuwien.sepm.testmode";
 	private static final String SYS_PROPERTY_DB_LOG = "at.ac.tuwien.sepm.db_log";
@@ -27,70 +44,126 @@ public class JDBCConnectionManager {
 	private static final String DB_PASSWORD = "sepm";
 
 	private static final String TRACE_LEVEL = "TRACE_LEVEL_FILE=4"; // log h2 database output via slf4j
+	private static final String LOCK_TIMEOUT = "LOCK_TIMEOUT=10000"; // wait for row locks of concurrent transactions
+
+	private static final int MAX_CONNECTIONS = 10;
+	private static final int MAX_CACHED_STATEMENTS = 64; // per connection
 
-	private static final String INIT_SCRIPT_TEST = "INIT=runscript from 'classpath:db/restoreDbBeforeTest.sql'";
-	private static final String INIT_SCRIPT = "";
+	// scripts run once when the pool is created, not on every new connection of the pool
+	private static final String MIGRATION_SCRIPT = "RUNSCRIPT FROM 'classpath:sql/migrate.sql'";
+	private static final String RESTORE_SCRIPT_TEST = "RUNSCRIPT FROM 'classpath:db/restoreDbBeforeTest.sql'";
 
 	private JDBCConnectionManager() {
     }
 
+	/**
+	 * Returns the connection of the calling thread. The connection must not be closed by the caller, use
+	 * {@link #closeConnection()} to hand it back to the pool.
+	 *
+	 * @return connection bound to the calling thread
+	 * @throws SQLException if no connection can be opened
+	 */
 	public static Connection getConnection() throws SQLException {
-		if (connection == null) {
-			connection = DriverManager.getConnection(
-					String.format("%s;%s;%s", getDbUrl(), getInitScript(), getTraceLevel()), DB_USER, DB_PASSWORD);
-		}
-		return connection;
+		return getBoundConnection().getConnection();
 	}
 
+	/**
+	 * Hands the connection of the calling thread back to the pool. An open transaction of the thread is rolled back.
+	 * Threads other than the UI thread have to call this once they are done with the database.
+	 */
 	public static void closeConnection() {
-		if (connection != null) {
-			try {
-				connection.close();
-			} catch (SQLException e) {
-				LOG.error("Failed to close connection '{}'", e.getMessage(), e);
-			}
-			connection = null;
+		BoundConnection bound = boundConnection.get();
+		if (bound != null) {
+			boundConnection.remove();
+			bound.release();
 		}
 	}
 
-	public static void startTransaction() {
-        try {
-            getConnection().setAutoCommit(false);
-        } catch (SQLException e) {
-            LOG.error("Failed to start transaction '{}'", e.getMessage(), e);
-        }
-    }
+	/**
+	 * Opens a scope which hands the connection of the calling thread back to the pool when it is closed. Threads
+	 * other than the UI thread run their database work within such a scope.
+	 *
+	 * @return the scope, to be closed with try-with-resources
+	 */
+	public static ConnectionScope openConnectionScope() {
+		return new ConnectionScope(boundConnection.get() == null);
+	}
 
-    public static void rollbackTransaction() {
-	    try {
-	        getConnection().rollback();
-        } catch (SQLException e) {
-            LOG.error("Failed to rollback transaction '{}'", e.getMessage(), e);
-        }
-    }
+	/**
+	 * @return number of connections of the pool which are bound to a thread
+	 */
+	static synchronized int getActiveConnections() {
+		return pool == null ? 0 : pool.getActiveConnections();
+	}
 
-    public static void commitTransaction() {
-	    try {
-	        getConnection().commit();
-        } catch (SQLException e) {
-            LOG.error("Failed to commit transaction '{}'", e.getMessage(), e);
-        }
-    }
+	/**
+	 * Closes all connections of the pool. The next call of {@link #getConnection()} creates a new pool.
+	 */
+	public static synchronized void closePool() {
+		closeConnection();
+		if (pool != null) {
+			pool.dispose();
+			pool = null;
+		}
+	}
 
-    public static void finalizeTransaction() {
-	    try {
-	        getConnection().setAutoCommit(true);
-        } catch (SQLException e) {
-            LOG.error("Failed to finalize transaction '{}'", e.getMessage(), e);
-        }
-    }
+	/**
+	 * @return the statement cache of the calling thread's connection
+	 * @throws SQLException if no connection can be opened
+	 */
+	public static StatementCache getStatementCache() throws SQLException {
+		return getBoundConnection().getStatementCache();
+	}
 
-	private static String getTraceLevel() {
-		return isSysPropertySet(SYS_PROPERTY_DB_LOG, "true") ? TRACE_LEVEL : "";
+	/**
+	 * Starts a transaction on the connection of the calling thread. Transactions started while another transaction
+	 * of the thread is open take part in the outer one.
+	 *
+	 * @return the scope of the transaction, to be closed with try-with-resources
+	 * @throws SQLException if the transaction cannot be started
+	 */
+	public static TransactionScope beginTransaction() throws SQLException {
+		return new TransactionScope(getBoundConnection());
 	}
 
-	private static String getInitScript() {
-		return isSysPropertySet(SYS_PROPERTY_TESTMODE, "true") ? INIT_SCRIPT_TEST : INIT_SCRIPT;
+	private static BoundConnection getBoundConnection() throws SQLException {
+		JdbcConnectionPool current = getPool();
+		BoundConnection bound = boundConnection.get();
+
+		if (bound == null || bound.getPool() != current) {
+			if (bound != null) {
+				// connection of a closed pool
+				bound.release();
+			}
+			bound = new BoundConnection(current, current.getConnection());
+			boundConnection.set(bound);
+		}
+		return bound;
+	}
+
+	private static synchronized JdbcConnectionPool getPool() throws SQLException {
+		if (pool == null) {
+			JdbcConnectionPool created = JdbcConnectionPool.create(
+					String.format("%s;%s%s", getDbUrl(), LOCK_TIMEOUT, getTraceLevel()), DB_USER, DB_PASSWORD);
+			created.setMaxConnections(MAX_CONNECTIONS);
+
+			try (Connection connection = created.getConnection(); Statement s = connection.createStatement()) {
+				s.execute(MIGRATION_SCRIPT);
+				if (isSysPropertySet(SYS_PROPERTY_TESTMODE, "true")) {
+					s.execute(RESTORE_SCRIPT_TEST);
+				}
+			} catch (SQLException e) {
+				created.dispose();
+				throw e;
+			}
+
+			pool = created;
+		}
+		return pool;
+	}
+
+	private static String getTraceLevel() {
+		return isSysPropertySet(SYS_PROPERTY_DB_LOG, "true") ? ";" + TRACE_LEVEL : "";
 	}
 
 	private static String getDbUrl() {
@@ -103,4 +176,61 @@ public class JDBCConnectionManager {
 		return propertyValue.equals(System.getProperty(propertyName));
 	}
 
+	/**
+	 * Connection of the pool bound to a thread, together with the state of the thread's transaction.
+	 */
+	static class BoundConnection {
+		private final JdbcConnectionPool pool;
+		private final Connection connection;
+		private final StatementCache statementCache;
+		private int transactionDepth;
+		private boolean rollbackOnly;
+
+		BoundConnection(JdbcConnectionPool pool, Connection connection) {
+			this.pool = pool;
+			this.connection = connection;
+			this.statementCache = new StatementCache(connection, MAX_CACHED_STATEMENTS);
+		}
+
+		JdbcConnectionPool getPool() {
+			return pool;
+		}
+
+		Connection getConnection() {
+			return statementCache.getConnection();
+		}
+
+		StatementCache getStatementCache() {
+			return statementCache;
+		}
+
+		int getTransactionDepth() {
+			return transactionDepth;
+		}
+
+		void setTransactionDepth(int transactionDepth) {
+			this.transactionDepth = transactionDepth;
+		}
+
+		boolean isRollbackOnly() {
+			return rollbackOnly;
+		}
+
+		void setRollbackOnly(boolean rollbackOnly) {
+			this.rollbackOnly = rollbackOnly;
+		}
+
+		void release() {
+			try {
+				if (!connection.getAutoCommit()) {
+					connection.rollback();
+					connection.setAutoCommit(true);
+				}
+				statementCache.close();
+				connection.close();
+			} catch (SQLException e) {
+				LOG.error("Failed to close connection '{}'", e.getMessage(), e);
+			}
+		}
+	}
 }
@@ -3,32 +3,40 @@ package at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
 
+/**
+ * Sums up the nutrition totals of a recipe from its ingredients. Stored recipes carry their totals already, they are
+ * summed up the same way whenever a recipe is stored.
+ * <p>
+ * Stored ingredients are read from the {@link IngredientCatalog}, only ingredients which are not stored yet are read
+ * from the recipe's ingredient objects.
+ */
 public class NutritionUtil {
 
     private NutritionUtil() {}
 
     public static Recipe fillNutritionValues(Recipe r){
 
-        double ingredientWeight;
-        double totalCalories = 0;
-        double totalProteins = 0;
-        double totalCarbs = 0;
-        double totalFats = 0;
+        IngredientCatalog catalog = IngredientCatalog.getInstance();
+        // calories, carbohydrates, proteins and fats
+        double[] totals = new double[4];
 
         for (RecipeIngredient ingredient: r.getRecipeIngredients()
              ) {
-            ingredientWeight = ingredient.getAmount()*ingredient.getUnitGramNormalised();
-
-            totalCalories += ingredientWeight *ingredient.getEnergyKcal()/100;
-            totalProteins += ingredientWeight * ingredient.getProtein()/100;
-            totalCarbs += ingredientWeight *ingredient.getCarbohydrate()/100;
-            totalFats += ingredientWeight *ingredient.getLipid()/100;
+            if (ingredient.getId() != null && catalog.addNutrition(ingredient.getId(), ingredient.getAmount(), totals)) {
+                continue;
+            }
+            double ingredientWeight = ingredient.getAmount()*ingredient.getUnitGramNormalised();
+
+            totals[0] += ingredientWeight *ingredient.getEnergyKcal()/100;
+            totals[1] += ingredientWeight *ingredient.getCarbohydrate()/100;
+            totals[2] += ingredientWeight * ingredient.getProtein()/100;
+            totals[3] += ingredientWeight *ingredient.getLipid()/100;
         }
 
-        r.setCalories(totalCalories);
-        r.setCarbohydrates(totalCarbs);
-        r.setProteins(totalProteins);
-        r.setFats(totalFats);
+        r.setCalories(totals[0]);
+        r.setCarbohydrates(totals[1]);
+        r.setProteins(totals[2]);
+        r.setFats(totals[3]);
 
         return r;
     }
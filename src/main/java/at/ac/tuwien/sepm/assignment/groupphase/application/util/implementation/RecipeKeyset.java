@@ -0,0 +1,125 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePage;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePageRequest;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSortKey;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+
+/**
+ * Position in a recipe listing, given by the sort value and the id of the last recipe of a page. The next page starts
+ * directly after this position, so pages neither skip nor repeat recipes when recipes are added or removed in
+ * between, and no page has to read the recipes before it.
+ * <p>
+ * The position is handed out as an opaque continuation token, which also records the order it belongs to.
+ */
+public final class RecipeKeyset {
+
+	private static final String SEPARATOR = "|";
+
+	private final RecipeSortKey sortKey;
+	private final boolean descending;
+	private final int id;
+	private final Object value;
+
+	private RecipeKeyset(RecipeSortKey sortKey, boolean descending, int id, Object value) {
+		this.sortKey = sortKey;
+		this.descending = descending;
+		this.id = id;
+		this.value = value;
+	}
+
+	/**
+	 * @param request request of a page
+	 * @return position after which the requested page starts, null for the first page
+	 * @throws IllegalArgumentException if the token is malformed or belongs to another order
+	 */
+	public static RecipeKeyset of(RecipePageRequest request) {
+		if (request.getContinuationToken() == null) {
+			return null;
+		}
+
+		String[] parts;
+		try {
+			parts = new String(Base64.getUrlDecoder().decode(request.getContinuationToken()), StandardCharsets.UTF_8)
+					.split("\\" + SEPARATOR, 4);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("The continuation token is malformed.", e);
+		}
+		if (parts.length != 4 || !parts[0].equals(request.getSortKey().name())
+				|| Boolean.parseBoolean(parts[1]) != request.isDescending()) {
+			throw new IllegalArgumentException("The continuation token belongs to another order of the recipes.");
+		}
+
+		try {
+			Object value = request.getSortKey() == RecipeSortKey.NAME ? parts[3] : Double.valueOf(parts[3]);
+			return new RecipeKeyset(request.getSortKey(), request.isDescending(), Integer.parseInt(parts[2]), value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("The continuation token is malformed.", e);
+		}
+	}
+
+	/**
+	 * @param request request of a page
+	 * @param last last recipe of the page
+	 * @return token to request the page after the given recipe with
+	 */
+	public static String token(RecipePageRequest request, RecipeSummary last) {
+		String position = request.getSortKey().name() + SEPARATOR + request.isDescending() + SEPARATOR + last.getId()
+				+ SEPARATOR + request.getSortKey().getValue(last);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param request request of a page
+	 * @return order of the listing the page belongs to
+	 */
+	public static Comparator<RecipeSummary> comparator(RecipePageRequest request) {
+		Comparator<RecipeSummary> comparator = request.getSortKey().getComparator();
+		return request.isDescending() ? comparator.reversed() : comparator;
+	}
+
+	/**
+	 * @param summaries the recipes of the page in listing order, followed by the first recipe of the next page if
+	 *        there is one
+	 * @param request request of the page
+	 * @return the page, with a continuation token if there was a recipe more than requested
+	 */
+	public static RecipePage page(List<RecipeSummary> summaries, RecipePageRequest request) {
+		if (summaries.size() <= request.getPageSize()) {
+			return new RecipePage(summaries, null);
+		}
+		List<RecipeSummary> page = new ArrayList<>(summaries.subList(0, request.getPageSize()));
+		return new RecipePage(page, token(request, page.get(page.size() - 1)));
+	}
+
+	/**
+	 * @param summary summary of a recipe
+	 * @return true if the recipe comes after this position in the listing
+	 */
+	public boolean isBefore(RecipeSummary summary) {
+		Object summaryValue = sortKey.getValue(summary);
+		int comparison = sortKey == RecipeSortKey.NAME ? ((String) summaryValue).compareTo((String) value)
+				: Double.compare((Double) summaryValue, (Double) value);
+		if (comparison == 0) {
+			comparison = Integer.compare(summary.getId(), id);
+		}
+		return descending ? comparison < 0 : comparison > 0;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * @return sort value of the last recipe before the page, a lower case name or a {@link Double}
+	 */
+	public Object getValue() {
+		return value;
+	}
+}
@@ -2,6 +2,7 @@ package at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation;
 
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Tag;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationContext;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.Validator;
 import org.springframework.stereotype.Component;
@@ -27,6 +28,7 @@ public class RecipeValidator implements Validator<Recipe> {
 		if (recipe.getTags() == null || recipe.getTags().size() == 0) {
 			context.addError(String.format("Select at least one tag (breakfast, lunch or dinner)"));
 		}
+		validateCustomTagNames(recipe, context);
 		recipeIngredientsValidator.validateForCreation(recipe.getRecipeIngredients(), context);
 
 		return context.isValid();
@@ -60,7 +62,19 @@ public class RecipeValidator implements Validator<Recipe> {
         if (recipe.getTags() == null || recipe.getTags().size() == 0)
             context.addError("Select at least one tag (breakfast, lunch or dinner)");
 
+        validateCustomTagNames(recipe, context);
         recipeIngredientsValidator.validateForUpdate(recipe.getRecipeIngredients(), context);
 		return context.isValid();
 	}
+
+	private void validateCustomTagNames(Recipe recipe, ServiceInvokationContext context) {
+		if (recipe.getCustomTagNames() == null) {
+			return;
+		}
+		for (String name : recipe.getCustomTagNames()) {
+			if (Tag.normalizeName(name).length() > Tag.MAX_NAME_LENGTH) {
+				context.addError(String.format("The tag '%s' is longer than %d characters.", name, Tag.MAX_NAME_LENGTH));
+			}
+		}
+	}
 }
@@ -0,0 +1,208 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the prepared statements of one connection, keyed by their SQL, so that H2 parses and plans each statement
+ * only once per connection. The least recently used statement is closed when the cache is full.
+ * <p>
+ * Statements are prepared through the connection returned by {@link #getConnection()}. Closing such a statement
+ * hands it back to the cache instead of closing it. A statement that is still in use when its SQL is prepared again,
+ * e.g. by an open result stream, is not shared, a plain statement is prepared instead.
+ */
+public class StatementCache {
+	private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+	private final Connection connection;
+	private final Connection cachingConnection;
+	private final Map<String, CachedStatement> statements;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param connection connection the statements are prepared on
+	 * @param maxSize maximum number of cached statements
+	 */
+	public StatementCache(Connection connection, int maxSize) {
+		this.connection = connection;
+		this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+				if (size() > maxSize) {
+					evictions++;
+					eldest.getValue().evict();
+					return true;
+				}
+				return false;
+			}
+		};
+		this.cachingConnection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new CachingConnectionHandler());
+	}
+
+	/**
+	 * @return the connection whose {@link Connection#prepareStatement(String)} and
+	 *         {@link Connection#prepareStatement(String, int)} use this cache
+	 */
+	public Connection getConnection() {
+		return cachingConnection;
+	}
+
+	/**
+	 * Prepares a statement or returns the cached one for the same SQL.
+	 *
+	 * @param sql SQL of the statement
+	 * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS} or {@link Statement#NO_GENERATED_KEYS}
+	 * @return the statement, to be closed by the caller as usual
+	 * @throws SQLException if the statement cannot be prepared
+	 */
+	public synchronized PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+		String key = autoGeneratedKeys + ":" + sql;
+		CachedStatement cached = statements.get(key);
+
+		if (cached != null && !cached.inUse) {
+			hits++;
+			cached.inUse = true;
+			return cached.proxy;
+		}
+
+		misses++;
+		PreparedStatement ps = connection.prepareStatement(sql, autoGeneratedKeys);
+		if (cached != null) {
+			return ps;
+		}
+
+		cached = new CachedStatement(ps);
+		statements.put(key, cached);
+		return cached.proxy;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return share of prepared statements served from the cache, 0 if no statement was prepared yet
+	 */
+	public synchronized double getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	public synchronized int size() {
+		return statements.size();
+	}
+
+	/**
+	 * Closes all cached statements.
+	 */
+	public synchronized void close() {
+		LOG.debug("Closing statement cache with {} statements, {} hits, {} misses, {} evictions", statements.size(),
+				hits, misses, evictions);
+
+		List<CachedStatement> cached = new ArrayList<>(statements.values());
+		statements.clear();
+		for (CachedStatement c : cached) {
+			c.evict();
+		}
+	}
+
+	private synchronized void release(CachedStatement cached) throws SQLException {
+		cached.inUse = false;
+		if (cached.evicted) {
+			cached.statement.close();
+		} else {
+			cached.statement.clearParameters();
+			cached.statement.clearBatch();
+		}
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private class CachingConnectionHandler implements InvocationHandler {
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if ("prepareStatement".equals(method.getName()) && args.length == 1) {
+				return prepareStatement((String) args[0], Statement.NO_GENERATED_KEYS);
+			}
+			if ("prepareStatement".equals(method.getName()) && args.length == 2 && args[1] instanceof Integer) {
+				return prepareStatement((String) args[0], (Integer) args[1]);
+			}
+			return StatementCache.invoke(connection, method, args);
+		}
+	}
+
+	private class CachedStatement implements InvocationHandler {
+		private final PreparedStatement statement;
+		private final PreparedStatement proxy;
+		private boolean inUse = true;
+		private boolean evicted;
+
+		CachedStatement(PreparedStatement statement) {
+			this.statement = statement;
+			this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, this);
+		}
+
+		void evict() {
+			evicted = true;
+			if (!inUse) {
+				try {
+					statement.close();
+				} catch (SQLException e) {
+					LOG.error("Failed to close statement '{}'", e.getMessage(), e);
+				}
+			}
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (inUse) {
+					release(this);
+				}
+				return null;
+			case "isClosed":
+				return !inUse || statement.isClosed();
+			case "getConnection":
+				return cachingConnection;
+			default:
+				return StatementCache.invoke(statement, method, args);
+			}
+		}
+	}
+}
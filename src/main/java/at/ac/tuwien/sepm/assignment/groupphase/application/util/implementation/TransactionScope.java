@@ -0,0 +1,78 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation;
+
+import java.lang.invoke.MethodHandles;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transaction on the connection of the calling thread, opened by {@link JDBCConnectionManager#beginTransaction()}
+ * and meant to be used with try-with-resources. Only the outermost scope of a thread commits, a scope that is closed
+ * without {@link #commit()} rolls back the whole transaction.
+ */
+public class TransactionScope implements AutoCloseable {
+	private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+	private final JDBCConnectionManager.BoundConnection bound;
+	private final boolean outermost;
+	private boolean committed;
+	private boolean closed;
+
+	TransactionScope(JDBCConnectionManager.BoundConnection bound) throws SQLException {
+		this.bound = bound;
+		this.outermost = bound.getTransactionDepth() == 0;
+
+		if (outermost) {
+			bound.getConnection().setAutoCommit(false);
+			bound.setRollbackOnly(false);
+		}
+		bound.setTransactionDepth(bound.getTransactionDepth() + 1);
+	}
+
+	public Connection getConnection() {
+		return bound.getConnection();
+	}
+
+	/**
+	 * Commits the transaction if this is the outermost scope, otherwise the outer scope decides.
+	 *
+	 * @throws SQLException if the commit fails or a nested scope was closed without commit
+	 */
+	public void commit() throws SQLException {
+		if (outermost) {
+			if (bound.isRollbackOnly()) {
+				throw new SQLException("Transaction was rolled back by a nested scope");
+			}
+			bound.getConnection().commit();
+		}
+		committed = true;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		bound.setTransactionDepth(bound.getTransactionDepth() - 1);
+
+		if (!outermost) {
+			if (!committed) {
+				bound.setRollbackOnly(true);
+			}
+			return;
+		}
+
+		try {
+			if (!committed) {
+				LOG.debug("Rolling back transaction");
+				bound.getConnection().rollback();
+			}
+		} finally {
+			bound.setRollbackOnly(false);
+			bound.getConnection().setAutoCommit(true);
+		}
+	}
+}
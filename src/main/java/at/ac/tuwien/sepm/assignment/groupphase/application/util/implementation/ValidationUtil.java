@@ -1,11 +1,17 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation;
 
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.NutritionSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeNutrient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePageRequest;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.StatisticParam;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationContext;
 import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationException;
 
 public class ValidationUtil {
 
+	public static final int MAX_PAGE_SIZE = 1000;
+
 	private ValidationUtil() {
 	}
 
@@ -61,13 +67,74 @@ public class ValidationUtil {
 	}
 
 	public static boolean validateRecipeSearchParam(RecipeSearchParam param, ServiceInvokationContext context) {
-		if (param.getIngredients() != null && param.getIngredients().size() > 10) {
-			context.addError("Enter only at most 10 ingredient search words.");
+		if (param.getIngredients().stream().anyMatch(param.getExcludedIngredients()::contains)) {
+			context.addError("An ingredient search word cannot be required and excluded at the same time.");
 		}
 		if (param.getLowerDurationInkl() != null && param.getUpperDurationInkl() != null
 				&& param.getLowerDurationInkl().compareTo(param.getUpperDurationInkl()) > 0) {
 			context.addError("Lower Duration Limit must be smaller or equal to Upper Duration Limit.");
 		}
+		for (RecipeNutrient nutrient : RecipeNutrient.values()) {
+			Double lower = param.getLowerNutritionInkl(nutrient);
+			Double upper = param.getUpperNutritionInkl(nutrient);
+			if ((lower != null && (lower.isNaN() || lower < 0)) || (upper != null && (upper.isNaN() || upper < 0))) {
+				context.addError(String.format("The limits of %s must be numbers that are not negative.", nutrient));
+			} else if (lower != null && upper != null && lower > upper) {
+				context.addError(String.format(
+						"Lower %s Limit must be smaller or equal to Upper %s Limit.", nutrient, nutrient));
+			}
+		}
+		return context.isValid();
+	}
+
+	public static boolean validateNutritionSearchParam(NutritionSearchParam param, ServiceInvokationContext context) {
+		boolean anyTarget = false;
+		for (RecipeNutrient nutrient : RecipeNutrient.values()) {
+			Double target = param.getTarget(nutrient);
+			if (target == null) {
+				continue;
+			}
+			anyTarget = true;
+			if (!(target > 0) || target.isInfinite()) {
+				context.addError(String.format("The target of %s must be a number greater than 0.", nutrient));
+			}
+			Double weight = param.getWeight(nutrient);
+			if (!(weight >= 0) || weight.isInfinite()) {
+				context.addError(String.format("The weight of %s must be a number that is not negative.", nutrient));
+			}
+		}
+		if (!anyTarget) {
+			context.addError("At least one nutrition target must be set.");
+		}
+		if (param.getMaxDistance() != null && param.getMaxDistance().isNaN()) {
+			context.addError("The greatest distance must be a number.");
+		}
+		if (param.getLimit() < 1) {
+			context.addError("The limit must be at least 1.");
+		}
+		return context.isValid();
+	}
+
+	public static boolean validateStatisticParam(StatisticParam param, ServiceInvokationContext context) {
+		validateNull("Period", param.getPeriod(), context);
+		if (param.getDietPlanId() != null && param.getDietPlanId() < 0) {
+			context.addError("ID cannot be negative");
+		}
+		return context.isValid();
+	}
+
+	public static boolean validateRecipePageRequest(RecipePageRequest request, ServiceInvokationContext context) {
+		if (validateNull("Sort Key", request.getSortKey(), context)) {
+			return false;
+		}
+		if (request.getPageSize() < 1 || request.getPageSize() > MAX_PAGE_SIZE) {
+			context.addError(String.format("The page size must be between 1 and %d.", MAX_PAGE_SIZE));
+		}
+		try {
+			RecipeKeyset.of(request);
+		} catch (IllegalArgumentException e) {
+			context.addError(e.getMessage());
+		}
 		return context.isValid();
 	}
 }
@@ -5,7 +5,6 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
-import java.sql.SQLException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,7 +12,10 @@ import org.springframework.context.annotation.AnnotationConfigApplicationContext
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.stereotype.Component;
 
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.RecipeService;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationException;
 import at.ac.tuwien.sepm.assignment.groupphase.application.ui.MainController;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.ConnectionScope;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.JDBCConnectionManager;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.SpringFXMLLoader;
 import javafx.application.Application;
@@ -48,6 +50,7 @@ public final class MainApplication extends Application {
 
 		// load files
 		context = new AnnotationConfigApplicationContext(MainApplication.class);
+		runBackfillJobs();
 		final var fxmlLoader = context.getBean(SpringFXMLLoader.class);
 		fxmlLoader.setLocation(getClass().getResource(MAIN_FXML));
 
@@ -69,12 +72,48 @@ public final class MainApplication extends Application {
 	@Override
 	public void stop() {
 		LOG.debug("Stopping main");
+		JDBCConnectionManager.closePool();
+		context.close();
+	}
+
+	/**
+	 * Runs the backfill jobs in the background, the application is usable while they run: recipe images are scaled
+	 * when shown and recipe pages are read from the database until the jobs are done.
+	 */
+	@SuppressWarnings("try")
+	private void runBackfillJobs() {
+		RecipeService recipeService = context.getBean(RecipeService.class);
+		Thread backfill = new Thread(() -> {
+			try (ConnectionScope scope = JDBCConnectionManager.openConnectionScope()) {
+				runBackfillJobs(recipeService);
+			}
+		}, "backfill-jobs");
+		backfill.setDaemon(true);
+		backfill.start();
+	}
+
+	private static void runBackfillJobs(RecipeService recipeService) {
 		try {
-			JDBCConnectionManager.getConnection().close();
-		} catch (SQLException e) {
-			LOG.info("JDBC Connection could not be closed on application exit.");
+			int count = recipeService.backfillThumbnails();
+			LOG.debug("Created thumbnails for {} images", count);
+		} catch (ServiceInvokationException e) {
+			// images without thumbnails are scaled when shown
+			LOG.error("Failed to create thumbnails '{}'", e.getMessage(), e);
+		}
+		try {
+			int count = recipeService.backfillIngredientIndex();
+			LOG.debug("Indexed {} ingredients", count);
+		} catch (ServiceInvokationException e) {
+			// ingredients that are not indexed are found by the search after the next start
+			LOG.error("Failed to index ingredients '{}'", e.getMessage(), e);
+		}
+		try {
+			int count = recipeService.buildSearchIndex();
+			LOG.debug("Indexed {} recipes for search", count);
+		} catch (ServiceInvokationException e) {
+			// the recipe search retries to build the index
+			LOG.error("Failed to index recipes '{}'", e.getMessage(), e);
 		}
-		context.close();
 	}
 
 	private static void loadIcon(){
@@ -0,0 +1,107 @@
+-- SCHEMA MIGRATIONS, applied once whenever the connection pool is created, so every statement has to be idempotent
+
+-- thumbnails of recipe images, one row per image and size
+CREATE TABLE IF NOT EXISTS recipe_image_thumbnail (
+  image_id INT NOT NULL,
+  size VARCHAR(10) NOT NULL,
+  image BLOB NOT NULL,
+  PRIMARY KEY (image_id, size),
+  FOREIGN KEY (image_id) REFERENCES recipe_image (id) ON DELETE CASCADE
+);
+
+-- search index of ingredient names, every suffix of every word of a name with the score of a match
+CREATE TABLE IF NOT EXISTS ingredient_token (
+  suffix VARCHAR(255) NOT NULL,
+  ingredient_id INT NOT NULL,
+  score INT NOT NULL,
+  PRIMARY KEY (suffix, ingredient_id),
+  FOREIGN KEY (ingredient_id) REFERENCES ingredient (id) ON DELETE CASCADE
+);
+
+-- tag dictionary, every tag owns one bit of recipe.tag_mask; the meal tags B, D and L own the bits 0 to 2
+CREATE TABLE IF NOT EXISTS tag (
+  bit TINYINT PRIMARY KEY CHECK (bit BETWEEN 0 AND 62),
+  name VARCHAR(30) NOT NULL,
+  meal BOOLEAN NOT NULL DEFAULT FALSE
+);
+CREATE UNIQUE INDEX IF NOT EXISTS tag_name ON tag (name);
+MERGE INTO tag (bit, name, meal) KEY (bit) VALUES (0, 'B', TRUE), (1, 'D', TRUE), (2, 'L', TRUE);
+
+ALTER TABLE recipe ADD COLUMN IF NOT EXISTS tag_mask BIGINT NOT NULL DEFAULT 0;
+-- tags are filtered through recipe_tag, an index on tag_mask cannot serve a BITAND
+DROP INDEX IF EXISTS recipe_tag_mask;
+-- meal tags of recipes stored before the tag mask existed
+UPDATE recipe SET tag_mask = BITOR(tag_mask,
+    CASEWHEN(tags LIKE '%B%', 1, 0) + CASEWHEN(tags LIKE '%D%', 2, 0) + CASEWHEN(tags LIKE '%L%', 4, 0))
+  WHERE BITAND(tag_mask, 7) = 0 AND tags <> '';
+-- one row per bit of recipe.tag_mask, maintained together with the mask; a tag filter seeks the recipes of its bits
+CREATE TABLE IF NOT EXISTS recipe_tag (
+  tag_bit TINYINT NOT NULL,
+  recipe_id INT NOT NULL,
+  PRIMARY KEY (tag_bit, recipe_id),
+  FOREIGN KEY (recipe_id) REFERENCES recipe (id) ON DELETE CASCADE
+);
+-- bits of recipes stored before the table existed
+INSERT INTO recipe_tag (tag_bit, recipe_id)
+  SELECT t.bit, r.id FROM recipe r JOIN tag t ON BITAND(r.tag_mask, CAST(POWER(2, t.bit) AS BIGINT)) <> 0
+  WHERE NOT EXISTS (SELECT 1 FROM recipe_tag rt WHERE rt.recipe_id = r.id);
+
+-- nutrition totals of recipes, maintained when a recipe is stored: amount * grams per unit, values per 100 g
+ALTER TABLE recipe ADD COLUMN IF NOT EXISTS calories DOUBLE;
+ALTER TABLE recipe ADD COLUMN IF NOT EXISTS carbohydrates DOUBLE;
+ALTER TABLE recipe ADD COLUMN IF NOT EXISTS proteins DOUBLE;
+ALTER TABLE recipe ADD COLUMN IF NOT EXISTS fats DOUBLE;
+-- shares of the macro nutrients in percent, null if the recipe has none
+ALTER TABLE recipe ADD COLUMN IF NOT EXISTS carbohydrate_percent DOUBLE
+  AS CASEWHEN(carbohydrates + proteins + fats > 0, carbohydrates * 100 / (carbohydrates + proteins + fats), NULL);
+ALTER TABLE recipe ADD COLUMN IF NOT EXISTS protein_percent DOUBLE
+  AS CASEWHEN(carbohydrates + proteins + fats > 0, proteins * 100 / (carbohydrates + proteins + fats), NULL);
+ALTER TABLE recipe ADD COLUMN IF NOT EXISTS fat_percent DOUBLE
+  AS CASEWHEN(carbohydrates + proteins + fats > 0, fats * 100 / (carbohydrates + proteins + fats), NULL);
+CREATE INDEX IF NOT EXISTS recipe_calories ON recipe (calories);
+CREATE INDEX IF NOT EXISTS recipe_carbohydrate_percent ON recipe (carbohydrate_percent);
+CREATE INDEX IF NOT EXISTS recipe_protein_percent ON recipe (protein_percent);
+CREATE INDEX IF NOT EXISTS recipe_fat_percent ON recipe (fat_percent);
+-- totals of recipes stored before the totals existed
+UPDATE recipe r SET (calories, carbohydrates, proteins, fats) = (
+    SELECT COALESCE(SUM(ri.amount * i.unit_gram_normalised * i.energ_kcal / 100), 0),
+      COALESCE(SUM(ri.amount * i.unit_gram_normalised * i.carbohydrt / 100), 0),
+      COALESCE(SUM(ri.amount * i.unit_gram_normalised * i.protein / 100), 0),
+      COALESCE(SUM(ri.amount * i.unit_gram_normalised * i.lipid / 100), 0)
+    FROM recipe_ingredient ri JOIN ingredient i ON i.id = ri.ingredient_id WHERE ri.recipe_id = r.id)
+  WHERE r.calories IS NULL;
+
+-- the latest suggestion per date and meal is the one that counts, earlier ones were swapped
+CREATE INDEX IF NOT EXISTS diet_plan_suggestion_date_tag ON diet_plan_suggestion (date, tag, created_timestamp);
+
+-- the suggestion that counts per date and meal; a later suggestion for the same date and meal replaces it
+CREATE TABLE IF NOT EXISTS suggestion_slot (
+  date DATE NOT NULL,
+  tag VARCHAR(1) NOT NULL,
+  recipe INT NOT NULL,
+  diet_plan_id INT NOT NULL,
+  PRIMARY KEY (date, tag)
+);
+CREATE INDEX IF NOT EXISTS suggestion_slot_recipe ON suggestion_slot (recipe, date);
+CREATE INDEX IF NOT EXISTS suggestion_slot_diet_plan ON suggestion_slot (diet_plan_id, date);
+-- number of slots per recipe, in total and per meal, maintained together with the slots
+CREATE TABLE IF NOT EXISTS recipe_popularity (
+  recipe INT PRIMARY KEY,
+  suggestions INT NOT NULL DEFAULT 0,
+  suggestions_b INT NOT NULL DEFAULT 0,
+  suggestions_d INT NOT NULL DEFAULT 0,
+  suggestions_l INT NOT NULL DEFAULT 0
+);
+CREATE INDEX IF NOT EXISTS recipe_popularity_suggestions ON recipe_popularity (suggestions);
+CREATE INDEX IF NOT EXISTS recipe_popularity_suggestions_b ON recipe_popularity (suggestions_b);
+CREATE INDEX IF NOT EXISTS recipe_popularity_suggestions_d ON recipe_popularity (suggestions_d);
+CREATE INDEX IF NOT EXISTS recipe_popularity_suggestions_l ON recipe_popularity (suggestions_l);
+-- slots and counters of suggestions made before they existed
+INSERT INTO suggestion_slot (date, tag, recipe, diet_plan_id)
+  SELECT s.date, s.tag, s.recipe, s.diet_plan_id FROM diet_plan_suggestion s
+  WHERE NOT EXISTS (SELECT 1 FROM diet_plan_suggestion l WHERE l.date = s.date AND l.tag = s.tag
+      AND (l.created_timestamp > s.created_timestamp OR (l.created_timestamp = s.created_timestamp AND l.id > s.id)))
+    AND NOT EXISTS (SELECT 1 FROM suggestion_slot);
+INSERT INTO recipe_popularity (recipe, suggestions, suggestions_b, suggestions_d, suggestions_l)
+  SELECT recipe, COUNT(*), SUM(CASEWHEN(tag = 'B', 1, 0)), SUM(CASEWHEN(tag = 'D', 1, 0)), SUM(CASEWHEN(tag = 'L', 1, 0))
+  FROM suggestion_slot WHERE NOT EXISTS (SELECT 1 FROM recipe_popularity) GROUP BY recipe;
@@ -0,0 +1,76 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.BaseTest;
+
+public class CachingRecipePersistenceTest extends BaseTest {
+
+	@Test
+	public void testGet_sameRecipeTwiceAndCopyChanged_secondReadIsHitAndCacheUnchanged() throws PersistenceException {
+		CachingRecipePersistence cache = new CachingRecipePersistence(new DBRecipePersistence(new DBTagPersistence()), 10);
+
+		Recipe first = cache.get(1);
+		first.setName("Changed by the caller");
+		first.getRecipeIngredients().clear();
+
+		Recipe second = cache.get(1);
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals(new DBRecipePersistence(new DBTagPersistence()).get(1).getName(), second.getName());
+		Assert.assertFalse(second.getRecipeIngredients().isEmpty());
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testUpdateAndDelete_cachedRecipe_nextReadReturnsStoredState() throws PersistenceException {
+		CachingRecipePersistence cache = new CachingRecipePersistence(new DBRecipePersistence(new DBTagPersistence()), 10);
+		Recipe recipe = new Recipe("Cached recipe", 10d, "Test", EnumSet.of(RecipeTag.B));
+		cache.create(recipe);
+		cache.getRecipeSummaries(List.of(recipe.getId()));
+		int recipeCount = cache.getRecipes().size();
+
+		Recipe read = cache.get(recipe.getId());
+		read.setName("Updated recipe");
+		cache.update(read);
+		Assert.assertEquals("Updated recipe", cache.get(recipe.getId()).getName());
+		Assert.assertEquals("Updated recipe", cache.getRecipeSummaries(List.of(recipe.getId())).get(0).getName());
+
+		cache.delete(recipe.getId());
+		Assert.assertTrue(cache.get(recipe.getId()).getDeleted());
+		Assert.assertEquals(recipeCount - 1, cache.getRecipes().size());
+	}
+
+	@Test
+	public void testGetRecipes_readTwiceWithSmallCache_onlyMostRecentlyReadAreHitsAndOrderIsKept()
+			throws PersistenceException {
+		DBRecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+		List<Integer> expected = ids(recipePersistence.getRecipes());
+		CachingRecipePersistence cache = new CachingRecipePersistence(recipePersistence, 5);
+
+		Assert.assertEquals(expected, ids(cache.getRecipes()));
+		Assert.assertEquals(expected.size() - 5, cache.getEvictions());
+
+		Assert.assertEquals(expected, ids(cache.getRecipes()));
+		Assert.assertEquals(5, cache.getHits());
+		Assert.assertEquals(expected.size() - 5, cache.getMisses());
+
+		List<Integer> lastIds = expected.subList(expected.size() - 5, expected.size());
+		List<RecipeSummary> summaries = cache.getRecipeSummaries(lastIds);
+		Assert.assertEquals(summaries, cache.getRecipeSummaries(lastIds));
+		Assert.assertEquals(10, cache.getHits());
+	}
+
+	private static List<Integer> ids(List<Recipe> recipes) {
+		return recipes.stream().map(Recipe::getId).collect(Collectors.toList());
+	}
+}
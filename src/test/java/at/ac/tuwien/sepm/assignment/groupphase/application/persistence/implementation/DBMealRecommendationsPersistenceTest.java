@@ -1,14 +1,20 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.PopularRecipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.StatisticParam;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.MealRecommendationsPersistence;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.NoEntryFoundException;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
@@ -17,7 +23,7 @@ import at.ac.tuwien.sepm.assignment.groupphase.application.util.BaseTest;
 
 public class DBMealRecommendationsPersistenceTest extends BaseTest {
 
-    RecipePersistence recipePersistence = new DBRecipePersistence();
+    RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
     MealRecommendationsPersistence mealRecommendationsPersistence = new DBMealRecommendationsPersistence(recipePersistence);
 
     DietPlan dietPlan = new DietPlan(1, "Build Muscle", 2500.0, 25.0, 25.0, 50.0, LocalDate.now(), null);
@@ -61,4 +67,34 @@ public class DBMealRecommendationsPersistenceTest extends BaseTest {
     public void testReadRecommendationFor_withoutValidData_throwsNoEntryFoundExcpetion() throws NoEntryFoundException, PersistenceException {
         mealRecommendationsPersistence.readRecommendationFor(dietPlan, RecipeTag.B);
     }
+
+    @Test
+    public void testCreateRecommendationsFor_weekReplacingTodaysBreakfast_todayReadAndOnlyWeekCounted() throws PersistenceException, NoEntryFoundException {
+        Recipe replaced = new Recipe(2, "Replaced recipe", 120d, "Test", EnumSet.of(RecipeTag.B), false);
+        mealRecommendationsPersistence.createRecommendationFor(replaced, dietPlan, RecipeTag.B);
+
+        List<Map<RecipeTag, Recipe>> week = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            Map<RecipeTag, Recipe> meals = new EnumMap<>(RecipeTag.class);
+            meals.put(RecipeTag.B, breakfastRecipe);
+            meals.put(RecipeTag.L, new Recipe(3 + day % 2, "Lunch", 120d, "Test", EnumSet.of(RecipeTag.L), false));
+            meals.put(RecipeTag.D, new Recipe(5, "Dinner", 120d, "Test", EnumSet.of(RecipeTag.D), false));
+            week.add(meals);
+        }
+        mealRecommendationsPersistence.createRecommendationsFor(week, LocalDate.now(), dietPlan);
+
+        Assert.assertEquals(1, mealRecommendationsPersistence.readRecommendationFor(dietPlan, RecipeTag.B).getId().intValue());
+        Assert.assertEquals(3, mealRecommendationsPersistence.readRecommendationFor(dietPlan, RecipeTag.L).getId().intValue());
+
+        List<PopularRecipe> mostPopular = new DBStatisticPersistence().getMostPopularRecipes(new StatisticParam());
+        Assert.assertEquals(4, mostPopular.size());
+        Assert.assertEquals(1, mostPopular.get(0).getRecipeId());
+        Assert.assertEquals(7, mostPopular.get(0).getCount());
+        Assert.assertEquals(5, mostPopular.get(1).getRecipeId());
+        Assert.assertEquals(7, mostPopular.get(1).getCount());
+        Assert.assertEquals(3, mostPopular.get(2).getRecipeId());
+        Assert.assertEquals(4, mostPopular.get(2).getCount());
+        Assert.assertEquals(4, mostPopular.get(3).getRecipeId());
+        Assert.assertEquals(3, mostPopular.get(3).getCount());
+    }
 }
@@ -1,15 +1,22 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Clob;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import javax.imageio.ImageIO;
+
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -18,13 +25,21 @@ import at.ac.tuwien.sepm.assignment.groupphase.application.dto.IngredientSearchP
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeImage;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeNutrient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePage;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePageRequest;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSortKey;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.ThumbnailSize;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.RecipePersistence;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.BaseTest;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.CloseUtil;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.JDBCConnectionManager;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.NutritionUtil;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.RecipeKeyset;
 import org.junit.rules.ExpectedException;
 
 public class DBRecipePersistenceTest extends BaseTest {
@@ -63,7 +78,7 @@ public class DBRecipePersistenceTest extends BaseTest {
 	@Test
 	public void testCreate_withRecipeAndMixOfUserAndCommonIngredients_successWithSetRecipeId()
 			throws PersistenceException, SQLException {
-		RecipePersistence recipePersistence = new DBRecipePersistence();
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
 
 		EnumSet<RecipeTag> set = EnumSet.noneOf(RecipeTag.class);
 		set.add(RecipeTag.B);
@@ -86,7 +101,7 @@ public class DBRecipePersistenceTest extends BaseTest {
 	@Test
 	public void testCreate_withRecipeAndOnlyUserIngredients_successWithSetRecipeId()
 			throws PersistenceException, SQLException {
-		RecipePersistence recipePersistence = new DBRecipePersistence();
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
 
 		EnumSet<RecipeTag> set = EnumSet.noneOf(RecipeTag.class);
 		set.add(RecipeTag.B);
@@ -189,7 +204,7 @@ public class DBRecipePersistenceTest extends BaseTest {
 	@Test
 	public void testCreate_withRecipeAndOnlyCommonIngredients_successWithSetRecipeId()
 			throws PersistenceException, SQLException {
-		RecipePersistence recipePersistence = new DBRecipePersistence();
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
 
 		EnumSet<RecipeTag> set = EnumSet.noneOf(RecipeTag.class);
 		set.add(RecipeTag.B);
@@ -211,7 +226,7 @@ public class DBRecipePersistenceTest extends BaseTest {
 	@Test
 	public void testCreate_withRecipeImage_successWithSetRecipeId()
 			throws PersistenceException, SQLException {
-		RecipePersistence recipePersistence = new DBRecipePersistence();
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
 
 		EnumSet<RecipeTag> set = EnumSet.noneOf(RecipeTag.class);
 		set.add(RecipeTag.B);
@@ -237,10 +252,160 @@ public class DBRecipePersistenceTest extends BaseTest {
 		Assert.assertNotNull(recipe.getRecipeImages().get(0).getId());
 	}
 
+	@Test
+	public void testGet_recipeWithImage_imageIsDecodedOnDemandAndKeptOnUpdate()
+			throws PersistenceException, IOException {
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+
+		Recipe recipe = new Recipe("My recipe", 120d, "Test", EnumSet.of(RecipeTag.B));
+		recipe.setRecipeIngredients(getCommonRecipeIngredients());
+		List<RecipeImage> recipeImages = new ArrayList<>();
+		recipeImages.add(new RecipeImage(new BufferedImage(100, 50, BufferedImage.TYPE_INT_RGB), "png"));
+		recipe.setRecipeImages(recipeImages);
+		recipePersistence.create(recipe);
+		Integer imageId = recipe.getRecipeImages().get(0).getId();
+
+		Recipe loaded = recipePersistence.get(recipe.getId());
+		Assert.assertEquals(1, loaded.getRecipeImages().size());
+		RecipeImage image = loaded.getRecipeImages().get(0);
+		Assert.assertEquals(imageId, image.getId());
+		Assert.assertEquals("png", image.getImageType());
+		try (InputStream in = image.openStream()) {
+			Assert.assertTrue(in.readAllBytes().length > 0);
+		}
+		Assert.assertEquals(100, image.getImage().getWidth());
+		Assert.assertEquals(50, image.getImage().getHeight());
+
+		// the stored image must survive an update of the recipe
+		loaded.setName("Renamed recipe");
+		recipePersistence.update(loaded);
+		Recipe updated = recipePersistence.get(recipe.getId());
+		Assert.assertEquals(imageId, updated.getRecipeImages().get(0).getId());
+		Assert.assertEquals(100, updated.getRecipeImages().get(0).getImage().getWidth());
+	}
+
+	@Test
+	public void testCreate_recipeWithImageBytes_bytesAreStoredUnchanged() throws PersistenceException, IOException {
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), "png", file);
+		byte[] data = file.toByteArray();
+
+		Recipe recipe = new Recipe("My recipe", 120d, "Test", EnumSet.of(RecipeTag.B));
+		recipe.setRecipeIngredients(getCommonRecipeIngredients());
+		List<RecipeImage> recipeImages = new ArrayList<>();
+		recipeImages.add(new RecipeImage(data, "png"));
+		recipe.setRecipeImages(recipeImages);
+		recipePersistence.create(recipe);
+
+		Recipe loaded = recipePersistence.get(recipe.getId());
+		try (InputStream in = loaded.getRecipeImages().get(0).openStream()) {
+			Assert.assertArrayEquals(data, in.readAllBytes());
+		}
+		Assert.assertEquals(40, loaded.getRecipeImages().get(0).getImage().getWidth());
+
+		loaded.setDescription("Changed description");
+		recipePersistence.update(loaded);
+		Recipe updated = recipePersistence.get(recipe.getId());
+		Assert.assertEquals("Changed description", updated.getDescription());
+		try (InputStream in = updated.getRecipeImages().get(0).openStream()) {
+			Assert.assertArrayEquals(data, in.readAllBytes());
+		}
+	}
+
+	@Test
+	public void testCreate_imageBytesThatDoNotDecode_recipeStoredWithoutThumbnailsAndBackfillSkipsImage()
+			throws PersistenceException, IOException {
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+		byte[] data = "no image".getBytes();
+
+		Recipe recipe = new Recipe("My recipe", 120d, "Test", EnumSet.of(RecipeTag.B));
+		recipe.setRecipeIngredients(getCommonRecipeIngredients());
+		List<RecipeImage> recipeImages = new ArrayList<>();
+		recipeImages.add(new RecipeImage(data, "png"));
+		recipe.setRecipeImages(recipeImages);
+		recipePersistence.create(recipe);
+
+		Assert.assertEquals(0, recipePersistence.backfillThumbnails());
+		RecipeImage image = recipePersistence.get(recipe.getId()).getRecipeImages().get(0);
+		Assert.assertNull(image.getImage());
+		try (InputStream in = image.openStream()) {
+			Assert.assertArrayEquals(data, in.readAllBytes());
+		}
+	}
+
+	@Test
+	public void testCreate_recipeWithImage_thumbnailsAreStoredAndBackfilledWhenMissing()
+			throws PersistenceException, IOException, SQLException {
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+
+		Recipe recipe = new Recipe("My recipe", 120d, "Test", EnumSet.of(RecipeTag.B));
+		recipe.setRecipeIngredients(getCommonRecipeIngredients());
+		List<RecipeImage> recipeImages = new ArrayList<>();
+		recipeImages.add(new RecipeImage(new BufferedImage(1200, 900, BufferedImage.TYPE_INT_RGB), "jpeg"));
+		recipe.setRecipeImages(recipeImages);
+		recipePersistence.create(recipe);
+
+		// thumbnails are created together with the image, nothing left to backfill
+		Assert.assertEquals(0, recipePersistence.backfillThumbnails());
+
+		RecipeImage image = recipePersistence.get(recipe.getId()).getRecipeImages().get(0);
+		BufferedImage detail = image.getThumbnail(ThumbnailSize.DETAIL);
+		Assert.assertEquals(267, detail.getWidth());
+		Assert.assertEquals(200, detail.getHeight());
+		BufferedImage card = image.getThumbnail(ThumbnailSize.CARD);
+		Assert.assertEquals(292, card.getWidth());
+		Assert.assertEquals(164, card.getHeight());
+
+		PreparedStatement ps = null;
+		try {
+			ps = JDBCConnectionManager.getConnection().prepareStatement("DELETE FROM recipe_image_thumbnail;");
+			ps.execute();
+		} finally {
+			CloseUtil.closeStatement(ps);
+		}
+
+		Assert.assertEquals(1, recipePersistence.backfillThumbnails());
+		Assert.assertEquals(0, recipePersistence.backfillThumbnails());
+		Assert.assertEquals(164, recipePersistence.get(recipe.getId()).getRecipeImages().get(0)
+				.getThumbnail(ThumbnailSize.CARD).getHeight());
+	}
+
+	@Test
+	public void testSearchIngredient_queryIsWordPrefix_namesStartingWithWordRankFirstAndQuotesAreNoSql()
+			throws PersistenceException {
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+
+		List<RecipeIngredient> result = recipePersistence.searchIngredient(new IngredientSearchParam("EGG"));
+		Assert.assertFalse(result.isEmpty());
+		Assert.assertTrue(result.get(0).getIngredientName().toLowerCase().startsWith("egg"));
+
+		Assert.assertTrue(recipePersistence.searchIngredient(new IngredientSearchParam("egg' OR '1'='1")).isEmpty());
+	}
+
+	@Test
+	public void testSearchIngredient_twoWords_onlyIngredientsMatchingBothWordsBestScoresFirst()
+			throws PersistenceException {
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+		Recipe recipe = new Recipe("Quark test", 10d, "Test", EnumSet.of(RecipeTag.B));
+		List<RecipeIngredient> ingredients = new ArrayList<>();
+		ingredients.add(new RecipeIngredient(1d, 10d, 1d, 1d, 1d, "g", 1d, true, "Zwetschken quarkstrudel"));
+		ingredients.add(new RecipeIngredient(1d, 10d, 1d, 1d, 1d, "g", 1d, true, "Quark zwetschkenfuelle"));
+		ingredients.add(new RecipeIngredient(1d, 10d, 1d, 1d, 1d, "g", 1d, true, "Quarkzwetschke"));
+		ingredients.add(new RecipeIngredient(1d, 10d, 1d, 1d, 1d, "g", 1d, true, "Quarkstrudel"));
+		recipe.setRecipeIngredients(ingredients);
+		recipePersistence.create(recipe);
+
+		List<RecipeIngredient> result = recipePersistence.searchIngredient(new IngredientSearchParam("quark zwetschk"));
+		Assert.assertEquals(List.of("Quark zwetschkenfuelle", "Zwetschken quarkstrudel", "Quarkzwetschke"),
+				result.stream().map(RecipeIngredient::getIngredientName).collect(Collectors.toList()));
+	}
+
 	@Test
 	public void testSearchIngredient_queryIsEgg_resultSetNotEmptyAndContainsSpecificIngredient()
 			throws PersistenceException {
-		RecipePersistence recipePersistence = new DBRecipePersistence();
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
 
 		List<RecipeIngredient> result = recipePersistence.searchIngredient(new IngredientSearchParam("egg"));
 		Assert.assertTrue(result.size() >= 37);
@@ -268,7 +433,7 @@ public class DBRecipePersistenceTest extends BaseTest {
 
     @Test
     public void testGetRecipe_idIsValid_successWithRecipeSet() throws PersistenceException {
-        RecipePersistence recipePersistence = new DBRecipePersistence();
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
 
         Recipe recipe = recipePersistence.get(1);
 
@@ -299,20 +464,42 @@ public class DBRecipePersistenceTest extends BaseTest {
         expectedEx.expect(PersistenceException.class);
         expectedEx.expectMessage("No recipe found for given id");
 
-        new DBRecipePersistence().get(-1);
+        new DBRecipePersistence(new DBTagPersistence()).get(-1);
     }
-    
+
+    @Test
+    public void testGetRecipes_idsAreValid_successWithRecipesInRequestedOrder() throws PersistenceException {
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+
+        List<Recipe> recipes = recipePersistence.get(Arrays.asList(3, 1, -1));
+
+        Assert.assertEquals(2, recipes.size());
+        Assert.assertEquals(3, (int) recipes.get(0).getId());
+        Assert.assertEquals(1, (int) recipes.get(1).getId());
+        Assert.assertEquals("Fresh salmon with Thai noodle salad", recipes.get(1).getName());
+        Assert.assertEquals(9, recipes.get(1).getRecipeIngredients().size());
+        Assert.assertEquals(recipePersistence.get(3).getRecipeIngredients().size(),
+            recipes.get(0).getRecipeIngredients().size());
+    }
+
+    @Test
+    public void testGetRecipes_idsAreEmpty_successWithListEmpty() throws PersistenceException {
+        List<Recipe> recipes = new DBRecipePersistence(new DBTagPersistence()).get(new ArrayList<>());
+        Assert.assertNotNull(recipes);
+        Assert.assertEquals(0, recipes.size());
+    }
+
     @Test
     public void testDeleteRecipe_idIsInvalid_throwsPersistenceException() throws PersistenceException {
         expectedEx.expect(PersistenceException.class);
         expectedEx.expectMessage("No recipe found for given id");
         
-    	new DBRecipePersistence().delete(-1);
+    	new DBRecipePersistence(new DBTagPersistence()).delete(-1);
     }
     
     @Test
     public void testDeleteRecipe_idIsValid_success() throws PersistenceException, SQLException {
-    	RecipePersistence recipePersistence = new DBRecipePersistence();
+    	RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
     	
     	recipePersistence.delete(1);
     	
@@ -329,7 +516,7 @@ public class DBRecipePersistenceTest extends BaseTest {
 
     @Test
     public void testUpdateRecipe_recipeIsValidWithUserSpecificIngredients_successWithRecipeValuesUpdated() throws PersistenceException, SQLException {
-        RecipePersistence recipePersistence = new DBRecipePersistence();
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
 
         Recipe toUpdate = new Recipe(1,
             "Updated recipe",
@@ -386,7 +573,7 @@ public class DBRecipePersistenceTest extends BaseTest {
 
     @Test
     public void testUpdateRecipe_recipeIsValidWithCommonIngredients_successWithRecipeValuesUpdated() throws PersistenceException, SQLException {
-        RecipePersistence recipePersistence = new DBRecipePersistence();
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
 
         Recipe toUpdate = new Recipe(1,
             "Updated recipe",
@@ -435,9 +622,40 @@ public class DBRecipePersistenceTest extends BaseTest {
         CloseUtil.closeStatement(checkIngredientsUpdate);
     }
 
+    @Test
+    public void testUpdateRecipe_ingredientsChanged_onlyDifferencesAreApplied() throws PersistenceException {
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+
+        Recipe recipe = new Recipe("My recipe", 120d, "Test", EnumSet.of(RecipeTag.B));
+        List<RecipeIngredient> ingredients = new ArrayList<>();
+        ingredients.add(new RecipeIngredient(1, 1d, false));
+        ingredients.add(new RecipeIngredient(2, 2d, false));
+        ingredients.add(new RecipeIngredient(3, 3d, false));
+        recipe.setRecipeIngredients(ingredients);
+        recipePersistence.create(recipe);
+
+        // remove 1, change the amount of 2, keep 3, add 4 and a user specific ingredient
+        List<RecipeIngredient> changed = new ArrayList<>();
+        changed.add(new RecipeIngredient(2, 5d, false));
+        changed.add(new RecipeIngredient(3, 3d, false));
+        changed.add(new RecipeIngredient(4, 4d, false));
+        changed.addAll(getUserSpecificRecipeIngredients());
+        recipe.setRecipeIngredients(changed);
+        recipePersistence.update(recipe);
+
+        Recipe updated = recipePersistence.get(recipe.getId());
+        Assert.assertEquals(5, updated.getRecipeIngredients().size());
+        for (RecipeIngredient expected : changed) {
+            Assert.assertNotNull(expected.getId());
+            RecipeIngredient actual = updated.getRecipeIngredients().stream()
+                .filter(ri -> ri.getId().equals(expected.getId())).findFirst().orElseThrow();
+            Assert.assertEquals(expected.getAmount(), actual.getAmount(), 0.0);
+        }
+    }
+
     @Test
     public void testgetRecipes_databaseHasRecipeEntries_successWithEntriesReturned() throws PersistenceException {
-        RecipePersistence recipePersistence = new DBRecipePersistence();
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
         List<Recipe> recipes = recipePersistence.getRecipes();
         Assert.assertEquals(20, recipes.size());
 
@@ -466,13 +684,79 @@ public class DBRecipePersistenceTest extends BaseTest {
         }
     }
 
+	@Test
+	public void testCreateAndUpdate_ingredientsChanged_storedNutritionTotalsFollowIngredients()
+			throws PersistenceException {
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+		Recipe recipe = new Recipe("Nutrition test", 10d, "Test", EnumSet.of(RecipeTag.B));
+		List<RecipeIngredient> ingredients = new ArrayList<>();
+		ingredients.add(new RecipeIngredient(45, 2d, false));
+		ingredients.add(new RecipeIngredient(2d, 100d, 10d, 20d, 30d, "g", 50d, true, "Nutrition test ingredient"));
+		recipe.setRecipeIngredients(ingredients);
+		recipePersistence.create(recipe);
+
+		Recipe read = recipePersistence.get(recipe.getId());
+		Recipe expected = NutritionUtil.fillNutritionValues(recipePersistence.get(recipe.getId()));
+		Assert.assertEquals(expected.getCalories(), read.getCalories(), 0.001);
+		Assert.assertEquals(expected.getProteins(), read.getProteins(), 0.001);
+		Assert.assertEquals(expected.getCalories(), recipe.getCalories(), 0.001);
+
+		read.getRecipeIngredients().removeIf(ri -> ri.getId() == 45);
+		recipePersistence.update(read);
+		Recipe updated = recipePersistence.get(recipe.getId());
+		Assert.assertEquals(100d, updated.getCalories(), 0.001);
+		Assert.assertEquals(10d, updated.getFats(), 0.001);
+		Assert.assertEquals(20d, updated.getProteins(), 0.001);
+		Assert.assertEquals(30d, updated.getCarbohydrates(), 0.001);
+		Assert.assertEquals(50d, updated.getCarbohydratePercent(), 0.001);
+	}
+
+    @Test
+    public void testGetRecipeSummaries_databaseHasRecipeEntries_successWithNutritionOfFullRecipes() throws PersistenceException {
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+        List<RecipeSummary> summaries = recipePersistence.getRecipeSummaries();
+        Assert.assertEquals(20, summaries.size());
+
+        for (Recipe r : recipePersistence.getRecipes()) {
+            NutritionUtil.fillNutritionValues(r);
+            RecipeSummary summary = summaries.get(summaries.indexOf(new RecipeSummary(r)));
+
+            Assert.assertEquals(r.getName(), summary.getName());
+            Assert.assertEquals(r.getDuration(), summary.getDuration(), 0.0);
+            Assert.assertEquals(r.getTags(), summary.getTags());
+            Assert.assertEquals(r.getCalories(), summary.getCalories(), 0.001);
+            Assert.assertEquals(r.getCarbohydrates(), summary.getCarbohydrates(), 0.001);
+            Assert.assertEquals(r.getProteins(), summary.getProteins(), 0.001);
+            Assert.assertEquals(r.getFats(), summary.getFats(), 0.001);
+        }
+    }
+
+    @Test
+    public void testSearchRecipeSummaries_with2MatchingResults_success() throws PersistenceException {
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+
+        RecipeSearchParam searchParam = new RecipeSearchParam();
+        searchParam.addIngredient("milk");
+        searchParam.addIngredient("egg");
+        searchParam.addIngredient("butter");
+        searchParam.setLowerDurationInkl(10d);
+        searchParam.setUpperDurationInkl(80d);
+        searchParam.setTags(EnumSet.of(RecipeTag.B));
+        searchParam.setRecipeName("cake");
+
+        List<RecipeSummary> summaries = recipePersistence.searchRecipeSummaries(searchParam);
+        Assert.assertEquals(2, summaries.size());
+        Assert.assertEquals(recipePersistence.searchRecipes(searchParam).stream().map(Recipe::getId)
+            .collect(Collectors.toSet()), summaries.stream().map(RecipeSummary::getId).collect(Collectors.toSet()));
+    }
+
     @Test
     public void testgetRecipes_databaseIsEmpty_successWithListEmpty() throws PersistenceException, SQLException {
         PreparedStatement dropExampleRecipes = JDBCConnectionManager.getConnection().prepareStatement(SQL_DROP_EXAMPLE_RECIPES);
         dropExampleRecipes.execute();
         CloseUtil.closeStatement(dropExampleRecipes);
 
-        RecipePersistence recipePersistence = new DBRecipePersistence();
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
         List<Recipe> recipes = recipePersistence.getRecipes();
         Assert.assertNotNull(recipes);
         Assert.assertEquals(0, recipes.size());
@@ -481,7 +765,7 @@ public class DBRecipePersistenceTest extends BaseTest {
     @Test
     public void testSearchRecipes_noMatchingResult_successWithEmptyList() throws PersistenceException {
     	// uses example recipes in test db
-        RecipePersistence recipePersistence = new DBRecipePersistence();
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
         
         RecipeSearchParam searchParam = new RecipeSearchParam();
 		searchParam.addIngredient("milk");
@@ -503,7 +787,7 @@ public class DBRecipePersistenceTest extends BaseTest {
     @Test
     public void testSearchRecipes_with2MatchingResults_success() throws PersistenceException {
     	// uses example recipes in test db
-        RecipePersistence recipePersistence = new DBRecipePersistence();
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
         
         RecipeSearchParam searchParam = new RecipeSearchParam();
         searchParam.addIngredient("milk");
@@ -524,7 +808,7 @@ public class DBRecipePersistenceTest extends BaseTest {
     @Test
     public void testSearchRecipes_with1MatchingResults_success() throws PersistenceException {
     	// uses example recipes in test db
-        RecipePersistence recipePersistence = new DBRecipePersistence();
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
         
         RecipeSearchParam searchParam = new RecipeSearchParam();
         searchParam.addIngredient("milk");
@@ -546,7 +830,7 @@ public class DBRecipePersistenceTest extends BaseTest {
     @Test
     public void testSearchRecipes_withEmptyParam_successWithResults() throws PersistenceException {
     	// uses example recipes in test db
-        RecipePersistence recipePersistence = new DBRecipePersistence();
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
         
         RecipeSearchParam searchParam = new RecipeSearchParam();
 		
@@ -554,4 +838,116 @@ public class DBRecipePersistenceTest extends BaseTest {
         Assert.assertNotNull(recipes);
         Assert.assertTrue(recipes.size() > 10);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSearchRecipes_moreThan10IngredientsAndExcludedIngredient_onlyRecipesMatchingAllWordsAndNoneExcluded()
+        throws PersistenceException {
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+
+        RecipeSearchParam searchParam = new RecipeSearchParam();
+        searchParam.addIngredient("milk");
+        searchParam.addIngredient("egg");
+        searchParam.addIngredient("butter");
+        List<Recipe> withAll = recipePersistence.searchRecipes(searchParam);
+        Assert.assertFalse(withAll.isEmpty());
+
+        // each word occurs in milk, egg or butter, so the result does not change
+        for (String word : new String[] { "mil", "ilk", "eg", "gg", "but", "utt", "tter", "bu", "ut", "er" }) {
+            searchParam.addIngredient(word);
+        }
+        Assert.assertEquals(13, searchParam.getIngredients().size());
+        Assert.assertEquals(ids(withAll), ids(recipePersistence.searchRecipes(searchParam)));
+
+        searchParam.addIngredient("marmelade-that-does-not-exist");
+        Assert.assertTrue(recipePersistence.searchRecipes(searchParam).isEmpty());
+
+        RecipeSearchParam withoutParam = new RecipeSearchParam();
+        withoutParam.addExcludedIngredient("butter");
+        List<Recipe> without = recipePersistence.searchRecipes(withoutParam);
+        Assert.assertFalse(without.isEmpty());
+        for (Recipe recipe : without) {
+            Assert.assertTrue(recipe.getRecipeIngredients().stream()
+                .noneMatch(ri -> ri.getIngredientName().toLowerCase().contains("butter")));
+        }
+        Assert.assertEquals(recipePersistence.getRecipes().size(), without.size() + recipePersistence.searchRecipes(
+            withParam("butter")).size());
+    }
+
+    @Test
+    public void testSearchRecipes_caloriesAndProteinShareBounded_sameRecipesAsFilteringFullRecipes()
+        throws PersistenceException {
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+        List<Recipe> recipes = recipePersistence.getRecipes();
+        recipes.forEach(NutritionUtil::fillNutritionValues);
+        double medianCalories = recipes.stream().mapToDouble(Recipe::getCalories).sorted()
+            .skip(recipes.size() / 2).findFirst().getAsDouble();
+
+        RecipeSearchParam searchParam = new RecipeSearchParam();
+        searchParam.setUpperNutritionInkl(RecipeNutrient.CALORIES, medianCalories);
+        searchParam.setLowerNutritionInkl(RecipeNutrient.PROTEIN_PERCENT, 15d);
+        Set<Integer> expected = recipes.stream()
+            .filter(r -> r.getCalories() <= medianCalories && r.getProteinPercent() >= 15d)
+            .map(Recipe::getId).collect(Collectors.toSet());
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertNotEquals(recipes.size(), expected.size());
+
+        Assert.assertEquals(expected, ids(recipePersistence.searchRecipes(searchParam)));
+        Assert.assertEquals(expected, recipePersistence.searchRecipeSummaries(searchParam).stream()
+            .map(RecipeSummary::getId).collect(Collectors.toSet()));
+
+        searchParam.setLowerNutritionInkl(RecipeNutrient.CALORIES, medianCalories + 1);
+        Assert.assertTrue(recipePersistence.searchRecipes(searchParam).isEmpty());
+    }
+
+    @Test
+    public void testSearchRecipeSummaries_pagedInEveryOrder_allRecipesInOrderWithoutDuplicates()
+        throws PersistenceException {
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+        RecipeSearchParam searchParam = new RecipeSearchParam();
+        List<RecipeSummary> all = recipePersistence.searchRecipeSummaries(searchParam);
+        Assert.assertTrue(all.size() > 3);
+
+        for (RecipeSortKey sortKey : RecipeSortKey.values()) {
+            for (boolean descending : new boolean[] { false, true }) {
+                RecipePageRequest pageRequest = new RecipePageRequest(sortKey, descending, 3, null);
+                List<RecipeSummary> expected = new ArrayList<>(all);
+                expected.sort(RecipeKeyset.comparator(pageRequest));
+
+                List<Integer> paged = new ArrayList<>();
+                RecipePage page = recipePersistence.searchRecipeSummaries(searchParam, pageRequest);
+                paged.addAll(summaryIds(page));
+                while (page.hasNext()) {
+                    Assert.assertEquals(3, page.getSummaries().size());
+                    page = recipePersistence.searchRecipeSummaries(searchParam, pageRequest = pageRequest.next(page));
+                    paged.addAll(summaryIds(page));
+                }
+                Assert.assertEquals(sortKey + " descending " + descending,
+                    expected.stream().map(RecipeSummary::getId).collect(Collectors.toList()), paged);
+            }
+        }
+    }
+
+    @Test(expected = PersistenceException.class)
+    public void testSearchRecipeSummaries_tokenOfAnotherOrder_persistenceException() throws PersistenceException {
+        RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+        RecipePageRequest byName = new RecipePageRequest(RecipeSortKey.NAME, false, 1, null);
+        RecipePage page = recipePersistence.searchRecipeSummaries(new RecipeSearchParam(), byName);
+
+        recipePersistence.searchRecipeSummaries(new RecipeSearchParam(),
+            new RecipePageRequest(RecipeSortKey.DURATION, false, 1, page.getContinuationToken()));
+    }
+
+    private static List<Integer> summaryIds(RecipePage page) {
+        return page.getSummaries().stream().map(RecipeSummary::getId).collect(Collectors.toList());
+    }
+
+    private static RecipeSearchParam withParam(String ingredient) {
+        RecipeSearchParam searchParam = new RecipeSearchParam();
+        searchParam.addIngredient(ingredient);
+        return searchParam;
+    }
+
+    private static Set<Integer> ids(List<Recipe> recipes) {
+        return recipes.stream().map(Recipe::getId).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,122 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.PopularRecipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.StatisticParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.StatisticPeriod;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.MealRecommendationsPersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.StatisticPersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.BaseTest;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.JDBCConnectionManager;
+
+public class DBStatisticPersistenceTest extends BaseTest {
+
+    private final MealRecommendationsPersistence mealRecommendationsPersistence =
+        new DBMealRecommendationsPersistence(new DBRecipePersistence(new DBTagPersistence()));
+    private final DietPlan dietPlan = new DietPlan(1, "Build Muscle", 2500.0, 25.0, 25.0, 50.0, LocalDate.now(), null);
+
+    @Test
+    public void testGetMostPopularRecipes_swappedSuggestions_onlyLatestPerDateAndTagCounted() throws PersistenceException {
+        suggest(2, RecipeTag.B);
+        // swapped for recipe 1
+        suggest(1, RecipeTag.B);
+        suggest(1, RecipeTag.L);
+        suggest(3, RecipeTag.D);
+
+        StatisticPersistence statisticPersistence = new DBStatisticPersistence();
+        List<PopularRecipe> mostPopular = statisticPersistence.getMostPopularRecipes(new StatisticParam());
+
+        Assert.assertEquals(2, mostPopular.size());
+        Assert.assertEquals(1, mostPopular.get(0).getRecipeId());
+        Assert.assertEquals(2, mostPopular.get(0).getCount());
+        Assert.assertEquals(3, mostPopular.get(1).getRecipeId());
+        Assert.assertEquals(1, mostPopular.get(1).getCount());
+
+        RecipeSummary summary = new DBRecipePersistence(new DBTagPersistence()).getRecipeSummaries(List.of(1)).get(0);
+        Assert.assertEquals(summary.getName(), mostPopular.get(0).getName());
+        Assert.assertEquals(summary.getCalories(), mostPopular.get(0).getCalories(), 0.001);
+        Assert.assertEquals(summary.getFats(), mostPopular.get(0).getFats(), 0.001);
+
+        // suggesting the same recipe again does not count twice
+        suggest(3, RecipeTag.D);
+        Assert.assertEquals(1, statisticPersistence.getMostPopularRecipes(new StatisticParam()).get(1).getCount());
+    }
+
+    @Test
+    public void testGetMostPopularRecipes_historyOfPastDaysRebuilt_countedPerPeriodMealAndDietPlan()
+        throws PersistenceException, SQLException {
+        suggestedBefore(3, 4, RecipeTag.B, 1, 2);
+        // swapped for recipe 1
+        suggestedBefore(3, 1, RecipeTag.B, 1, 1);
+        suggestedBefore(20, 2, RecipeTag.B, 2, 1);
+        suggestedBefore(20, 2, RecipeTag.L, 2, 1);
+        suggestedBefore(60, 3, RecipeTag.D, 1, 1);
+
+        StatisticPersistence statisticPersistence = new DBStatisticPersistence();
+        Assert.assertEquals(4, statisticPersistence.rebuildStatistics());
+
+        Assert.assertEquals(List.of(2, 1, 3), ids(statisticPersistence, StatisticPeriod.ALL_TIME, null, null));
+        Assert.assertEquals(List.of(1), ids(statisticPersistence, StatisticPeriod.LAST_7_DAYS, null, null));
+        Assert.assertEquals(List.of(2, 1), ids(statisticPersistence, StatisticPeriod.LAST_30_DAYS, null, null));
+        Assert.assertEquals(List.of(2, 1, 3), ids(statisticPersistence, StatisticPeriod.LAST_90_DAYS, null, null));
+        Assert.assertEquals(List.of(2), ids(statisticPersistence, StatisticPeriod.LAST_30_DAYS, RecipeTag.L, null));
+        Assert.assertEquals(List.of(3), ids(statisticPersistence, StatisticPeriod.ALL_TIME, RecipeTag.D, null));
+        Assert.assertEquals(List.of(1, 3), ids(statisticPersistence, StatisticPeriod.ALL_TIME, null, 1));
+        Assert.assertEquals(List.of(1), ids(statisticPersistence, StatisticPeriod.LAST_30_DAYS, RecipeTag.B, 1));
+
+        StatisticParam statisticParam = new StatisticParam();
+        statisticParam.setPeriod(StatisticPeriod.LAST_30_DAYS);
+        Assert.assertEquals(2, statisticPersistence.getMostPopularRecipes(statisticParam).get(0).getCount());
+
+        // suggestions made after the rebuild are added to the rebuilt counters
+        suggest(3, RecipeTag.D);
+        List<PopularRecipe> mostPopular = statisticPersistence.getMostPopularRecipes(new StatisticParam());
+        Assert.assertEquals(3, mostPopular.get(1).getRecipeId());
+        Assert.assertEquals(2, mostPopular.get(1).getCount());
+    }
+
+    private static List<Integer> ids(StatisticPersistence statisticPersistence, StatisticPeriod period, RecipeTag tag,
+                                     Integer dietPlanId) throws PersistenceException {
+        StatisticParam statisticParam = new StatisticParam();
+        statisticParam.setPeriod(period);
+        statisticParam.setTag(tag);
+        statisticParam.setDietPlanId(dietPlanId);
+        return statisticPersistence.getMostPopularRecipes(statisticParam).stream().map(PopularRecipe::getRecipeId)
+            .collect(Collectors.toList());
+    }
+
+    private static void suggestedBefore(int days, int recipeId, RecipeTag tag, int dietPlanId, int hoursAgo)
+        throws SQLException {
+        try (PreparedStatement ps = JDBCConnectionManager.getConnection().prepareStatement(
+            "INSERT INTO diet_plan_suggestion (recipe, date, tag, diet_plan_id, created_timestamp) VALUES (?,?,?,?,?)")) {
+            ps.setInt(1, recipeId);
+            ps.setDate(2, Date.valueOf(LocalDate.now().minusDays(days)));
+            ps.setString(3, tag.toString());
+            ps.setInt(4, dietPlanId);
+            ps.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now().minusDays(days).minusHours(hoursAgo)));
+            ps.executeUpdate();
+        }
+    }
+
+    private void suggest(int recipeId, RecipeTag tag) throws PersistenceException {
+        Recipe recipe = new Recipe(recipeId, "Recipe", 10d, "Test", EnumSet.of(tag), false);
+        mealRecommendationsPersistence.createRecommendationFor(recipe, dietPlan, tag);
+    }
+}
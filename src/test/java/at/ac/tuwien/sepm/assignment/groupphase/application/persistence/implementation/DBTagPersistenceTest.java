@@ -0,0 +1,120 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Tag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.RecipePersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.TagPersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.BaseTest;
+
+public class DBTagPersistenceTest extends BaseTest {
+
+	@Test
+	public void testReadAll_noCustomTags_onlyMealTags() throws PersistenceException {
+		TagPersistence tagPersistence = new DBTagPersistence();
+
+		List<Tag> tags = tagPersistence.readAll();
+
+		Assert.assertEquals(RecipeTag.values().length, tags.size());
+		for (RecipeTag recipeTag : RecipeTag.values()) {
+			Tag tag = tags.get(recipeTag.getBit());
+			Assert.assertEquals(recipeTag.name(), tag.getName());
+			Assert.assertTrue(tag.getMeal());
+			Assert.assertEquals(recipeTag.getMask(), tag.getMask());
+		}
+	}
+
+	@Test
+	public void testCreate_twoCustomTags_nextFreeBitsAboveMealTagsAssigned() throws PersistenceException {
+		TagPersistence tagPersistence = new DBTagPersistence();
+
+		Tag vegan = new Tag("vegan");
+		tagPersistence.create(vegan);
+		Tag quick = new Tag("quick");
+		tagPersistence.create(quick);
+
+		Assert.assertEquals(Integer.valueOf(3), vegan.getBit());
+		Assert.assertEquals(Integer.valueOf(4), quick.getBit());
+		Assert.assertEquals(List.of("B", "D", "L", "vegan", "quick"),
+				tagPersistence.readAll().stream().map(Tag::getName).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testSearchRecipes_customTag_onlyRecipesWithMealAndCustomTag() throws PersistenceException {
+		TagPersistence tagPersistence = new DBTagPersistence();
+		RecipePersistence recipePersistence = new DBRecipePersistence(tagPersistence);
+		Tag vegan = new Tag("vegan");
+		tagPersistence.create(vegan);
+
+		Recipe recipe = new Recipe("Vegan lunch", 30d, "Test", EnumSet.of(RecipeTag.L));
+		List<RecipeIngredient> ingredients = new ArrayList<>();
+		ingredients.add(new RecipeIngredient(45, 2d, false));
+		recipe.setRecipeIngredients(ingredients);
+		recipe.setCustomTagMask(vegan.getMask());
+		recipePersistence.create(recipe);
+
+		Recipe read = recipePersistence.get(recipe.getId());
+		Assert.assertEquals(EnumSet.of(RecipeTag.L), read.getTags());
+		Assert.assertEquals(vegan.getMask(), read.getCustomTagMask());
+
+		RecipeSearchParam searchParam = new RecipeSearchParam();
+		searchParam.addCustomTag(vegan);
+		Assert.assertEquals(List.of(recipe.getId()),
+				recipePersistence.searchRecipes(searchParam).stream().map(Recipe::getId).collect(Collectors.toList()));
+
+		searchParam.setTags(EnumSet.of(RecipeTag.B));
+		Assert.assertTrue(recipePersistence.searchRecipes(searchParam).isEmpty());
+		Assert.assertTrue(recipePersistence.searchRecipeSummaries(searchParam).isEmpty());
+
+		// the tags are searched through rows that follow the tag mask of the recipe
+		read.setCustomTagMask(0);
+		recipePersistence.update(read);
+		searchParam = new RecipeSearchParam();
+		searchParam.addCustomTag(vegan);
+		Assert.assertTrue(recipePersistence.searchRecipes(searchParam).isEmpty());
+		searchParam = new RecipeSearchParam();
+		searchParam.setTags(EnumSet.of(RecipeTag.L));
+		Assert.assertTrue(recipePersistence.searchRecipes(searchParam).stream().map(Recipe::getId)
+				.anyMatch(recipe.getId()::equals));
+	}
+
+	@Test
+	public void testCreateRecipe_customTagNames_tagsCreatedWithRecipeAndRolledBackWithIt() throws PersistenceException {
+		TagPersistence tagPersistence = new DBTagPersistence();
+		RecipePersistence recipePersistence = new DBRecipePersistence(tagPersistence);
+
+		Recipe recipe = new Recipe("Tagged lunch", 30d, "Test", EnumSet.of(RecipeTag.L));
+		List<RecipeIngredient> ingredients = new ArrayList<>();
+		ingredients.add(new RecipeIngredient(45, 2d, false));
+		recipe.setRecipeIngredients(ingredients);
+		recipe.setCustomTagNames(List.of(" Vegan", "quick ", "VEGAN", ""));
+		recipePersistence.create(recipe);
+
+		List<Tag> customTags = tagPersistence.getOrCreateCustomTags(List.of("vegan", "quick"));
+		Assert.assertEquals(customTags.get(0).getMask() | customTags.get(1).getMask(),
+				recipePersistence.get(recipe.getId()).getCustomTagMask());
+
+		Recipe failing = new Recipe("x".repeat(300), 30d, "Test", EnumSet.of(RecipeTag.L));
+		failing.setRecipeIngredients(ingredients);
+		failing.setCustomTagNames(List.of("orphan"));
+		try {
+			recipePersistence.create(failing);
+			Assert.fail("A recipe with a name longer than its column must not be stored");
+		} catch (PersistenceException e) {
+			// expected
+		}
+		Assert.assertEquals(List.of("B", "D", "L", "vegan", "quick"),
+				tagPersistence.readAll().stream().map(Tag::getName).collect(Collectors.toList()));
+	}
+}
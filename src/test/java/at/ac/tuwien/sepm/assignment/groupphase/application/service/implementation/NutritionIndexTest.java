@@ -0,0 +1,165 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.NutritionSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeNutrient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+
+public class NutritionIndexTest {
+
+	private final Random random = new Random(42);
+
+	@Test
+	public void testSearch_randomTargetsAfterChanges_sameRecipesAsComparingAll() {
+		List<RecipeSummary> recipes = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			recipes.add(randomRecipe(i));
+		}
+		NutritionIndex index = new NutritionIndex();
+		index.putAll(recipes);
+
+		// enough changes to rebuild the trees, and some that are still pending
+		for (int i = 0; i < 1500; i++) {
+			int position = random.nextInt(recipes.size());
+			if (random.nextBoolean()) {
+				index.remove(recipes.remove(position).getId());
+			} else {
+				RecipeSummary changed = randomRecipe(recipes.get(position).getId());
+				recipes.set(position, changed);
+				index.put(changed);
+			}
+		}
+		for (int i = 5000; i < 5100; i++) {
+			RecipeSummary added = randomRecipe(i);
+			recipes.add(added);
+			index.put(added);
+		}
+		Assert.assertEquals(recipes.size(), index.size());
+
+		for (int i = 0; i < 200; i++) {
+			NutritionSearchParam searchParam = new NutritionSearchParam();
+			RecipeTag[] tags = RecipeTag.values();
+			searchParam.setTag(random.nextInt(4) == 0 ? null : tags[random.nextInt(tags.length)]);
+			for (RecipeNutrient nutrient : RecipeNutrient.values()) {
+				if (nutrient == RecipeNutrient.CALORIES || random.nextBoolean()) {
+					double target = nutrient == RecipeNutrient.CALORIES ? 100 + random.nextDouble() * 1400
+							: 5 + random.nextDouble() * 60;
+					searchParam.setTarget(nutrient, target, random.nextDouble() * 3);
+				}
+			}
+			if (random.nextBoolean()) {
+				searchParam.setMaxDistance(random.nextDouble() * 0.5);
+				searchParam.setLimit(Integer.MAX_VALUE);
+			} else {
+				searchParam.setLimit(1 + random.nextInt(20));
+			}
+
+			Assert.assertEquals(searchParam.toString(), ids(compareAll(recipes, searchParam)),
+					ids(index.search(searchParam)));
+		}
+	}
+
+	@Test
+	public void testSearch_scoreOfMeal_distanceIsScoreOfKernel() {
+		DietPlan dietPlan = new DietPlan(1, "Build Muscle", 2500.0, 20.0, 25.0, 50.0, LocalDate.now(), null);
+		List<RecipeSummary> recipes = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			recipes.add(randomRecipe(i));
+		}
+		NutritionIndex index = new NutritionIndex();
+		index.putAll(recipes);
+		double kcalTarget = dietPlan.getEnergy_kcal() / 4 * 2;
+
+		NutritionSearchParam searchParam = RecipeScoringKernel.searchParam(dietPlan, kcalTarget, RecipeTag.L);
+		searchParam.setMaxDistance(0.6);
+		searchParam.setLimit(Integer.MAX_VALUE);
+		List<RecipeSummary> found = index.search(searchParam);
+
+		RecipeScoringKernel kernel = new RecipeScoringKernel(recipes);
+		int[] candidates = kernel.candidates(RecipeTag.L.getMask());
+		double[] scores = kernel.score(dietPlan, kcalTarget, candidates, Integer.MAX_VALUE);
+		List<Integer> expected = new ArrayList<>();
+		for (int c = 0; c < candidates.length; c++) {
+			if (scores[c] <= 0.6) {
+				expected.add(kernel.get(candidates[c]).getId());
+			}
+		}
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected.stream().sorted().collect(Collectors.toList()),
+				ids(found).stream().sorted().collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testSearch_scoreOfMealEqualCalories_macroDeviationDecidesOrder() {
+		DietPlan dietPlan = new DietPlan(1, "Build Muscle", 2500.0, 20.0, 25.0, 50.0, LocalDate.now(), null);
+		NutritionIndex index = new NutritionIndex();
+		// carbohydrate, protein and fat shares of 10/30/60, 50/25/25 and 35/25/40 percent
+		index.put(new RecipeSummary(1, "Fat", 1d, RecipeTag.L.getMask(), 1250d, 10d, 30d, 60d));
+		index.put(new RecipeSummary(2, "Close", 1d, RecipeTag.L.getMask(), 1250d, 50d, 25d, 25d));
+		index.put(new RecipeSummary(3, "Between", 1d, RecipeTag.L.getMask(), 1250d, 35d, 25d, 40d));
+
+		NutritionSearchParam searchParam = RecipeScoringKernel.searchParam(dietPlan, 1250, RecipeTag.L);
+		for (RecipeNutrient nutrient : RecipeNutrient.values()) {
+			Assert.assertNotNull(nutrient.toString(), searchParam.getTarget(nutrient));
+		}
+		Assert.assertEquals(List.of(2, 3, 1), ids(index.search(searchParam)));
+
+		searchParam.setLimit(1);
+		Assert.assertEquals(List.of(2), ids(index.search(searchParam)));
+	}
+
+	@Test
+	public void testPut_unknownNutrition_recipeNotFound() {
+		NutritionIndex index = new NutritionIndex();
+		index.put(new RecipeSummary(1, "Water", 1d, RecipeTag.B.getMask(), 0d, 0d, 0d, 0d));
+		index.put(new RecipeSummary(2, "Unknown", 1d, RecipeTag.B.getMask(), null, null, null, null));
+		index.put(new RecipeSummary(3, "Toast", 1d, RecipeTag.B.getMask(), 300d, 40d, 8d, 5d));
+
+		Assert.assertEquals(1, index.size());
+		Assert.assertEquals(List.of(3), ids(index.search(new NutritionSearchParam(RecipeTag.B, 0.5, 10))));
+		Assert.assertTrue(index.search(new NutritionSearchParam(RecipeTag.D, 300, 10)).isEmpty());
+	}
+
+	private RecipeSummary randomRecipe(int id) {
+		long tagMask = random.nextInt(8);
+		return new RecipeSummary(id, "Recipe " + id, 30d, tagMask, random.nextDouble() * 1500,
+				random.nextDouble() * 100, random.nextDouble() * 60, random.nextDouble() * 50);
+	}
+
+	private static List<RecipeSummary> compareAll(List<RecipeSummary> recipes, NutritionSearchParam searchParam) {
+		double maxDistance = searchParam.getMaxDistance() == null ? Double.POSITIVE_INFINITY
+				: searchParam.getMaxDistance();
+		return recipes.stream()
+				.filter(r -> searchParam.getTag() == null || r.getTags().contains(searchParam.getTag()))
+				.filter(r -> distance(r, searchParam) <= maxDistance)
+				.sorted(Comparator.<RecipeSummary> comparingDouble(r -> distance(r, searchParam))
+						.thenComparing(RecipeSummary::getId))
+				.limit(searchParam.getLimit()).collect(Collectors.toList());
+	}
+
+	private static double distance(RecipeSummary recipe, NutritionSearchParam searchParam) {
+		double distance = 0;
+		for (RecipeNutrient nutrient : RecipeNutrient.values()) {
+			if (searchParam.getTarget(nutrient) != null) {
+				distance += Math.abs(nutrient.getValue(recipe) / searchParam.getTarget(nutrient) - 1)
+						* searchParam.getWeight(nutrient);
+			}
+		}
+		return distance;
+	}
+
+	private static List<Integer> ids(List<RecipeSummary> recipes) {
+		return recipes.stream().map(RecipeSummary::getId).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,82 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+
+public class RecipeScoringKernelTest {
+
+	private final DietPlan dietPlan = new DietPlan(1, "Build Muscle", 2500.0, 20.0, 25.0, 50.0, LocalDate.now(), null);
+
+	@Test
+	public void testCandidates_mixedTags_onlyRecipesWithTagInOrder() {
+		List<RecipeSummary> recipes = new ArrayList<>();
+		recipes.add(recipe(1, RecipeTag.B.getMask(), 500, 50, 20, 10));
+		recipes.add(recipe(2, RecipeTag.L.getMask(), 500, 50, 20, 10));
+		recipes.add(recipe(3, RecipeTag.B.getMask() | RecipeTag.D.getMask(), 500, 50, 20, 10));
+
+		RecipeScoringKernel kernel = new RecipeScoringKernel(recipes);
+		Assert.assertArrayEquals(new int[] { 0, 2 }, kernel.candidates(RecipeTag.B.getMask()));
+		Assert.assertArrayEquals(new int[] { 2 }, kernel.candidates(RecipeTag.D.getMask()));
+		Assert.assertEquals(3, kernel.get(2).getId().intValue());
+	}
+
+	@Test
+	public void testScore_randomRecipesSequentialAndParallel_sameScoresAsFromSummaries() {
+		Random random = new Random(42);
+		List<RecipeSummary> recipes = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			recipes.add(recipe(i, RecipeTag.L.getMask(), random.nextDouble() * 1500, random.nextDouble() * 100,
+					random.nextDouble() * 60, random.nextDouble() * 50));
+		}
+		// no macro nutrients, no score
+		recipes.add(recipe(20000, RecipeTag.L.getMask(), 300, 0, 0, 0));
+
+		RecipeScoringKernel kernel = new RecipeScoringKernel(recipes);
+		int[] candidates = kernel.candidates(RecipeTag.L.getMask());
+		double kcalTarget = dietPlan.getEnergy_kcal() / 4 * 2;
+		double[] sequential = kernel.score(dietPlan, kcalTarget, candidates, Integer.MAX_VALUE);
+		double[] parallel = kernel.score(dietPlan, kcalTarget, candidates, 1);
+
+		Assert.assertArrayEquals(sequential, parallel, 0.0);
+		for (int c = 0; c < candidates.length - 1; c++) {
+			RecipeSummary r = recipes.get(candidates[c]);
+			double expected = Math.abs(r.getCalories() / kcalTarget - 1) * 2.5
+					+ Math.abs(r.getCarbohydratePercent() / dietPlan.getCarbohydrate() - 1) * 0.5
+					+ Math.abs(r.getProteinPercent() / dietPlan.getProtein() - 1) * 0.5
+					+ Math.abs(r.getFatPercent() / dietPlan.getLipid() - 1) * 0.5;
+			Assert.assertEquals(expected, sequential[c], 1e-9);
+		}
+		Assert.assertTrue(Double.isNaN(sequential[candidates.length - 1]));
+	}
+
+	@Test
+	public void testScore_equalCaloriesDifferentMacroShares_closerSharesScoreBetter() {
+		List<RecipeSummary> recipes = new ArrayList<>();
+		// carbohydrate, protein and fat shares of 50/25/25 percent, close to the plan's 50/25/20
+		recipes.add(recipe(1, RecipeTag.L.getMask(), 1250, 50, 25, 25));
+		// shares of 10/30/60 percent
+		recipes.add(recipe(2, RecipeTag.L.getMask(), 1250, 10, 30, 60));
+
+		RecipeScoringKernel kernel = new RecipeScoringKernel(recipes);
+		int[] candidates = kernel.candidates(RecipeTag.L.getMask());
+		double[] scores = kernel.score(dietPlan, 1250, candidates, Integer.MAX_VALUE);
+
+		Assert.assertEquals(0.125, scores[0], 1e-9);
+		Assert.assertEquals(1.5, scores[1], 1e-9);
+		Assert.assertTrue(scores[0] < scores[1]);
+	}
+
+	private static RecipeSummary recipe(int id, long tagMask, double calories, double carbohydrates, double proteins,
+			double fats) {
+		return new RecipeSummary(id, "Recipe " + id, 10d, tagMask, calories, carbohydrates, proteins, fats);
+	}
+}
@@ -0,0 +1,275 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeNutrient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePage;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipePageRequest;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSortKey;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Tag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.RecipePersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation.DBRecipePersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation.DBTagPersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.RecipeService;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.BaseTest;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.IngredientSearchParamValidator;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.RecipeIngredientsValidator;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation.RecipeValidator;
+
+public class RecipeSearchIndexTest extends BaseTest {
+
+	@Test
+	public void testSearch_tagsDurationAndIngredients_onlyMatchingRecipes() {
+		RecipeSearchIndex index = new RecipeSearchIndex();
+		index.put(summary(1, "Pancakes", 20d, "B"), Arrays.asList("Milk, whole", "Egg, raw", "Flour"));
+		index.put(summary(2, "Omelette", 10d, "BL"), Arrays.asList("Egg, raw", "Cheese, cheddar"));
+		index.put(summary(3, "Nut cake", 60d, "D"), Arrays.asList("Nuts, walnuts", "Eggnog", "Flour"));
+
+		Assert.assertEquals(Set.of(1, 2, 3), ids(index.search(new RecipeSearchParam())));
+
+		RecipeSearchParam searchParam = new RecipeSearchParam();
+		searchParam.addIngredient("EGG");
+		Assert.assertEquals(Set.of(1, 2, 3), ids(index.search(searchParam)));
+
+		searchParam.setLowerDurationInkl(10d);
+		searchParam.setUpperDurationInkl(20d);
+		Assert.assertEquals(Set.of(1, 2), ids(index.search(searchParam)));
+
+		searchParam.setTags(EnumSet.of(RecipeTag.L));
+		Assert.assertEquals(Set.of(2), ids(index.search(searchParam)));
+
+		searchParam = new RecipeSearchParam();
+		searchParam.addIngredient("flour");
+		searchParam.addExcludedIngredient("walnut");
+		Assert.assertEquals(Set.of(1), ids(index.search(searchParam)));
+
+		searchParam = new RecipeSearchParam();
+		searchParam.addIngredient("cheese, ched");
+		searchParam.setRecipeName("OME");
+		Assert.assertEquals(Set.of(2), ids(index.search(searchParam)));
+
+		// like in the database search, a search word has to occur within the name of a single ingredient
+		searchParam = new RecipeSearchParam();
+		searchParam.addIngredient("cheddar cheese");
+		Assert.assertTrue(index.search(searchParam).isEmpty());
+		searchParam = new RecipeSearchParam();
+		searchParam.addIngredient("raw cheese");
+		Assert.assertTrue(index.search(searchParam).isEmpty());
+
+		Tag vegan = new Tag(3, "vegan", false);
+		index.put(new RecipeSummary(4, "Lentil soup", 30d, RecipeTag.L.getMask() | vegan.getMask(), 0d, 0d, 0d, 0d),
+				Arrays.asList("Lentils"));
+		searchParam = new RecipeSearchParam();
+		searchParam.addCustomTag(vegan);
+		Assert.assertEquals(Set.of(4), ids(index.search(searchParam)));
+		searchParam.setTags(EnumSet.of(RecipeTag.L));
+		Assert.assertEquals(Set.of(4), ids(index.search(searchParam)));
+		searchParam.setTags(EnumSet.of(RecipeTag.B));
+		Assert.assertTrue(index.search(searchParam).isEmpty());
+	}
+
+	@Test
+	public void testSearch_nutritionBounds_onlyRecipesWithinBoundsAndNoneWithoutMacroNutrients() {
+		RecipeSearchIndex index = new RecipeSearchIndex();
+		index.put(new RecipeSummary(1, "Salad", 10d, RecipeTag.L.getMask(), 300d, 30d, 10d, 10d), List.of());
+		index.put(new RecipeSummary(2, "Steak", 30d, RecipeTag.L.getMask(), 550d, 0d, 60d, 40d), List.of());
+		index.put(new RecipeSummary(3, "Lasagne", 60d, RecipeTag.L.getMask(), 900d, 60d, 30d, 30d), List.of());
+		index.put(new RecipeSummary(4, "Water", 1d, RecipeTag.L.getMask(), 0d, 0d, 0d, 0d), List.of());
+
+		RecipeSearchParam searchParam = new RecipeSearchParam();
+		searchParam.setUpperNutritionInkl(RecipeNutrient.CALORIES, 600d);
+		Assert.assertEquals(Set.of(1, 2, 4), ids(index.search(searchParam)));
+
+		searchParam.setLowerNutritionInkl(RecipeNutrient.PROTEIN_PERCENT, 20d);
+		Assert.assertEquals(Set.of(1, 2), ids(index.search(searchParam)));
+		searchParam.setUpperNutritionInkl(RecipeNutrient.FAT_PERCENT, 20d);
+		Assert.assertEquals(Set.of(1), ids(index.search(searchParam)));
+
+		index.put(new RecipeSummary(1, "Salad", 10d, RecipeTag.L.getMask(), 700d, 30d, 10d, 10d), List.of());
+		Assert.assertTrue(index.search(searchParam).isEmpty());
+		searchParam.setUpperNutritionInkl(RecipeNutrient.CALORIES, null);
+		Assert.assertEquals(Set.of(1), ids(index.search(searchParam)));
+	}
+
+	@Test
+	public void testPutAndRemove_recipeChangedAndRemoved_indexReflectsLatestState() {
+		RecipeSearchIndex index = new RecipeSearchIndex();
+		index.put(summary(1, "Pancakes", 20d, "B"), Arrays.asList("Milk", "Egg"));
+		index.put(summary(2, "Soup", 20d, "L"), Arrays.asList("Carrot"));
+
+		index.put(summary(1, "Pancakes", 40d, "D"), Arrays.asList("Milk"));
+		Assert.assertEquals(2, index.size());
+
+		RecipeSearchParam egg = new RecipeSearchParam();
+		egg.addIngredient("egg");
+		Assert.assertTrue(index.search(egg).isEmpty());
+
+		RecipeSearchParam upTo20 = new RecipeSearchParam();
+		upTo20.setUpperDurationInkl(20d);
+		Assert.assertEquals(Set.of(2), ids(index.search(upTo20)));
+
+		index.remove(2);
+		index.put(summary(3, "Carrot cake", 20d, "D"), Arrays.asList("Carrot", "Egg"));
+		Assert.assertEquals(Set.of(3), ids(index.search(upTo20)));
+		Assert.assertEquals(Set.of(3), ids(index.search(egg)));
+		Assert.assertEquals(2, index.size());
+	}
+
+	@Test
+	public void testPage_filteredListingByName_pagesFollowKeysetsAndReflectChanges() {
+		RecipeSearchIndex index = new RecipeSearchIndex();
+		index.put(summary(1, "banana bread", 20d, "B"), Arrays.asList("Banana", "Flour"));
+		index.put(summary(2, "  Apple pie", 60d, "D"), Arrays.asList("Apple", "Flour"));
+		index.put(summary(3, "Carrot soup", 30d, "L"), Arrays.asList("Carrot"));
+		index.put(summary(4, "apple crumble", 40d, "D"), Arrays.asList("Apple", "Flour", "Butter"));
+		index.put(summary(5, "Dumplings", 50d, "L"), Arrays.asList("Flour", "Potato"));
+
+		RecipeSearchParam searchParam = new RecipeSearchParam();
+		searchParam.addIngredient("flour");
+		RecipePageRequest pageRequest = new RecipePageRequest(RecipeSortKey.NAME, false, 2, null);
+
+		RecipePage page = index.page(searchParam, pageRequest);
+		Assert.assertEquals(List.of(4, 2), pageIds(page));
+		RecipePageRequest secondPageRequest = pageRequest.next(page);
+		page = index.page(searchParam, secondPageRequest);
+		Assert.assertEquals(List.of(1, 5), pageIds(page));
+		Assert.assertFalse(page.hasNext());
+
+		// recipes added before the keyset are not repeated, removed ones are skipped
+		index.put(summary(6, "Almond cake", 45d, "D"), Arrays.asList("Flour"));
+		index.remove(1);
+		Assert.assertEquals(List.of(5), pageIds(index.page(searchParam, secondPageRequest)));
+
+		page = index.page(searchParam, new RecipePageRequest(RecipeSortKey.DURATION, true, 3, null));
+		Assert.assertEquals(List.of(2, 5, 6), pageIds(page));
+		Assert.assertTrue(page.hasNext());
+	}
+
+	@Test
+	public void testSearchRecipeSummaries_sameCriteriaAsDatabaseSearch_sameRecipes()
+			throws ServiceInvokationException, PersistenceException {
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+		RecipeService recipeService = createRecipeService(recipePersistence);
+
+		List<RecipeSearchParam> searchParams = new ArrayList<>();
+		searchParams.add(new RecipeSearchParam());
+		for (String ingredient : new String[] { "milk", "egg", "butter", "salt", "ilk, ", "egg salt", "e" }) {
+			RecipeSearchParam searchParam = new RecipeSearchParam();
+			searchParam.addIngredient(ingredient);
+			searchParams.add(searchParam);
+
+			searchParam = new RecipeSearchParam();
+			searchParam.addExcludedIngredient(ingredient);
+			searchParam.setUpperDurationInkl(45d);
+			searchParams.add(searchParam);
+		}
+		RecipeSearchParam searchParam = new RecipeSearchParam();
+		searchParam.addIngredient("milk");
+		searchParam.addIngredient("egg");
+		searchParam.setLowerDurationInkl(10d);
+		searchParam.setUpperDurationInkl(80d);
+		searchParam.setTags(EnumSet.of(RecipeTag.B));
+		searchParam.setRecipeName("cake");
+		searchParams.add(searchParam);
+		for (double calories : new double[] { 300d, 600d, 1200d }) {
+			searchParam = new RecipeSearchParam();
+			searchParam.setUpperNutritionInkl(RecipeNutrient.CALORIES, calories);
+			searchParams.add(searchParam);
+
+			searchParam = new RecipeSearchParam();
+			searchParam.setLowerNutritionInkl(RecipeNutrient.CALORIES, calories);
+			searchParam.setLowerNutritionInkl(RecipeNutrient.PROTEIN_PERCENT, 15d);
+			searchParam.setUpperNutritionInkl(RecipeNutrient.FAT_PERCENT, 40d);
+			searchParam.setUpperNutritionInkl(RecipeNutrient.CARBOHYDRATE_PERCENT, 70d);
+			searchParams.add(searchParam);
+		}
+
+		for (RecipeSearchParam param : searchParams) {
+			Assert.assertEquals(param.toString(), ids(recipePersistence.searchRecipeSummaries(param)),
+					ids(recipeService.searchRecipeSummaries(param)));
+		}
+	}
+
+	@Test
+	public void testSearchRecipes_recipeCreatedAndDeletedThroughService_indexIsUpdated()
+			throws ServiceInvokationException {
+		RecipeService recipeService = createRecipeService(new DBRecipePersistence(new DBTagPersistence()));
+		RecipeSearchParam searchParam = new RecipeSearchParam();
+		searchParam.setRecipeName("search index test");
+		Assert.assertTrue(recipeService.searchRecipes(searchParam).isEmpty());
+
+		Recipe recipe = new Recipe("Search index test", 15d, "Test", EnumSet.of(RecipeTag.L));
+		List<RecipeIngredient> ingredients = new ArrayList<>();
+		ingredients.add(new RecipeIngredient(45, 2d, false));
+		ingredients.add(new RecipeIngredient(2d, 55.5, 40d, 55.5, 4.5, "oz", 120d, true, "Dragonfruit"));
+		recipe.setRecipeIngredients(ingredients);
+		recipeService.create(recipe);
+
+		searchParam.addIngredient("dragonfruit");
+		List<Recipe> found = recipeService.searchRecipes(searchParam);
+		Assert.assertEquals(1, found.size());
+		Assert.assertEquals(recipe.getId(), found.get(0).getId());
+
+		recipeService.delete(recipe.getId());
+		Assert.assertTrue(recipeService.searchRecipeSummaries(searchParam).isEmpty());
+	}
+
+	@Test
+	public void testSearchRecipeSummaries_pagedFromIndex_samePagesAsDatabase()
+			throws ServiceInvokationException, PersistenceException {
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+		RecipeService recipeService = createRecipeService(recipePersistence);
+		recipeService.buildSearchIndex();
+
+		RecipeSearchParam searchParam = new RecipeSearchParam();
+		searchParam.addExcludedIngredient("salt");
+		for (RecipeSortKey sortKey : RecipeSortKey.values()) {
+			RecipePageRequest pageRequest = new RecipePageRequest(sortKey, true, 2, null);
+			RecipePage fromIndex = recipeService.searchRecipeSummaries(searchParam, pageRequest);
+			RecipePage fromDatabase = recipePersistence.searchRecipeSummaries(searchParam, pageRequest);
+			while (fromDatabase.hasNext()) {
+				Assert.assertEquals(ids(fromDatabase.getSummaries()), ids(fromIndex.getSummaries()));
+				Assert.assertEquals(fromDatabase.getContinuationToken(), fromIndex.getContinuationToken());
+				pageRequest = pageRequest.next(fromIndex);
+				fromIndex = recipeService.searchRecipeSummaries(searchParam, pageRequest);
+				fromDatabase = recipePersistence.searchRecipeSummaries(searchParam, pageRequest);
+			}
+			Assert.assertFalse(fromIndex.hasNext());
+			Assert.assertEquals(ids(fromDatabase.getSummaries()), ids(fromIndex.getSummaries()));
+		}
+	}
+
+	private static RecipeService createRecipeService(RecipePersistence recipePersistence) {
+		return new SimpleRecipeService(recipePersistence, new RecipeValidator(new RecipeIngredientsValidator()),
+				new IngredientSearchParamValidator());
+	}
+
+	private static RecipeSummary summary(int id, String name, double duration, String tags) {
+		long tagMask = RecipeTag.toMask(tags.chars().mapToObj(tag -> RecipeTag.valueOf(String.valueOf((char) tag)))
+				.collect(Collectors.toList()));
+		return new RecipeSummary(id, name, duration, tagMask, 0d, 0d, 0d, 0d);
+	}
+
+	private static List<Integer> pageIds(RecipePage page) {
+		return page.getSummaries().stream().map(RecipeSummary::getId).collect(Collectors.toList());
+	}
+
+	private static Set<Integer> ids(List<RecipeSummary> summaries) {
+		return summaries.stream().map(RecipeSummary::getId).collect(Collectors.toSet());
+	}
+}
@@ -1,8 +1,10 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
 
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlanPreview;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.*;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation.DBDietPlanPersistence;
@@ -22,7 +24,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.mockito.Mockito.*;
 
@@ -48,7 +55,7 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
         //mock all recipes in test db
         List<Recipe> allRecipes = getRecipes();
         allRecipes.forEach(NutritionUtil::fillNutritionValues);
-        when(mockedRecipeRepo.getRecipes()).thenReturn(allRecipes);
+        mockCookbook(allRecipes);
 
         when(mockedMealRecommendationRepo.readRecommendationFor(mockedActiveDietplan, RecipeTag.B)).thenThrow(NoEntryFoundException.class);
         when(mockedMealRecommendationRepo.readRecommendationFor(mockedActiveDietplan, RecipeTag.L)).thenThrow(NoEntryFoundException.class);
@@ -73,7 +80,7 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
         //mock all recipes in test db
         List<Recipe> allRecipes = getRecipes();
         allRecipes.forEach(NutritionUtil::fillNutritionValues);
-        when(mockedRecipeRepo.getRecipes()).thenReturn(allRecipes);
+        mockCookbook(allRecipes);
 
         when(mockedMealRecommendationRepo.readRecommendationFor(mockedActiveDietplan, RecipeTag.B)).thenThrow(NoEntryFoundException.class);
         when(mockedMealRecommendationRepo.readRecommendationFor(mockedActiveDietplan, RecipeTag.L)).thenThrow(NoEntryFoundException.class);
@@ -97,7 +104,7 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
         //mock all recipes in test db
         List<Recipe> allRecipes = getRecipes();
         allRecipes.forEach(NutritionUtil::fillNutritionValues);
-        when(mockedRecipeRepo.getRecipes()).thenReturn(allRecipes);
+        mockCookbook(allRecipes);
 
         when(mockedMealRecommendationRepo.readRecommendationFor(mockedActiveDietplan, RecipeTag.B)).thenThrow(NoEntryFoundException.class);
         when(mockedMealRecommendationRepo.readRecommendationFor(mockedActiveDietplan, RecipeTag.L)).thenThrow(NoEntryFoundException.class);
@@ -140,7 +147,7 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
         //remove all recipes which are labeled as breakfast
         allRecipes.removeIf(recipe -> recipe.getTags().contains(RecipeTag.B));
         allRecipes.forEach(NutritionUtil::fillNutritionValues);
-        when(mockedRecipeRepo.getRecipes()).thenReturn(allRecipes);
+        mockCookbook(allRecipes);
 
         RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
         MealRecommendationsService mealRecommendationsService = new SimpleMealRecommendationsService(mockedMealRecommendationRepo, recipeService, mockedDietPlanRepo);
@@ -162,7 +169,7 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
         //remove all recipes which are labeled as lunch
         allRecipes.removeIf(recipe -> recipe.getTags().contains(RecipeTag.L));
         allRecipes.forEach(NutritionUtil::fillNutritionValues);
-        when(mockedRecipeRepo.getRecipes()).thenReturn(allRecipes);
+        mockCookbook(allRecipes);
 
         RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
         MealRecommendationsService mealRecommendationsService = new SimpleMealRecommendationsService(mockedMealRecommendationRepo, recipeService, mockedDietPlanRepo);
@@ -184,7 +191,7 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
         //remove all recipes which are labeled as dinner
         allRecipes.removeIf(recipe -> recipe.getTags().contains(RecipeTag.D));
         allRecipes.forEach(NutritionUtil::fillNutritionValues);
-        when(mockedRecipeRepo.getRecipes()).thenReturn(allRecipes);
+        mockCookbook(allRecipes);
 
         RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
         MealRecommendationsService mealRecommendationsService = new SimpleMealRecommendationsService(mockedMealRecommendationRepo, recipeService, mockedDietPlanRepo);
@@ -201,7 +208,7 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
         List<Recipe> allRecipes = getRecipes();
 
         allRecipes.forEach(NutritionUtil::fillNutritionValues);
-        when(mockedRecipeRepo.getRecipes()).thenReturn(allRecipes);
+        mockCookbook(allRecipes);
 
         RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
         MealRecommendationsService mealRecommendationsService = new SimpleMealRecommendationsService(mockedMealRecommendationRepo, recipeService, mockedDietPlanRepo);
@@ -234,6 +241,20 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
         }
     }
 
+    /**
+     * Lets the mocked recipe persistence serve the given recipes as summaries for scoring and as complete recipes
+     * when they are fetched by id or by a collection of ids.
+     */
+    private void mockCookbook(List<Recipe> allRecipes) throws PersistenceException {
+        List<RecipeSummary> summaries = new ArrayList<>();
+        allRecipes.forEach(r -> summaries.add(new RecipeSummary(r)));
+        when(mockedRecipeRepo.getRecipeSummaries()).thenReturn(summaries);
+        when(mockedRecipeRepo.get(anyInt())).thenAnswer(invocation -> allRecipes.stream()
+            .filter(r -> r.getId().equals(invocation.getArgument(0))).findFirst().get());
+        when(mockedRecipeRepo.get(anyCollection())).thenAnswer(invocation -> allRecipes.stream()
+            .filter(r -> invocation.<Collection<?>>getArgument(0).contains(r.getId())).collect(Collectors.toList()));
+    }
+
     public List<Recipe> getRecipes() throws PersistenceException {
         PreparedStatement ps = null;
         ResultSet rs = null;
@@ -278,7 +299,7 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
         MealRecommendationsService mealRecommendationsService = new SimpleMealRecommendationsService(mockedMealRecommendationRepo, recipeService, mockedDietPlanRepo);
         mealRecommendationsService.getRecommendedMeals(false);
 
-        verify(mockedRecipeRepo, times(0)).getRecipes();
+        verify(mockedRecipeRepo, times(0)).getRecipeSummaries();
     }
 
     @Test
@@ -288,7 +309,7 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
 
         List<Recipe> allRecipes = getRecipes();
         allRecipes.forEach(NutritionUtil::fillNutritionValues);
-        when(mockedRecipeRepo.getRecipes()).thenReturn(allRecipes);
+        mockCookbook(allRecipes);
 
         // get recipes from example recipes which are a valid solution for diet plan 'Build Muscle'
         Recipe breakfast = NutritionUtil.fillNutritionValues(allRecipes.stream().filter(recipe -> recipe.getId() == 15).findFirst().get());
@@ -302,7 +323,7 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
         MealRecommendationsService mealRecommendationsService = new SimpleMealRecommendationsService(mockedMealRecommendationRepo, recipeService, mockedDietPlanRepo);
         mealRecommendationsService.getRecommendedMeals(false);
 
-        verify(mockedRecipeRepo, times(1)).getRecipes();
+        verify(mockedRecipeRepo, times(1)).getRecipeSummaries();
     }
 
     @Test
@@ -312,7 +333,7 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
 
         List<Recipe> allRecipes = getRecipes();
         allRecipes.forEach(NutritionUtil::fillNutritionValues);
-        when(mockedRecipeRepo.getRecipes()).thenReturn(allRecipes);
+        mockCookbook(allRecipes);
 
         // get recipes from example recipes which are a valid solution for diet plan 'Build Muscle'
         Recipe lunch = NutritionUtil.fillNutritionValues(allRecipes.stream().filter(recipe -> recipe.getId() == 1).findFirst().get());
@@ -325,7 +346,7 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
         MealRecommendationsService mealRecommendationsService = new SimpleMealRecommendationsService(mockedMealRecommendationRepo, recipeService, mockedDietPlanRepo);
         mealRecommendationsService.getRecommendedMeals(false);
 
-        verify(mockedRecipeRepo, times(1)).getRecipes();
+        verify(mockedRecipeRepo, times(1)).getRecipeSummaries();
     }
 
     @Test
@@ -336,13 +357,113 @@ public class SimpleMealRecommendationsServiceTest extends BaseTest {
         List<Recipe> allRecipes = getRecipes();
         Recipe current = allRecipes.get(allRecipes.size()-1);
         allRecipes.forEach(NutritionUtil::fillNutritionValues);
-        when(mockedRecipeRepo.getRecipes()).thenReturn(allRecipes);
+        mockCookbook(allRecipes);
 
         RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
         MealRecommendationsService mealRecommendationsService = new SimpleMealRecommendationsService(mockedMealRecommendationRepo, recipeService, mockedDietPlanRepo);
         Recipe recommended = mealRecommendationsService.getRecommendedMeal(RecipeTag.B, current);
 
-        verify(mockedRecipeRepo, times(1)).getRecipes();
+        verify(mockedRecipeRepo, times(1)).getRecipeSummaries();
         Assert.assertNotEquals(current, recommended);
     }
+
+    @Test
+    public void testGetRecommendedMeal_swapUntilAllShown_noRecipeRepeatedUntilPlanChanges() throws NoOptimalSolutionException, ServiceInvokationException, PersistenceException, NoEntryFoundException {
+        DietPlan buildMuscle = new DietPlan(1, "Build Muscle", 2500.0, 20.0, 25.0, 50.0, LocalDate.now(), null);
+        when(mockedDietPlanRepo.readActive()).thenReturn(buildMuscle);
+
+        List<Recipe> allRecipes = getRecipes();
+        allRecipes.forEach(NutritionUtil::fillNutritionValues);
+        mockCookbook(allRecipes);
+        long breakfasts = allRecipes.stream().filter(r -> r.getTags().contains(RecipeTag.B)).count();
+
+        RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
+        MealRecommendationsService mealRecommendationsService = new SimpleMealRecommendationsService(mockedMealRecommendationRepo, recipeService, mockedDietPlanRepo);
+        Set<Integer> shown = new HashSet<>();
+        Recipe current = null;
+        try {
+            while (true) {
+                current = mealRecommendationsService.getRecommendedMeal(RecipeTag.B, current);
+                Assert.assertTrue(current.getTags().contains(RecipeTag.B));
+                Assert.assertTrue(shown.add(current.getId()));
+            }
+        } catch (NoOptimalSolutionException e) {
+            Assert.assertEquals(breakfasts, shown.size());
+        }
+        // the candidates are ranked from the index, which is built once
+        verify(mockedRecipeRepo, times(1)).getRecipeSummaries();
+        verify(mockedMealRecommendationRepo, times(shown.size())).createRecommendationFor(any(), eq(buildMuscle), eq(RecipeTag.B));
+
+        when(mockedDietPlanRepo.readActive()).thenReturn(new DietPlan(2, "Lose Weight", 1900.0, 30.0, 40.0, 30.0, LocalDate.now(), null));
+        Assert.assertNotEquals(current.getId(), mealRecommendationsService.getRecommendedMeal(RecipeTag.B, current).getId());
+    }
+
+    @Test
+    public void testPreviewDietPlans_threePlans_mealOfEachTagPerPlanAndNothingStored() throws NoOptimalSolutionException, ServiceInvokationException, PersistenceException, NoEntryFoundException {
+        List<DietPlan> dietPlans = List.of(
+            new DietPlan(1, "Build Muscle", 2500.0, 20.0, 25.0, 50.0, null, null),
+            new DietPlan(2, "Lose Weight", 1900.0, 30.0, 40.0, 30.0, null, null),
+            new DietPlan(3, "Carefree", 3000.0, 30.0, 10.0, 60.0, null, null));
+        when(mockedDietPlanRepo.readAll()).thenReturn(dietPlans);
+
+        List<Recipe> allRecipes = getRecipes();
+        allRecipes.forEach(NutritionUtil::fillNutritionValues);
+        mockCookbook(allRecipes);
+
+        RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
+        MealRecommendationsService mealRecommendationsService = new SimpleMealRecommendationsService(mockedMealRecommendationRepo, recipeService, mockedDietPlanRepo, 1);
+        List<DietPlanPreview> previews = mealRecommendationsService.previewDietPlans();
+
+        Assert.assertEquals(3, previews.size());
+        for (int i = 0; i < dietPlans.size(); i++) {
+            DietPlanPreview preview = previews.get(i);
+            Assert.assertSame(dietPlans.get(i), preview.getDietPlan());
+            for (RecipeTag tag : new RecipeTag[]{RecipeTag.B, RecipeTag.L, RecipeTag.D}) {
+                Assert.assertTrue(preview.getMeals().get(tag).getTags().contains(tag));
+            }
+            Assert.assertTrue(preview.getCalories() > 0);
+        }
+        verify(mockedRecipeRepo, times(1)).getRecipeSummaries();
+        verify(mockedDietPlanRepo, times(0)).readActive();
+        verify(mockedMealRecommendationRepo, times(0)).createRecommendationFor(any(), any(), any());
+    }
+
+    @Test(expected = NoOptimalSolutionException.class)
+    public void testPreviewDietPlans_noDinnerRecipes_throwException() throws NoOptimalSolutionException, ServiceInvokationException, PersistenceException {
+        when(mockedDietPlanRepo.readAll()).thenReturn(List.of(new DietPlan(1, "Build Muscle", 2500.0, 20.0, 25.0, 50.0, null, null)));
+
+        List<Recipe> allRecipes = getRecipes();
+        allRecipes.removeIf(recipe -> recipe.getTags().contains(RecipeTag.D));
+        allRecipes.forEach(NutritionUtil::fillNutritionValues);
+        mockCookbook(allRecipes);
+
+        RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
+        MealRecommendationsService mealRecommendationsService = new SimpleMealRecommendationsService(mockedMealRecommendationRepo, recipeService, mockedDietPlanRepo);
+        mealRecommendationsService.previewDietPlans();
+    }
+
+    @Test
+    public void testGetRecommendedWeek_buildMuscle_threeMealsPerDayStoredAtOnce() throws NoOptimalSolutionException, ServiceInvokationException, PersistenceException, NoEntryFoundException {
+        DietPlan mockedActiveDietplan = new DietPlan(1, "Build Muscle", 2500.0, 20.0, 25.0, 50.0, LocalDate.now(), null);
+        when(mockedDietPlanRepo.readActive()).thenReturn(mockedActiveDietplan);
+
+        List<Recipe> allRecipes = getRecipes();
+        allRecipes.forEach(NutritionUtil::fillNutritionValues);
+        mockCookbook(allRecipes);
+
+        RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
+        MealRecommendationsService mealRecommendationsService = new SimpleMealRecommendationsService(mockedMealRecommendationRepo, recipeService, mockedDietPlanRepo);
+        List<Map<RecipeTag, Recipe>> week = mealRecommendationsService.getRecommendedWeek(50);
+
+        Assert.assertEquals(7, week.size());
+        for (Map<RecipeTag, Recipe> day : week) {
+            for (RecipeTag tag : new RecipeTag[]{RecipeTag.B, RecipeTag.L, RecipeTag.D}) {
+                Assert.assertTrue(day.get(tag).getTags().contains(tag));
+            }
+        }
+        verify(mockedMealRecommendationRepo, times(1)).createRecommendationsFor(week, LocalDate.now(), mockedActiveDietplan);
+        verify(mockedMealRecommendationRepo, times(0)).createRecommendationFor(any(), any(), any());
+        verify(mockedRecipeRepo, times(1)).get(anyCollection());
+        verify(mockedRecipeRepo, times(0)).get(anyInt());
+    }
 }
@@ -1,6 +1,7 @@
 package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
 
 import static org.mockito.Mockito.times;
@@ -19,10 +20,12 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.IngredientSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.NutritionSearchParam;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeImage;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
 import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
 import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.RecipePersistence;
@@ -414,18 +417,21 @@ public class SimpleRecipeServiceTest extends BaseTest {
 	}
 	
 	@Test
-	public void testSearchRecipes_paramIsEmpty_callsPersistenceOnce()
+	public void testSearchRecipes_paramIsEmpty_buildsSearchIndexFromPersistenceOnce()
 			throws ServiceInvokationException, PersistenceException {
 
 		RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
 		RecipeSearchParam searchParam = new RecipeSearchParam();
 		
 		recipeService.searchRecipes(searchParam);
-		verify(mockedRecipeRepo, times(1)).searchRecipes(searchParam);
+		recipeService.searchRecipes(searchParam);
+		// searches are answered by the index, which is built once
+		verify(mockedRecipeRepo, times(1)).getRecipeSummaries();
+		verify(mockedRecipeRepo, never()).searchRecipes(searchParam);
 	}
 	
 	@Test
-	public void testSearchRecipes_paramHasValidSearchCriteria_callsPersistenceOnce()
+	public void testSearchRecipes_paramHasValidSearchCriteria_buildsSearchIndexFromPersistenceOnce()
 			throws ServiceInvokationException, PersistenceException {
 
 		RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
@@ -442,11 +448,12 @@ public class SimpleRecipeServiceTest extends BaseTest {
 		searchParam.setTags(tags);
 		
 		recipeService.searchRecipes(searchParam);
-		verify(mockedRecipeRepo, times(1)).searchRecipes(searchParam);
+		verify(mockedRecipeRepo, times(1)).getRecipeSummaries();
+		verify(mockedRecipeRepo, never()).searchRecipes(searchParam);
 	}
 	
 	@Test
-	public void testSearchRecipes_tooMuchIngredientsAndInvalidDurationOrder_notCallsPersistenceAndValidations()
+	public void testSearchRecipes_requiredAndExcludedIngredientAndInvalidDurationOrder_notCallsPersistenceAndValidations()
 			throws ServiceInvokationException, PersistenceException {
 
 		RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
@@ -462,7 +469,8 @@ public class SimpleRecipeServiceTest extends BaseTest {
 		searchParam.addIngredient("meat");
 		searchParam.addIngredient("cream");
 		searchParam.addIngredient("apple");
-		searchParam.addIngredient("pie"); // too much ingredients, exceeding upper limit
+		searchParam.addIngredient("pie");
+		searchParam.addExcludedIngredient("pie"); // required and excluded
 		searchParam.setLowerDurationInkl(30d);
 		searchParam.setUpperDurationInkl(10d); // invalid order
 		searchParam.setRecipeName("");
@@ -476,10 +484,56 @@ public class SimpleRecipeServiceTest extends BaseTest {
 
 			ArrayList<String> errors = e.getContext().getErrors();
 			Assert.assertEquals(2, errors.size());
-			Assert.assertEquals("Enter only at most 10 ingredient search words.", errors.get(0));
+			Assert.assertEquals("An ingredient search word cannot be required and excluded at the same time.",
+					errors.get(0));
 			Assert.assertEquals("Lower Duration Limit must be smaller or equal to Upper Duration Limit.", errors.get(1));
 			return;
 		}
 		Assert.fail("Should throw ServiceInvokationException!");
 	}
-}
+
+	@Test
+	public void testSearchRecipesByNutrition_closeToCalories_closestFirstAndDeletedRecipesNotFound()
+			throws ServiceInvokationException, PersistenceException {
+		List<RecipeSummary> summaries = new ArrayList<>();
+		summaries.add(new RecipeSummary(1, "Porridge", 10d, RecipeTag.B.getMask(), 450d, 60d, 15d, 10d));
+		summaries.add(new RecipeSummary(2, "Pancakes", 20d, RecipeTag.B.getMask(), 700d, 80d, 20d, 30d));
+		summaries.add(new RecipeSummary(3, "Omelette", 15d, RecipeTag.B.getMask() | RecipeTag.D.getMask(), 520d,
+				5d, 30d, 35d));
+		summaries.add(new RecipeSummary(4, "Steak", 30d, RecipeTag.D.getMask(), 500d, 0d, 50d, 30d));
+		when(mockedRecipeRepo.getRecipeSummaries()).thenReturn(summaries);
+		RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
+
+		List<RecipeSummary> found = recipeService.searchRecipesByNutrition(new NutritionSearchParam(RecipeTag.B, 500, 2));
+		Assert.assertEquals(2, found.size());
+		Assert.assertEquals(3, found.get(0).getId().intValue());
+		Assert.assertEquals(1, found.get(1).getId().intValue());
+
+		recipeService.delete(3);
+		found = recipeService.searchRecipesByNutrition(new NutritionSearchParam(null, 500, 10));
+		Assert.assertEquals(3, found.size());
+		Assert.assertEquals(4, found.get(0).getId().intValue());
+		// searches are answered by the index, which is built once
+		verify(mockedRecipeRepo, times(1)).getRecipeSummaries();
+	}
+
+	@Test
+	public void testSearchRecipesByNutrition_noTargetAndNoLimit_notCallsPersistence() {
+		RecipeService recipeService = new SimpleRecipeService(mockedRecipeRepo, new RecipeValidator(new RecipeIngredientsValidator()), new IngredientSearchParamValidator());
+		NutritionSearchParam searchParam = new NutritionSearchParam();
+		searchParam.setLimit(0);
+
+		try {
+			recipeService.searchRecipesByNutrition(searchParam);
+		} catch (ServiceInvokationException e) {
+			verifyZeroInteractions(mockedRecipeRepo);
+
+			ArrayList<String> errors = e.getContext().getErrors();
+			Assert.assertEquals(2, errors.size());
+			Assert.assertEquals("At least one nutrition target must be set.", errors.get(0));
+			Assert.assertEquals("The limit must be at least 1.", errors.get(1));
+			return;
+		}
+		Assert.fail("Should throw ServiceInvokationException!");
+	}
+}
\ No newline at end of file
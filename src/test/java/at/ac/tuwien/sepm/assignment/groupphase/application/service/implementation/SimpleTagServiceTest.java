@@ -0,0 +1,56 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Tag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.TagPersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation.DBTagPersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.ServiceInvokationException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.TagService;
+
+public class SimpleTagServiceTest {
+
+	private final TagPersistence mockedTagRepo = mock(DBTagPersistence.class);
+
+	private final Tag vegan = new Tag(3, "vegan", false);
+	private final Tag quick = new Tag(4, "quick", false);
+
+	@Test
+	public void testGetCustomTag_knownTagsAskedRepeatedly_tagsReadOnce()
+			throws ServiceInvokationException, PersistenceException {
+		when(mockedTagRepo.readAll()).thenReturn(List.of(new Tag(0, "B", true), vegan));
+		TagService tagService = new SimpleTagService(mockedTagRepo);
+
+		for (int i = 0; i < 3; i++) {
+			Assert.assertEquals(vegan, tagService.getCustomTag(" Vegan"));
+			Assert.assertEquals(List.of(vegan), tagService.getCustomTags(vegan.getMask() | 1L));
+		}
+		verify(mockedTagRepo, times(1)).readAll();
+	}
+
+	@Test
+	public void testGetCustomTag_tagCreatedAfterRead_tagsReadAgain()
+			throws ServiceInvokationException, PersistenceException {
+		when(mockedTagRepo.readAll()).thenReturn(List.of(vegan))
+				.thenReturn(List.of(new Tag(0, "B", true), vegan, quick));
+		TagService tagService = new SimpleTagService(mockedTagRepo);
+
+		Assert.assertEquals(List.of(vegan), tagService.getTags());
+		Assert.assertEquals(List.of(vegan, quick), tagService.getCustomTags(vegan.getMask() | quick.getMask()));
+		Assert.assertEquals(quick, tagService.getCustomTag("quick"));
+		verify(mockedTagRepo, times(2)).readAll();
+
+		// names without a custom tag are looked up again, meal tags are no custom tags
+		Assert.assertNull(tagService.getCustomTag("B"));
+		verify(mockedTagRepo, times(3)).readAll();
+	}
+}
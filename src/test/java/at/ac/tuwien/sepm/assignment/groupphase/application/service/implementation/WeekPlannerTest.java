@@ -0,0 +1,84 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.service.implementation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.DietPlan;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeSummary;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.service.NoOptimalSolutionException;
+
+public class WeekPlannerTest {
+
+	private final DietPlan dietPlan = new DietPlan(1, "Build Muscle", 2500.0, 25.0, 25.0, 50.0, LocalDate.now(), null);
+
+	@Test
+	public void testPlan_largeCatalog_everyDayCloseToPlanWithoutRepeatedRecipes() throws NoOptimalSolutionException {
+		Random random = new Random(7);
+		List<RecipeSummary> recipes = new ArrayList<>();
+		for (int i = 0; i < 30000; i++) {
+			recipes.add(new RecipeSummary(i, "Recipe " + i, 30d, 1L << random.nextInt(3), random.nextDouble() * 1500,
+					random.nextDouble() * 150, random.nextDouble() * 80, random.nextDouble() * 60));
+		}
+		RecipeScoringKernel kernel = new RecipeScoringKernel(recipes);
+		WeekPlanner weekPlanner = new WeekPlanner(kernel, dietPlan);
+
+		int[] week = weekPlanner.plan(300_000_000L, 2, 42);
+
+		Assert.assertEquals(WeekPlanner.MEALS_PER_WEEK, week.length);
+		Assert.assertEquals(week.length, Arrays.stream(week).distinct().count());
+		for (int day = 0; day < WeekPlanner.DAYS; day++) {
+			double calories = 0;
+			double carbohydrates = 0;
+			double total = 0;
+			for (int m = 0; m < WeekPlanner.MEALS.length; m++) {
+				int i = week[day * WeekPlanner.MEALS.length + m];
+				Assert.assertTrue(kernel.get(i).getTags().contains(WeekPlanner.MEALS[m]));
+				calories += kernel.calories(i);
+				carbohydrates += kernel.carbohydrates(i);
+				total += kernel.carbohydrates(i) + kernel.proteins(i) + kernel.fats(i);
+			}
+			Assert.assertEquals(2500, calories, 2500 * 0.05);
+			Assert.assertEquals(50, carbohydrates / total * 100, 5);
+		}
+
+		int[] randomWeek = new int[WeekPlanner.MEALS_PER_WEEK];
+		for (int slot = 0; slot < randomWeek.length; slot++) {
+			int[] candidates = kernel.candidates(WeekPlanner.MEALS[slot % WeekPlanner.MEALS.length].getMask());
+			randomWeek[slot] = candidates[random.nextInt(candidates.length)];
+		}
+		Assert.assertTrue(weekPlanner.cost(week) < weekPlanner.cost(randomWeek));
+	}
+
+	@Test
+	public void testPlan_singleRecipePerMeal_recipesRepeatedEveryDay() throws NoOptimalSolutionException {
+		List<RecipeSummary> recipes = new ArrayList<>();
+		recipes.add(new RecipeSummary(1, "Breakfast", 10d, RecipeTag.B.getMask(), 500d, 50d, 20d, 10d));
+		recipes.add(new RecipeSummary(2, "Lunch", 10d, RecipeTag.L.getMask(), 1000d, 100d, 40d, 20d));
+		recipes.add(new RecipeSummary(3, "Dinner", 10d, RecipeTag.D.getMask(), 700d, 60d, 30d, 15d));
+		// unknown nutrition, never chosen
+		recipes.add(new RecipeSummary(4, "Lunch without nutrition", 10d, RecipeTag.L.getMask(), null, null, null, null));
+
+		int[] week = new WeekPlanner(new RecipeScoringKernel(recipes), dietPlan).plan(0, 1, 1);
+
+		for (int day = 0; day < WeekPlanner.DAYS; day++) {
+			Assert.assertArrayEquals(new int[] { 0, 1, 2 },
+					Arrays.copyOfRange(week, day * WeekPlanner.MEALS.length, (day + 1) * WeekPlanner.MEALS.length));
+		}
+	}
+
+	@Test(expected = NoOptimalSolutionException.class)
+	public void testWeekPlanner_noDinnerRecipes_throwException() throws NoOptimalSolutionException {
+		List<RecipeSummary> recipes = new ArrayList<>();
+		recipes.add(new RecipeSummary(1, "Breakfast", 10d, RecipeTag.B.getMask(), 500d, 50d, 20d, 10d));
+		recipes.add(new RecipeSummary(2, "Lunch", 10d, RecipeTag.L.getMask(), 1000d, 100d, 40d, 20d));
+
+		new WeekPlanner(new RecipeScoringKernel(recipes), dietPlan);
+	}
+}
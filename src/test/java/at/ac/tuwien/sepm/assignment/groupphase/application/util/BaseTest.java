@@ -24,8 +24,8 @@ public class BaseTest {
 	@Before
 	public void beforeMethod() {
 		setSystemPropertiesForTests();
-		LOG.info("Closing JDBC Connection - before test method invokation.");
-		JDBCConnectionManager.closeConnection();
+		LOG.info("Closing JDBC Connection pool - before test method invokation.");
+		JDBCConnectionManager.closePool();
 	}
 
 }
@@ -0,0 +1,73 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.IngredientSearchParam;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.PersistenceException;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.RecipePersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation.DBRecipePersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation.DBTagPersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.BaseTest;
+
+public class IngredientCatalogTest extends BaseTest {
+
+	@Test
+	public void testCreateRecipe_userSpecificIngredient_catalogHasItAndRecipesShareItsName()
+			throws PersistenceException {
+		RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+		Recipe recipe = new Recipe("Catalog test", 10d, "Test", EnumSet.of(RecipeTag.B));
+		List<RecipeIngredient> ingredients = new ArrayList<>();
+		ingredients.add(new RecipeIngredient(1, 2d, false));
+		ingredients.add(new RecipeIngredient(3d, 120d, 5d, 8d, 12d, "cup", 40d, true, "Catalog test ingredient"));
+		recipe.setRecipeIngredients(ingredients);
+		recipePersistence.create(recipe);
+
+		int ingredientId = ingredients.get(1).getId();
+		Assert.assertTrue(IngredientCatalog.getInstance().contains(ingredientId));
+
+		RecipeIngredient first = ingredient(recipePersistence.get(recipe.getId()), ingredientId);
+		RecipeIngredient second = ingredient(recipePersistence.get(recipe.getId()), ingredientId);
+		Assert.assertNotSame(first, second);
+		Assert.assertSame(first.getIngredientName(), second.getIngredientName());
+		Assert.assertSame(first.getUnitName(), second.getUnitName());
+		Assert.assertEquals(120d, first.getEnergyKcal(), 0.0);
+		Assert.assertEquals(40d, first.getUnitGramNormalised(), 0.0);
+		Assert.assertEquals(3d, first.getAmount(), 0.0);
+		Assert.assertTrue(first.getUserSpecific());
+
+		IngredientSearchParam searchParam = new IngredientSearchParam("catalog test ingredient");
+		Assert.assertSame(first.getIngredientName(),
+				recipePersistence.searchIngredient(searchParam).get(0).getIngredientName());
+	}
+
+	@Test
+	public void testFillNutritionValues_storedAndNewIngredients_sameTotalsAsFromIngredientValues()
+			throws PersistenceException {
+		Recipe stored = new DBRecipePersistence(new DBTagPersistence()).get(1);
+		stored.getRecipeIngredients().add(new RecipeIngredient(2d, 100d, 10d, 20d, 30d, "g", 50d, true, "New"));
+
+		double calories = 0;
+		double fats = 0;
+		for (RecipeIngredient ingredient : stored.getRecipeIngredients()) {
+			double weight = ingredient.getAmount() * ingredient.getUnitGramNormalised();
+			calories += weight * ingredient.getEnergyKcal() / 100;
+			fats += weight * ingredient.getLipid() / 100;
+		}
+
+		NutritionUtil.fillNutritionValues(stored);
+		Assert.assertEquals(calories, stored.getCalories(), 0.001);
+		Assert.assertEquals(fats, stored.getFats(), 0.001);
+	}
+
+	private static RecipeIngredient ingredient(Recipe recipe, int ingredientId) {
+		return recipe.getRecipeIngredients().stream().filter(ri -> ri.getId() == ingredientId).findFirst().get();
+	}
+}
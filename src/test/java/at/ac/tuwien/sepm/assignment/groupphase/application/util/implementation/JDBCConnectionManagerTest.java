@@ -4,10 +4,24 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.Recipe;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeIngredient;
+import at.ac.tuwien.sepm.assignment.groupphase.application.dto.RecipeTag;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.RecipePersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation.DBRecipePersistence;
+import at.ac.tuwien.sepm.assignment.groupphase.application.persistence.implementation.DBTagPersistence;
 import at.ac.tuwien.sepm.assignment.groupphase.application.util.BaseTest;
 
 public class JDBCConnectionManagerTest extends BaseTest {
@@ -35,4 +49,142 @@ public class JDBCConnectionManagerTest extends BaseTest {
 		JDBCConnectionManager.closeConnection();
 	}
 
+	@Test
+	@SuppressWarnings("try")
+	public void testOpenConnectionScope_moreThreadsThanConnections_connectionsHandedBackToPool() throws Exception {
+		countRecipes();
+		int active = JDBCConnectionManager.getActiveConnections();
+
+		// each task runs on a new thread, without the scopes the eleventh thread would wait for a connection
+		for (int i = 0; i < 15; i++) {
+			Thread thread = new Thread(() -> {
+				try (ConnectionScope scope = JDBCConnectionManager.openConnectionScope()) {
+					countRecipes();
+				} catch (SQLException e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			thread.start();
+			thread.join(TimeUnit.SECONDS.toMillis(10));
+			Assert.assertFalse(thread.isAlive());
+		}
+
+		Assert.assertEquals(active, JDBCConnectionManager.getActiveConnections());
+	}
+
+	@Test
+	public void testBeginTransaction_notCommitted_changesAreInvisibleToOtherThreadsAndRolledBack() throws Exception {
+		int before = countRecipes();
+
+		try (TransactionScope transaction = JDBCConnectionManager.beginTransaction()) {
+			insertRecipe(transaction.getConnection());
+			Assert.assertEquals(before + 1, countRecipes());
+			Assert.assertEquals(before, (int) runOnOtherThread(() -> countRecipes()));
+		}
+
+		Assert.assertEquals(before, countRecipes());
+		Assert.assertTrue(JDBCConnectionManager.getConnection().getAutoCommit());
+	}
+
+	@Test
+	public void testBeginTransaction_nestedScopeNotCommitted_outerCommitFails() throws Exception {
+		int before = countRecipes();
+
+		try (TransactionScope outer = JDBCConnectionManager.beginTransaction()) {
+			insertRecipe(outer.getConnection());
+			try (TransactionScope inner = JDBCConnectionManager.beginTransaction()) {
+				Assert.assertSame(outer.getConnection(), inner.getConnection());
+				insertRecipe(inner.getConnection());
+			}
+			outer.commit();
+			Assert.fail("Commit of the outer scope should fail");
+		} catch (SQLException e) {
+			// expected
+		}
+
+		Assert.assertEquals(before, countRecipes());
+	}
+
+	@Test
+	public void testGetConnection_concurrentReadersAndWriters_noErrorsAndAllRecipesCreated() throws Exception {
+		final int writers = 4;
+		final int readers = 4;
+		final int recipesPerWriter = 10;
+		int before = countRecipes();
+
+		ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int w = 0; w < writers; w++) {
+				final int writer = w;
+				futures.add(executor.submit(withConnection(() -> {
+					RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+					for (int i = 0; i < recipesPerWriter; i++) {
+						Recipe recipe = new Recipe("Stress recipe " + writer + "-" + i, 10d, "Test",
+								EnumSet.of(RecipeTag.B));
+						List<RecipeIngredient> ingredients = new ArrayList<>();
+						ingredients.add(new RecipeIngredient(1, 1d + i, false));
+						recipe.setRecipeIngredients(ingredients);
+						recipePersistence.create(recipe);
+
+						recipe.setName("Updated stress recipe " + writer + "-" + i);
+						recipePersistence.update(recipe);
+					}
+					return null;
+				})));
+			}
+			for (int r = 0; r < readers; r++) {
+				futures.add(executor.submit(withConnection(() -> {
+					RecipePersistence recipePersistence = new DBRecipePersistence(new DBTagPersistence());
+					for (int i = 0; i < 20; i++) {
+						recipePersistence.getRecipeSummaries();
+						recipePersistence.getRecipes();
+					}
+					return null;
+				})));
+			}
+
+			for (Future<?> f : futures) {
+				f.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assert.assertEquals(before + writers * recipesPerWriter, countRecipes());
+	}
+
+	@SuppressWarnings("try")
+	private static <T> Callable<T> withConnection(Callable<T> task) {
+		return () -> {
+			try (ConnectionScope scope = JDBCConnectionManager.openConnectionScope()) {
+				return task.call();
+			}
+		};
+	}
+
+	private static <T> T runOnOtherThread(Callable<T> task) throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			return executor.submit(withConnection(task)).get(10, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static int countRecipes() throws SQLException {
+		try (PreparedStatement ps = JDBCConnectionManager.getConnection().prepareStatement("select count(*) from RECIPE;");
+				ResultSet rs = ps.executeQuery()) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	private static void insertRecipe(Connection connection) throws SQLException {
+		try (PreparedStatement ps = connection
+				.prepareStatement("insert into RECIPE (name, duration, description, tags) values ('Test', 1, 'Test', 'B');")) {
+			ps.executeUpdate();
+		}
+	}
+
 }
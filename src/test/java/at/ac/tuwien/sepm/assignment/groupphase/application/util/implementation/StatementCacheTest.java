@@ -0,0 +1,95 @@
+package at.ac.tuwien.sepm.assignment.groupphase.application.util.implementation;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import at.ac.tuwien.sepm.assignment.groupphase.application.util.BaseTest;
+
+public class StatementCacheTest extends BaseTest {
+
+	private static final String SQL_A = "select count(*) from INGREDIENT where id > ?;";
+	private static final String SQL_B = "select count(*) from RECIPE;";
+	private static final String SQL_C = "select count(*) from DIET_PLAN;";
+
+	@Test
+	public void testPrepareStatement_sameSqlAfterClose_cachedStatementIsReused() throws SQLException {
+		StatementCache cache = new StatementCache(JDBCConnectionManager.getConnection(), 10);
+
+		PreparedStatement first = cache.getConnection().prepareStatement(SQL_A);
+		first.setInt(1, 0);
+		Assert.assertTrue(count(first) > 0);
+		first.close();
+
+		PreparedStatement second = cache.getConnection().prepareStatement(SQL_A);
+		Assert.assertSame(first, second);
+		second.setInt(1, Integer.MAX_VALUE);
+		Assert.assertEquals(0, count(second));
+		second.close();
+
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+		Assert.assertEquals(0.5, cache.getHitRate(), 0.0);
+		cache.close();
+	}
+
+	@Test
+	public void testPrepareStatement_sameSqlWhileInUse_plainStatementIsPrepared() throws SQLException {
+		StatementCache cache = new StatementCache(JDBCConnectionManager.getConnection(), 10);
+
+		PreparedStatement inUse = cache.prepareStatement(SQL_B, Statement.NO_GENERATED_KEYS);
+		PreparedStatement other = cache.prepareStatement(SQL_B, Statement.NO_GENERATED_KEYS);
+		Assert.assertNotSame(inUse, other);
+		Assert.assertEquals(count(inUse), count(other));
+
+		other.close();
+		Assert.assertTrue(other.isClosed());
+		inUse.close();
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals(0, cache.getHits());
+		cache.close();
+	}
+
+	@Test
+	public void testPrepareStatement_cacheIsFull_leastRecentlyUsedStatementIsEvicted() throws SQLException {
+		StatementCache cache = new StatementCache(JDBCConnectionManager.getConnection(), 2);
+
+		cache.prepareStatement(SQL_A, Statement.NO_GENERATED_KEYS).close();
+		cache.prepareStatement(SQL_B, Statement.NO_GENERATED_KEYS).close();
+		cache.prepareStatement(SQL_A, Statement.NO_GENERATED_KEYS).close();
+		cache.prepareStatement(SQL_C, Statement.NO_GENERATED_KEYS).close();
+
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals(1, cache.getEvictions());
+
+		// A was used more recently than B
+		cache.prepareStatement(SQL_A, Statement.NO_GENERATED_KEYS).close();
+		Assert.assertEquals(2, cache.getHits());
+		cache.prepareStatement(SQL_B, Statement.NO_GENERATED_KEYS).close();
+		Assert.assertEquals(2, cache.getHits());
+		Assert.assertEquals(4, cache.getMisses());
+		cache.close();
+	}
+
+	@Test
+	public void testGetConnection_repeatedQueries_servedFromStatementCache() throws SQLException {
+		for (int i = 0; i < 3; i++) {
+			PreparedStatement ps = JDBCConnectionManager.getConnection().prepareStatement(SQL_B);
+			count(ps);
+			ps.close();
+		}
+
+		Assert.assertTrue(JDBCConnectionManager.getStatementCache().getHits() >= 2);
+	}
+
+	private static int count(PreparedStatement ps) throws SQLException {
+		try (ResultSet rs = ps.executeQuery()) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+}
@@ -1,11 +1,16 @@
 -- CLEAN DATABASE, except external ingredient data
 
+DELETE FROM recipe_image_thumbnail;
 DELETE FROM recipe_image;
 DELETE FROM recipe_ingredient;
 DELETE FROM diet_plan_suggestion;
+DELETE FROM suggestion_slot;
+DELETE FROM recipe_popularity;
+DELETE FROM recipe_tag;
 DELETE FROM recipe;
 DELETE FROM ingredient WHERE user_specific=TRUE;
 DELETE FROM diet_plan;
+DELETE FROM tag WHERE meal = FALSE;
 
 -- INSERT DEFAULT DATA
 
@@ -347,3 +352,16 @@ INSERT INTO RECIPE_INGREDIENT(INGREDIENT_ID, RECIPE_ID, AMOUNT)
 VALUES(2848,20, 0.25); /* Carrots */
 INSERT INTO RECIPE_INGREDIENT(INGREDIENT_ID, RECIPE_ID, AMOUNT)
 VALUES(111,20, 0.25); /* Eggs */
+
+-- tag masks of the recipes above, which only list their meal tags
+UPDATE RECIPE SET TAG_MASK = CASEWHEN(TAGS LIKE '%B%', 1, 0) + CASEWHEN(TAGS LIKE '%D%', 2, 0) + CASEWHEN(TAGS LIKE '%L%', 4, 0);
+INSERT INTO RECIPE_TAG (TAG_BIT, RECIPE_ID)
+  SELECT t.BIT, r.ID FROM RECIPE r JOIN TAG t ON BITAND(r.TAG_MASK, CAST(POWER(2, t.BIT) AS BIGINT)) <> 0;
+
+-- nutrition totals of the recipes above
+UPDATE RECIPE r SET (CALORIES, CARBOHYDRATES, PROTEINS, FATS) = (
+    SELECT COALESCE(SUM(ri.AMOUNT * i.UNIT_GRAM_NORMALISED * i.ENERG_KCAL / 100), 0),
+      COALESCE(SUM(ri.AMOUNT * i.UNIT_GRAM_NORMALISED * i.CARBOHYDRT / 100), 0),
+      COALESCE(SUM(ri.AMOUNT * i.UNIT_GRAM_NORMALISED * i.PROTEIN / 100), 0),
+      COALESCE(SUM(ri.AMOUNT * i.UNIT_GRAM_NORMALISED * i.LIPID / 100), 0)
+    FROM RECIPE_INGREDIENT ri JOIN INGREDIENT i ON i.ID = ri.INGREDIENT_ID WHERE ri.RECIPE_ID = r.ID);